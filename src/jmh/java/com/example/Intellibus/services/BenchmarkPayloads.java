@@ -0,0 +1,209 @@
+package com.example.Intellibus.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import com.example.Intellibus.models.chat.ChatAnalysisRequest;
+import com.example.Intellibus.models.chat.ChatAnalysisRequest.ChatMessage;
+import com.example.Intellibus.models.report.DailyMonitoringReportRequest;
+import com.example.Intellibus.models.report.EngagementMetricsRequest;
+import com.example.Intellibus.models.report.PostEventReportRequest;
+import com.example.Intellibus.models.report.ReportRequest;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Deterministic payloads of a requested size for the benchmarks
+ */
+final class BenchmarkPayloads {
+
+	private static final String[] WORDS = { "the", "event", "was", "great", "but", "registration", "took", "forever",
+			"speakers", "were", "engaging", "and", "the", "venue", "felt", "crowded", "during", "lunch", "I", "loved",
+			"networking", "session", "Wi-Fi", "kept", "dropping", "would", "attend", "again", "next", "year",
+			"schedule", "ran", "late", "app", "made", "it", "easy", "to", "find", "rooms", "coffee", "was", "cold" };
+
+	private static final String[] CHANNELS = { "email", "web", "mobile", "social", "in-person" };
+
+	private BenchmarkPayloads() {
+	}
+
+	static ObjectMapper objectMapper() {
+		ObjectMapper objectMapper = new ObjectMapper();
+		objectMapper.registerModule(new JavaTimeModule());
+		return objectMapper;
+	}
+
+	/**
+	 * Alternating user/assistant messages whose contents add up to roughly the given size
+	 */
+	static ChatAnalysisRequest chat(int bytes) {
+		SplittableRandom random = new SplittableRandom(bytes);
+		List<ChatMessage> messages = new ArrayList<>();
+		int size = 0;
+		for (int i = 0; size < bytes; i++) {
+			String content = sentence(random, 8 + random.nextInt(40));
+			messages.add(new ChatMessage(i % 2 == 0 ? "user" : "assistant", content,
+					LocalDateTime.of(2025, 3, 1, 9, 0).plusSeconds(i * 17L).toString()));
+			size += content.length();
+		}
+		return new ChatAnalysisRequest(messages, "Support conversation about a conference", "user-42");
+	}
+
+	/**
+	 * Report data rows whose JSON form is roughly the given size
+	 */
+	static List<Map<String, Object>> reportData(int bytes) {
+		SplittableRandom random = new SplittableRandom(bytes);
+		List<Map<String, Object>> rows = new ArrayList<>();
+		int size = 0;
+		for (int i = 0; size < bytes; i++) {
+			Map<String, Object> row = new LinkedHashMap<>();
+			row.put("date", LocalDate.of(2025, 1, 1).plusDays(i % 365).toString());
+			row.put("channel", CHANNELS[random.nextInt(CHANNELS.length)]);
+			row.put("impressions", random.nextInt(100_000));
+			row.put("clicks", random.nextInt(5_000));
+			row.put("conversionRate", random.nextDouble());
+			row.put("comment", sentence(random, 6 + random.nextInt(12)));
+			rows.add(row);
+			size += 130 + ((String) row.get("comment")).length();
+		}
+		return rows;
+	}
+
+	static ReportRequest genericReport(int bytes) {
+		ReportRequest request = new ReportRequest();
+		fillReport(request, "quarterly", bytes);
+		return request;
+	}
+
+	static EngagementMetricsRequest engagementReport(int bytes) {
+		EngagementMetricsRequest request = new EngagementMetricsRequest();
+		fillReport(request, "engagement", bytes);
+		request.setMetricsToInclude(List.of("impressions", "clicks", "conversionRate"));
+		request.setBreakdownCategories(Map.of("channel", List.of(CHANNELS), "region", List.of("NA", "EU", "APAC")));
+		request.setAudience("Marketing leadership");
+		request.setChannels(List.of(CHANNELS));
+		request.setIncludeSentimentAnalysis(true);
+		return request;
+	}
+
+	static PostEventReportRequest postEventReport(int bytes) {
+		SplittableRandom random = new SplittableRandom(bytes);
+		PostEventReportRequest request = new PostEventReportRequest();
+		fillReport(request, "post-event", bytes / 2);
+		request.setEventType("Conference");
+		request.setLocation("Kingston");
+		request.setEventDateTime(LocalDateTime.of(2025, 3, 1, 9, 0));
+		request.setParticipantCount(1200);
+		request.setSponsors(List.of("Acme", "Globex", "Initech"));
+		request.setActivities(List.of("Keynote", "Workshops", "Hackathon", "Networking"));
+		List<String> feedback = new ArrayList<>();
+		for (int size = 0; size < bytes / 2;) {
+			String item = sentence(random, 10 + random.nextInt(30));
+			feedback.add(item);
+			size += item.length();
+		}
+		request.setParticipantFeedback(feedback);
+		request.setKpis(Map.of("attendance", 1200, "nps", 47, "sessionsFull", 0.82));
+		request.setIncludeRecommendations(true);
+		return request;
+	}
+
+	static DailyMonitoringReportRequest dailyMonitoringReport(int bytes) {
+		DailyMonitoringReportRequest request = new DailyMonitoringReportRequest();
+		fillReport(request, "daily-monitoring", bytes);
+		request.setMetricsToTrack(List.of("activeUsers", "messages", "errorRate"));
+		request.setCurrentMetrics(Map.of("activeUsers", 5120, "messages", 48211, "errorRate", 0.012));
+		request.setPreviousPeriodMetrics(Map.of("activeUsers", 4980, "messages", 45102, "errorRate", 0.009));
+		request.setTargetMetrics(Map.of("activeUsers", 5500, "errorRate", 0.01));
+		request.setNotableEvents(List.of("Release 2.3 deployed", "Email campaign sent"));
+		request.setTimeInterval("24h");
+		request.setHighlightTrends(true);
+		request.setIncludeAlerts(true);
+		request.setAlertThresholds(Map.of("errorRate", 0.02));
+		return request;
+	}
+
+	static SentimentAnalysisRequest sentiment(int bytes) {
+		SplittableRandom random = new SplittableRandom(bytes);
+		StringBuilder text = new StringBuilder();
+		while (text.length() < bytes) {
+			text.append(sentence(random, 12)).append(' ');
+		}
+		return new SentimentAnalysisRequest(text.toString(), "Post-event survey", "survey");
+	}
+
+	/**
+	 * A Claude-style reply: prose, then a report JSON object of roughly the given size, then more prose
+	 */
+	static String reportResponse(int bytes) throws Exception {
+		SplittableRandom random = new SplittableRandom(bytes);
+		ObjectMapper objectMapper = objectMapper();
+		ObjectNode root = objectMapper.createObjectNode();
+		root.put("executive_summary", sentence(random, 60));
+		ArrayNode findings = root.putArray("key_findings");
+		ArrayNode recommendations = root.putArray("recommendations");
+		for (int i = 0; i < 5; i++) {
+			findings.add(sentence(random, 20));
+			recommendations.add(sentence(random, 20));
+		}
+		ObjectNode metrics = root.putObject("metrics_data");
+		metrics.put("impressions", 1_204_331).put("clicks", 48_211).put("conversionRate", 0.041);
+		ArrayNode visuals = root.putArray("visual_elements");
+		visuals.addObject().put("type", "bar").put("title", "Clicks by channel").put("description", sentence(random, 15))
+				.putObject("data").put("email", 1200).put("web", 3400);
+
+		ArrayNode sections = root.putArray("sections");
+		int size = objectMapper.writeValueAsString(root).length();
+		for (int i = 0; size < bytes; i++) {
+			ObjectNode section = sections.addObject();
+			section.put("title", "Section " + i);
+			section.put("content", sentence(random, 80));
+			ArrayNode subsections = section.putArray("subsections");
+			subsections.addObject().put("title", "Detail " + i).put("content", sentence(random, 40));
+			size += objectMapper.writeValueAsString(section).length();
+		}
+
+		return "Here is the report you asked for, formatted as JSON:\n\n" + objectMapper.writeValueAsString(root)
+				+ "\n\nLet me know if you would like any changes to the {structure}.";
+	}
+
+	/**
+	 * A Claude-style sentiment reply with prose around the JSON object
+	 */
+	static String sentimentResponse() {
+		return "Sure! Here's the analysis:\n{\"sentiment\": \"MIXED\", \"score\": 0.15, \"confidence\": 0.82, "
+				+ "\"dominant_emotions\": [\"joy\", \"frustration\"], \"key_phrases\": [\"speakers were engaging\", "
+				+ "\"registration took forever\"], \"insights\": \"Positive about content, negative about logistics.\"}\n"
+				+ "I hope this helps.";
+	}
+
+	private static void fillReport(ReportRequest request, String type, int bytes) {
+		request.setReportType(type);
+		request.setTitle("Q1 " + type + " report");
+		request.setStartDate(LocalDate.of(2025, 1, 1));
+		request.setEndDate(LocalDate.of(2025, 3, 31));
+		request.setData(reportData(bytes));
+		request.setContext("Compare against the previous quarter");
+		request.setTags(List.of("q1", type));
+	}
+
+	private static String sentence(SplittableRandom random, int words) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < words; i++) {
+			if (i > 0) {
+				sb.append(' ');
+			}
+			sb.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return sb.append('.').toString();
+	}
+}
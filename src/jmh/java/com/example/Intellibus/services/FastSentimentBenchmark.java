@@ -0,0 +1,46 @@
+package com.example.Intellibus.services;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.Intellibus.config.FastSentimentProperties;
+
+/**
+ * Local lexicon sentiment scoring, the path most sentiment requests take instead of a Claude call
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FastSentimentBenchmark {
+
+	@Param({ "64", "1024", "16384" })
+	int payloadBytes;
+
+	private LexiconSentimentScorer scorer;
+	private String text;
+
+	@Setup
+	public void setUp() {
+		scorer = new LexiconSentimentScorer(new FastSentimentProperties());
+		text = BenchmarkPayloads.sentiment(payloadBytes).getText();
+	}
+
+	@Benchmark
+	public LexiconSentimentScorer.Score score() {
+		return scorer.score(text);
+	}
+}
@@ -0,0 +1,95 @@
+package com.example.Intellibus.services;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.Intellibus.models.chat.ChatAnalysisRequest;
+import com.example.Intellibus.models.report.DailyMonitoringReportRequest;
+import com.example.Intellibus.models.report.EngagementMetricsRequest;
+import com.example.Intellibus.models.report.PostEventReportRequest;
+import com.example.Intellibus.models.report.ReportRequest;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisRequest;
+
+/**
+ * Prompt construction for chat transcripts, report data and sentiment texts
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PromptBuildingBenchmark {
+
+	@Param({ "1024", "65536", "1048576" })
+	int payloadBytes;
+
+	private ReportGenerationService reportService;
+	private SentimentAnalysisService sentimentService;
+	private ChatAnalysisService chatService;
+
+	private ChatAnalysisRequest chat;
+	private ReportRequest genericReport;
+	private EngagementMetricsRequest engagementReport;
+	private PostEventReportRequest postEventReport;
+	private DailyMonitoringReportRequest dailyMonitoringReport;
+	private SentimentAnalysisRequest sentiment;
+
+	@Setup
+	public void setUp() {
+		reportService = new ReportGenerationService();
+		ReflectionTestUtils.setField(reportService, "objectMapper", BenchmarkPayloads.objectMapper());
+		sentimentService = new SentimentAnalysisService();
+		ReflectionTestUtils.setField(sentimentService, "objectMapper", BenchmarkPayloads.objectMapper());
+		chatService = new ChatAnalysisService();
+
+		chat = BenchmarkPayloads.chat(payloadBytes);
+		genericReport = BenchmarkPayloads.genericReport(payloadBytes);
+		engagementReport = BenchmarkPayloads.engagementReport(payloadBytes);
+		postEventReport = BenchmarkPayloads.postEventReport(payloadBytes);
+		dailyMonitoringReport = BenchmarkPayloads.dailyMonitoringReport(payloadBytes);
+		sentiment = BenchmarkPayloads.sentiment(payloadBytes);
+	}
+
+	@Benchmark
+	public String formatChatForPrompt() {
+		return chatService.formatChatForPrompt(chat);
+	}
+
+	@Benchmark
+	public String buildGenericReportPrompt() {
+		return reportService.buildGenericReportPrompt(genericReport);
+	}
+
+	@Benchmark
+	public String buildEngagementMetricsPrompt() {
+		return reportService.buildEngagementMetricsPrompt(engagementReport);
+	}
+
+	@Benchmark
+	public String buildPostEventPrompt() {
+		return reportService.buildPostEventPrompt(postEventReport);
+	}
+
+	@Benchmark
+	public String buildDailyMonitoringPrompt() {
+		return reportService.buildDailyMonitoringPrompt(dailyMonitoringReport);
+	}
+
+	@Benchmark
+	public String buildSentimentPrompt() {
+		return sentimentService.buildPrompt(sentiment);
+	}
+}
@@ -0,0 +1,69 @@
+package com.example.Intellibus.services;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Messages API request encoding: the typed writer against serializing a map tree, both into a sink stream
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestEncodingBenchmark {
+
+	private static final String SYSTEM_PROMPT = "You are a helpful assistant.";
+
+	@Param({ "1024", "65536", "1048576" })
+	int payloadBytes;
+
+	private ObjectMapper objectMapper;
+	private MessagesRequestWriter writer;
+	private String prompt;
+	private OutputStream sink;
+
+	@Setup
+	public void setUp() throws Exception {
+		// Like a message converter, the map variant must leave the sink open
+		objectMapper = BenchmarkPayloads.objectMapper().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		writer = new MessagesRequestWriter(objectMapper.getFactory(), "claude-3-haiku-20240307", 0.7, SYSTEM_PROMPT);
+		prompt = BenchmarkPayloads.reportResponse(payloadBytes);
+		sink = OutputStream.nullOutputStream();
+	}
+
+	@Benchmark
+	public void typedWriter() throws Exception {
+		writer.write(sink, prompt, 1000, false);
+	}
+
+	@Benchmark
+	public void mapTree() throws Exception {
+		Map<String, Object> body = Map.of(
+				"model", "claude-3-haiku-20240307",
+				"max_tokens", 1000,
+				"temperature", 0.7,
+				"system", SYSTEM_PROMPT,
+				"messages", List.of(Map.of("role", "user",
+						"content", List.of(Map.of("type", "text", "text", prompt)))));
+		objectMapper.writeValue(sink, body);
+	}
+}
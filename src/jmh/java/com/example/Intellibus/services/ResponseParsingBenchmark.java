@@ -0,0 +1,78 @@
+package com.example.Intellibus.services;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.Intellibus.models.report.ReportResponse;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * JSON extraction from Claude's reply text and parsing into the response models
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseParsingBenchmark {
+
+	@Param({ "1024", "65536", "1048576" })
+	int payloadBytes;
+
+	private ReportGenerationService reportService;
+	private StructuredOutputExtractor extractor;
+
+	private String reportResponse;
+	private String sentimentResponse;
+
+	@Setup
+	public void setUp() throws Exception {
+		ObjectMapper objectMapper = BenchmarkPayloads.objectMapper();
+		extractor = new StructuredOutputExtractor(objectMapper);
+		reportService = new ReportGenerationService();
+		ReflectionTestUtils.setField(reportService, "objectMapper", objectMapper);
+		ReflectionTestUtils.setField(reportService, "structuredOutputExtractor", extractor);
+
+		reportResponse = BenchmarkPayloads.reportResponse(payloadBytes);
+		sentimentResponse = BenchmarkPayloads.sentimentResponse();
+	}
+
+	/**
+	 * Extraction and binding of a report in one pass over the reply text
+	 */
+	@Benchmark
+	public ReportResponse parseReportResponse() throws Exception {
+		return reportService.parseReportResponse(reportResponse, "report_1", "quarterly", "Q1 report");
+	}
+
+	/**
+	 * Extraction of the same reply into a tree, for comparison with binding
+	 */
+	@Benchmark
+	public JsonNode extractReportTree() throws Exception {
+		return extractor.extractObject(reportResponse, JsonNode.class);
+	}
+
+	/**
+	 * Sentiment replies are small and fixed-size, so this one ignores the payload size
+	 */
+	@Benchmark
+	public SentimentAnalysisResult parseSentimentResult() throws Exception {
+		return extractor.extractObject(sentimentResponse, SentimentAnalysisResult.class);
+	}
+}
@@ -1,21 +1,27 @@
 package com.example.Intellibus.config;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 @Configuration
+@EnableConfigurationProperties({ ResponseCacheProperties.class, RateLimitProperties.class, PersistenceProperties.class,
+        ReportStoreProperties.class, ChunkingProperties.class, TokenBudgetProperties.class,
+        HealthProperties.class, FastSentimentProperties.class, MessageBatchProperties.class,
+        PromptCacheProperties.class })
 public class AppConfig {
 
     /**
-     * Configure the RestTemplate for making HTTP requests
+     * Configure the RestTemplate for making HTTP requests over the pooled client
      */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(ClientHttpRequestFactory clientHttpRequestFactory) {
+        return new RestTemplate(clientHttpRequestFactory);
     }
     
     /**
@@ -0,0 +1,36 @@
+package com.example.Intellibus.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Execution settings for the {@code /async} endpoints
+ */
+@Data
+@ConfigurationProperties(prefix = "intellibus.async")
+public class AsyncExecutorProperties {
+
+    /**
+     * How async tasks are run
+     */
+    public enum Mode {
+        /** One virtual thread per task, with concurrency limited by a semaphore */
+        VIRTUAL,
+        /** Fixed pool of platform threads */
+        PLATFORM
+    }
+
+    private Mode mode = Mode.VIRTUAL;
+
+    /**
+     * Maximum number of async tasks running at once
+     * (the pool size in platform mode)
+     */
+    private int maxConcurrent = 64;
+
+    /**
+     * Maximum number of accepted tasks waiting to run; further requests are rejected with 429
+     */
+    private int queueCapacity = 256;
+}
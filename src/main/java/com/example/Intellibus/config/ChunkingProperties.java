@@ -0,0 +1,28 @@
+package com.example.Intellibus.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for splitting oversized transcripts and report data into chunks analyzed in parallel
+ */
+@Data
+@ConfigurationProperties(prefix = "intellibus.chunking")
+public class ChunkingProperties {
+
+    /**
+     * Estimated input tokens of content per Claude call; larger inputs are split at message or record boundaries
+     */
+    private int maxChunkTokens = 6000;
+
+    /**
+     * Partial results merged by one reduce step; more partials than this are reduced in a tree
+     */
+    private int reduceFanIn = 8;
+
+    /**
+     * Chunks of one input analyzed at the same time
+     */
+    private int maxParallelChunks = 8;
+}
@@ -0,0 +1,184 @@
+package com.example.Intellibus.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * HttpComponents request factory that enforces a total deadline on every exchange.
+ * Connect and read timeouts only bound individual socket operations, so a slowly
+ * trickling response could otherwise hold the calling thread indefinitely.
+ *
+ * The deadline starts when the request is executed and is cancelled when its response is
+ * closed, so it can only abort exchanges that are still running.
+ */
+@Slf4j
+public class DeadlineClientHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    private final ScheduledExecutorService deadlineScheduler;
+    private final Duration totalTimeout;
+
+    // Hands the HttpComponents request created by super.createRequest back to createRequest
+    private final ThreadLocal<Cancellable> createdRequest = new ThreadLocal<>();
+
+    public DeadlineClientHttpRequestFactory(HttpClient httpClient, ScheduledExecutorService deadlineScheduler,
+            Duration totalTimeout) {
+        super(httpClient);
+        this.deadlineScheduler = deadlineScheduler;
+        this.totalTimeout = totalTimeout;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        ClientHttpRequest request;
+        Cancellable cancellable;
+        try {
+            request = super.createRequest(uri, httpMethod);
+            cancellable = createdRequest.get();
+        } finally {
+            createdRequest.remove();
+        }
+
+        if (cancellable == null || totalTimeout == null || totalTimeout.isZero() || totalTimeout.isNegative()) {
+            return request;
+        }
+        return new DeadlineRequest(request, cancellable);
+    }
+
+    @Override
+    protected ClassicHttpRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+        ClassicHttpRequest request = super.createHttpUriRequest(httpMethod, uri);
+        if (request instanceof Cancellable cancellable) {
+            createdRequest.set(cancellable);
+        }
+        return request;
+    }
+
+    /**
+     * Schedule the abort of a request at its deadline
+     */
+    private ScheduledFuture<?> scheduleDeadline(Cancellable request, HttpMethod httpMethod, URI uri) {
+        // Only hold a weak reference so abandoned requests (and their bodies) can be collected
+        WeakReference<Cancellable> requestRef = new WeakReference<>(request);
+        return deadlineScheduler.schedule(() -> {
+            Cancellable pending = requestRef.get();
+            if (pending != null && pending.cancel()) {
+                log.warn("Aborted {} {} after exceeding total deadline of {}ms",
+                        httpMethod, uri, totalTimeout.toMillis());
+            }
+        }, totalTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Request that arms the deadline when executed and hands it to its response
+     */
+    private final class DeadlineRequest implements ClientHttpRequest, StreamingHttpOutputMessage {
+        private final ClientHttpRequest delegate;
+        private final Cancellable cancellable;
+
+        DeadlineRequest(ClientHttpRequest delegate, Cancellable cancellable) {
+            this.delegate = delegate;
+            this.cancellable = cancellable;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            ScheduledFuture<?> deadline = scheduleDeadline(cancellable, getMethod(), getURI());
+            try {
+                return new DeadlineResponse(delegate.execute(), deadline);
+            } catch (IOException | RuntimeException e) {
+                deadline.cancel(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public void setBody(Body body) {
+            ((StreamingHttpOutputMessage) delegate).setBody(body);
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return delegate.getMethod();
+        }
+
+        @Override
+        public URI getURI() {
+            return delegate.getURI();
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return delegate.getAttributes();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+    }
+
+    /**
+     * Response that cancels its exchange's deadline when closed
+     */
+    private static final class DeadlineResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final ScheduledFuture<?> deadline;
+
+        DeadlineResponse(ClientHttpResponse delegate, ScheduledFuture<?> deadline) {
+            this.delegate = delegate;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            deadline.cancel(false);
+            delegate.close();
+        }
+    }
+}
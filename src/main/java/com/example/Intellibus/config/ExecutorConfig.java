@@ -0,0 +1,52 @@
+package com.example.Intellibus.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Executors for work that fans out to Claude concurrently
+ */
+@Configuration
+@EnableConfigurationProperties(AsyncExecutorProperties.class)
+public class ExecutorConfig {
+
+    /**
+     * Bounded pool for the concurrent parts of a chat analysis.
+     * When the queue is full further tasks are rejected, and the analysis returns
+     * partial results rather than running them past its deadline on the request thread.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService analysisExecutor(
+            @Value("${intellibus.chat-analysis.executor-threads:16}") int threads,
+            @Value("${intellibus.chat-analysis.executor-queue-capacity:256}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "analysis-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Virtual-thread-per-task executor that pumps streamed responses to SSE clients.
+     * Each stream spends nearly all of its time blocked on I/O, so platform threads would be wasted.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService streamingExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("stream-", 0).factory());
+    }
+}
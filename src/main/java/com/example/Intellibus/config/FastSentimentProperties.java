@@ -0,0 +1,32 @@
+package com.example.Intellibus.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import com.example.Intellibus.models.sentiment.SentimentMode;
+
+import lombok.Data;
+
+/**
+ * Settings for the local lexicon sentiment scorer and when its results are escalated to Claude
+ */
+@Data
+@ConfigurationProperties(prefix = "intellibus.sentiment.fast-path")
+public class FastSentimentProperties {
+
+    /**
+     * Mode for requests that do not name one
+     */
+    private SentimentMode defaultMode = SentimentMode.AUTO;
+
+    /**
+     * In auto mode, local results less confident than this are analyzed by Claude instead
+     */
+    private double confidenceThreshold = 0.7;
+
+    /**
+     * Word list with valences, one {@code word<TAB>valence} per line
+     */
+    private Resource lexicon = new ClassPathResource("sentiment/lexicon.tsv");
+}
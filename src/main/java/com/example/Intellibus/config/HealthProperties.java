@@ -0,0 +1,40 @@
+package com.example.Intellibus.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Thresholds that turn recent outcomes and latencies of each service into a health status
+ */
+@Data
+@ConfigurationProperties(prefix = "intellibus.health")
+public class HealthProperties {
+
+    /**
+     * Most recent outcomes per service that the error rate is computed over
+     */
+    private int window = 100;
+
+    /**
+     * Outcomes needed in the window before the error rate counts; fewer report UP
+     */
+    private int minimumRequests = 10;
+
+    /**
+     * Error rate at or above which a service is DEGRADED
+     */
+    private double degradedErrorRate = 0.1;
+
+    /**
+     * Error rate at or above which a service is DOWN
+     */
+    private double downErrorRate = 0.5;
+
+    /**
+     * p99 latency over the last couple of minutes above which a service is DEGRADED
+     */
+    private Duration slowP99 = Duration.ofSeconds(60);
+}
@@ -0,0 +1,60 @@
+package com.example.Intellibus.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Connection pool and timeout settings for the outbound HTTP client
+ */
+@Data
+@ConfigurationProperties(prefix = "intellibus.http-client")
+public class HttpClientProperties {
+
+    /**
+     * Maximum number of pooled connections across all routes
+     */
+    private int maxTotal = 50;
+
+    /**
+     * Maximum number of pooled connections per route (host)
+     */
+    private int maxPerRoute = 20;
+
+    /**
+     * Time allowed to establish a TCP/TLS connection
+     */
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Maximum time to wait for response data once the request has been sent
+     */
+    private Duration readTimeout = Duration.ofSeconds(120);
+
+    /**
+     * Maximum time to wait for a free connection from the pool
+     */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Hard deadline for a whole exchange; the request is aborted when it expires
+     */
+    private Duration totalTimeout = Duration.ofSeconds(180);
+
+    /**
+     * Idle connections older than this are evicted from the pool
+     */
+    private Duration idleEviction = Duration.ofSeconds(30);
+
+    /**
+     * Maximum lifetime of a pooled connection
+     */
+    private Duration timeToLive = Duration.ofMinutes(5);
+
+    /**
+     * Pooled connections idle for longer than this are re-validated before reuse
+     */
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+}
@@ -0,0 +1,65 @@
+package com.example.Intellibus.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Bulk jobs sent through the asynchronous Message Batches API
+ */
+@Data
+@ConfigurationProperties(prefix = "intellibus.message-batches")
+public class MessageBatchProperties {
+
+    /**
+     * Whether the bulk job endpoints run
+     */
+    private boolean enabled = true;
+
+    /**
+     * Message Batches endpoint; empty to use spring.ai.anthropic.base-url followed by /batches
+     */
+    private String url = "";
+
+    /**
+     * Most items accepted in one bulk job
+     */
+    private int maxItemsPerJob = 100000;
+
+    /**
+     * Most requests sent in one batch; larger jobs are split over several batches (the API allows 100,000)
+     */
+    private int maxRequestsPerBatch = 10000;
+
+    /**
+     * Wait before the first status check of a batch
+     */
+    private Duration pollInitialDelay = Duration.ofSeconds(30);
+
+    /**
+     * Longest wait between status checks
+     */
+    private Duration pollMaxDelay = Duration.ofMinutes(5);
+
+    /**
+     * Factor the wait grows by after each check that finds the batch still processing
+     */
+    private double pollMultiplier = 2.0;
+
+    /**
+     * How long a job waits for its batches before cancelling them; batches expire after 24 hours anyway
+     */
+    private Duration maxWait = Duration.ofHours(25);
+
+    /**
+     * How long finished jobs, with their sentiment results, stay queryable
+     */
+    private Duration statusRetention = Duration.ofHours(24);
+
+    /**
+     * Maximum number of jobs kept
+     */
+    private int maxJobs = 100;
+}
@@ -0,0 +1,50 @@
+package com.example.Intellibus.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Write-behind persistence of results and request metrics
+ */
+@Data
+@ConfigurationProperties(prefix = "intellibus.persistence")
+public class PersistenceProperties {
+
+    /**
+     * Whether results and metrics are written to the database (spring.datasource.*)
+     */
+    private boolean enabled = false;
+
+    /**
+     * Create the tables and indexes on the first write if they do not exist
+     */
+    private boolean initializeSchema = true;
+
+    /**
+     * Writes held in memory while the database is slow or down; further writes are dropped
+     */
+    private int bufferCapacity = 10000;
+
+    /**
+     * Most rows sent in one JDBC batch
+     */
+    private int batchSize = 500;
+
+    /**
+     * Longest a write waits for more to batch with
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    /**
+     * Upper bound of the exponential backoff between retries of a failed batch
+     */
+    private Duration maxRetryBackoff = Duration.ofSeconds(30);
+
+    /**
+     * Longest to spend flushing the buffer on shutdown
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,30 @@
+package com.example.Intellibus.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Prompt caching of the static parts of Claude requests: tools, system prompt and prompt instructions
+ */
+@Data
+@ConfigurationProperties(prefix = "intellibus.prompt-cache")
+public class PromptCacheProperties {
+
+    /**
+     * Whether requests mark their static prefixes as cacheable
+     */
+    private boolean enabled = true;
+
+    /**
+     * How long a cached prefix lives after its last use: 5m, or 1h at a higher cache write price
+     */
+    private String ttl = "5m";
+
+    /**
+     * TTL to send, or null when caching is off
+     */
+    public String effectiveTtl() {
+        return enabled ? ttl : null;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.Intellibus.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Client-side limits for outbound Claude API calls
+ */
+@Data
+@ConfigurationProperties(prefix = "intellibus.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * Whether calls are governed at all
+     */
+    private boolean enabled = true;
+
+    /**
+     * Requests per minute
+     */
+    private int requestsPerMinute = 50;
+
+    /**
+     * Input tokens per minute
+     */
+    private int inputTokensPerMinute = 40000;
+
+    /**
+     * Output tokens per minute
+     */
+    private int outputTokensPerMinute = 8000;
+
+    /**
+     * Maximum number of calls in flight at once
+     */
+    private int maxInFlight = 16;
+
+    /**
+     * Longest a caller waits in the queue before giving up
+     */
+    private Duration maxQueueWait = Duration.ofSeconds(60);
+
+    /**
+     * A lower-priority caller that has waited this long is served ahead of higher priorities
+     */
+    private Duration starvationThreshold = Duration.ofSeconds(10);
+
+    /**
+     * How many times a call rejected upstream with 429 is retried after waiting for the limit to reset
+     */
+    private int maxRetries = 2;
+}
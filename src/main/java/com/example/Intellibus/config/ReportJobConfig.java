@@ -0,0 +1,33 @@
+package com.example.Intellibus.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+/**
+ * Topics for the report job pipeline, created on startup if they do not exist
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "intellibus.report-jobs", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReportJobProperties.class)
+public class ReportJobConfig {
+
+    @Bean
+    public NewTopic reportJobTopic(ReportJobProperties properties) {
+        return TopicBuilder.name(properties.getRequestTopic())
+                .partitions(properties.getPartitions())
+                .replicas(properties.getReplicas())
+                .build();
+    }
+
+    @Bean
+    public NewTopic reportResultTopic(ReportJobProperties properties) {
+        return TopicBuilder.name(properties.getResultTopic())
+                .partitions(properties.getPartitions())
+                .replicas(properties.getReplicas())
+                .build();
+    }
+}
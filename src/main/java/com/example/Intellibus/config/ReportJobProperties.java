@@ -0,0 +1,81 @@
+package com.example.Intellibus.config;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Kafka-backed report job pipeline
+ */
+@Data
+@ConfigurationProperties(prefix = "intellibus.report-jobs")
+public class ReportJobProperties {
+
+    /**
+     * Whether the job endpoints and workers run (needs a Kafka broker)
+     */
+    private boolean enabled = false;
+
+    /**
+     * Topic that queued report requests are published to
+     */
+    private String requestTopic = "intellibus.report-jobs";
+
+    /**
+     * Topic that job status changes and finished reports are published to
+     */
+    private String resultTopic = "intellibus.report-results";
+
+    /**
+     * Partitions per topic; caps how many workers across all instances share the load
+     */
+    private int partitions = 12;
+
+    /**
+     * Replication factor for the topics
+     */
+    private short replicas = 1;
+
+    /**
+     * Stable, unique name of this instance; its status consumer group is named after it,
+     * so a restart resumes the same group instead of leaving an abandoned one behind
+     */
+    private String instanceId = defaultInstanceId();
+
+    /**
+     * Consumer group shared by the workers of every instance
+     */
+    private String workerGroup = "intellibus-report-workers";
+
+    /**
+     * Reports generated concurrently by this instance
+     */
+    private int concurrency = 4;
+
+    /**
+     * Longest a submission waits for the broker to acknowledge the job
+     */
+    private Duration sendTimeout = Duration.ofSeconds(5);
+
+    /**
+     * How long finished job statuses stay queryable on each instance
+     */
+    private Duration statusRetention = Duration.ofHours(1);
+
+    /**
+     * Maximum number of job statuses kept on each instance
+     */
+    private int maxStatuses = 10000;
+
+    private static String defaultInstanceId() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "local";
+        }
+    }
+}
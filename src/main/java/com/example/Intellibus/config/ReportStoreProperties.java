@@ -0,0 +1,42 @@
+package com.example.Intellibus.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Data;
+
+/**
+ * Settings for the store of generated reports
+ */
+@Data
+@ConfigurationProperties(prefix = "intellibus.report-store")
+public class ReportStoreProperties {
+
+    /**
+     * Whether generated reports are kept for lookup
+     */
+    private boolean enabled = true;
+
+    /**
+     * Directory of the disk tier
+     */
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "intellibus-reports");
+
+    /**
+     * Reports held in the in-memory tier
+     */
+    private long hotMaximumSize = 500;
+
+    /**
+     * Reports whose JSON is at least this large are gzip-compressed on disk
+     */
+    private DataSize compressionThreshold = DataSize.ofKilobytes(16);
+
+    /**
+     * How long reports are kept on disk
+     */
+    private Duration retention = Duration.ofDays(30);
+}
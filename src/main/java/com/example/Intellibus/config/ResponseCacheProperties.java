@@ -0,0 +1,30 @@
+package com.example.Intellibus.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the Claude response cache
+ */
+@Data
+@ConfigurationProperties(prefix = "intellibus.response-cache")
+public class ResponseCacheProperties {
+
+    /**
+     * Whether responses are cached at all
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of cached responses
+     */
+    private long maximumSize = 10_000;
+
+    /**
+     * How long a cached response stays valid after it was written
+     */
+    private Duration timeToLive = Duration.ofHours(1);
+}
@@ -0,0 +1,33 @@
+package com.example.Intellibus.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+/**
+ * Topics for the sentiment stream processor, created on startup if they do not exist
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "intellibus.sentiment-stream", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(SentimentStreamProperties.class)
+public class SentimentStreamConfig {
+
+    @Bean
+    public NewTopic sentimentRequestTopic(SentimentStreamProperties properties) {
+        return TopicBuilder.name(properties.getInputTopic())
+                .partitions(properties.getPartitions())
+                .replicas(properties.getReplicas())
+                .build();
+    }
+
+    @Bean
+    public NewTopic sentimentResultTopic(SentimentStreamProperties properties) {
+        return TopicBuilder.name(properties.getOutputTopic())
+                .partitions(properties.getPartitions())
+                .replicas(properties.getReplicas())
+                .build();
+    }
+}
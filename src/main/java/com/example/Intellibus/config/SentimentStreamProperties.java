@@ -0,0 +1,87 @@
+package com.example.Intellibus.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Kafka stream processor that scores sentiment continuously
+ */
+@Data
+@ConfigurationProperties(prefix = "intellibus.sentiment-stream")
+public class SentimentStreamProperties {
+
+    /**
+     * Whether the processor runs (needs a Kafka broker)
+     */
+    private boolean enabled = false;
+
+    /**
+     * Topic of SentimentAnalysisRequest JSON records
+     */
+    private String inputTopic = "intellibus.sentiment-requests";
+
+    /**
+     * Topic that SentimentAnalysisResult JSON records are produced to, keyed like their input
+     */
+    private String outputTopic = "intellibus.sentiment-results";
+
+    /**
+     * Partitions per topic
+     */
+    private int partitions = 12;
+
+    /**
+     * Replication factor for the topics
+     */
+    private short replicas = 1;
+
+    /**
+     * Consumer group of the processor
+     */
+    private String group = "intellibus-sentiment-stream";
+
+    /**
+     * Consumer threads on this instance, each with one batch in flight
+     */
+    private int concurrency = 2;
+
+    /**
+     * A batch is sent once it holds this many records...
+     */
+    private int maxBatchSize = 25;
+
+    /**
+     * ...or once its first record has waited this long
+     */
+    private Duration maxBatchWait = Duration.ofMillis(500);
+
+    /**
+     * Poll timeout of the consumer loop
+     */
+    private Duration pollTimeout = Duration.ofMillis(100);
+
+    /**
+     * Partitions are paused while this many Claude calls are queued in the rate limiter,
+     * and resumed once the queue has drained to half of it
+     */
+    private int pauseQueueDepth = 32;
+
+    /**
+     * Longest to wait for the broker to acknowledge a batch of results
+     */
+    private Duration sendTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Wait before consuming a batch again after its Claude calls failed, doubling with each
+     * consecutive failure...
+     */
+    private Duration retryBackoff = Duration.ofSeconds(1);
+
+    /**
+     * ...up to this
+     */
+    private Duration maxRetryBackoff = Duration.ofMinutes(1);
+}
@@ -0,0 +1,47 @@
+package com.example.Intellibus.config;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.example.Intellibus.services.GenerationOptions.UseCase;
+
+import lombok.Data;
+
+/**
+ * Output token budgets per use case and the context limit prompts are checked against
+ */
+@Data
+@ConfigurationProperties(prefix = "intellibus.token-budget")
+public class TokenBudgetProperties {
+
+    /**
+     * Context window of the model; a prompt whose estimate plus its output budget exceeds this is rejected
+     */
+    private int contextWindow = 200000;
+
+    /**
+     * max_tokens per use case; use cases not listed use spring.ai.anthropic.chat.options.max-tokens
+     */
+    private Map<UseCase, Integer> maxOutputTokens = defaultMaxOutputTokens();
+
+    /**
+     * Weight of each new observation in the estimator's calibration against API-reported usage
+     */
+    private double calibrationWeight = 0.05;
+
+    private static Map<UseCase, Integer> defaultMaxOutputTokens() {
+        Map<UseCase, Integer> defaults = new EnumMap<>(UseCase.class);
+        defaults.put(UseCase.SENTIMENT, 600);
+        defaults.put(UseCase.CHAT_TOPICS, 1500);
+        defaults.put(UseCase.CHAT_MERGE, 1500);
+        defaults.put(UseCase.REPORT_ENGAGEMENT_METRICS, 4096);
+        defaults.put(UseCase.REPORT_POST_EVENT, 4096);
+        defaults.put(UseCase.REPORT_DAILY_MONITORING, 4096);
+        defaults.put(UseCase.REPORT_CUSTOM, 4096);
+        defaults.put(UseCase.REPORT_DATA_SLICE, 2048);
+        defaults.put(UseCase.REPORT_DATA_MERGE, 2048);
+        return defaults;
+    }
+}
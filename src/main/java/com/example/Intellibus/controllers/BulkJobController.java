@@ -0,0 +1,114 @@
+package com.example.Intellibus.controllers;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.example.Intellibus.models.batch.BulkJob;
+import com.example.Intellibus.models.report.DailyMonitoringReportRequest;
+import com.example.Intellibus.models.report.EngagementMetricsRequest;
+import com.example.Intellibus.models.report.PostEventReportRequest;
+import com.example.Intellibus.models.report.ReportRequest;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisRequest;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
+import com.example.Intellibus.services.MessageBatchService;
+
+/**
+ * Controller for bulk jobs run through the Message Batches API. Submissions return 202 with the job
+ * status straight away; results are stored as the batches finish, which can take hours.
+ */
+@RestController
+@RequestMapping("/api/bulk-jobs")
+@ConditionalOnProperty(prefix = "intellibus.message-batches", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class BulkJobController {
+
+    @Autowired
+    private MessageBatchService messageBatchService;
+
+    /**
+     * Analyze the sentiment of many texts
+     */
+    @PostMapping("/sentiment")
+    public ResponseEntity<BulkJob> submitSentiment(@RequestBody List<SentimentAnalysisRequest> requests,
+            UriComponentsBuilder uriBuilder) {
+        return accepted(messageBatchService.submitSentiment(requests), uriBuilder);
+    }
+
+    /**
+     * Generate many generic reports
+     */
+    @PostMapping("/reports")
+    public ResponseEntity<BulkJob> submitReports(@RequestBody List<ReportRequest> requests,
+            UriComponentsBuilder uriBuilder) {
+        return accepted(messageBatchService.submitReports(requests), uriBuilder);
+    }
+
+    /**
+     * Generate many engagement metrics reports
+     */
+    @PostMapping("/reports/engagement-metrics")
+    public ResponseEntity<BulkJob> submitEngagementMetricsReports(@RequestBody List<EngagementMetricsRequest> requests,
+            UriComponentsBuilder uriBuilder) {
+        return accepted(messageBatchService.submitReports(requests), uriBuilder);
+    }
+
+    /**
+     * Generate many post-event reports
+     */
+    @PostMapping("/reports/post-event")
+    public ResponseEntity<BulkJob> submitPostEventReports(@RequestBody List<PostEventReportRequest> requests,
+            UriComponentsBuilder uriBuilder) {
+        return accepted(messageBatchService.submitReports(requests), uriBuilder);
+    }
+
+    /**
+     * Generate many daily monitoring reports
+     */
+    @PostMapping("/reports/daily-monitoring")
+    public ResponseEntity<BulkJob> submitDailyMonitoringReports(@RequestBody List<DailyMonitoringReportRequest> requests,
+            UriComponentsBuilder uriBuilder) {
+        return accepted(messageBatchService.submitReports(requests), uriBuilder);
+    }
+
+    /**
+     * Status of a job; report jobs list the IDs of their reports, served by GET /api/reports/{reportId}
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<BulkJob> getJob(@PathVariable String jobId) {
+        BulkJob job = messageBatchService.getJob(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Results of a completed sentiment job in request order; 409 while the job is still running
+     */
+    @GetMapping("/{jobId}/sentiment-results")
+    public ResponseEntity<SentimentAnalysisResult[]> getSentimentResults(@PathVariable String jobId) {
+        BulkJob job = messageBatchService.getJob(jobId);
+        if (job == null || !"sentiment".equals(job.getKind())) {
+            return ResponseEntity.notFound().build();
+        }
+        SentimentAnalysisResult[] results = messageBatchService.getSentimentResults(jobId);
+        if (results == null) {
+            return ResponseEntity.status(job.getStatus() == BulkJob.Status.FAILED ? HttpStatus.NOT_FOUND : HttpStatus.CONFLICT)
+                    .build();
+        }
+        return ResponseEntity.ok(results);
+    }
+
+    private static ResponseEntity<BulkJob> accepted(BulkJob job, UriComponentsBuilder uriBuilder) {
+        return ResponseEntity.accepted()
+                .location(uriBuilder.path("/api/bulk-jobs/{jobId}").buildAndExpand(job.getJobId()).toUri())
+                .body(job);
+    }
+}
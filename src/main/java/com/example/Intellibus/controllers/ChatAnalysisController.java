@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.example.Intellibus.models.HealthResponse;
 import com.example.Intellibus.models.chat.ChatAnalysisRequest;
 import com.example.Intellibus.models.chat.ChatAnalysisResult;
+import com.example.Intellibus.services.AsyncRequestExecutor;
 import com.example.Intellibus.services.ChatAnalysisService;
 
 import lombok.extern.slf4j.Slf4j;
@@ -27,6 +28,9 @@ public class ChatAnalysisController {
 
     @Autowired
     private ChatAnalysisService chatAnalysisService;
+    
+    @Autowired
+    private AsyncRequestExecutor asyncRequestExecutor;
 
     /**
      * Health check endpoint
@@ -51,6 +55,6 @@ public class ChatAnalysisController {
      */
     @PostMapping("/async")
     public CompletableFuture<ChatAnalysisResult> analyzeChatAsync(@RequestBody ChatAnalysisRequest request) {
-        return CompletableFuture.supplyAsync(() -> analyzeChat(request));
+        return asyncRequestExecutor.submit(() -> analyzeChat(request));
     }
 } 
\ No newline at end of file
@@ -1,23 +1,36 @@
 package com.example.Intellibus.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.example.Intellibus.models.ChatRequest;
 import com.example.Intellibus.models.ChatResponse;
 import com.example.Intellibus.models.HealthResponse;
+import com.example.Intellibus.services.AsyncRequestExecutor;
 import com.example.Intellibus.services.ClaudeAIService;
-import com.example.Intellibus.services.ClaudeAIService.RequestMetrics;
+import com.example.Intellibus.services.GenerationOptions;
+import com.example.Intellibus.services.ClaudeResult;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -26,6 +39,15 @@ public class ClaudeAIController {
 
     @Autowired
     private ClaudeAIService claudeAIService;
+    
+    @Autowired
+    private ExecutorService streamingExecutor;
+    
+    @Autowired
+    private AsyncRequestExecutor asyncRequestExecutor;
+    
+    @Value("${intellibus.chat.stream-timeout:5m}")
+    private Duration streamTimeout;
 
     /**
      * Health check endpoint
@@ -37,28 +59,22 @@ public class ClaudeAIController {
     }
 
     @PostMapping
-    public ChatResponse chat(@RequestBody ChatRequest request) {
+    public ChatResponse chat(@RequestBody ChatRequest request,
+            @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl) {
         log.info("Received chat request with prompt: {}", request.getPrompt());
         
-        String responseText = claudeAIService.generateResponse(request.getPrompt());
-        
-        // Get the latest metrics for this prompt (assuming the most recent one is for this request)
-        RequestMetrics metrics = claudeAIService.getAllRequestMetrics().values().stream()
-                .filter(m -> request.getPrompt().equals(m.getPrompt()))
-                .findFirst()
-                .orElse(null);
+        // Callers can bypass the response cache with "Cache-Control: no-cache"
+        GenerationOptions options = GenerationOptions.interactive();
+        if (cacheControl != null && cacheControl.contains("no-cache")) {
+            options.setCacheable(false);
+        }
         
-        ChatResponse response = new ChatResponse(responseText, "claude-3");
+        ClaudeResult result = claudeAIService.generate(request.getPrompt(), options);
         
-        // Add timing information if available
-        if (metrics != null) {
-            response.setRequestId(metrics.getRequestId());
-            response.setProcessingTimeMs(metrics.getTotalProcessingDuration().toMillis());
-            
-            if (metrics.getApiCallDuration() != null) {
-                response.setApiCallTimeMs(metrics.getApiCallDuration().toMillis());
-            }
-        }
+        ChatResponse response = new ChatResponse(result.getText(), result.getModel());
+        response.setRequestId(result.getRequestId());
+        response.setProcessingTimeMs(result.getTotalTimeMs());
+        response.setApiCallTimeMs(result.getApiCallTimeMs());
         
         return response;
     }
@@ -67,8 +83,58 @@ public class ClaudeAIController {
      * Async version of the chat request
      */
     @PostMapping("/async")
-    public CompletableFuture<ChatResponse> chatAsync(@RequestBody ChatRequest request) {
-        return CompletableFuture.supplyAsync(() -> chat(request));
+    public CompletableFuture<ChatResponse> chatAsync(@RequestBody ChatRequest request,
+            @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl) {
+        return asyncRequestExecutor.submit(() -> chat(request, cacheControl));
+    }
+
+    /**
+     * Streaming version of the chat request.
+     * Sends "delta" events with text as it is generated, then a final "done" event with the request metrics.
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@RequestBody ChatRequest request) {
+        log.info("Received streaming chat request with prompt: {}", request.getPrompt());
+        
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        AtomicBoolean closed = new AtomicBoolean();
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onError(error -> closed.set(true));
+        
+        streamingExecutor.execute(() -> {
+            ClaudeResult result = claudeAIService.stream(request.getPrompt(), GenerationOptions.interactive(), delta -> {
+                if (closed.get()) {
+                    throw new IOException("Client disconnected");
+                }
+                emitter.send(SseEmitter.event().name("delta").data(Map.of("text", delta)));
+            });
+            
+            if (closed.get()) {
+                return;
+            }
+            try {
+                if (result.isSuccess()) {
+                    Map<String, Object> done = new LinkedHashMap<>();
+                    done.put("requestId", result.getRequestId());
+                    done.put("model", result.getModel());
+                    done.put("timeToFirstTokenMs", result.getTimeToFirstTokenMs());
+                    done.put("processingTimeMs", result.getTotalTimeMs());
+                    done.put("inputTokens", result.getInputTokens());
+                    done.put("outputTokens", result.getOutputTokens());
+                    emitter.send(SseEmitter.event().name("done").data(done));
+                } else {
+                    emitter.send(SseEmitter.event().name("error").data(Map.of(
+                            "requestId", result.getRequestId(),
+                            "error", String.valueOf(result.getErrorMessage()))));
+                }
+                emitter.complete();
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        
+        return emitter;
     }
 
     @GetMapping("test")
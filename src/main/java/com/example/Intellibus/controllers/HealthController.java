@@ -1,44 +1,52 @@
 package com.example.Intellibus.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.example.Intellibus.models.HealthResponse;
 import com.example.Intellibus.services.ClaudeAIService;
-import com.example.Intellibus.services.SentimentAnalysisService;
-import com.example.Intellibus.services.ChatAnalysisService;
-import com.example.Intellibus.services.ReportGenerationService;
+import com.example.Intellibus.services.ServiceMetrics;
+import com.example.Intellibus.services.ServiceMetrics.Status;
+import com.example.Intellibus.services.UpstreamGovernor;
 
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
- * Main health check controller
+ * Main health check controller. Each service's status comes from its recent error rate and
+ * p99 latency as recorded by {@link ServiceMetrics}; the overall status is the worst of them.
  */
 @RestController
 @RequestMapping("/health")
 @Slf4j
 public class HealthController {
 
+    /** Service names reported by the health checks, keyed by their metrics name */
+    private static final Map<String, String> SERVICES = new LinkedHashMap<>();
+    static {
+        SERVICES.put(ServiceMetrics.CLAUDE, "ClaudeAIService");
+        SERVICES.put(ServiceMetrics.SENTIMENT, "SentimentAnalysisService");
+        SERVICES.put(ServiceMetrics.CHAT, "ChatAnalysisService");
+        SERVICES.put(ServiceMetrics.REPORT, "ReportGenerationService");
+    }
+
     @Autowired
     private ClaudeAIService claudeAIService;
     
     @Autowired
-    private SentimentAnalysisService sentimentService;
+    private ServiceMetrics serviceMetrics;
     
     @Autowired
-    private ChatAnalysisService chatAnalysisService;
-    
-    @Autowired
-    private ReportGenerationService reportService;
+    private UpstreamGovernor upstreamGovernor;
 
     /**
      * Main health check endpoint
@@ -47,85 +55,89 @@ public class HealthController {
     public ResponseEntity<Map<String, Object>> healthCheck() {
         log.info("Main health check request received");
         
-        Map<String, Object> response = new HashMap<>();
-        response.put("status", "UP");
-        response.put("timestamp", LocalDateTime.now());
-        
         List<Map<String, String>> services = new ArrayList<>();
+        Map<String, Status> statuses = statuses();
+        statuses.forEach((name, status) -> {
+            Map<String, String> serviceStatus = new HashMap<>();
+            serviceStatus.put("service", SERVICES.get(name));
+            serviceStatus.put("status", status.name());
+            services.add(serviceStatus);
+        });
         
-        // Add individual service statuses
-        Map<String, String> claudeStatus = new HashMap<>();
-        claudeStatus.put("service", "ClaudeAIService");
-        claudeStatus.put("status", "UP");
-        services.add(claudeStatus);
-        
-        Map<String, String> sentimentStatus = new HashMap<>();
-        sentimentStatus.put("service", "SentimentAnalysisService");
-        sentimentStatus.put("status", "UP");
-        services.add(sentimentStatus);
-        
-        Map<String, String> chatStatus = new HashMap<>();
-        chatStatus.put("service", "ChatAnalysisService");
-        chatStatus.put("status", "UP");
-        services.add(chatStatus);
-        
-        Map<String, String> reportStatus = new HashMap<>();
-        reportStatus.put("service", "ReportGenerationService");
-        reportStatus.put("status", "UP");
-        services.add(reportStatus);
-        
+        Map<String, Object> response = new HashMap<>();
+        Status overall = overall(statuses);
+        response.put("status", overall.name());
+        response.put("timestamp", LocalDateTime.now());
         response.put("services", services);
-        response.put("message", "All services are operational");
+        response.put("message", message(statuses));
         
-        return ResponseEntity.ok(response);
+        return ResponseEntity.status(httpStatus(overall)).body(response);
     }
     
     /**
-     * Detailed health check endpoint
+     * Detailed health check endpoint, with the error rate and latency percentiles behind each status
      */
     @GetMapping("/details")
     public ResponseEntity<Map<String, Object>> detailedHealthCheck() {
         log.info("Detailed health check request received");
         
-        Map<String, Object> response = new HashMap<>();
-        response.put("status", "UP");
-        response.put("timestamp", LocalDateTime.now());
-        
         Map<String, Object> components = new HashMap<>();
         
-        // Add individual service details
-        Map<String, Object> claudeDetails = new HashMap<>();
-        claudeDetails.put("status", "UP");
-        claudeDetails.put("details", Map.of(
-            "requestCount", claudeAIService.getAllRequestMetrics().size(),
-            "service", "Claude AI"
-        ));
-        components.put("claudeAI", claudeDetails);
-        
-        Map<String, Object> sentimentDetails = new HashMap<>();
-        sentimentDetails.put("status", "UP");
-        sentimentDetails.put("details", Map.of(
-            "service", "Sentiment Analysis"
-        ));
-        components.put("sentimentAnalysis", sentimentDetails);
-        
-        Map<String, Object> chatDetails = new HashMap<>();
-        chatDetails.put("status", "UP");
-        chatDetails.put("details", Map.of(
-            "service", "Chat Analysis"
-        ));
-        components.put("chatAnalysis", chatDetails);
-        
-        Map<String, Object> reportDetails = new HashMap<>();
-        reportDetails.put("status", "UP");
-        reportDetails.put("details", Map.of(
-            "service", "Report Generation"
-        ));
-        components.put("reportGeneration", reportDetails);
+        Map<String, Object> claudeDetails = component(ServiceMetrics.CLAUDE, "Claude AI", components, "claudeAI");
+        claudeDetails.put("requestCount", claudeAIService.getRequestMetricsCount());
+        claudeDetails.put("queueDepth", upstreamGovernor.getQueueDepth());
+        claudeDetails.put("inFlight", upstreamGovernor.getInFlight());
+        component(ServiceMetrics.SENTIMENT, "Sentiment Analysis", components, "sentimentAnalysis");
+        component(ServiceMetrics.CHAT, "Chat Analysis", components, "chatAnalysis");
+        component(ServiceMetrics.REPORT, "Report Generation", components, "reportGeneration");
         
+        Map<String, Status> statuses = statuses();
+        Map<String, Object> response = new HashMap<>();
+        Status overall = overall(statuses);
+        response.put("status", overall.name());
+        response.put("timestamp", LocalDateTime.now());
         response.put("components", components);
-        response.put("message", "All services are operational");
+        response.put("message", message(statuses));
         
-        return ResponseEntity.ok(response);
+        return ResponseEntity.status(httpStatus(overall)).body(response);
+    }
+    
+    /**
+     * Add a service's status and details to the components, returning the details for additions
+     */
+    private Map<String, Object> component(String service, String label, Map<String, Object> components, String key) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("service", label);
+        details.putAll(serviceMetrics.getDetails(service));
+        
+        Map<String, Object> component = new HashMap<>();
+        component.put("status", serviceMetrics.getStatus(service).name());
+        component.put("details", details);
+        components.put(key, component);
+        return details;
+    }
+    
+    private Map<String, Status> statuses() {
+        Map<String, Status> statuses = new LinkedHashMap<>();
+        SERVICES.keySet().forEach(service -> statuses.put(service, serviceMetrics.getStatus(service)));
+        return statuses;
+    }
+    
+    private static Status overall(Map<String, Status> statuses) {
+        return statuses.values().stream().max(Enum::compareTo).orElse(Status.UP);
+    }
+    
+    private static String message(Map<String, Status> statuses) {
+        List<String> unhealthy = new ArrayList<>();
+        statuses.forEach((service, status) -> {
+            if (status != Status.UP) {
+                unhealthy.add(SERVICES.get(service) + " is " + status);
+            }
+        });
+        return unhealthy.isEmpty() ? "All services are operational" : String.join("; ", unhealthy);
+    }
+    
+    private static HttpStatus httpStatus(Status overall) {
+        return overall == Status.DOWN ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK;
     }
-} 
\ No newline at end of file
+}
@@ -1,16 +1,36 @@
 package com.example.Intellibus.controllers;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+
+import com.example.Intellibus.services.AsyncRequestExecutor;
 import com.example.Intellibus.services.ClaudeAIService;
+import com.example.Intellibus.services.ReportStore;
+import com.example.Intellibus.services.RequestCoalescer;
+import com.example.Intellibus.services.ResponseCache;
+import com.example.Intellibus.services.ResultPersistenceService;
+import com.example.Intellibus.services.SentimentStreamProcessor;
+import com.example.Intellibus.services.TokenBudget;
+import com.example.Intellibus.services.UpstreamGovernor;
 import com.example.Intellibus.services.ClaudeAIService.RequestMetrics;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -20,12 +40,150 @@ public class MetricsController {
     @Autowired
     private ClaudeAIService claudeAIService;
     
+    @Autowired
+    private PoolingHttpClientConnectionManager httpConnectionManager;
+    
+    @Autowired
+    private ResponseCache responseCache;
+    
+    @Autowired
+    private AsyncRequestExecutor asyncRequestExecutor;
+    
+    @Autowired
+    private UpstreamGovernor upstreamGovernor;
+    
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+    
+    @Autowired
+    private ResultPersistenceService resultPersistence;
+    
+    @Autowired
+    private ReportStore reportStore;
+    
+    @Autowired
+    private TokenBudget tokenBudget;
+    
+    @Autowired
+    private ObjectProvider<SentimentStreamProcessor> sentimentStreamProcessor;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private static final int MAX_PAGE_SIZE = 1000;
+    
     /**
-     * Get all request metrics
+     * Get recent request metrics keyed by request ID, newest first.
+     * Page through older entries by passing the last ID of a page as {@code before}.
      */
     @GetMapping
-    public ResponseEntity<Map<String, RequestMetrics>> getAllMetrics() {
-        return ResponseEntity.ok(claudeAIService.getAllRequestMetrics());
+    public ResponseEntity<StreamingResponseBody> getAllMetrics(
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String before) {
+        int pageSize = Math.max(0, Math.min(limit, MAX_PAGE_SIZE));
+        
+        // Stream entries straight from the store instead of copying them into a map first
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartObject();
+                claudeAIService.forEachRecentRequestMetrics(pageSize, before, metrics -> {
+                    try {
+                        generator.writeFieldName(metrics.getRequestId());
+                        objectMapper.writeValue(generator, metrics);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndObject();
+            }
+        };
+        
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+    
+    /**
+     * Get outbound HTTP connection pool statistics
+     */
+    @GetMapping("/http-pool")
+    public ResponseEntity<Map<String, Object>> getHttpPoolStats() {
+        PoolStats stats = httpConnectionManager.getTotalStats();
+        
+        Map<String, Object> pool = new LinkedHashMap<>();
+        pool.put("leased", stats.getLeased());
+        pool.put("pending", stats.getPending());
+        pool.put("available", stats.getAvailable());
+        pool.put("max", stats.getMax());
+        pool.put("routes", httpConnectionManager.getRoutes().size());
+        
+        return ResponseEntity.ok(pool);
+    }
+    
+    /**
+     * Get response cache statistics
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(responseCache.getStats());
+    }
+    
+    /**
+     * Get queue depth and active task counts for the async endpoints
+     */
+    @GetMapping("/executor")
+    public ResponseEntity<Map<String, Object>> getExecutorStats() {
+        return ResponseEntity.ok(asyncRequestExecutor.getStats());
+    }
+    
+    /**
+     * Get upstream rate limits, queue depths per priority and queue wait statistics
+     */
+    @GetMapping("/rate-limit")
+    public ResponseEntity<Map<String, Object>> getRateLimitStats() {
+        return ResponseEntity.ok(upstreamGovernor.getStats());
+    }
+    
+    /**
+     * Get counters for requests that shared an identical in-flight call
+     */
+    @GetMapping("/coalescing")
+    public ResponseEntity<Map<String, Object>> getCoalescingStats() {
+        return ResponseEntity.ok(requestCoalescer.getStats());
+    }
+    
+    /**
+     * Get write-behind buffer depth, rows written and dropped, and the last database error
+     */
+    @GetMapping("/persistence")
+    public ResponseEntity<Map<String, Object>> getPersistenceStats() {
+        return ResponseEntity.ok(resultPersistence.getStats());
+    }
+    
+    /**
+     * Get report store size, hot tier hit rate and disk reads and writes
+     */
+    @GetMapping("/report-store")
+    public ResponseEntity<Map<String, Object>> getReportStoreStats() {
+        return ResponseEntity.ok(reportStore.getStats());
+    }
+    
+    /**
+     * Get output token budgets and estimated vs reported token usage per use case
+     */
+    @GetMapping("/token-budget")
+    public ResponseEntity<Map<String, Object>> getTokenBudgetStats() {
+        return ResponseEntity.ok(tokenBudget.getStats());
+    }
+    
+    /**
+     * Get consumer lag, batch fill ratio and throughput of the Kafka sentiment stream, if it is enabled
+     */
+    @GetMapping("/sentiment-stream")
+    public ResponseEntity<Map<String, Object>> getSentimentStreamStats() {
+        SentimentStreamProcessor processor = sentimentStreamProcessor.getIfAvailable();
+        if (processor == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(processor.getStats());
     }
     
     /**
@@ -1,11 +1,14 @@
 package com.example.Intellibus.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.Intellibus.models.HealthResponse;
@@ -14,10 +17,15 @@ import com.example.Intellibus.models.report.EngagementMetricsRequest;
 import com.example.Intellibus.models.report.PostEventReportRequest;
 import com.example.Intellibus.models.report.ReportRequest;
 import com.example.Intellibus.models.report.ReportResponse;
+import com.example.Intellibus.models.report.ReportSummary;
+import com.example.Intellibus.services.AsyncRequestExecutor;
 import com.example.Intellibus.services.ReportGenerationService;
+import com.example.Intellibus.services.ReportStore;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -30,6 +38,14 @@ public class ReportController {
 
     @Autowired
     private ReportGenerationService reportService;
+    
+    @Autowired
+    private AsyncRequestExecutor asyncRequestExecutor;
+    
+    @Autowired
+    private ReportStore reportStore;
+    
+    private static final int MAX_PAGE_SIZE = 1000;
 
     /**
      * Health check endpoint
@@ -40,6 +56,32 @@ public class ReportController {
         return ResponseEntity.ok(new HealthResponse("ReportController"));
     }
 
+    /**
+     * List stored reports, newest first, optionally filtered by type, title and generation time
+     */
+    @GetMapping
+    public List<ReportSummary> listReports(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "100") int limit) {
+        return reportStore.list(type, title, from, to, Math.max(0, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+    
+    /**
+     * Fetch a previously generated report without regenerating it
+     */
+    @GetMapping("/{reportId}")
+    public ResponseEntity<ReportResponse> getReport(@PathVariable String reportId) {
+        ReportResponse report = reportStore.get(reportId);
+        if (report != null) {
+            return ResponseEntity.ok(report);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
     /**
      * Generic report generation endpoint
      */
@@ -81,7 +123,7 @@ public class ReportController {
      */
     @PostMapping("/async")
     public CompletableFuture<ReportResponse> generateReportAsync(@RequestBody ReportRequest request) {
-        return CompletableFuture.supplyAsync(() -> generateReport(request));
+        return asyncRequestExecutor.submit(() -> generateReport(request));
     }
     
     /**
@@ -89,7 +131,7 @@ public class ReportController {
      */
     @PostMapping("/engagement-metrics/async")
     public CompletableFuture<ReportResponse> generateEngagementMetricsReportAsync(@RequestBody EngagementMetricsRequest request) {
-        return CompletableFuture.supplyAsync(() -> generateEngagementMetricsReport(request));
+        return asyncRequestExecutor.submit(() -> generateEngagementMetricsReport(request));
     }
     
     /**
@@ -97,7 +139,7 @@ public class ReportController {
      */
     @PostMapping("/post-event/async")
     public CompletableFuture<ReportResponse> generatePostEventReportAsync(@RequestBody PostEventReportRequest request) {
-        return CompletableFuture.supplyAsync(() -> generatePostEventReport(request));
+        return asyncRequestExecutor.submit(() -> generatePostEventReport(request));
     }
     
     /**
@@ -105,6 +147,6 @@ public class ReportController {
      */
     @PostMapping("/daily-monitoring/async")
     public CompletableFuture<ReportResponse> generateDailyMonitoringReportAsync(@RequestBody DailyMonitoringReportRequest request) {
-        return CompletableFuture.supplyAsync(() -> generateDailyMonitoringReport(request));
+        return asyncRequestExecutor.submit(() -> generateDailyMonitoringReport(request));
     }
 } 
\ No newline at end of file
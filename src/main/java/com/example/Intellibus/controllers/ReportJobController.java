@@ -0,0 +1,82 @@
+package com.example.Intellibus.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.example.Intellibus.models.report.DailyMonitoringReportRequest;
+import com.example.Intellibus.models.report.EngagementMetricsRequest;
+import com.example.Intellibus.models.report.PostEventReportRequest;
+import com.example.Intellibus.models.report.ReportJob;
+import com.example.Intellibus.models.report.ReportRequest;
+import com.example.Intellibus.services.ReportJobService;
+
+/**
+ * Controller for queued report generation. Submissions return 202 with the job status
+ * straight away; the report is fetched from the job once it has completed.
+ */
+@RestController
+@RequestMapping("/api/reports/jobs")
+@ConditionalOnProperty(prefix = "intellibus.report-jobs", name = "enabled", havingValue = "true")
+public class ReportJobController {
+
+    @Autowired
+    private ReportJobService reportJobService;
+
+    /**
+     * Queue a generic report
+     */
+    @PostMapping
+    public ResponseEntity<ReportJob> submitReport(@RequestBody ReportRequest request, UriComponentsBuilder uriBuilder) {
+        return accepted(reportJobService.submit(request), uriBuilder);
+    }
+    
+    /**
+     * Queue an engagement metrics report
+     */
+    @PostMapping("/engagement-metrics")
+    public ResponseEntity<ReportJob> submitEngagementMetricsReport(@RequestBody EngagementMetricsRequest request,
+            UriComponentsBuilder uriBuilder) {
+        return accepted(reportJobService.submit(request), uriBuilder);
+    }
+    
+    /**
+     * Queue a post-event report
+     */
+    @PostMapping("/post-event")
+    public ResponseEntity<ReportJob> submitPostEventReport(@RequestBody PostEventReportRequest request,
+            UriComponentsBuilder uriBuilder) {
+        return accepted(reportJobService.submit(request), uriBuilder);
+    }
+    
+    /**
+     * Queue a daily monitoring report
+     */
+    @PostMapping("/daily-monitoring")
+    public ResponseEntity<ReportJob> submitDailyMonitoringReport(@RequestBody DailyMonitoringReportRequest request,
+            UriComponentsBuilder uriBuilder) {
+        return accepted(reportJobService.submit(request), uriBuilder);
+    }
+    
+    /**
+     * Status of a job, including the report once it has completed
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ReportJob> getJob(@PathVariable String jobId) {
+        ReportJob job = reportJobService.getJob(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+    
+    private static ResponseEntity<ReportJob> accepted(ReportJob job, UriComponentsBuilder uriBuilder) {
+        return ResponseEntity.accepted()
+                .location(uriBuilder.path("/api/reports/jobs/{jobId}").buildAndExpand(job.getJobId()).toUri())
+                .body(job);
+    }
+}
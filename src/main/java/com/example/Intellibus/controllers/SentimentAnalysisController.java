@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.example.Intellibus.models.HealthResponse;
 import com.example.Intellibus.models.sentiment.SentimentAnalysisRequest;
 import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
+import com.example.Intellibus.services.AsyncRequestExecutor;
 import com.example.Intellibus.services.SentimentAnalysisService;
 
 import lombok.extern.slf4j.Slf4j;
@@ -27,6 +28,9 @@ public class SentimentAnalysisController {
 
     @Autowired
     private SentimentAnalysisService sentimentService;
+    
+    @Autowired
+    private AsyncRequestExecutor asyncRequestExecutor;
 
     /**
      * Health check endpoint
@@ -52,7 +56,7 @@ public class SentimentAnalysisController {
      */
     @PostMapping("/analyze/async")
     public CompletableFuture<SentimentAnalysisResult> analyzeSentimentAsync(@RequestBody SentimentAnalysisRequest request) {
-        return CompletableFuture.supplyAsync(() -> analyzeSentiment(request));
+        return asyncRequestExecutor.submit(() -> analyzeSentiment(request));
     }
     
     /**
@@ -0,0 +1,86 @@
+package com.example.Intellibus.models.batch;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Status of a bulk job run through the Message Batches API
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkJob {
+
+    public enum Status {
+        QUEUED, PROCESSING, COMPLETED, FAILED
+    }
+
+    /**
+     * Unique identifier for the job
+     */
+    private String jobId;
+
+    /**
+     * What the job produces: sentiment, or the kind of report (generic, engagement-metrics, post-event or daily-monitoring)
+     */
+    private String kind;
+
+    /**
+     * Current status
+     */
+    private Status status;
+
+    /**
+     * IDs of the message batches the job was submitted as
+     */
+    private List<String> batchIds;
+
+    /**
+     * Number of items in the job
+     */
+    private int totalItems;
+
+    /**
+     * Items answered without Claude (sentiment texts the local scorer was confident about)
+     */
+    private int answeredLocally;
+
+    /**
+     * Items with a result so far, including those answered locally
+     */
+    private int succeeded;
+
+    /**
+     * Items that failed, were canceled or expired
+     */
+    private int failed;
+
+    /**
+     * When the job was accepted
+     */
+    private Instant submittedAt;
+
+    /**
+     * When the last batch was sent
+     */
+    private Instant batchesSubmittedAt;
+
+    /**
+     * When all results were stored
+     */
+    private Instant completedAt;
+
+    /**
+     * IDs of the generated reports in request order, null where a report failed; empty for sentiment jobs
+     */
+    private List<String> reportIds;
+
+    /**
+     * Reason the job failed, if it did
+     */
+    private String error;
+}
@@ -4,13 +4,16 @@ import java.util.List;
 import java.util.Map;
 
 import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 /**
- * Result model for chat conversation analysis
+ * Result model for chat conversation analysis. The snake_case aliases let Claude's
+ * topic analysis JSON bind directly into it.
  */
 @Data
 @NoArgsConstructor
@@ -25,31 +28,43 @@ public class ChatAnalysisResult {
     /**
      * Main topics discussed in the conversation
      */
+    @JsonPropertyDescription("Main topics discussed in the conversation")
+    @JsonAlias("main_topics")
     private List<String> mainTopics;
     
     /**
      * User intent identified from the conversation
      */
+    @JsonPropertyDescription("What the participants are trying to achieve")
+    @JsonAlias("user_intents")
     private List<String> userIntents;
     
     /**
      * Key questions asked in the conversation
      */
+    @JsonPropertyDescription("Important questions asked in the conversation")
+    @JsonAlias("key_questions")
     private List<String> keyQuestions;
     
     /**
      * Any issues or problems identified in the conversation
      */
+    @JsonPropertyDescription("Problems or concerns raised in the conversation")
+    @JsonAlias("identified_issues")
     private List<String> identifiedIssues;
     
     /**
      * Action items that could be extracted from the conversation
      */
+    @JsonPropertyDescription("Follow-up actions that come out of the conversation")
+    @JsonAlias("action_items")
     private List<String> actionItems;
     
     /**
      * Summary of the conversation
      */
+    @JsonPropertyDescription("Brief summary of the conversation")
+    @JsonAlias("conversation_summary")
     private String conversationSummary;
     
     /**
@@ -68,6 +83,11 @@ public class ChatAnalysisResult {
      */
     private long processingTimeMs;
     
+    /**
+     * Whether the analysis deadline expired before every part of the analysis completed
+     */
+    private boolean partial;
+    
     /**
      * Analytics for a specific message in the conversation
      */
@@ -0,0 +1,60 @@
+package com.example.Intellibus.models.report;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Status of a queued report generation job, published to the results topic on every change
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    /**
+     * Unique identifier for the job
+     */
+    private String jobId;
+
+    /**
+     * Kind of report requested (generic, engagement-metrics, post-event or daily-monitoring)
+     */
+    private String kind;
+
+    /**
+     * Current status
+     */
+    private Status status;
+
+    /**
+     * When the job was accepted
+     */
+    private Instant submittedAt;
+
+    /**
+     * When a worker picked the job up
+     */
+    private Instant startedAt;
+
+    /**
+     * When the job finished
+     */
+    private Instant completedAt;
+
+    /**
+     * The generated report, once the job has finished
+     */
+    private ReportResponse report;
+
+    /**
+     * Reason the job failed, if it did
+     */
+    private String error;
+}
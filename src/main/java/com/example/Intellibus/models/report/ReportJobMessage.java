@@ -0,0 +1,60 @@
+package com.example.Intellibus.models.report;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A report job as queued on the request topic. The kind is written next to the request
+ * so workers bind it back into the right request type.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJobMessage {
+
+    public static final String GENERIC = "generic";
+    public static final String ENGAGEMENT_METRICS = "engagement-metrics";
+    public static final String POST_EVENT = "post-event";
+    public static final String DAILY_MONITORING = "daily-monitoring";
+
+    /**
+     * Unique identifier for the job
+     */
+    private String jobId;
+
+    /**
+     * When the job was accepted
+     */
+    private Instant submittedAt;
+
+    /**
+     * The report request, typed by the external "kind" property
+     */
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.EXTERNAL_PROPERTY, property = "kind")
+    @JsonSubTypes({
+            @JsonSubTypes.Type(value = ReportRequest.class, name = GENERIC),
+            @JsonSubTypes.Type(value = EngagementMetricsRequest.class, name = ENGAGEMENT_METRICS),
+            @JsonSubTypes.Type(value = PostEventReportRequest.class, name = POST_EVENT),
+            @JsonSubTypes.Type(value = DailyMonitoringReportRequest.class, name = DAILY_MONITORING) })
+    private ReportRequest request;
+
+    /**
+     * Kind name of a report request
+     */
+    public static String kindOf(ReportRequest request) {
+        if (request instanceof EngagementMetricsRequest) {
+            return ENGAGEMENT_METRICS;
+        } else if (request instanceof PostEventReportRequest) {
+            return POST_EVENT;
+        } else if (request instanceof DailyMonitoringReportRequest) {
+            return DAILY_MONITORING;
+        }
+        return GENERIC;
+    }
+}
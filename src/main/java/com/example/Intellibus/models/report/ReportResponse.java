@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -41,34 +42,40 @@ public class ReportResponse {
     /**
      * Executive summary of the report
      */
+    @JsonPropertyDescription("Concise overview of the report")
     @JsonProperty("executive_summary")
     private String executiveSummary;
     
     /**
      * Key findings or insights
      */
+    @JsonPropertyDescription("The most important insights from the data")
     @JsonProperty("key_findings")
     private List<String> keyFindings;
     
     /**
      * Detailed sections of the report
      */
+    @JsonPropertyDescription("Report sections, each with a title, content and optional subsections")
     private List<ReportSection> sections;
     
     /**
      * Recommendations based on the findings
      */
+    @JsonPropertyDescription("Actionable recommendations based on the findings")
     private List<String> recommendations;
     
     /**
      * Raw metrics data in the report
      */
+    @JsonPropertyDescription("Metrics and their calculated values")
     @JsonProperty("metrics_data")
     private Map<String, Object> metricsData;
     
     /**
      * Visual elements like charts (stored as descriptions or references)
      */
+    @JsonPropertyDescription("Charts or graphs that should accompany the report")
     @JsonProperty("visual_elements")
     private List<VisualElement> visualElements;
     
@@ -92,11 +99,13 @@ public class ReportResponse {
         /**
          * Section content
          */
+        @JsonPropertyDescription("Section text")
         private String content;
         
         /**
          * Any subsections
          */
+        @JsonPropertyDescription("Nested sections with the same fields")
         private List<ReportSection> subsections;
     }
     
@@ -110,6 +119,7 @@ public class ReportResponse {
         /**
          * Type of visual (chart, graph, table)
          */
+        @JsonPropertyDescription("Kind of visual: chart, graph or table")
         private String type;
         
         /**
@@ -120,11 +130,13 @@ public class ReportResponse {
         /**
          * Description of what the visual represents
          */
+        @JsonPropertyDescription("What the visual shows")
         private String description;
         
         /**
          * Data for the visual (would be rendered by the client)
          */
+        @JsonPropertyDescription("Data to plot")
         private Map<String, Object> data;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.example.Intellibus.models.report;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Index entry of a stored report, returned when listing reports
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportSummary {
+
+    /**
+     * Unique identifier for the report
+     */
+    private String reportId;
+
+    /**
+     * Type of report
+     */
+    private String reportType;
+
+    /**
+     * Title of the report
+     */
+    private String title;
+
+    /**
+     * When the report was generated
+     */
+    private LocalDateTime generatedAt;
+
+    /**
+     * Size of the report on disk in bytes
+     */
+    private long storedBytes;
+
+    /**
+     * Whether the report is gzip-compressed on disk
+     */
+    private boolean compressed;
+}
@@ -25,4 +25,13 @@ public class SentimentAnalysisRequest {
      * Optional source of the text (e.g., "customer_feedback", "social_media", "chat")
      */
     private String source;
+    
+    /**
+     * How to score the text: fast, llm or auto; the configured default when absent
+     */
+    private SentimentMode mode;
+    
+    public SentimentAnalysisRequest(String text, String context, String source) {
+        this(text, context, source, null);
+    }
 } 
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.example.Intellibus.models.sentiment;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -18,33 +19,39 @@ public class SentimentAnalysisResult {
     /**
      * Overall sentiment (POSITIVE, NEGATIVE, NEUTRAL, MIXED, or ERROR)
      */
+    @JsonPropertyDescription("Overall sentiment of the text")
     private String sentiment;
     
     /**
      * Sentiment score from -1.0 (extremely negative) to 1.0 (extremely positive)
      */
+    @JsonPropertyDescription("Sentiment score from -1.0 (extremely negative) to 1.0 (extremely positive)")
     private double score;
     
     /**
      * Confidence level in the sentiment analysis (0.0 to 1.0)
      */
+    @JsonPropertyDescription("Confidence in the analysis from 0.0 to 1.0")
     private double confidence;
     
     /**
      * List of dominant emotions detected in the text
      */
+    @JsonPropertyDescription("Dominant emotions detected in the text")
     @JsonProperty("dominant_emotions")
     private List<String> dominantEmotions;
     
     /**
      * Key phrases that influenced the sentiment analysis
      */
+    @JsonPropertyDescription("Notable phrases that influenced the sentiment")
     @JsonProperty("key_phrases")
     private List<String> keyPhrases;
     
     /**
      * Detailed insights about the sentiment analysis
      */
+    @JsonPropertyDescription("Brief explanation of the sentiment")
     private String insights;
     
     /**
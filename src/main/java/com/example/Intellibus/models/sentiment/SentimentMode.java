@@ -0,0 +1,28 @@
+package com.example.Intellibus.models.sentiment;
+
+import java.util.Locale;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * How a sentiment request is scored
+ */
+public enum SentimentMode {
+    /** Local lexicon scoring only; never calls Claude */
+    FAST,
+    /** Always analyzed by Claude */
+    LLM,
+    /** Local scoring, escalated to Claude when its confidence is below the threshold */
+    AUTO;
+
+    @JsonCreator
+    public static SentimentMode of(String value) {
+        return value == null ? null : valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    @JsonValue
+    public String toValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
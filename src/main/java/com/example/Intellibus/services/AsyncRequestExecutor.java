@@ -0,0 +1,159 @@
+package com.example.Intellibus.services;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.Intellibus.config.AsyncExecutorProperties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs the work behind the {@code /async} endpoints.
+ *
+ * At most {@code maxConcurrent} tasks run at once and at most {@code queueCapacity} more wait;
+ * anything beyond that is rejected with 429 instead of piling up behind blocking Claude calls.
+ */
+@Component
+@Slf4j
+public class AsyncRequestExecutor implements MeterBinder {
+
+    private final AsyncExecutorProperties properties;
+
+    private final ExecutorService executor;
+
+    /** Permits for running plus waiting tasks */
+    private final Semaphore admission;
+
+    /** Permits for running tasks in virtual mode; the pool size does this in platform mode */
+    private final Semaphore running;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+
+    public AsyncRequestExecutor(AsyncExecutorProperties properties) {
+        this.properties = properties;
+        int maxConcurrent = Math.max(1, properties.getMaxConcurrent());
+        this.admission = new Semaphore(maxConcurrent + Math.max(0, properties.getQueueCapacity()));
+
+        if (properties.getMode() == AsyncExecutorProperties.Mode.PLATFORM) {
+            AtomicInteger counter = new AtomicInteger();
+            // The queue is unbounded here because admission already bounds it
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "async-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            this.running = null;
+        } else {
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("async-", 0).factory());
+            this.running = new Semaphore(maxConcurrent);
+        }
+
+        log.info("Async request executor: mode={}, maxConcurrent={}, queueCapacity={}",
+                properties.getMode(), maxConcurrent, properties.getQueueCapacity());
+    }
+
+    /**
+     * Run the task asynchronously.
+     *
+     * @throws ResponseStatusException with 429 when the executor is saturated
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        if (!admission.tryAcquire()) {
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many async requests in progress");
+        }
+
+        queued.incrementAndGet();
+        try {
+            return CompletableFuture.supplyAsync(() -> run(task), executor);
+        } catch (RejectedExecutionException e) {
+            // Only happens while shutting down
+            queued.decrementAndGet();
+            admission.release();
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Async executor is shutting down");
+        }
+    }
+
+    private <T> T run(Supplier<T> task) {
+        if (running != null) {
+            running.acquireUninterruptibly();
+        }
+        queued.decrementAndGet();
+        active.incrementAndGet();
+        try {
+            return task.get();
+        } finally {
+            active.decrementAndGet();
+            completed.increment();
+            if (running != null) {
+                running.release();
+            }
+            admission.release();
+        }
+    }
+
+    /**
+     * Register gauges of running and queued tasks and a counter of rejections
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("intellibus.async.active", active, AtomicInteger::get)
+                .description("Async requests running")
+                .register(registry);
+        Gauge.builder("intellibus.async.queued", queued, AtomicInteger::get)
+                .description("Async requests waiting to run")
+                .register(registry);
+        FunctionCounter.builder("intellibus.async.rejected", rejected, LongAdder::sum)
+                .description("Async requests rejected because the executor was saturated")
+                .register(registry);
+    }
+
+    /**
+     * Current load and totals since startup
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", properties.getMode());
+        stats.put("active", active.get());
+        stats.put("queued", queued.get());
+        stats.put("maxConcurrent", properties.getMaxConcurrent());
+        stats.put("queueCapacity", properties.getQueueCapacity());
+        stats.put("completed", completed.sum());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.Intellibus.services;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.example.Intellibus.models.chat.ChatAnalysisRequest;
@@ -9,22 +10,69 @@ import com.example.Intellibus.models.chat.ChatAnalysisResult;
 import com.example.Intellibus.models.chat.ChatAnalysisResult.MessageAnalytics;
 import com.example.Intellibus.models.sentiment.SentimentAnalysisRequest;
 import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.Intellibus.services.GenerationOptions.UseCase;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 @Slf4j
 public class ChatAnalysisService {
 
+    private static final String TOPIC_FIELDS =
+            "- main_topics: array of main topics discussed\n" +
+            "- user_intents: array of identified user intentions\n" +
+            "- key_questions: array of important questions asked\n" +
+            "- identified_issues: array of issues or problems in the conversation\n" +
+            "- action_items: array of action items extracted from the conversation\n" +
+            "- conversation_summary: a concise summary of the conversation";
+    
+    // Instructions are the same for every call, so they go ahead of the conversation as a cacheable block
+    private static final String TOPIC_INSTRUCTIONS =
+            "Analyze the conversation that follows. Respond with ONLY a JSON object containing chat analysis details, " +
+            "with these fields:\n" + TOPIC_FIELDS;
+    
+    private static final String MERGE_INSTRUCTIONS =
+            "What follows are analyses of consecutive parts of one long conversation. " +
+            "Merge them into a single analysis of the whole conversation: combine duplicate topics, intents, " +
+            "questions, issues and action items, keep the most important ones, and write one summary covering all parts. " +
+            "Respond with ONLY a JSON object with these fields:\n" + TOPIC_FIELDS;
+    
+    /**
+     * Shape of a topic analysis; sentiment and message analytics are computed separately
+     */
+    static final OutputSchema TOPIC_SCHEMA = OutputSchema.forType(ChatAnalysisResult.class)
+            .exclude("overallSentiment", "messageAnalytics", "requestId", "processingTimeMs", "partial")
+            .build("record_topic_analysis", "Record the topic analysis of the conversation");
+    
+    // Part scores beyond this in both directions make a long conversation MIXED
+    private static final double MIXED_THRESHOLD = 0.25;
+    private static final int MAX_MERGED_ITEMS = 20;
+
     @Autowired
     private ClaudeAIService claudeAIService;
     
@@ -32,11 +80,33 @@ public class ChatAnalysisService {
     private SentimentAnalysisService sentimentService;
     
     @Autowired
-    private ObjectMapper objectMapper;
+    private StructuredOutputExtractor structuredOutputExtractor;
+    
+    @Autowired
+    private ExecutorService analysisExecutor;
+    
+    @Autowired
+    private ResultPersistenceService resultPersistence;
+    
+    @Autowired
+    private MapReduceEngine mapReduceEngine;
+    
+    @Autowired
+    private ServiceMetrics serviceMetrics;
     
+    @Value("${intellibus.chat-analysis.max-concurrency-per-conversation:8}")
+    private int maxConcurrencyPerConversation;
+    
+    @Value("${intellibus.chat-analysis.deadline:60s}")
+    private Duration analysisDeadline;
 
     /**
-     * Analyzes a chat conversation to provide insights
+     * Analyzes a chat conversation to provide insights.
+     * 
+     * Topic extraction, overall sentiment and per-message sentiment run concurrently on the
+     * analysis executor, capped per conversation. If the deadline expires, or the executor is
+     * too busy to take every analysis, whatever has completed is returned and the result is
+     * flagged as partial. Analyses still running at the deadline are interrupted.
      * 
      * @param request The chat analysis request containing conversation messages
      * @return A detailed chat analysis result
@@ -44,153 +114,435 @@ public class ChatAnalysisService {
     public ChatAnalysisResult analyzeChat(ChatAnalysisRequest request) {
         Instant startTime = Instant.now();
         String requestId = UUID.randomUUID().toString();
+        long deadlineNanos = System.nanoTime() + analysisDeadline.toNanos();
+        Semaphore permits = new Semaphore(maxConcurrencyPerConversation);
+        List<CompletableFuture<?>> tasks = new ArrayList<>();
         
         try {
             log.info("Analyzing chat conversation with {} messages", request.getMessages().size());
             
-            // Build a format suitable for prompting
-            String chatText = formatChatForPrompt(request);
-            
-            // Create a prompt for Claude that asks for structured chat analysis
-            String prompt = "Analyze the following conversation. Respond with ONLY a JSON object containing chat analysis details.\n\n" +
-                           "Conversation to analyze:\n" + chatText + "\n\n" +
-                           "Remember to respond with ONLY a JSON object with these fields:\n" +
-                           "- main_topics: array of main topics discussed\n" +
-                           "- user_intents: array of identified user intentions\n" +
-                           "- key_questions: array of important questions asked\n" +
-                           "- identified_issues: array of issues or problems in the conversation\n" +
-                           "- action_items: array of action items extracted from the conversation\n" +
-                           "- conversation_summary: a concise summary of the conversation";
-            
-            // Call Claude API for overall analysis
-            String responseText = claudeAIService.generateResponse(prompt);
-            
-            // Extract the JSON from the response
-            String jsonStr = extractJsonFromResponse(responseText);
-            
-            // Parse the JSON into our structure
-            JsonNode analysisNode = objectMapper.readTree(jsonStr);
-            
-            // Create the result
-            ChatAnalysisResult result = new ChatAnalysisResult();
+            // Topic, intent and issue extraction for the whole conversation
+            CompletableFuture<ChatAnalysisResult> topicsFuture = submit(permits, deadlineNanos, tasks, () -> analyzeTopics(request));
             
             // Get overall sentiment for the entire conversation
-            String fullText = request.getMessages().stream()
-                    .map(ChatMessage::getContent)
-                    .collect(Collectors.joining(" "));
-            
-            SentimentAnalysisRequest sentimentRequest = new SentimentAnalysisRequest();
-            sentimentRequest.setText(fullText);
-            SentimentAnalysisResult overallSentiment = sentimentService.analyzeSentiment(sentimentRequest);
+            CompletableFuture<SentimentAnalysisResult> overallFuture =
+                    submit(permits, deadlineNanos, tasks, () -> analyzeOverallSentiment(request));
             
-            // Set values from analysis
-            result.setOverallSentiment(overallSentiment);
-            
-            // Parse the fields from the JSON response
-            if (analysisNode.has("main_topics")) {
-                result.setMainTopics(
-                    objectMapper.convertValue(analysisNode.get("main_topics"), 
-                    objectMapper.getTypeFactory().constructCollectionType(java.util.List.class, String.class)));
+            // Analyze individual messages
+            Map<Integer, CompletableFuture<SentimentAnalysisResult>> messageFutures = new LinkedHashMap<>();
+            boolean truncated = topicsFuture == null || overallFuture == null;
+            for (int i = 0; i < request.getMessages().size(); i++) {
+                ChatMessage message = request.getMessages().get(i);
+                
+                // Only analyze substantive messages
+                if (message.getContent() != null && message.getContent().trim().length() > 5) {
+                    SentimentAnalysisRequest msgSentimentRequest = new SentimentAnalysisRequest();
+                    msgSentimentRequest.setText(message.getContent());
+                    CompletableFuture<SentimentAnalysisResult> future = submit(permits, deadlineNanos, tasks,
+                            () -> sentimentService.analyze(msgSentimentRequest));
+                    if (future == null) {
+                        truncated = true;
+                        break;
+                    }
+                    messageFutures.put(i, future);
+                }
             }
             
-            if (analysisNode.has("user_intents")) {
-                result.setUserIntents(
-                    objectMapper.convertValue(analysisNode.get("user_intents"), 
-                    objectMapper.getTypeFactory().constructCollectionType(java.util.List.class, String.class)));
-            }
+            boolean partial = !awaitAll(tasks, deadlineNanos) || truncated;
             
-            if (analysisNode.has("key_questions")) {
-                result.setKeyQuestions(
-                    objectMapper.convertValue(analysisNode.get("key_questions"), 
-                    objectMapper.getTypeFactory().constructCollectionType(java.util.List.class, String.class)));
+            // The conversation-level analysis failing (rather than timing out) fails the whole request
+            if (topicsFuture != null && topicsFuture.isCompletedExceptionally() && !topicsFuture.isCancelled()) {
+                topicsFuture.join();
             }
             
-            if (analysisNode.has("identified_issues")) {
-                result.setIdentifiedIssues(
-                    objectMapper.convertValue(analysisNode.get("identified_issues"), 
-                    objectMapper.getTypeFactory().constructCollectionType(java.util.List.class, String.class)));
-            }
+            // Create the result
+            ChatAnalysisResult result = new ChatAnalysisResult();
             
-            if (analysisNode.has("action_items")) {
-                result.setActionItems(
-                    objectMapper.convertValue(analysisNode.get("action_items"), 
-                    objectMapper.getTypeFactory().constructCollectionType(java.util.List.class, String.class)));
-            }
+            // Set values from analysis
+            result.setOverallSentiment(completedValue(overallFuture));
             
-            if (analysisNode.has("conversation_summary")) {
-                result.setConversationSummary(analysisNode.get("conversation_summary").asText());
+            ChatAnalysisResult topics = completedValue(topicsFuture);
+            if (topics != null) {
+                applyTopicAnalysis(topics, result);
             }
             
-            // Analyze individual messages
             Map<Integer, MessageAnalytics> messageAnalytics = new HashMap<>();
-            for (int i = 0; i < request.getMessages().size(); i++) {
-                ChatMessage message = request.getMessages().get(i);
-                
-                // Only analyze substantive messages
-                if (message.getContent() != null && message.getContent().trim().length() > 5) {
-                    SentimentAnalysisRequest msgSentimentRequest = new SentimentAnalysisRequest();
-                    msgSentimentRequest.setText(message.getContent());
-                    SentimentAnalysisResult msgSentiment = sentimentService.analyzeSentiment(msgSentimentRequest);
-                    
-                    MessageAnalytics msgAnalytics = new MessageAnalytics();
-                    msgAnalytics.setSentiment(msgSentiment);
-                    
-                    // For simplicity, we'll just check if message contains a question mark
-                    msgAnalytics.setContainsQuestion(message.getContent().contains("?"));
-                    
-                    // Set some default values that would normally come from deeper analysis
-                    msgAnalytics.setImportance(5); // Medium importance by default
-                    
-                    messageAnalytics.put(i, msgAnalytics);
+            for (Map.Entry<Integer, CompletableFuture<SentimentAnalysisResult>> entry : messageFutures.entrySet()) {
+                SentimentAnalysisResult msgSentiment = completedValue(entry.getValue());
+                if (msgSentiment == null) {
+                    continue;
                 }
+                ChatMessage message = request.getMessages().get(entry.getKey());
+                
+                MessageAnalytics msgAnalytics = new MessageAnalytics();
+                msgAnalytics.setSentiment(msgSentiment);
+                
+                // For simplicity, we'll just check if message contains a question mark
+                msgAnalytics.setContainsQuestion(message.getContent().contains("?"));
+                
+                // Set some default values that would normally come from deeper analysis
+                msgAnalytics.setImportance(5); // Medium importance by default
+                
+                messageAnalytics.put(entry.getKey(), msgAnalytics);
             }
             
             result.setMessageAnalytics(messageAnalytics);
             result.setRequestId(requestId);
+            result.setPartial(partial);
             result.setProcessingTimeMs(Duration.between(startTime, Instant.now()).toMillis());
             
+            if (partial) {
+                log.warn("Chat analysis {} could not finish within its {}ms deadline; returning partial results "
+                        + "({} message analyses for {} messages)", requestId, analysisDeadline.toMillis(), messageAnalytics.size(),
+                        request.getMessages().size());
+            }
+            
+            serviceMetrics.recordSuccess(ServiceMetrics.CHAT, Duration.between(startTime, Instant.now()).toNanos());
+            resultPersistence.saveChatAnalysis(result);
             return result;
             
         } catch (Exception e) {
-            log.error("Error analyzing chat", e);
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("Error analyzing chat", cause);
+            serviceMetrics.recordFailure(ServiceMetrics.CHAT, Duration.between(startTime, Instant.now()).toNanos(), cause);
+            tasks.forEach(task -> task.cancel(false));
             
             // Create a minimal result with error information
             ChatAnalysisResult errorResult = new ChatAnalysisResult();
             errorResult.setRequestId(requestId);
             errorResult.setProcessingTimeMs(Duration.between(startTime, Instant.now()).toMillis());
-            errorResult.setConversationSummary("Error analyzing chat: " + e.getMessage());
+            errorResult.setConversationSummary("Error analyzing chat: " + cause.getMessage());
             
+            resultPersistence.saveChatAnalysis(errorResult);
             return errorResult;
         }
     }
     
     /**
-     * Format the chat for prompting Claude
+     * Ask Claude for the conversation-level topics, intents, questions, issues and action items.
+     * Conversations too long for one call are analyzed in parts in parallel and the parts merged.
      */
-    private String formatChatForPrompt(ChatAnalysisRequest request) {
-        StringBuilder sb = new StringBuilder();
+    private ChatAnalysisResult analyzeTopics(ChatAnalysisRequest request) {
+        int budget = mapReduceEngine.getMaxChunkTokens();
+        List<List<ChatMessage>> chunks = MapReduceEngine.split(splitLongMessages(request.getMessages(), budget),
+                message -> estimateTokens(message), budget);
+        if (chunks.size() <= 1) {
+            return analyzeTopics(formatChatForPrompt(request), null);
+        }
         
-        for (ChatMessage message : request.getMessages()) {
-            sb.append(message.getRole().toUpperCase())
-              .append(": ")
-              .append(message.getContent())
-              .append("\n\n");
+        log.info("Conversation of {} messages split into {} parts for topic analysis", request.getMessages().size(), chunks.size());
+        List<Integer> parts = IntStream.range(0, chunks.size()).boxed().toList();
+        return mapReduceEngine.mapReduce(parts,
+                part -> analyzeTopics(formatMessages(chunks.get(part)),
+                        "This is part " + (part + 1) + " of " + chunks.size() + " of a longer conversation; analyze only this part."),
+                this::mergeTopicAnalyses);
+    }
+    
+    /**
+     * Topic analysis of one formatted conversation or part of one
+     */
+    private ChatAnalysisResult analyzeTopics(String chatText, String partNote) {
+        // Create a prompt for Claude that asks for structured chat analysis
+        String prompt = (partNote != null ? partNote + "\n\n" : "") +
+                       "Conversation to analyze:\n" + chatText + "\n";
+        
+        return requestTopicAnalysis(prompt, UseCase.CHAT_TOPICS, TOPIC_INSTRUCTIONS);
+    }
+    
+    /**
+     * Merge topic analyses of consecutive parts of one conversation. Claude combines duplicates and
+     * writes a single summary; if that call fails the lists are concatenated without duplicates.
+     */
+    private ChatAnalysisResult mergeTopicAnalyses(List<ChatAnalysisResult> partials) {
+        StringBuilder parts = new StringBuilder();
+        for (int i = 0; i < partials.size(); i++) {
+            ChatAnalysisResult partial = partials.get(i);
+            parts.append("Part ").append(i + 1).append(":\n");
+            appendList(parts, "Topics", partial.getMainTopics());
+            appendList(parts, "User intents", partial.getUserIntents());
+            appendList(parts, "Key questions", partial.getKeyQuestions());
+            appendList(parts, "Issues", partial.getIdentifiedIssues());
+            appendList(parts, "Action items", partial.getActionItems());
+            parts.append("Summary: ").append(partial.getConversationSummary()).append("\n\n");
         }
         
-        return sb.toString();
+        try {
+            return requestTopicAnalysis(parts.toString(), UseCase.CHAT_MERGE, MERGE_INSTRUCTIONS);
+        } catch (RuntimeException e) {
+            if (ServiceMetrics.isParseFailure(e)) {
+                serviceMetrics.recordParseFailure(ServiceMetrics.CHAT);
+            }
+            log.warn("Merging {} partial topic analyses failed, concatenating them instead: {}", partials.size(), e.getMessage());
+            ChatAnalysisResult merged = new ChatAnalysisResult();
+            merged.setMainTopics(union(partials, ChatAnalysisResult::getMainTopics));
+            merged.setUserIntents(union(partials, ChatAnalysisResult::getUserIntents));
+            merged.setKeyQuestions(union(partials, ChatAnalysisResult::getKeyQuestions));
+            merged.setIdentifiedIssues(union(partials, ChatAnalysisResult::getIdentifiedIssues));
+            merged.setActionItems(union(partials, ChatAnalysisResult::getActionItems));
+            merged.setConversationSummary(partials.stream()
+                    .map(ChatAnalysisResult::getConversationSummary)
+                    .filter(summary -> summary != null && !summary.isBlank())
+                    .collect(Collectors.joining(" ")));
+            return merged;
+        }
+    }
+    
+    private ChatAnalysisResult requestTopicAnalysis(String prompt, UseCase useCase, String instructions) {
+        ClaudeResult claudeResult = claudeAIService.generate(prompt,
+                GenerationOptions.structured(useCase, TOPIC_SCHEMA, instructions));
+        if (!claudeResult.isSuccess()) {
+            throw new IllegalStateException(claudeResult.getErrorMessage());
+        }
+        log.debug("{} call {} took {}ms (API {}ms)", useCase, claudeResult.getRequestId(),
+                claudeResult.getTotalTimeMs(), claudeResult.getApiCallTimeMs());
+        
+        // Check the JSON in the response against the schema and bind it into our structure
+        try {
+            return structuredOutputExtractor.extractObject(claudeResult.getText(), TOPIC_SCHEMA, ChatAnalysisResult.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Sentiment of the whole conversation. Conversations too long for one call are scored in parts,
+     * and the part scores averaged weighted by the length of each part.
+     */
+    private SentimentAnalysisResult analyzeOverallSentiment(ChatAnalysisRequest request) {
+        List<String> contents = request.getMessages().stream()
+                .map(ChatMessage::getContent)
+                .filter(content -> content != null)
+                .toList();
+        String fullText = String.join(" ", contents);
+        
+        int budget = mapReduceEngine.getMaxChunkTokens();
+        if (TokenEstimator.approximate(fullText) <= budget) {
+            return sentimentService.analyze(sentimentRequest(fullText));
+        }
+        
+        List<String> pieces = new ArrayList<>();
+        contents.forEach(content -> pieces.addAll(splitText(content, budget * 4)));
+        List<List<String>> chunks = MapReduceEngine.split(pieces, TokenEstimator::approximate, budget);
+        log.info("Conversation text split into {} parts for overall sentiment", chunks.size());
+        
+        List<SentimentAnalysisResult> partials = mapReduceEngine.map(chunks,
+                chunk -> sentimentService.analyze(sentimentRequest(String.join(" ", chunk))));
+        return combineSentiments(partials);
+    }
+    
+    /**
+     * Length-weighted average of the sentiment of consecutive parts of one text
+     */
+    static SentimentAnalysisResult combineSentiments(List<SentimentAnalysisResult> partials) {
+        List<SentimentAnalysisResult> scored = partials.stream()
+                .filter(partial -> !"ERROR".equals(partial.getSentiment()))
+                .toList();
+        if (scored.isEmpty()) {
+            return partials.get(0);
+        }
+        
+        double totalWeight = 0;
+        double score = 0;
+        double confidence = 0;
+        boolean positive = false;
+        boolean negative = false;
+        for (SentimentAnalysisResult partial : scored) {
+            double weight = partial.getOriginalText() != null ? Math.max(1, partial.getOriginalText().length()) : 1;
+            totalWeight += weight;
+            score += partial.getScore() * weight;
+            confidence += partial.getConfidence() * weight;
+            positive |= partial.getScore() > MIXED_THRESHOLD;
+            negative |= partial.getScore() < -MIXED_THRESHOLD;
+        }
+        score /= totalWeight;
+        
+        SentimentAnalysisResult combined = new SentimentAnalysisResult();
+        combined.setScore(score);
+        combined.setConfidence(confidence / totalWeight);
+        if (positive && negative && Math.abs(score) < 0.5) {
+            combined.setSentiment("MIXED");
+        } else if (score > 0.2) {
+            combined.setSentiment("POSITIVE");
+        } else if (score < -0.2) {
+            combined.setSentiment("NEGATIVE");
+        } else {
+            combined.setSentiment("NEUTRAL");
+        }
+        combined.setDominantEmotions(union(scored, SentimentAnalysisResult::getDominantEmotions));
+        combined.setKeyPhrases(union(scored, SentimentAnalysisResult::getKeyPhrases));
+        combined.setInsights(scored.stream()
+                .map(SentimentAnalysisResult::getInsights)
+                .filter(insights -> insights != null && !insights.isBlank())
+                .limit(3)
+                .collect(Collectors.joining(" ")));
+        combined.setProcessingTimeMs(scored.stream().mapToLong(SentimentAnalysisResult::getProcessingTimeMs).max().orElse(0));
+        return combined;
+    }
+    
+    private static SentimentAnalysisRequest sentimentRequest(String text) {
+        SentimentAnalysisRequest request = new SentimentAnalysisRequest();
+        request.setText(text);
+        return request;
+    }
+    
+    /**
+     * Items of every partial's list in order, without case-insensitive duplicates, capped
+     */
+    private static <P> List<String> union(List<P> partials, Function<P, List<String>> field) {
+        Map<String, String> items = new LinkedHashMap<>();
+        for (P partial : partials) {
+            List<String> values = field.apply(partial);
+            if (values != null) {
+                values.stream()
+                        .filter(value -> value != null && !value.isBlank())
+                        .forEach(value -> items.putIfAbsent(value.trim().toLowerCase(Locale.ROOT), value.trim()));
+            }
+        }
+        return items.values().stream().limit(MAX_MERGED_ITEMS).toList();
+    }
+    
+    private static void appendList(StringBuilder target, String label, List<String> values) {
+        if (values != null && !values.isEmpty()) {
+            target.append(label).append(": ").append(String.join("; ", values)).append("\n");
+        }
+    }
+    
+    /**
+     * Split messages too long for one chunk into consecutive messages of the same role
+     */
+    private static List<ChatMessage> splitLongMessages(List<ChatMessage> messages, int budget) {
+        List<ChatMessage> result = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            if (estimateTokens(message) <= budget) {
+                result.add(message);
+                continue;
+            }
+            for (String piece : splitText(message.getContent(), budget * 4)) {
+                result.add(new ChatMessage(message.getRole(), piece, message.getTimestamp()));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Split text into pieces of at most maxChars, preferring to cut at whitespace
+     */
+    static List<String> splitText(String text, int maxChars) {
+        List<String> pieces = new ArrayList<>();
+        int start = 0;
+        while (text.length() - start > maxChars) {
+            int end = start + maxChars;
+            int space = text.lastIndexOf(' ', end);
+            if (space > start + maxChars / 2) {
+                end = space;
+            }
+            pieces.add(text.substring(start, end));
+            start = end;
+        }
+        pieces.add(text.substring(start));
+        return pieces;
+    }
+    
+    private static int estimateTokens(ChatMessage message) {
+        return TokenEstimator.approximate(message.getContent()) + 4;
+    }
+    
+    /**
+     * Copy the fields of the topic analysis into the result
+     */
+    private void applyTopicAnalysis(ChatAnalysisResult topics, ChatAnalysisResult result) {
+        result.setMainTopics(topics.getMainTopics());
+        result.setUserIntents(topics.getUserIntents());
+        result.setKeyQuestions(topics.getKeyQuestions());
+        result.setIdentifiedIssues(topics.getIdentifiedIssues());
+        result.setActionItems(topics.getActionItems());
+        result.setConversationSummary(topics.getConversationSummary());
+    }
+    
+    /**
+     * Run a task on the analysis executor once a per-conversation permit is available.
+     * Returns null if no permit frees up before the deadline or the executor is full.
+     * Cancelling the returned future interrupts the task if it is running, and a task
+     * still queued when the deadline passes is skipped.
+     */
+    private <T> CompletableFuture<T> submit(Semaphore permits, long deadlineNanos, List<CompletableFuture<?>> tasks,
+            Supplier<T> task) throws InterruptedException {
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining <= 0 || !permits.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+            return null;
+        }
+        
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Future<?> execution;
+        try {
+            execution = analysisExecutor.submit(() -> {
+                if (System.nanoTime() - deadlineNanos >= 0) {
+                    future.cancel(false);
+                    return;
+                }
+                try {
+                    future.complete(task.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            return null;
+        }
+        future.whenComplete((value, error) -> {
+            permits.release();
+            if (future.isCancelled()) {
+                execution.cancel(true);
+            }
+        });
+        tasks.add(future);
+        return future;
     }
     
     /**
-     * Extract JSON object from Claude's response text
+     * Wait for every task until the deadline; returns false if any task was still running
      */
-    private String extractJsonFromResponse(String responseText) {
-        int startIdx = responseText.indexOf('{');
-        int endIdx = responseText.lastIndexOf('}') + 1;
+    private boolean awaitAll(List<CompletableFuture<?>> tasks, long deadlineNanos) throws InterruptedException {
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]))
+                    .get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            tasks.forEach(task -> task.cancel(false));
+            return false;
+        } catch (ExecutionException e) {
+            // Individual failures are handled when the results are collected
+        }
+        return true;
+    }
+    
+    /**
+     * Value of a successfully completed future, or null if it failed, timed out or never ran
+     */
+    private static <T> T completedValue(CompletableFuture<T> future) {
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        return future.join();
+    }
+    
+    /**
+     * Format the chat for prompting Claude
+     */
+    String formatChatForPrompt(ChatAnalysisRequest request) {
+        return formatMessages(request.getMessages());
+    }
+    
+    private static String formatMessages(List<ChatMessage> messages) {
+        StringBuilder sb = new StringBuilder();
         
-        if (startIdx >= 0 && endIdx > startIdx) {
-            return responseText.substring(startIdx, endIdx);
+        for (ChatMessage message : messages) {
+            sb.append(message.getRole().toUpperCase())
+              .append(": ")
+              .append(message.getContent())
+              .append("\n\n");
         }
         
-        return responseText;
+        return sb.toString();
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
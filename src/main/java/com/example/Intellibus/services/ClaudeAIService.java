@@ -1,25 +1,46 @@
 package com.example.Intellibus.services;
 
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.EntityTemplate;
+import org.apache.hc.core5.http.message.BasicHeader;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.RestTemplate;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.example.Intellibus.config.PromptCacheProperties;
+import com.example.Intellibus.config.RateLimitProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import jakarta.annotation.PostConstruct;
 
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -34,207 +55,577 @@ public class ClaudeAIService {
     @Value("${spring.ai.anthropic.chat.options.model:claude-3-haiku-20240307}")
     private String model;
     
+    @Value("${spring.ai.anthropic.chat.options.temperature:0.7}")
+    private double temperature;
+    
     @Autowired
     private RestTemplate restTemplate;
     
+    @Autowired
+    private ResponseCache responseCache;
+    
+    @Autowired
+    private RequestMetricsStore metricsStore;
+    
+    @Autowired
+    private CloseableHttpClient httpClient;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private UpstreamGovernor upstreamGovernor;
+    
+    @Autowired
+    private RateLimitProperties rateLimitProperties;
+    
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+    
+    @Autowired
+    private TokenBudget tokenBudget;
+    
+    @Autowired
+    private ServiceMetrics serviceMetrics;
+    
+    @Autowired
+    private PromptCacheProperties promptCacheProperties;
     
     private static final String API_VERSION = "2023-06-01";
-    private static final String SYSTEM_PROMPT = 
+    
+    private MessagesRequestWriter requestWriter;
+    private HttpHeaders requestHeaders;
+    private Header[] streamRequestHeaders;
+    private ObjectReader responseReader;
+    private ObjectReader streamEventReader;
+    static final String SYSTEM_PROMPT = 
             "You are an AI assistant named Claude, developed by Anthropic. " +
             "You are helpful, harmless, and honest. " +
             "Always provide clear, concise, and accurate responses to the best of your ability.";
             
-    // Store request metrics - using ConcurrentHashMap for thread safety
-    private final ConcurrentHashMap<String, RequestMetrics> requestMetrics = new ConcurrentHashMap<>();
-
+    /**
+     * Serialize the fixed parts of every request once: headers never change and neither do the
+     * model, temperature, system prompt and its cache marker
+     */
+    @PostConstruct
+    void init() {
+        requestWriter = new MessagesRequestWriter(objectMapper.getFactory(), model, temperature, SYSTEM_PROMPT,
+                promptCacheProperties.effectiveTtl());
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        headers.set("x-api-key", apiKey);
+        headers.set("anthropic-version", API_VERSION);
+        requestHeaders = HttpHeaders.readOnlyHttpHeaders(headers);
+        
+        streamRequestHeaders = new Header[] {
+                new BasicHeader("x-api-key", apiKey),
+                new BasicHeader("anthropic-version", API_VERSION),
+                new BasicHeader(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE) };
+        
+        responseReader = objectMapper.readerFor(ClaudeResponse.class);
+        streamEventReader = objectMapper.readerFor(MessageStreamEvent.class);
+    }
+    
     public String generateResponse(String userPrompt) {
-        String requestId = generateRequestId();
+        return generate(userPrompt, GenerationOptions.defaults()).getText();
+    }
+    
+    /**
+     * Generate a response, serving identical requests from the response cache unless the caller opts out
+     */
+    public String generateResponse(String userPrompt, GenerationOptions options) {
+        return generate(userPrompt, options).getText();
+    }
+    
+    /**
+     * Generate a response and return it together with its request ID, token usage and timings
+     */
+    public ClaudeResult generate(String userPrompt, GenerationOptions options) {
+        long seq = metricsStore.nextSequence();
+        String requestId = metricsStore.requestId(seq);
         Instant startTime = Instant.now();
         
+        TokenBudget.Allocation allocation = tokenBudget.allocate(SYSTEM_PROMPT, userPrompt, options);
+        int effectiveMaxTokens = allocation.getMaxTokens();
+        
+        ClaudeResult result = new ClaudeResult();
+        result.setRequestId(requestId);
+        result.setModel(model);
+        
+        if (!allocation.fits()) {
+            tokenBudget.rejected(allocation);
+            result.setSuccess(false);
+            result.setErrorMessage(tooLargeMessage(allocation));
+            result.setText("Error: " + result.getErrorMessage());
+            recordFailedRequest(seq, startTime, 0, -1, HttpStatus.PAYLOAD_TOO_LARGE.value(), result);
+            return result;
+        }
+        
+        String requestKey = null;
+        if (options.isCacheable() && (responseCache.isEnabled() || requestCoalescer.isEnabled())) {
+            requestKey = responseCache.key(model, SYSTEM_PROMPT, temperature, effectiveMaxTokens,
+                    options.getInstructions(), userPrompt, options.getOutputSchema());
+            String cached = responseCache.isEnabled() ? responseCache.get(requestKey) : null;
+            if (cached != null) {
+                result.setText(cached);
+                result.setCached(true);
+                recordCachedRequest(seq, startTime, result);
+                return result;
+            }
+        }
+        
+        if (requestKey == null || !requestCoalescer.isEnabled()) {
+            return callUpstream(seq, startTime, userPrompt, options, allocation, requestKey, result);
+        }
+        
+        // Share one upstream call between identical concurrent requests
+        RequestCoalescer.Flight flight = requestCoalescer.join(requestKey);
+        if (!flight.isLeader()) {
+            try {
+                ClaudeResult shared = flight.await();
+                if (shared != null) {
+                    recordCoalescedRequest(seq, startTime, shared, result);
+                    return result;
+                }
+                // The leader was cancelled without a result, so make our own call
+                return callUpstream(seq, startTime, userPrompt, options, allocation, requestKey, result);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.setSuccess(false);
+                result.setErrorMessage("Interrupted while waiting for an identical in-flight request");
+                result.setText("Error: " + result.getErrorMessage());
+                recordFailedRequest(seq, startTime, 0, -1, 0, result);
+                return result;
+            }
+        }
+        
+        ClaudeResult leaderResult = null;
         try {
-            log.info("Generating response for prompt: {} (Request ID: {})", userPrompt, requestId);
-            
-            // Create headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("x-api-key", apiKey);
-            headers.set("anthropic-version", API_VERSION);
-            
-            // Create request body
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", model);  // Use the model from properties
-            requestBody.put("max_tokens", 1000);
-            requestBody.put("temperature", 0.7);
-            requestBody.put("system", SYSTEM_PROMPT);
-            
-            List<Map<String, Object>> messages = new ArrayList<>();
-            Map<String, Object> message = new HashMap<>();
-            message.put("role", "user");
-            
-            List<Map<String, String>> content = new ArrayList<>();
-            Map<String, String> contentItem = new HashMap<>();
-            contentItem.put("type", "text");
-            contentItem.put("text", userPrompt);
-            content.add(contentItem);
-            
-            message.put("content", content);
-            messages.add(message);
-            
-            requestBody.put("messages", messages);
+            leaderResult = callUpstream(seq, startTime, userPrompt, options, allocation, requestKey, result);
+            return leaderResult;
+        } finally {
+            if (leaderResult == null || (!leaderResult.isSuccess() && Thread.currentThread().isInterrupted())) {
+                requestCoalescer.abandon(flight);
+            } else {
+                requestCoalescer.complete(flight, leaderResult);
+            }
+        }
+    }
+    
+    /**
+     * Make the upstream call for {@link #generate}, storing successful responses in the cache
+     *
+     * @param cacheKey key to store the response under, or null if it must not be cached
+     */
+    private ClaudeResult callUpstream(long seq, Instant startTime, String userPrompt, GenerationOptions options,
+            TokenBudget.Allocation allocation, String cacheKey, ClaudeResult result) {
+        String requestId = result.getRequestId();
+        int effectiveMaxTokens = allocation.getMaxTokens();
+        OutputSchema outputSchema = options.getOutputSchema();
+        String instructions = options.getInstructions();
+        long queueWaitNanos = 0;
+        try {
+            log.debug("Generating response for a prompt of {} characters (Request ID: {})", userPrompt.length(), requestId);
             
-            // Send request
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+            // The body is written straight to the connection when the request is sent
+            RequestCallback requestCallback = request -> {
+                request.getHeaders().putAll(requestHeaders);
+                if (request instanceof StreamingHttpOutputMessage streaming) {
+                    streaming.setBody(out -> requestWriter.write(out, instructions, userPrompt, effectiveMaxTokens, false,
+                            outputSchema));
+                } else {
+                    requestWriter.write(request.getBody(), instructions, userPrompt, effectiveMaxTokens, false,
+                            outputSchema);
+                }
+            };
             
             // Debug log of request headers and body
             log.info("API Key: {}", apiKey.substring(0, Math.min(5, apiKey.length())) + "..." + (apiKey.length() > 10 ? apiKey.substring(apiKey.length() - 5) : ""));
             log.info("Using model: {}", model);
-            log.info("Request body: {}", requestBody);
+            log.debug("Request body: {} prompt characters, max_tokens {}", userPrompt.length(), effectiveMaxTokens);
             
-            // Record time before API call
-            Instant apiCallStart = Instant.now();
-            
-            // Parse response
-            ClaudeResponse response = restTemplate.postForObject(apiUrl, entity, ClaudeResponse.class);
+            int inputTokenEstimate = allocation.getEstimatedInputTokens();
+            Instant apiCallStart;
+            ClaudeResponse response;
+            int retries = 0;
+            while (true) {
+                // Wait for the rate limit, then record time before API call
+                UpstreamGovernor.Permit permit = upstreamGovernor.acquire(options.getPriority(), inputTokenEstimate, effectiveMaxTokens);
+                queueWaitNanos += permit.getQueueWaitNanos();
+                apiCallStart = Instant.now();
+                
+                ClaudeResponse body = null;
+                try {
+                    ResponseEntity<ClaudeResponse> responseEntity = restTemplate.execute(apiUrl, HttpMethod.POST, requestCallback,
+                            this::readResponse);
+                    upstreamGovernor.onResponse(responseEntity.getStatusCode().value(), responseEntity.getHeaders()::getFirst);
+                    body = responseEntity.getBody();
+                    response = body;
+                    break;
+                } catch (HttpStatusCodeException e) {
+                    HttpHeaders responseHeaders = e.getResponseHeaders();
+                    upstreamGovernor.onResponse(e.getStatusCode().value(),
+                            name -> responseHeaders != null ? responseHeaders.getFirst(name) : null);
+                    if (e.getStatusCode().value() != HttpStatus.TOO_MANY_REQUESTS.value()
+                            || retries >= rateLimitProperties.getMaxRetries()) {
+                        throw e;
+                    }
+                    retries++;
+                    log.warn("Claude API rate limited request {}, retrying ({}/{})",
+                            requestId, retries, rateLimitProperties.getMaxRetries());
+                } finally {
+                    // Cache reads do not count towards the input token rate limit; cache writes do
+                    ClaudeResponse.Usage usage = body != null ? body.getUsage() : null;
+                    upstreamGovernor.release(permit,
+                            usage != null ? usage.getInputTokens() + usage.getCacheCreationInputTokens() : 0,
+                            usage != null ? usage.getOutputTokens() : 0);
+                }
+            }
             
             // Record time after API call
             Instant apiCallEnd = Instant.now();
             Duration apiCallDuration = Duration.between(apiCallStart, apiCallEnd);
+            result.setApiCallTimeMs(apiCallDuration.toMillis());
+            result.setQueueWaitMs(queueWaitNanos / 1_000_000);
             
             if (response != null && response.content != null && !response.content.isEmpty()) {
                 log.info("Response generated successfully");
                 
+                result.setText(responseText(response.content, outputSchema));
+                result.setStopReason(response.getStopReason());
+                if (response.getModel() != null) {
+                    result.setModel(response.getModel());
+                }
+                if (response.getUsage() != null) {
+                    result.recordInputUsage(response.getUsage());
+                    result.setOutputTokens(response.getUsage().getOutputTokens());
+                }
+                tokenBudget.record(allocation, result);
+                
                 // Calculate full processing time
                 Duration totalDuration = Duration.between(startTime, Instant.now());
+                result.setTotalTimeMs(totalDuration.toMillis());
                 
                 // Store metrics
-                RequestMetrics metrics = new RequestMetrics();
-                metrics.setRequestId(requestId);
-                metrics.setPrompt(userPrompt);
-                metrics.setModel(model);
-                metrics.setRequestTimestamp(startTime);
-                metrics.setResponseTimestamp(Instant.now());
-                metrics.setApiCallDuration(apiCallDuration);
-                metrics.setTotalProcessingDuration(totalDuration);
-                metrics.setResponseLength(response.content.get(0).text.length());
-                
-                // Store in our metrics map
-                requestMetrics.put(requestId, metrics);
+                recordMetrics(seq, startTime, queueWaitNanos, apiCallDuration.toNanos(), -1, totalDuration.toNanos(),
+                        HttpStatus.OK.value(), result);
                 
                 // Log the timing information
-                log.info("Request metrics - ID: {}, API call duration: {}ms, Total processing time: {}ms, Response length: {} characters",
-                        requestId, apiCallDuration.toMillis(), totalDuration.toMillis(), metrics.getResponseLength());
+                log.info("Request metrics - ID: {}, Queue wait: {}ms, API call duration: {}ms, Total processing time: {}ms, Response length: {} characters, Tokens: {} in ({} cache read, {} cache write) / {} out",
+                        requestId, result.getQueueWaitMs(), apiCallDuration.toMillis(), totalDuration.toMillis(),
+                        result.getText().length(), result.getInputTokens(), result.getCacheReadInputTokens(),
+                        result.getCacheCreationInputTokens(), result.getOutputTokens());
                 
-                return response.content.get(0).text;
+                if (cacheKey != null && responseCache.isEnabled()) {
+                    responseCache.put(cacheKey, result.getText());
+                }
+                
+                return result;
             } else {
                 log.error("Invalid response format from Claude API");
-                recordFailedRequest(requestId, startTime, apiCallDuration, "Invalid response format");
-                return "Sorry, I couldn't generate a response at this time.";
+                result.setSuccess(false);
+                result.setErrorMessage("Invalid response format");
+                result.setText("Sorry, I couldn't generate a response at this time.");
+                recordFailedRequest(seq, startTime, queueWaitNanos, apiCallDuration.toNanos(), HttpStatus.OK.value(), result);
+                return result;
             }
         } catch (Exception e) {
-            Duration totalDuration = Duration.between(startTime, Instant.now());
-            recordFailedRequest(requestId, startTime, totalDuration, e.getMessage());
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            int statusCode = e instanceof HttpStatusCodeException statusException
+                    ? statusException.getStatusCode().value()
+                    : e instanceof TimeoutException ? HttpStatus.TOO_MANY_REQUESTS.value() : 0;
+            result.setSuccess(false);
+            result.setErrorMessage(e.getMessage());
+            result.setText("Error: " + e.getMessage());
+            result.setQueueWaitMs(queueWaitNanos / 1_000_000);
+            recordFailedRequest(seq, startTime, queueWaitNanos, -1, statusCode, result);
             log.error("Error calling Claude API", e);
-            return "Error: " + e.getMessage();
+            return result;
         }
     }
     
     /**
-     * Records metrics for a failed request
+     * Text of a response. For a structured call this is the tool input serialized as JSON, so callers
+     * parse it exactly like a JSON reply; a model that answered in text instead still yields its text.
+     */
+    static String responseText(List<ContentItem> content, OutputSchema outputSchema) {
+        if (outputSchema != null) {
+            for (ContentItem item : content) {
+                if ("tool_use".equals(item.getType()) && item.getInput() != null) {
+                    return item.getInput().toString();
+                }
+            }
+        }
+        StringBuilder text = new StringBuilder();
+        for (ContentItem item : content) {
+            if (item.getText() != null) {
+                text.append(item.getText());
+            }
+        }
+        return text.toString();
+    }
+    
+    /**
+     * Stream a response, passing text deltas to the listener as they arrive from the Messages API.
+     * Streamed responses bypass the response cache and are always free text: an output schema in the
+     * options is ignored. If the listener throws (for example because
+     * the client went away) the upstream request is aborted rather than drained.
      */
-    private void recordFailedRequest(String requestId, Instant startTime, Duration duration, String errorMessage) {
-        RequestMetrics metrics = new RequestMetrics();
-        metrics.setRequestId(requestId);
-        metrics.setRequestTimestamp(startTime);
-        metrics.setResponseTimestamp(Instant.now());
-        metrics.setTotalProcessingDuration(duration);
-        metrics.setSuccess(false);
-        metrics.setErrorMessage(errorMessage);
+    public ClaudeResult stream(String userPrompt, GenerationOptions options, StreamListener listener) {
+        long seq = metricsStore.nextSequence();
+        String requestId = metricsStore.requestId(seq);
+        Instant startTime = Instant.now();
+        long startNanos = System.nanoTime();
+        long firstTokenNanos = -1;
+        int statusCode = 0;
+        long queueWaitNanos = 0;
         
-        requestMetrics.put(requestId, metrics);
-        log.info("Failed request metrics - ID: {}, Total processing time: {}ms, Error: {}", 
-                requestId, duration.toMillis(), errorMessage);
+        TokenBudget.Allocation allocation = tokenBudget.allocate(SYSTEM_PROMPT, userPrompt, options);
+        int effectiveMaxTokens = allocation.getMaxTokens();
+        
+        ClaudeResult result = new ClaudeResult();
+        result.setRequestId(requestId);
+        result.setModel(model);
+        
+        HttpPost post = new HttpPost(apiUrl);
+        UpstreamGovernor.Permit permit = null;
+        try {
+            log.debug("Streaming response for a prompt of {} characters (Request ID: {})", userPrompt.length(), requestId);
+            
+            if (!allocation.fits()) {
+                tokenBudget.rejected(allocation);
+                statusCode = HttpStatus.PAYLOAD_TOO_LARGE.value();
+                throw new IllegalArgumentException(tooLargeMessage(allocation));
+            }
+            
+            post.setHeaders(streamRequestHeaders);
+            post.setEntity(new EntityTemplate(-1, ContentType.APPLICATION_JSON, null,
+                    out -> requestWriter.write(out, options.getInstructions(), userPrompt, effectiveMaxTokens, true, null)));
+            
+            permit = upstreamGovernor.acquire(options.getPriority(), allocation.getEstimatedInputTokens(), effectiveMaxTokens);
+            queueWaitNanos = permit.getQueueWaitNanos();
+            result.setQueueWaitMs(queueWaitNanos / 1_000_000);
+            startNanos = System.nanoTime();
+            
+            try (ClassicHttpResponse response = httpClient.executeOpen(null, post, null)) {
+                statusCode = response.getCode();
+                upstreamGovernor.onResponse(statusCode, name -> {
+                    Header header = response.getFirstHeader(name);
+                    return header != null ? header.getValue() : null;
+                });
+                if (statusCode >= 300) {
+                    String body = response.getEntity() != null ? EntityUtils.toString(response.getEntity()) : "";
+                    throw new IllegalStateException("Claude API returned " + statusCode + ": " + body);
+                }
+                
+                StringBuilder text = new StringBuilder();
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8));
+                
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // Server-sent events: only the data lines carry the JSON payload
+                    if (!line.startsWith("data:")) {
+                        continue;
+                    }
+                    MessageStreamEvent event = streamEventReader.readValue(line.substring(5).trim());
+                    String type = event.getType();
+                    
+                    if ("message_start".equals(type) && event.getMessage() != null) {
+                        ClaudeResponse message = event.getMessage();
+                        if (message.getModel() != null) {
+                            result.setModel(message.getModel());
+                        }
+                        if (message.getUsage() != null) {
+                            result.recordInputUsage(message.getUsage());
+                        }
+                    } else if ("content_block_delta".equals(type)) {
+                        String delta = event.getDelta() != null ? event.getDelta().getText() : null;
+                        if (delta != null && !delta.isEmpty()) {
+                            if (firstTokenNanos < 0) {
+                                firstTokenNanos = System.nanoTime() - startNanos;
+                            }
+                            text.append(delta);
+                            listener.onDelta(delta);
+                        }
+                    } else if ("message_delta".equals(type)) {
+                        if (event.getDelta() != null && event.getDelta().getStopReason() != null) {
+                            result.setStopReason(event.getDelta().getStopReason());
+                        }
+                        if (event.getUsage() != null) {
+                            result.setOutputTokens(event.getUsage().getOutputTokens());
+                        }
+                    } else if ("error".equals(type)) {
+                        String message = event.getError() != null ? event.getError().getMessage() : null;
+                        throw new IllegalStateException(message != null ? message : "Stream error");
+                    } else if ("message_stop".equals(type)) {
+                        break;
+                    }
+                }
+                
+                result.setText(text.toString());
+            }
+            tokenBudget.record(allocation, result);
+            
+            long apiCallNanos = System.nanoTime() - startNanos;
+            long durationNanos = queueWaitNanos + apiCallNanos;
+            result.setApiCallTimeMs(apiCallNanos / 1_000_000);
+            result.setTotalTimeMs(durationNanos / 1_000_000);
+            result.setTimeToFirstTokenMs(firstTokenNanos >= 0 ? firstTokenNanos / 1_000_000 : -1);
+            recordMetrics(seq, startTime, queueWaitNanos, apiCallNanos, firstTokenNanos, durationNanos, statusCode, result);
+            
+            log.info("Stream metrics - ID: {}, Time to first token: {}ms, Total time: {}ms, Tokens: {} in ({} cache read, {} cache write) / {} out",
+                    requestId, result.getTimeToFirstTokenMs(), result.getTotalTimeMs(), result.getInputTokens(),
+                    result.getCacheReadInputTokens(), result.getCacheCreationInputTokens(), result.getOutputTokens());
+            return result;
+        } catch (Exception e) {
+            // Drop the upstream connection instead of draining the rest of the generation
+            post.cancel();
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            } else if (e instanceof TimeoutException) {
+                statusCode = HttpStatus.TOO_MANY_REQUESTS.value();
+            }
+            
+            long durationNanos = queueWaitNanos + System.nanoTime() - startNanos;
+            result.setSuccess(false);
+            result.setErrorMessage(e.getMessage());
+            result.setText("Error: " + e.getMessage());
+            result.setTotalTimeMs(durationNanos / 1_000_000);
+            result.setTimeToFirstTokenMs(firstTokenNanos >= 0 ? firstTokenNanos / 1_000_000 : -1);
+            recordMetrics(seq, startTime, queueWaitNanos, -1, firstTokenNanos, durationNanos, statusCode, result);
+            
+            if (e instanceof IOException && firstTokenNanos >= 0) {
+                log.info("Stream {} aborted after {}ms: {}", requestId, result.getTotalTimeMs(), e.getMessage());
+            } else {
+                log.error("Error streaming from Claude API", e);
+            }
+            return result;
+        } finally {
+            if (permit != null) {
+                upstreamGovernor.release(permit, result.getInputTokens() + result.getCacheCreationInputTokens(),
+                        result.getOutputTokens());
+            }
+        }
+    }
+    
+    private String tooLargeMessage(TokenBudget.Allocation allocation) {
+        return "Prompt of about " + allocation.getEstimatedInputTokens() + " tokens is over the "
+                + tokenBudget.maxInputTokens(allocation.getMaxTokens()) + " tokens that fit with max_tokens "
+                + allocation.getMaxTokens();
+    }
+    
+    /**
+     * Bind a successful Messages API response straight from the body stream; error statuses
+     * have already been raised by the RestTemplate error handler
+     */
+    private ResponseEntity<ClaudeResponse> readResponse(ClientHttpResponse response) throws IOException {
+        ClaudeResponse body = responseReader.readValue(response.getBody());
+        return new ResponseEntity<>(body, response.getHeaders(), response.getStatusCode());
     }
     
     /**
-     * Generates a unique request ID
+     * Store a request's metrics and feed them to the Micrometer meters
      */
-    private String generateRequestId() {
-        return "req_" + System.currentTimeMillis() + "_" + (int)(Math.random() * 1000);
+    private void recordMetrics(long seq, Instant startTime, long queueWaitNanos, long apiCallNanos, long firstTokenNanos,
+            long durationNanos, int statusCode, ClaudeResult result) {
+        metricsStore.record(seq, startTime, queueWaitNanos, apiCallNanos, firstTokenNanos, durationNanos, statusCode, result);
+        serviceMetrics.recordClaudeCall(result, queueWaitNanos, apiCallNanos, firstTokenNanos, durationNanos, statusCode);
     }
     
     /**
-     * Get all stored request metrics
+     * Records metrics for a request answered from the response cache
      */
-    public Map<String, RequestMetrics> getAllRequestMetrics() {
-        return new HashMap<>(requestMetrics);
+    private void recordCachedRequest(long seq, Instant startTime, ClaudeResult result) {
+        long durationNanos = Duration.between(startTime, Instant.now()).toNanos();
+        result.setTotalTimeMs(durationNanos / 1_000_000);
+        recordMetrics(seq, startTime, 0, -1, -1, durationNanos, HttpStatus.OK.value(), result);
+        log.info("Cache hit - ID: {}, Total processing time: {}us", result.getRequestId(), durationNanos / 1000);
+    }
+    
+    /**
+     * Records metrics for a request that shared another request's upstream call
+     */
+    private void recordCoalescedRequest(long seq, Instant startTime, ClaudeResult shared, ClaudeResult result) {
+        result.setText(shared.getText());
+        result.setModel(shared.getModel());
+        result.setSuccess(shared.isSuccess());
+        result.setErrorMessage(shared.getErrorMessage());
+        result.setCoalesced(true);
+        
+        long durationNanos = Duration.between(startTime, Instant.now()).toNanos();
+        result.setTotalTimeMs(durationNanos / 1_000_000);
+        recordMetrics(seq, startTime, 0, -1, -1, durationNanos, shared.isSuccess() ? HttpStatus.OK.value() : 0, result);
+        log.info("Coalesced - ID: {}, shared call: {}, Total processing time: {}ms",
+                result.getRequestId(), shared.getRequestId(), result.getTotalTimeMs());
+    }
+    
+    /**
+     * Records metrics for a failed request
+     */
+    private void recordFailedRequest(long seq, Instant startTime, long queueWaitNanos, long apiCallNanos, int statusCode,
+            ClaudeResult result) {
+        Duration duration = Duration.between(startTime, Instant.now());
+        result.setTotalTimeMs(duration.toMillis());
+        recordMetrics(seq, startTime, queueWaitNanos, apiCallNanos, -1, duration.toNanos(), statusCode, result);
+        log.info("Failed request metrics - ID: {}, Total processing time: {}ms, Error: {}", 
+                result.getRequestId(), duration.toMillis(), result.getErrorMessage());
     }
     
     /**
      * Get metrics for a specific request
      */
     public RequestMetrics getRequestMetrics(String requestId) {
-        return requestMetrics.get(requestId);
+        return metricsStore.get(requestId);
+    }
+    
+    /**
+     * Visit the most recent request metrics, newest first
+     */
+    public void forEachRecentRequestMetrics(int limit, String beforeRequestId, Consumer<RequestMetrics> consumer) {
+        metricsStore.forEachRecent(limit, beforeRequestId, consumer);
+    }
+    
+    /**
+     * Number of request metrics currently retained
+     */
+    public int getRequestMetricsCount() {
+        return metricsStore.size();
     }
     
     /**
      * Clear all stored metrics
      */
     public void clearMetrics() {
-        requestMetrics.clear();
+        metricsStore.clear();
     }
     
     /**
-     * Class to store metrics for each request
+     * Metrics for a single request, materialized from the {@link RequestMetricsStore}
      */
     @Data
     public static class RequestMetrics {
         private String requestId;
-        private String prompt;
         private String model;
         private Instant requestTimestamp;
         private Instant responseTimestamp;
+        private Duration queueWait;
         private Duration apiCallDuration;
+        private Duration timeToFirstToken;
         private Duration totalProcessingDuration;
+        private int statusCode;
         private int responseLength;
+        private int inputTokens;
+        private int cacheCreationInputTokens;
+        private int cacheReadInputTokens;
+        private int outputTokens;
         private boolean success = true;
+        private boolean cached;
+        private boolean coalesced;
         private String errorMessage;
     }
-    
-    // Response classes
-    static class ClaudeResponse {
-        @JsonProperty("content")
-        private List<ContentItem> content;
-        
-        public List<ContentItem> getContent() {
-            return content;
-        }
-        
-        public void setContent(List<ContentItem> content) {
-            this.content = content;
-        }
-    }
-    
-    static class ContentItem {
-        @JsonProperty("type")
-        private String type;
-        
-        @JsonProperty("text")
-        private String text;
-        
-        public String getType() {
-            return type;
-        }
-        
-        public void setType(String type) {
-            this.type = type;
-        }
-        
-        public String getText() {
-            return text;
-        }
-        
-        public void setText(String text) {
-            this.text = text;
-        }
-    }
-} 
\ No newline at end of file
+}
@@ -2,12 +2,28 @@ package com.example.Intellibus.services;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 // Response classes
+@JsonIgnoreProperties(ignoreUnknown = true)
 class ClaudeResponse {
+    @JsonProperty("model") private String model;
+    
     @JsonProperty("content") List<ContentItem> content;
     
+    @JsonProperty("stop_reason") private String stopReason;
+    
+    @JsonProperty("usage") private Usage usage;
+    
+    public String getModel() {
+        return model;
+    }
+    
+    public void setModel(String model) {
+        this.model = model;
+    }
+    
     public List<ContentItem> getContent() {
         return content;
     }
@@ -15,4 +31,63 @@ class ClaudeResponse {
     public void setContent(List<ContentItem> content) {
         this.content = content;
     }
-}
\ No newline at end of file
+    
+    public String getStopReason() {
+        return stopReason;
+    }
+    
+    public void setStopReason(String stopReason) {
+        this.stopReason = stopReason;
+    }
+    
+    public Usage getUsage() {
+        return usage;
+    }
+    
+    public void setUsage(Usage usage) {
+        this.usage = usage;
+    }
+    
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class Usage {
+        @JsonProperty("input_tokens") private int inputTokens;
+        
+        @JsonProperty("output_tokens") private int outputTokens;
+        
+        @JsonProperty("cache_creation_input_tokens") private int cacheCreationInputTokens;
+        
+        @JsonProperty("cache_read_input_tokens") private int cacheReadInputTokens;
+        
+        public int getInputTokens() {
+            return inputTokens;
+        }
+        
+        public void setInputTokens(int inputTokens) {
+            this.inputTokens = inputTokens;
+        }
+        
+        public int getOutputTokens() {
+            return outputTokens;
+        }
+        
+        public void setOutputTokens(int outputTokens) {
+            this.outputTokens = outputTokens;
+        }
+        
+        public int getCacheCreationInputTokens() {
+            return cacheCreationInputTokens;
+        }
+        
+        public void setCacheCreationInputTokens(int cacheCreationInputTokens) {
+            this.cacheCreationInputTokens = cacheCreationInputTokens;
+        }
+        
+        public int getCacheReadInputTokens() {
+            return cacheReadInputTokens;
+        }
+        
+        public void setCacheReadInputTokens(int cacheReadInputTokens) {
+            this.cacheReadInputTokens = cacheReadInputTokens;
+        }
+    }
+}
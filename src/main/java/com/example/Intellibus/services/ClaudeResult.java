@@ -0,0 +1,106 @@
+package com.example.Intellibus.services;
+
+import lombok.Data;
+
+/**
+ * Result of a single {@link ClaudeAIService} call, with the text and the metrics of that exact request
+ */
+@Data
+public class ClaudeResult {
+
+    /**
+     * Generated text (or an error message when the call failed)
+     */
+    private String text;
+
+    /**
+     * ID under which the request's metrics are recorded
+     */
+    private String requestId;
+
+    /**
+     * Model that produced the response
+     */
+    private String model;
+
+    /**
+     * Input tokens reported by the API; tokens read from or written to the prompt cache are counted separately
+     */
+    private int inputTokens;
+
+    /**
+     * Input tokens written to the prompt cache by this request
+     */
+    private int cacheCreationInputTokens;
+
+    /**
+     * Input tokens read from the prompt cache by this request
+     */
+    private int cacheReadInputTokens;
+
+    /**
+     * Output tokens reported by the API
+     */
+    private int outputTokens;
+
+    /**
+     * Why generation stopped as reported by the API, e.g. end_turn, or max_tokens when the response was cut off
+     */
+    private String stopReason;
+
+    /**
+     * Time spent queued for the upstream rate limit in milliseconds
+     */
+    private long queueWaitMs;
+
+    /**
+     * Time spent waiting on the upstream API in milliseconds
+     */
+    private long apiCallTimeMs;
+
+    /**
+     * Time until the first streamed token arrived in milliseconds, or -1 when not streamed
+     */
+    private long timeToFirstTokenMs = -1;
+
+    /**
+     * Total processing time in milliseconds
+     */
+    private long totalTimeMs;
+
+    /**
+     * Whether the response was served from the response cache
+     */
+    private boolean cached;
+
+    /**
+     * Whether the response was shared from an identical request's in-flight upstream call
+     */
+    private boolean coalesced;
+
+    /**
+     * Whether the call succeeded
+     */
+    private boolean success = true;
+
+    /**
+     * Error description when the call failed
+     */
+    private String errorMessage;
+
+    /**
+     * Size of the whole prompt in tokens, whether it was processed, written to the cache or read from it
+     */
+    public int promptTokens() {
+        return inputTokens + cacheCreationInputTokens + cacheReadInputTokens;
+    }
+
+    /**
+     * Copy the input token counts, cached and uncached, of an API usage block
+     */
+    void recordInputUsage(ClaudeResponse.Usage usage) {
+        inputTokens = usage.getInputTokens();
+        cacheCreationInputTokens = usage.getCacheCreationInputTokens();
+        cacheReadInputTokens = usage.getCacheReadInputTokens();
+    }
+}
@@ -1,13 +1,21 @@
 package com.example.Intellibus.services;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
 
+@JsonIgnoreProperties(ignoreUnknown = true)
 class ContentItem {
     @JsonProperty("type")
     private String type;
     
     @JsonProperty("text") String text;
     
+    /**
+     * Arguments of a tool_use block: the structured answer when an output schema was requested
+     */
+    @JsonProperty("input") JsonNode input;
+    
     public String getType() {
         return type;
     }
@@ -23,4 +31,12 @@ class ContentItem {
     public void setText(String text) {
         this.text = text;
     }
+    
+    public JsonNode getInput() {
+        return input;
+    }
+    
+    public void setInput(JsonNode input) {
+        this.input = input;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.example.Intellibus.services;
+
+import lombok.Data;
+
+/**
+ * Per-call options for {@link ClaudeAIService}
+ */
+@Data
+public class GenerationOptions {
+
+    /**
+     * Scheduling priority when calls queue for the upstream rate limit
+     */
+    public enum Priority {
+        /** A user is waiting on the response */
+        INTERACTIVE,
+        STANDARD,
+        /** Batch work that can tolerate delay */
+        BULK
+    }
+
+    /**
+     * What a call is for; sizes its output token budget and groups its token usage statistics
+     */
+    public enum UseCase {
+        GENERAL,
+        SENTIMENT,
+        SENTIMENT_BATCH,
+        CHAT_TOPICS,
+        /** Merging the topic analyses of the parts of a long conversation */
+        CHAT_MERGE,
+        REPORT_ENGAGEMENT_METRICS,
+        REPORT_POST_EVENT,
+        REPORT_DAILY_MONITORING,
+        REPORT_CUSTOM,
+        /** Analysis of one slice of report data too large for a single prompt */
+        REPORT_DATA_SLICE,
+        REPORT_DATA_MERGE
+    }
+
+    /**
+     * Whether the response may be served from and stored in the response cache
+     */
+    private boolean cacheable = true;
+
+    /**
+     * Upper bound on output tokens, or null to use the configured default
+     */
+    private Integer maxTokens;
+
+    /**
+     * Queue priority for the upstream rate limit
+     */
+    private Priority priority = Priority.STANDARD;
+
+    /**
+     * What the call is for
+     */
+    private UseCase useCase = UseCase.GENERAL;
+
+    /**
+     * Schema the response must follow, sent as a forced tool call; null for a free-text response
+     */
+    private OutputSchema outputSchema;
+
+    /**
+     * Static instructions sent ahead of the prompt as a block of their own, cached by the API across calls
+     * that share them; null if the prompt stands alone
+     */
+    private String instructions;
+
+    /**
+     * Options used when the caller has no special requirements
+     */
+    public static GenerationOptions defaults() {
+        return new GenerationOptions();
+    }
+
+    /**
+     * Default options for a call made for the given use case
+     */
+    public static GenerationOptions forUseCase(UseCase useCase) {
+        GenerationOptions options = new GenerationOptions();
+        options.setUseCase(useCase);
+        return options;
+    }
+
+    /**
+     * Default options for a call of the given use case whose response must follow a schema
+     */
+    public static GenerationOptions structured(UseCase useCase, OutputSchema outputSchema) {
+        GenerationOptions options = forUseCase(useCase);
+        options.setOutputSchema(outputSchema);
+        return options;
+    }
+
+    /**
+     * Default options for a call of the given use case whose response must follow a schema, with a prompt
+     * that follows fixed instructions
+     */
+    public static GenerationOptions structured(UseCase useCase, OutputSchema outputSchema, String instructions) {
+        GenerationOptions options = structured(useCase, outputSchema);
+        options.setInstructions(instructions);
+        return options;
+    }
+
+    /**
+     * Options that bypass the response cache
+     */
+    public static GenerationOptions uncached() {
+        GenerationOptions options = new GenerationOptions();
+        options.setCacheable(false);
+        return options;
+    }
+
+    /**
+     * Options for a call a user is actively waiting on
+     */
+    public static GenerationOptions interactive() {
+        GenerationOptions options = new GenerationOptions();
+        options.setPriority(Priority.INTERACTIVE);
+        return options;
+    }
+}
@@ -0,0 +1,390 @@
+package com.example.Intellibus.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.Intellibus.config.FastSentimentProperties;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisRequest;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process sentiment scoring from a word lexicon, for texts that do not need a Claude call.
+ *
+ * Each lexicon word contributes its valence. Up to three words before it can scale it (intensifiers
+ * such as "very" or "slightly") or flip it (negators such as "not"); a clause break ends that reach.
+ * After a contrast word ("but", "however") the rest of the text counts three times as much as what
+ * came before. Words in capitals within otherwise mixed-case text and exclamation marks add emphasis.
+ * The sum is squashed to a score in [-1, 1].
+ *
+ * Confidence reflects how much the lexicon could see: one-sided, strong and dense sentiment scores
+ * high, while texts with no known words, with opposing terms, or relying on negation or contrast
+ * score low, since those are where word counting is least reliable.
+ */
+@Component
+@Slf4j
+public class LexiconSentimentScorer {
+
+    /** How far back a modifier reaches */
+    private static final int MODIFIER_REACH = 3;
+    /** Decay of an intensifier's effect by its distance from the word it modifies */
+    private static final double[] INTENSIFIER_DECAY = { 1.0, 0.95, 0.9 };
+    private static final double NEGATION_FACTOR = -0.74;
+    private static final double CAPS_EMPHASIS = 0.733;
+    private static final double EXCLAMATION_EMPHASIS = 0.292;
+    private static final int MAX_EXCLAMATIONS = 4;
+    private static final double BEFORE_CONTRAST_WEIGHT = 0.5;
+    private static final double AFTER_CONTRAST_WEIGHT = 1.5;
+    /** Squashing constant: a raw sum of this root scores about 0.7 */
+    private static final double NORMALIZATION_ALPHA = 15;
+    private static final double NEUTRAL_BAND = 0.05;
+    /** Opposing sentiment at least this share of the dominant side makes a text MIXED */
+    private static final double MIXED_RATIO = 0.5;
+    private static final double MAX_CONFIDENCE = 0.95;
+    private static final double NO_TERMS_CONFIDENCE = 0.3;
+    /** Confidence factors for texts whose reading depends on negation or contrast rules */
+    private static final double NEGATION_CONFIDENCE = 0.85;
+    private static final double CONTRAST_CONFIDENCE = 0.75;
+    private static final int MAX_KEY_PHRASES = 5;
+
+    private static final String[] NEGATORS = { "not", "no", "never", "none", "nothing", "nobody", "neither", "nor",
+            "without", "cannot", "cant", "can't", "don't", "dont", "doesn't", "doesnt", "didn't", "didnt", "isn't",
+            "isnt", "wasn't", "wasnt", "aren't", "arent", "weren't", "werent", "won't", "wont", "wouldn't",
+            "wouldnt", "shouldn't", "shouldnt", "couldn't", "couldnt", "haven't", "havent", "hasn't", "hasnt",
+            "hadn't", "hadnt", "ain't", "aint" };
+
+    private static final String[] INTENSIFIERS = { "absolutely:1.5", "extremely:1.5", "incredibly:1.5",
+            "totally:1.4", "completely:1.4", "utterly:1.5", "so:1.3", "very:1.3", "really:1.3", "super:1.3",
+            "highly:1.3", "truly:1.3", "especially:1.3", "particularly:1.2", "most:1.3", "more:1.2", "quite:1.1",
+            "pretty:1.1", "fairly:0.8", "somewhat:0.7", "slightly:0.6", "barely:0.5", "hardly:0.5",
+            "kinda:0.7", "marginally:0.6", "little:0.7", "bit:0.7" };
+
+    private static final String[] CONTRASTS = { "but", "however", "although", "though", "yet" };
+
+    private final SentimentLexicon lexicon;
+
+    @Autowired
+    public LexiconSentimentScorer(FastSentimentProperties properties) {
+        try (InputStream in = properties.getLexicon().getInputStream()) {
+            this.lexicon = withRules(SentimentLexicon.load(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load sentiment lexicon " + properties.getLexicon(), e);
+        }
+        log.info("Sentiment lexicon loaded with {} entries", lexicon.size());
+    }
+
+    LexiconSentimentScorer(SentimentLexicon lexicon) {
+        this.lexicon = withRules(lexicon);
+    }
+
+    private static SentimentLexicon withRules(SentimentLexicon lexicon) {
+        for (String negator : NEGATORS) {
+            lexicon.put(negator, SentimentLexicon.NEGATOR, 0f);
+        }
+        for (String entry : INTENSIFIERS) {
+            int colon = entry.indexOf(':');
+            lexicon.put(entry.substring(0, colon), SentimentLexicon.INTENSIFIER,
+                    Float.parseFloat(entry.substring(colon + 1)));
+        }
+        for (String contrast : CONTRASTS) {
+            lexicon.put(contrast, SentimentLexicon.CONTRAST, 0f);
+        }
+        return lexicon;
+    }
+
+    /**
+     * Score a request's text into the same result shape Claude's analysis produces
+     */
+    public SentimentAnalysisResult analyze(SentimentAnalysisRequest request) {
+        Instant startTime = Instant.now();
+        Score score = score(request.getText());
+
+        SentimentAnalysisResult result = new SentimentAnalysisResult();
+        result.setSentiment(score.getSentiment());
+        result.setScore(score.getScore());
+        result.setConfidence(score.getConfidence());
+        result.setDominantEmotions(List.of());
+        result.setKeyPhrases(score.getKeyPhrases());
+        result.setInsights("Scored locally from " + score.getTermCount() + " lexicon term"
+                + (score.getTermCount() == 1 ? "" : "s"));
+        result.setOriginalText(request.getText());
+        result.setProcessingTimeMs(Duration.between(startTime, Instant.now()).toMillis());
+        return result;
+    }
+
+    /**
+     * Score a text
+     */
+    public Score score(String text) {
+        if (text == null) {
+            text = "";
+        }
+        Terms terms = new Terms();
+
+        // The last few words, most recent at the highest index modulo the reach
+        byte[] recentKinds = new byte[MODIFIER_REACH];
+        float[] recentValues = new float[MODIFIER_REACH];
+        int[] recentStarts = new int[MODIFIER_REACH];
+        int recent = 0;
+
+        double weight = 1;
+        boolean negation = false;
+        boolean contrast = false;
+        // Sentiment on each side before contrast weighting, which decides whether a text is MIXED
+        double unweightedPositive = 0;
+        double unweightedNegative = 0;
+        int words = 0;
+        int capsWords = 0;
+        int exclamations = 0;
+
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (!isWordChar(c)) {
+                if (c == '!') {
+                    exclamations++;
+                }
+                if (c == '.' || c == ',' || c == ';' || c == ':' || c == '!' || c == '?') {
+                    recent = 0;
+                }
+                i++;
+                continue;
+            }
+
+            int start = i;
+            long hash = SentimentLexicon.start();
+            boolean hasLetter = false;
+            boolean allUpper = true;
+            for (; i < length && isWordChar(text.charAt(i)); i++) {
+                char w = text.charAt(i) == '’' ? '\'' : text.charAt(i);
+                hash = SentimentLexicon.extend(hash, w);
+                if (Character.isLetter(w)) {
+                    hasLetter = true;
+                    allUpper &= Character.isUpperCase(w);
+                }
+            }
+            words++;
+            boolean caps = hasLetter && allUpper && i - start > 1;
+            if (caps) {
+                capsWords++;
+            }
+
+            byte kind = lexicon.kind(hash);
+            if (kind == SentimentLexicon.VALENCE) {
+                double valence = lexicon.value(hash);
+                int phraseStart = start;
+                for (int distance = 1; distance <= Math.min(recent, MODIFIER_REACH); distance++) {
+                    int slot = (recent - distance) % MODIFIER_REACH;
+                    if (recentKinds[slot] == SentimentLexicon.INTENSIFIER) {
+                        valence *= 1 + (recentValues[slot] - 1) * INTENSIFIER_DECAY[distance - 1];
+                        phraseStart = recentStarts[slot];
+                    } else if (recentKinds[slot] == SentimentLexicon.NEGATOR) {
+                        valence *= NEGATION_FACTOR;
+                        negation = true;
+                        phraseStart = recentStarts[slot];
+                    }
+                }
+                terms.add(valence * weight, phraseStart, i, caps);
+                if (valence > 0) {
+                    unweightedPositive += valence;
+                } else {
+                    unweightedNegative -= valence;
+                }
+            } else if (kind == SentimentLexicon.CONTRAST) {
+                terms.scale(BEFORE_CONTRAST_WEIGHT);
+                weight = AFTER_CONTRAST_WEIGHT;
+                contrast = contrast || terms.count > 0;
+                recent = 0;
+                continue;
+            }
+
+            int slot = recent % MODIFIER_REACH;
+            recentKinds[slot] = kind;
+            recentValues[slot] = lexicon.value(hash);
+            recentStarts[slot] = start;
+            recent++;
+        }
+
+        // Capitals are emphasis only when the rest of the text is not shouting too
+        if (capsWords > 0 && capsWords < words) {
+            for (int t = 0; t < terms.count; t++) {
+                if (terms.caps[t]) {
+                    terms.contributions[t] += Math.signum(terms.contributions[t]) * CAPS_EMPHASIS;
+                }
+            }
+        }
+
+        double positive = 0;
+        double negative = 0;
+        for (int t = 0; t < terms.count; t++) {
+            if (terms.contributions[t] > 0) {
+                positive += terms.contributions[t];
+            } else {
+                negative -= terms.contributions[t];
+            }
+        }
+        double sum = positive - negative;
+        if (sum != 0) {
+            sum += Math.signum(sum) * Math.min(exclamations, MAX_EXCLAMATIONS) * EXCLAMATION_EMPHASIS;
+        }
+        double score = sum / Math.sqrt(sum * sum + NORMALIZATION_ALPHA);
+
+        String sentiment;
+        if (terms.count == 0) {
+            sentiment = "NEUTRAL";
+        } else if (unweightedPositive > 0 && unweightedNegative > 0 && Math.min(unweightedPositive, unweightedNegative)
+                / Math.max(unweightedPositive, unweightedNegative) >= MIXED_RATIO) {
+            sentiment = "MIXED";
+        } else if (score >= NEUTRAL_BAND) {
+            sentiment = "POSITIVE";
+        } else if (score <= -NEUTRAL_BAND) {
+            sentiment = "NEGATIVE";
+        } else {
+            sentiment = "NEUTRAL";
+        }
+
+        double confidence;
+        if (terms.count == 0) {
+            confidence = NO_TERMS_CONFIDENCE;
+        } else {
+            double agreement = Math.abs(positive - negative) / (positive + negative);
+            double strength = Math.min(1, Math.abs(score) / 0.6);
+            double density = Math.min(1, terms.count * 8.0 / words);
+            double coverage = Math.min(1, terms.count / 2.0);
+            confidence = 0.25 + 0.35 * agreement * strength + 0.25 * density + 0.15 * coverage;
+            if (negation) {
+                confidence *= NEGATION_CONFIDENCE;
+            }
+            if (contrast) {
+                confidence *= CONTRAST_CONFIDENCE;
+            }
+            confidence = Math.min(MAX_CONFIDENCE, confidence);
+        }
+
+        return new Score(sentiment, round(score), round(confidence), terms.count, terms.keyPhrases(text));
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '\'' || c == '’';
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    /**
+     * Sentiment-bearing terms found in a text: their weighted contributions and spans
+     */
+    private static final class Terms {
+        double[] contributions = new double[8];
+        int[] starts = new int[8];
+        int[] ends = new int[8];
+        boolean[] caps = new boolean[8];
+        int count;
+
+        void add(double contribution, int start, int end, boolean capitalized) {
+            if (count == contributions.length) {
+                contributions = Arrays.copyOf(contributions, count * 2);
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+                caps = Arrays.copyOf(caps, count * 2);
+            }
+            contributions[count] = contribution;
+            starts[count] = start;
+            ends[count] = end;
+            caps[count] = capitalized;
+            count++;
+        }
+
+        void scale(double factor) {
+            for (int t = 0; t < count; t++) {
+                contributions[t] *= factor;
+            }
+        }
+
+        /**
+         * The spans of the strongest terms, strongest first, without repeats
+         */
+        List<String> keyPhrases(String text) {
+            Integer[] order = new Integer[count];
+            for (int t = 0; t < count; t++) {
+                order[t] = t;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(Math.abs(contributions[b]), Math.abs(contributions[a])));
+            List<String> phrases = new ArrayList<>(Math.min(count, MAX_KEY_PHRASES));
+            List<String> seen = new ArrayList<>(Math.min(count, MAX_KEY_PHRASES));
+            for (int t = 0; t < count && phrases.size() < MAX_KEY_PHRASES; t++) {
+                String phrase = text.substring(starts[order[t]], ends[order[t]]);
+                String normalized = phrase.toLowerCase(Locale.ROOT);
+                if (!seen.contains(normalized)) {
+                    seen.add(normalized);
+                    phrases.add(phrase);
+                }
+            }
+            return phrases;
+        }
+    }
+
+    /**
+     * Outcome of scoring one text
+     */
+    public static final class Score {
+        private final String sentiment;
+        private final double score;
+        private final double confidence;
+        private final int termCount;
+        private final List<String> keyPhrases;
+
+        Score(String sentiment, double score, double confidence, int termCount, List<String> keyPhrases) {
+            this.sentiment = sentiment;
+            this.score = score;
+            this.confidence = confidence;
+            this.termCount = termCount;
+            this.keyPhrases = keyPhrases;
+        }
+
+        /**
+         * POSITIVE, NEGATIVE, NEUTRAL or MIXED
+         */
+        public String getSentiment() {
+            return sentiment;
+        }
+
+        /**
+         * From -1.0 (extremely negative) to 1.0 (extremely positive)
+         */
+        public double getScore() {
+            return score;
+        }
+
+        /**
+         * From 0.0 to 1.0; how far the lexicon's reading can be trusted
+         */
+        public double getConfidence() {
+            return confidence;
+        }
+
+        /**
+         * Lexicon words that contributed to the score
+         */
+        public int getTermCount() {
+            return termCount;
+        }
+
+        public List<String> getKeyPhrases() {
+            return keyPhrases;
+        }
+    }
+}
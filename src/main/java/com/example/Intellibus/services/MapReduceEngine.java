@@ -0,0 +1,135 @@
+package com.example.Intellibus.services;
+
+import org.springframework.stereotype.Component;
+
+import com.example.Intellibus.config.ChunkingProperties;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Splits inputs that are too large for one Claude call into chunks, analyzes the chunks in parallel
+ * and merges the partial results.
+ *
+ * Chunks are cut at item boundaries (messages, records) by estimated token count. Map calls run on
+ * virtual threads, at most {@code maxParallelChunks} per input; the upstream rate limiter still
+ * governs the total load on Claude. Partial results are merged {@code reduceFanIn} at a time, in a
+ * tree when there are more, so no single reduce step has to take every partial at once.
+ */
+@Component
+@Slf4j
+public class MapReduceEngine {
+
+    private final ChunkingProperties properties;
+    // Separate from the analysis executor: map tasks are often submitted from its threads, and
+    // waiting on work queued behind yourself in a bounded pool can deadlock
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("map-reduce-", 0).factory());
+
+    public MapReduceEngine(ChunkingProperties properties) {
+        this.properties = properties;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Estimated input tokens of content per chunk
+     */
+    public int getMaxChunkTokens() {
+        return properties.getMaxChunkTokens();
+    }
+
+    /**
+     * Split items into consecutive chunks whose estimated tokens stay within the budget.
+     * An item larger than the budget on its own gets a chunk to itself.
+     */
+    public static <T> List<List<T>> split(List<T> items, ToIntFunction<? super T> tokens, int budget) {
+        List<List<T>> chunks = new ArrayList<>();
+        List<T> current = new ArrayList<>();
+        int currentTokens = 0;
+        for (T item : items) {
+            int itemTokens = tokens.applyAsInt(item);
+            if (!current.isEmpty() && currentTokens + itemTokens > budget) {
+                chunks.add(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
+            }
+            current.add(item);
+            currentTokens += itemTokens;
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    /**
+     * Apply the mapper to every chunk in parallel, preserving order.
+     * The first failure is rethrown once every started task has finished.
+     */
+    public <C, R> List<R> map(List<C> chunks, Function<? super C, ? extends R> mapper) {
+        Semaphore permits = new Semaphore(Math.max(1, properties.getMaxParallelChunks()));
+        List<CompletableFuture<R>> futures = new ArrayList<>(chunks.size());
+        try {
+            for (C chunk : chunks) {
+                permits.acquire();
+                CompletableFuture<R> future = CompletableFuture.supplyAsync(() -> mapper.apply(chunk), executor);
+                future.whenComplete((value, error) -> permits.release());
+                futures.add(future);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new CompletionException(e);
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Merge partial results into one, {@code reduceFanIn} at a time; levels of the tree run in parallel
+     */
+    public <R> R reduce(List<R> partials, Function<List<R>, R> reducer) {
+        if (partials.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to reduce");
+        }
+        int fanIn = Math.max(2, properties.getReduceFanIn());
+        List<R> level = partials;
+        int depth = 0;
+        while (level.size() > 1) {
+            List<List<R>> groups = new ArrayList<>();
+            for (int i = 0; i < level.size(); i += fanIn) {
+                groups.add(level.subList(i, Math.min(level.size(), i + fanIn)));
+            }
+            level = groups.size() == 1 ? List.of(reducer.apply(groups.get(0))) : map(groups, reducer);
+            depth++;
+        }
+        log.debug("Reduced {} partial results in {} levels", partials.size(), depth);
+        return level.get(0);
+    }
+
+    /**
+     * Map every chunk in parallel, then reduce the partial results
+     */
+    public <C, R> R mapReduce(List<C> chunks, Function<? super C, ? extends R> mapper, Function<List<R>, R> reducer) {
+        return reduce(map(chunks, mapper), reducer);
+    }
+}
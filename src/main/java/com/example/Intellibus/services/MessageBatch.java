@@ -0,0 +1,42 @@
+package com.example.Intellibus.services;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Data;
+
+/**
+ * A Message Batch as returned when it is created or retrieved. Only the fields the service reads are mapped.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+class MessageBatch {
+    @JsonProperty("id") private String id;
+    
+    /**
+     * in_progress, canceling or ended; results can be fetched once it is ended
+     */
+    @JsonProperty("processing_status") private String processingStatus;
+    
+    @JsonProperty("request_counts") private RequestCounts requestCounts;
+    
+    @JsonProperty("results_url") private String resultsUrl;
+    
+    boolean isEnded() {
+        return "ended".equals(processingStatus);
+    }
+    
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class RequestCounts {
+        @JsonProperty("processing") private int processing;
+        
+        @JsonProperty("succeeded") private int succeeded;
+        
+        @JsonProperty("errored") private int errored;
+        
+        @JsonProperty("canceled") private int canceled;
+        
+        @JsonProperty("expired") private int expired;
+    }
+}
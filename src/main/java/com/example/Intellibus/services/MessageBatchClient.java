@@ -0,0 +1,215 @@
+package com.example.Intellibus.services;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.io.entity.EntityTemplate;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.message.BasicHeader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import com.example.Intellibus.config.MessageBatchProperties;
+import com.example.Intellibus.config.PromptCacheProperties;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import jakarta.annotation.PostConstruct;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Client for the asynchronous Message Batches API: create a batch of Messages requests, check on it,
+ * and stream its results once it has ended.
+ *
+ * Each request's params are written by the same {@link MessagesRequestWriter} as single calls, so batch
+ * requests carry the same model, temperature, system prompt and output schema tool. Batch bodies can run
+ * to many megabytes, so they are written straight to the connection, and results are read one JSONL line
+ * at a time.
+ */
+@Service
+@Slf4j
+public class MessageBatchClient {
+
+    @Value("${spring.ai.anthropic.api-key}")
+    private String apiKey;
+
+    @Value("${spring.ai.anthropic.base-url:https://api.anthropic.com/v1/messages}")
+    private String messagesUrl;
+
+    @Value("${spring.ai.anthropic.chat.options.model:claude-3-haiku-20240307}")
+    private String model;
+
+    @Value("${spring.ai.anthropic.chat.options.temperature:0.7}")
+    private double temperature;
+
+    @Autowired
+    private CloseableHttpClient httpClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MessageBatchProperties properties;
+
+    @Autowired
+    private PromptCacheProperties promptCacheProperties;
+
+    private static final String API_VERSION = "2023-06-01";
+
+    private String batchesUrl;
+    private MessagesRequestWriter requestWriter;
+    private Header[] requestHeaders;
+    private ObjectReader batchReader;
+    private ObjectReader resultReader;
+
+    /**
+     * One request of a batch
+     */
+    static final class Request {
+        private final String customId;
+        private final String instructions;
+        private final String prompt;
+        private final int maxTokens;
+        private final OutputSchema outputSchema;
+
+        /**
+         * @param customId identifies the request's result; 1 to 64 letters, digits, hyphens and underscores
+         * @param instructions static instructions sent as a cacheable block ahead of the prompt, or null
+         */
+        Request(String customId, String instructions, String prompt, int maxTokens, OutputSchema outputSchema) {
+            this.customId = customId;
+            this.instructions = instructions;
+            this.prompt = prompt;
+            this.maxTokens = maxTokens;
+            this.outputSchema = outputSchema;
+        }
+
+        String getCustomId() {
+            return customId;
+        }
+
+        String getInstructions() {
+            return instructions;
+        }
+
+        String getPrompt() {
+            return prompt;
+        }
+
+        int getMaxTokens() {
+            return maxTokens;
+        }
+
+        OutputSchema getOutputSchema() {
+            return outputSchema;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        batchesUrl = properties.getUrl() != null && !properties.getUrl().isBlank()
+                ? properties.getUrl()
+                : messagesUrl.replaceAll("/+$", "") + "/batches";
+        requestWriter = new MessagesRequestWriter(objectMapper.getFactory(), model, temperature,
+                ClaudeAIService.SYSTEM_PROMPT, promptCacheProperties.effectiveTtl());
+        requestHeaders = new Header[] {
+                new BasicHeader("x-api-key", apiKey),
+                new BasicHeader("anthropic-version", API_VERSION),
+                new BasicHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE) };
+        batchReader = objectMapper.readerFor(MessageBatch.class);
+        resultReader = objectMapper.readerFor(MessageBatchResult.class);
+    }
+
+    /**
+     * Submit requests as one batch
+     */
+    MessageBatch create(List<Request> requests) throws IOException {
+        HttpPost post = new HttpPost(batchesUrl);
+        post.setEntity(new EntityTemplate(-1, ContentType.APPLICATION_JSON, null, out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("requests");
+                for (Request request : requests) {
+                    generator.writeStartObject();
+                    generator.writeStringField("custom_id", request.getCustomId());
+                    generator.writeFieldName("params");
+                    requestWriter.write(generator, request.getInstructions(), request.getPrompt(),
+                            request.getMaxTokens(), false, request.getOutputSchema());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        }));
+        MessageBatch batch = execute(post);
+        log.info("Created message batch {} with {} requests", batch.getId(), requests.size());
+        return batch;
+    }
+
+    /**
+     * Current status of a batch
+     */
+    MessageBatch retrieve(String batchId) throws IOException {
+        return execute(new HttpGet(batchesUrl + "/" + batchId));
+    }
+
+    /**
+     * Ask for a batch to be canceled; requests already processed keep their results
+     */
+    MessageBatch cancel(String batchId) throws IOException {
+        return execute(new HttpPost(batchesUrl + "/" + batchId + "/cancel"));
+    }
+
+    /**
+     * Pass each result of an ended batch to the consumer as it is read
+     */
+    void results(MessageBatch batch, Consumer<MessageBatchResult> consumer) throws IOException {
+        String url = batch.getResultsUrl() != null ? batch.getResultsUrl() : batchesUrl + "/" + batch.getId() + "/results";
+        HttpGet get = new HttpGet(url);
+        get.setHeaders(requestHeaders);
+        try (ClassicHttpResponse response = httpClient.executeOpen(null, get, null)) {
+            checkStatus(response);
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    consumer.accept(resultReader.readValue(line));
+                }
+            }
+        }
+    }
+
+    private MessageBatch execute(HttpUriRequestBase request) throws IOException {
+        request.setHeaders(requestHeaders);
+        try (ClassicHttpResponse response = httpClient.executeOpen(null, request, null)) {
+            checkStatus(response);
+            return batchReader.readValue(response.getEntity().getContent());
+        }
+    }
+
+    private static void checkStatus(ClassicHttpResponse response) throws IOException {
+        if (response.getCode() >= 300) {
+            String body = response.getEntity() != null
+                    ? new String(EntityUtils.toByteArray(response.getEntity()), StandardCharsets.UTF_8) : "";
+            throw new IllegalStateException("Message Batches API returned " + response.getCode() + ": " + body);
+        }
+    }
+}
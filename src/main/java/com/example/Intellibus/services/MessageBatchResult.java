@@ -0,0 +1,57 @@
+package com.example.Intellibus.services;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Data;
+
+/**
+ * One line of a Message Batch's results, bound directly from the JSONL stream
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+class MessageBatchResult {
+    @JsonProperty("custom_id") private String customId;
+    
+    @JsonProperty("result") private Result result;
+    
+    /**
+     * Whether the request produced a message
+     */
+    boolean isSucceeded() {
+        return result != null && "succeeded".equals(result.getType()) && result.getMessage() != null;
+    }
+    
+    /**
+     * Why the request produced no message: the API error, or that it was canceled or expired
+     */
+    String failureReason() {
+        if (result == null) {
+            return "Batch result has no outcome";
+        }
+        if (result.getError() != null && result.getError().getError() != null
+                && result.getError().getError().getMessage() != null) {
+            return result.getError().getError().getMessage();
+        }
+        return "Batch request " + result.getType();
+    }
+    
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class Result {
+        /**
+         * succeeded, errored, canceled or expired
+         */
+        @JsonProperty("type") private String type;
+        
+        @JsonProperty("message") private ClaudeResponse message;
+        
+        @JsonProperty("error") private ErrorResponse error;
+    }
+    
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class ErrorResponse {
+        @JsonProperty("error") private MessageStreamEvent.Error error;
+    }
+}
@@ -0,0 +1,426 @@
+package com.example.Intellibus.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.Intellibus.config.MessageBatchProperties;
+import com.example.Intellibus.models.batch.BulkJob;
+import com.example.Intellibus.models.report.ReportJobMessage;
+import com.example.Intellibus.models.report.ReportRequest;
+import com.example.Intellibus.models.report.ReportResponse;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisRequest;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
+import com.example.Intellibus.services.GenerationOptions.UseCase;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs bulk sentiment and report jobs through the Message Batches API.
+ *
+ * A job's items are turned into Messages requests exactly as the interactive endpoints would send them,
+ * with the same prompts, output schemas and token budgets, and submitted as one batch, or several when
+ * there are more than fit in one. Sentiment texts the local scorer is confident about never leave the
+ * service. Each job then waits on its batches, checking with exponential backoff, and streams the results
+ * into storage as they are read: sentiment results to the persistence queue, reports to the report store.
+ * Batches trade latency (up to a day) for throughput and cost, so this suits backfills, not callers
+ * waiting on an answer. Job state is held in memory on the instance that accepted the job.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(prefix = "intellibus.message-batches", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class MessageBatchService {
+
+    /** Results read between published progress updates */
+    private static final int PROGRESS_INTERVAL = 500;
+
+    @Autowired
+    private MessageBatchClient batchClient;
+
+    @Autowired
+    private SentimentAnalysisService sentimentService;
+
+    @Autowired
+    private ReportGenerationService reportService;
+
+    @Autowired
+    private ResultPersistenceService resultPersistence;
+
+    @Autowired
+    private TokenBudget tokenBudget;
+
+    @Autowired
+    private ServiceMetrics serviceMetrics;
+
+    private final MessageBatchProperties properties;
+    private final Cache<String, BulkJob> jobs;
+    private final Cache<String, SentimentAnalysisResult[]> sentimentResults;
+    private final ExecutorService runners =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("bulk-job-", 0).factory());
+
+    /**
+     * How the items of one job become batch requests and how their replies are stored
+     */
+    private interface Handler {
+
+        /**
+         * Answer an item without Claude if possible, storing its result
+         */
+        boolean answerLocally(int index);
+
+        String prompt(int index);
+
+        /**
+         * Bind and store the reply to an item, or record its failure
+         *
+         * @param failure why the item produced no reply, or null if it did
+         * @return whether the item has a usable result
+         */
+        boolean complete(int index, String responseText, String requestId, String failure);
+    }
+
+    public MessageBatchService(MessageBatchProperties properties) {
+        this.properties = properties;
+        this.jobs = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxJobs())
+                .expireAfterWrite(properties.getStatusRetention())
+                .build();
+        this.sentimentResults = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxJobs())
+                .expireAfterWrite(properties.getStatusRetention())
+                .build();
+    }
+
+    @PreDestroy
+    void stop() {
+        // Batches keep running upstream; only the local wait for them is abandoned
+        runners.shutdownNow();
+    }
+
+    /**
+     * Start a bulk sentiment job. Each text honours its mode like the interactive endpoints: texts the
+     * local scorer answers are stored straight away and only the rest are sent in the batch.
+     */
+    public BulkJob submitSentiment(List<SentimentAnalysisRequest> requests) {
+        checkSize(requests);
+        BulkJob job = newJob("sentiment", requests.size());
+        SentimentAnalysisResult[] results = new SentimentAnalysisResult[requests.size()];
+        Instant startTime = job.getSubmittedAt();
+
+        Handler handler = new Handler() {
+            @Override
+            public boolean answerLocally(int index) {
+                SentimentAnalysisResult local = sentimentService.scoreLocally(requests.get(index));
+                if (local == null) {
+                    return false;
+                }
+                resultPersistence.saveSentiment(local);
+                results[index] = local;
+                return true;
+            }
+
+            @Override
+            public String prompt(int index) {
+                return sentimentService.buildPrompt(requests.get(index));
+            }
+
+            @Override
+            public boolean complete(int index, String responseText, String requestId, String failure) {
+                results[index] = sentimentService.completeBulkResult(requests.get(index), responseText, requestId,
+                        failure, startTime);
+                return !"ERROR".equals(results[index].getSentiment());
+            }
+        };
+
+        GenerationOptions options = GenerationOptions.structured(UseCase.SENTIMENT, SentimentAnalysisService.SENTIMENT_SCHEMA,
+                SentimentAnalysisService.SENTIMENT_INSTRUCTIONS);
+        BulkJob accepted = snapshot(job);
+        start(job, ServiceMetrics.SENTIMENT, options, handler, () -> sentimentResults.put(job.getJobId(), results));
+        return accepted;
+    }
+
+    /**
+     * Start a bulk report job. Report data too large for one prompt cannot be condensed in a batch, so
+     * such reports fail their token budget check; generate them through the interactive or queued endpoints.
+     */
+    public BulkJob submitReports(List<? extends ReportRequest> requests) {
+        checkSize(requests);
+        BulkJob job = newJob(ReportJobMessage.kindOf(requests.get(0)), requests.size());
+        job.setReportIds(Arrays.asList(new String[requests.size()]));
+        Instant startTime = job.getSubmittedAt();
+
+        Handler handler = new Handler() {
+            @Override
+            public boolean answerLocally(int index) {
+                return false;
+            }
+
+            @Override
+            public String prompt(int index) {
+                return reportService.buildBulkPrompt(requests.get(index));
+            }
+
+            @Override
+            public boolean complete(int index, String responseText, String requestId, String failure) {
+                ReportResponse report = reportService.completeBulkReport(requests.get(index), responseText, failure,
+                        startTime);
+                if (ReportGenerationService.isErrorReport(report)) {
+                    return false;
+                }
+                job.getReportIds().set(index, report.getReportId());
+                return true;
+            }
+        };
+
+        // Every item of a job is of the kind of the first, so they share its budget and instructions
+        GenerationOptions options = GenerationOptions.structured(ReportGenerationService.useCaseOf(requests.get(0)),
+                ReportGenerationService.REPORT_SCHEMA, ReportGenerationService.instructionsOf(requests.get(0)));
+        BulkJob accepted = snapshot(job);
+        start(job, ServiceMetrics.REPORT, options, handler, () -> { });
+        return accepted;
+    }
+
+    /**
+     * Current status of a job, or null if it is unknown or has expired
+     */
+    public BulkJob getJob(String jobId) {
+        return jobs.getIfPresent(jobId);
+    }
+
+    /**
+     * Results of a completed sentiment job in request order, or null if there are none (yet)
+     */
+    public SentimentAnalysisResult[] getSentimentResults(String jobId) {
+        return sentimentResults.getIfPresent(jobId);
+    }
+
+    private void checkSize(List<?> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A bulk job needs at least one item");
+        }
+        if (requests.size() > properties.getMaxItemsPerJob()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A bulk job takes at most " + properties.getMaxItemsPerJob() + " items");
+        }
+    }
+
+    private BulkJob newJob(String kind, int totalItems) {
+        BulkJob job = new BulkJob();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setKind(kind);
+        job.setStatus(BulkJob.Status.QUEUED);
+        job.setBatchIds(new ArrayList<>());
+        job.setTotalItems(totalItems);
+        job.setSubmittedAt(Instant.now());
+        publish(job);
+        return job;
+    }
+
+    private void start(BulkJob job, String service, GenerationOptions options, Handler handler, Runnable onCompleted) {
+        log.info("Accepted bulk {} job {} with {} items", job.getKind(), job.getJobId(), job.getTotalItems());
+        runners.execute(() -> {
+            try {
+                run(job, service, options, handler);
+                onCompleted.run();
+                job.setStatus(BulkJob.Status.COMPLETED);
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                log.error("Bulk job {} failed", job.getJobId(), e);
+                job.setStatus(BulkJob.Status.FAILED);
+                job.setError(e.getMessage());
+                cancelQuietly(job);
+            }
+            job.setCompletedAt(Instant.now());
+            publish(job);
+            log.info("Bulk job {} {}: {} succeeded ({} locally), {} failed in {}s", job.getJobId(), job.getStatus(),
+                    job.getSucceeded(), job.getAnsweredLocally(), job.getFailed(),
+                    Duration.between(job.getSubmittedAt(), job.getCompletedAt()).toSeconds());
+        });
+    }
+
+    /**
+     * Submit the job's batches, wait for each to end and store its results
+     */
+    private void run(BulkJob job, String service, GenerationOptions options, Handler handler) throws Exception {
+        int count = job.getTotalItems();
+        boolean[] done = new boolean[count];
+        job.setStatus(BulkJob.Status.PROCESSING);
+        publish(job);
+
+        List<MessageBatchClient.Request> pending = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (handler.answerLocally(i)) {
+                done[i] = true;
+                job.setAnsweredLocally(job.getAnsweredLocally() + 1);
+                job.setSucceeded(job.getSucceeded() + 1);
+                continue;
+            }
+
+            String prompt = handler.prompt(i);
+            TokenBudget.Allocation allocation = tokenBudget.allocate(ClaudeAIService.SYSTEM_PROMPT, prompt, options);
+            if (!allocation.fits()) {
+                tokenBudget.rejected(allocation);
+                done[i] = true;
+                recordOutcome(job, handler.complete(i, null, null, "Prompt of about " + allocation.getEstimatedInputTokens()
+                        + " tokens is over the " + tokenBudget.maxInputTokens(allocation.getMaxTokens())
+                        + " tokens that fit with max_tokens " + allocation.getMaxTokens()));
+                continue;
+            }
+
+            pending.add(new MessageBatchClient.Request(customId(i), options.getInstructions(), prompt,
+                    allocation.getMaxTokens(), options.getOutputSchema()));
+            if (pending.size() == properties.getMaxRequestsPerBatch()) {
+                submitBatch(job, pending);
+                pending = new ArrayList<>();
+            }
+        }
+        if (!pending.isEmpty()) {
+            submitBatch(job, pending);
+        }
+        job.setBatchesSubmittedAt(Instant.now());
+        publish(job);
+        serviceMetrics.recordBulkItems(service, "local", job.getAnsweredLocally());
+
+        Instant deadline = job.getSubmittedAt().plus(properties.getMaxWait());
+        for (String batchId : job.getBatchIds()) {
+            MessageBatch batch = awaitEnd(batchId, deadline);
+            int[] read = new int[1];
+            batchClient.results(batch, result -> {
+                int index = indexOf(result.getCustomId(), count);
+                if (index < 0 || done[index]) {
+                    return;
+                }
+                done[index] = true;
+                boolean succeeded;
+                if (result.isSucceeded()) {
+                    String text = ClaudeAIService.responseText(result.getResult().getMessage().getContent(),
+                            options.getOutputSchema());
+                    succeeded = handler.complete(index, text, batch.getId() + ":" + result.getCustomId(), null);
+                } else {
+                    succeeded = handler.complete(index, null, null, result.failureReason());
+                }
+                recordOutcome(job, succeeded);
+                serviceMetrics.recordBulkItems(service, succeeded ? "succeeded" : "failed", 1);
+                if (++read[0] % PROGRESS_INTERVAL == 0) {
+                    publish(job);
+                }
+            });
+            publish(job);
+        }
+
+        // Anything the batches did not answer still gets a (failed) result
+        for (int i = 0; i < count; i++) {
+            if (!done[i]) {
+                recordOutcome(job, handler.complete(i, null, null, "No result returned by the batch"));
+                serviceMetrics.recordBulkItems(service, "failed", 1);
+            }
+        }
+    }
+
+    private void submitBatch(BulkJob job, List<MessageBatchClient.Request> requests) throws Exception {
+        MessageBatch batch = batchClient.create(requests);
+        job.getBatchIds().add(batch.getId());
+        publish(job);
+    }
+
+    /**
+     * Wait for a batch to end, checking less often the longer it takes. A batch still running at the
+     * deadline is canceled, which ends it with the results it has so far.
+     */
+    private MessageBatch awaitEnd(String batchId, Instant deadline) throws Exception {
+        long delayMillis = properties.getPollInitialDelay().toMillis();
+        long maxDelayMillis = properties.getPollMaxDelay().toMillis();
+        boolean canceled = false;
+        while (true) {
+            Thread.sleep(delayMillis);
+            try {
+                MessageBatch batch = batchClient.retrieve(batchId);
+                if (batch.isEnded()) {
+                    return batch;
+                }
+                if (!canceled && Instant.now().isAfter(deadline)) {
+                    log.warn("Canceling message batch {}, still {} after the maximum wait", batchId,
+                            batch.getProcessingStatus());
+                    batchClient.cancel(batchId);
+                    canceled = true;
+                }
+            } catch (IOException | RuntimeException e) {
+                // A status check that fails is retried at the next interval until the deadline
+                if (Instant.now().isAfter(deadline)) {
+                    throw e;
+                }
+                log.warn("Could not check message batch {}: {}", batchId, e.getMessage());
+            }
+            delayMillis = Math.min(maxDelayMillis, (long) (delayMillis * properties.getPollMultiplier()));
+        }
+    }
+
+    private void cancelQuietly(BulkJob job) {
+        for (String batchId : job.getBatchIds()) {
+            try {
+                batchClient.cancel(batchId);
+            } catch (Exception e) {
+                log.debug("Could not cancel message batch {}: {}", batchId, e.getMessage());
+            }
+        }
+    }
+
+    private static void recordOutcome(BulkJob job, boolean succeeded) {
+        if (succeeded) {
+            job.setSucceeded(job.getSucceeded() + 1);
+        } else {
+            job.setFailed(job.getFailed() + 1);
+        }
+    }
+
+    private static String customId(int index) {
+        return "item-" + index;
+    }
+
+    /**
+     * Index of the item a result belongs to, or -1 if the custom ID is not one of ours
+     */
+    private static int indexOf(String customId, int count) {
+        if (customId == null || !customId.startsWith("item-")) {
+            return -1;
+        }
+        try {
+            int index = Integer.parseInt(customId, 5, customId.length(), 10);
+            return index < count ? index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Make the job's current state visible to status queries
+     */
+    private void publish(BulkJob job) {
+        jobs.put(job.getJobId(), snapshot(job));
+    }
+
+    private static BulkJob snapshot(BulkJob job) {
+        return new BulkJob(job.getJobId(), job.getKind(), job.getStatus(), List.copyOf(job.getBatchIds()),
+                job.getTotalItems(), job.getAnsweredLocally(), job.getSucceeded(), job.getFailed(),
+                job.getSubmittedAt(), job.getBatchesSubmittedAt(), job.getCompletedAt(),
+                job.getReportIds() != null ? new ArrayList<>(job.getReportIds()) : null, job.getError());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.Intellibus.services;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Data;
+
+/**
+ * One server-sent event from the streaming Messages API, bound directly from the data line.
+ * Only the fields the service reads are mapped.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+class MessageStreamEvent {
+    @JsonProperty("type") private String type;
+    
+    @JsonProperty("message") private ClaudeResponse message;
+    
+    @JsonProperty("delta") private Delta delta;
+    
+    @JsonProperty("usage") private ClaudeResponse.Usage usage;
+    
+    @JsonProperty("error") private Error error;
+    
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class Delta {
+        @JsonProperty("text") private String text;
+        
+        @JsonProperty("stop_reason") private String stopReason;
+    }
+    
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class Error {
+        @JsonProperty("message") private String message;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.Intellibus.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Writes Messages API request bodies straight to an output stream.
+ *
+ * The model, temperature and system prompt never change for a service instance, so those fields are
+ * serialized once; per request only max_tokens and the user prompt are written, with the prompt escaped
+ * by the generator as it goes out. Nothing is built in memory besides the generator's own buffer, which
+ * matters for multi-megabyte report prompts. An output schema is sent as a single tool the model is
+ * required to call, its pre-serialized definition written raw.
+ *
+ * With prompt caching on, the system prompt and any static instructions go out as separate content blocks
+ * carrying cache breakpoints. The API caches the request prefix up to each breakpoint (tools, then system,
+ * then instructions), so repeated templates are read from the cache instead of processed again.
+ */
+final class MessagesRequestWriter {
+
+    private static final SerializedString MAX_TOKENS = new SerializedString("max_tokens");
+    private static final SerializedString STREAM = new SerializedString("stream");
+    private static final SerializedString MESSAGES = new SerializedString("messages");
+    private static final SerializedString ROLE = new SerializedString("role");
+    private static final SerializedString USER = new SerializedString("user");
+    private static final SerializedString CONTENT = new SerializedString("content");
+    private static final SerializedString TYPE = new SerializedString("type");
+    private static final SerializedString TEXT = new SerializedString("text");
+    private static final SerializedString TOOLS = new SerializedString("tools");
+    private static final SerializedString TOOL_CHOICE = new SerializedString("tool_choice");
+    private static final SerializedString TOOL = new SerializedString("tool");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString CACHE_CONTROL = new SerializedString("cache_control");
+
+    private final JsonFactory jsonFactory;
+    private final SerializableString fixedFields;
+    private final SerializableString cacheControl;
+
+    MessagesRequestWriter(JsonFactory jsonFactory, String model, double temperature, String systemPrompt) {
+        this(jsonFactory, model, temperature, systemPrompt, null);
+    }
+
+    /**
+     * @param cacheTtl lifetime of prompt cache entries (5m or 1h), or null to send no cache breakpoints
+     */
+    MessagesRequestWriter(JsonFactory jsonFactory, String model, double temperature, String systemPrompt,
+            String cacheTtl) {
+        this.jsonFactory = jsonFactory;
+        if (cacheTtl == null) {
+            this.cacheControl = null;
+        } else {
+            StringBuilder control = new StringBuilder("{\"type\":\"ephemeral\"");
+            if (!"5m".equals(cacheTtl)) {
+                control.append(",\"ttl\":");
+                quote(control, cacheTtl);
+            }
+            this.cacheControl = new SerializedString(control.append('}').toString());
+        }
+        StringBuilder fields = new StringBuilder();
+        fields.append("\"model\":");
+        quote(fields, model);
+        fields.append(",\"temperature\":").append(temperature);
+        fields.append(",\"system\":");
+        if (cacheControl != null) {
+            fields.append("[{\"type\":\"text\",\"text\":");
+            quote(fields, systemPrompt);
+            fields.append(",\"cache_control\":").append(cacheControl.getValue()).append("}]");
+        } else {
+            quote(fields, systemPrompt);
+        }
+        // Written raw right after the opening brace, so the generator adds no separator before max_tokens
+        fields.append(',');
+        this.fixedFields = new SerializedString(fields.toString());
+    }
+
+    /**
+     * Write the request body for a single user prompt. The stream is flushed but not closed.
+     */
+    void write(OutputStream out, String userPrompt, int maxTokens, boolean stream) throws IOException {
+        write(out, userPrompt, maxTokens, stream, null);
+    }
+
+    /**
+     * Write the request body for a single user prompt whose answer must follow the given schema, or
+     * a plain request if the schema is null. The stream is flushed but not closed.
+     */
+    void write(OutputStream out, String userPrompt, int maxTokens, boolean stream, OutputSchema outputSchema)
+            throws IOException {
+        write(out, null, userPrompt, maxTokens, stream, outputSchema);
+    }
+
+    /**
+     * Write the request body for a user prompt that follows static instructions, which are sent as a block
+     * of their own ahead of it, or a single-block prompt if the instructions are null. The stream is flushed
+     * but not closed.
+     */
+    void write(OutputStream out, String instructions, String userPrompt, int maxTokens, boolean stream,
+            OutputSchema outputSchema) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            write(generator, instructions, userPrompt, maxTokens, stream, outputSchema);
+        }
+    }
+
+    /**
+     * Write a request body as the next value of an open generator, for example as the params of one
+     * request in a Message Batches submission
+     */
+    void write(JsonGenerator generator, String instructions, String userPrompt, int maxTokens, boolean stream,
+            OutputSchema outputSchema) throws IOException {
+        generator.writeStartObject();
+        generator.writeRaw(fixedFields);
+        generator.writeFieldName(MAX_TOKENS);
+        generator.writeNumber(maxTokens);
+        if (stream) {
+            generator.writeFieldName(STREAM);
+            generator.writeBoolean(true);
+        }
+        if (outputSchema != null) {
+            generator.writeFieldName(TOOLS);
+            generator.writeStartArray();
+            generator.writeRawValue(outputSchema.getToolDefinition());
+            generator.writeEndArray();
+            generator.writeFieldName(TOOL_CHOICE);
+            generator.writeStartObject();
+            generator.writeFieldName(TYPE);
+            generator.writeString(TOOL);
+            generator.writeFieldName(NAME);
+            generator.writeString(outputSchema.getName());
+            generator.writeEndObject();
+        }
+
+        generator.writeFieldName(MESSAGES);
+        generator.writeStartArray();
+        generator.writeStartObject();
+        generator.writeFieldName(ROLE);
+        generator.writeString(USER);
+        generator.writeFieldName(CONTENT);
+        generator.writeStartArray();
+        if (instructions != null) {
+            generator.writeStartObject();
+            generator.writeFieldName(TYPE);
+            generator.writeString(TEXT);
+            generator.writeFieldName(TEXT);
+            generator.writeString(instructions);
+            if (cacheControl != null) {
+                generator.writeFieldName(CACHE_CONTROL);
+                generator.writeRawValue(cacheControl);
+            }
+            generator.writeEndObject();
+        }
+        generator.writeStartObject();
+        generator.writeFieldName(TYPE);
+        generator.writeString(TEXT);
+        generator.writeFieldName(TEXT);
+        generator.writeString(userPrompt);
+        generator.writeEndObject();
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeEndArray();
+
+        generator.writeEndObject();
+    }
+
+    private static void quote(StringBuilder target, String value) {
+        target.append('"').append(JsonStringEncoder.getInstance().quoteAsString(value)).append('"');
+    }
+}
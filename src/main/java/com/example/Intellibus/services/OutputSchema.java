@@ -0,0 +1,472 @@
+package com.example.Intellibus.services;
+
+import java.time.temporal.Temporal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A JSON schema Claude must answer with, sent as the input schema of a forced tool call.
+ *
+ * Schemas are generated from the result classes through Jackson's own bean introspection, so property
+ * names, types and {@code @JsonPropertyDescription} texts always match what the class binds. Fields the
+ * service fills in itself are excluded. Replies are checked against the schema on arrival by
+ * {@link #conform}, which also repairs the near-misses models commonly produce (numbers as strings,
+ * enum values in the wrong case, a lone value where a list belongs, a missing list or text) so that
+ * only output that is really wrong, such as a missing score or an unknown sentiment, is rejected.
+ */
+public final class OutputSchema {
+
+    private static final ObjectMapper INTROSPECTOR = new ObjectMapper();
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private final String name;
+    private final String description;
+    private final ObjectNode schema;
+    private final SerializedString toolDefinition;
+
+    private OutputSchema(String name, String description, ObjectNode schema) {
+        this.name = name;
+        this.description = description;
+        this.schema = schema;
+        ObjectNode tool = NODES.objectNode();
+        tool.put("name", name);
+        tool.put("description", description);
+        tool.set("input_schema", schema);
+        this.toolDefinition = new SerializedString(tool.toString());
+    }
+
+    /**
+     * Schema from an explicit JSON schema object
+     */
+    public static OutputSchema of(String name, String description, ObjectNode schema) {
+        return new OutputSchema(name, description, schema.deepCopy());
+    }
+
+    /**
+     * Schema of an object holding a single list of items that follow another schema; tool input must be
+     * an object, so this is how a list of results is requested
+     */
+    public static OutputSchema listOf(String name, String description, String field, OutputSchema items) {
+        ObjectNode schema = NODES.objectNode().put("type", "object");
+        schema.putObject("properties").putObject(field).put("type", "array").set("items", items.getSchema());
+        schema.putArray("required").add(field);
+        return new OutputSchema(name, description, schema);
+    }
+
+    /**
+     * Start a schema generated from the bound properties of a class
+     */
+    public static Builder forType(Class<?> type) {
+        return new Builder(type);
+    }
+
+    /**
+     * Tool name, which also identifies the schema in cache keys and logs
+     */
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * A copy of the JSON schema
+     */
+    public ObjectNode getSchema() {
+        return schema.deepCopy();
+    }
+
+    /**
+     * The tool definition ({@code name}, {@code description}, {@code input_schema}) as serialized JSON
+     */
+    SerializedString getToolDefinition() {
+        return toolDefinition;
+    }
+
+    /**
+     * Check a reply against the schema, repairing near-misses in place
+     *
+     * @param repairs receives a note for every repair made, or null
+     * @return the conforming value, which may be a different node than the one passed in
+     * @throws MismatchedInputException if the reply cannot be made to conform
+     */
+    public JsonNode conform(JsonNode value, List<String> repairs) throws MismatchedInputException {
+        List<String> problems = new ArrayList<>();
+        JsonNode conformed = conform(value, schema, "$", repairs != null ? repairs : new ArrayList<>(), problems);
+        if (!problems.isEmpty()) {
+            throw MismatchedInputException.from((JsonParser) null, (Class<?>) null,
+                    "Response does not match schema " + name + ": " + String.join("; ", problems));
+        }
+        return conformed;
+    }
+
+    private static JsonNode conform(JsonNode value, JsonNode schema, String path, List<String> repairs,
+            List<String> problems) {
+        String type = schema.path("type").asText("");
+        switch (type) {
+            case "object":
+                return conformObject(value, schema, path, repairs, problems);
+            case "array":
+                return conformArray(value, schema, path, repairs, problems);
+            case "string":
+                return conformString(value, schema, path, repairs, problems);
+            case "number":
+            case "integer":
+                return conformNumber(value, schema, "integer".equals(type), path, repairs, problems);
+            case "boolean":
+                return conformBoolean(value, path, repairs, problems);
+            default:
+                return value;
+        }
+    }
+
+    private static JsonNode conformObject(JsonNode value, JsonNode schema, String path, List<String> repairs,
+            List<String> problems) {
+        if (value.isTextual()) {
+            JsonNode parsed = parseEmbedded(value.asText());
+            if (parsed != null && parsed.isObject()) {
+                repairs.add(path + ": parsed object from string");
+                value = parsed;
+            }
+        }
+        if (!value.isObject()) {
+            problems.add(path + ": expected object but was " + value.getNodeType());
+            return value;
+        }
+        ObjectNode object = (ObjectNode) value;
+        Set<String> required = new LinkedHashSet<>();
+        schema.path("required").forEach(field -> required.add(field.asText()));
+
+        for (Iterator<Map.Entry<String, JsonNode>> it = schema.path("properties").fields(); it.hasNext();) {
+            Map.Entry<String, JsonNode> property = it.next();
+            String field = property.getKey();
+            JsonNode propertySchema = property.getValue();
+            JsonNode child = object.get(field);
+            if (child == null || child.isNull()) {
+                if (!required.contains(field)) {
+                    continue;
+                }
+                String propertyType = propertySchema.path("type").asText();
+                if ("array".equals(propertyType)) {
+                    repairs.add(path + "." + field + ": missing list defaulted to empty");
+                    object.set(field, NODES.arrayNode());
+                } else if ("string".equals(propertyType) && !propertySchema.has("enum")) {
+                    repairs.add(path + "." + field + ": missing text defaulted to empty");
+                    object.set(field, NODES.textNode(""));
+                } else {
+                    problems.add(path + "." + field + ": required but missing");
+                }
+                continue;
+            }
+            JsonNode conformed = conform(child, propertySchema, path + "." + field, repairs, problems);
+            if (conformed != child) {
+                object.set(field, conformed);
+            }
+        }
+        return object;
+    }
+
+    private static JsonNode conformArray(JsonNode value, JsonNode schema, String path, List<String> repairs,
+            List<String> problems) {
+        if (value.isTextual()) {
+            JsonNode parsed = parseEmbedded(value.asText());
+            if (parsed != null && parsed.isArray()) {
+                repairs.add(path + ": parsed list from string");
+                value = parsed;
+            }
+        }
+        ArrayNode array;
+        if (value.isArray()) {
+            array = (ArrayNode) value;
+        } else {
+            repairs.add(path + ": wrapped single value in a list");
+            array = NODES.arrayNode().add(value);
+        }
+        JsonNode items = schema.path("items");
+        if (items.isObject()) {
+            for (int i = 0; i < array.size(); i++) {
+                JsonNode element = array.get(i);
+                JsonNode conformed = conform(element, items, path + "[" + i + "]", repairs, problems);
+                if (conformed != element) {
+                    array.set(i, conformed);
+                }
+            }
+        }
+        return array;
+    }
+
+    private static JsonNode conformString(JsonNode value, JsonNode schema, String path, List<String> repairs,
+            List<String> problems) {
+        JsonNode string = value;
+        if (value.isNumber() || value.isBoolean()) {
+            repairs.add(path + ": converted " + value.getNodeType() + " to string");
+            string = NODES.textNode(value.asText());
+        } else if (value.isArray()) {
+            List<String> parts = new ArrayList<>();
+            value.forEach(element -> parts.add(element.isValueNode() ? element.asText() : element.toString()));
+            repairs.add(path + ": joined list into string");
+            string = NODES.textNode(String.join("; ", parts));
+        } else if (!value.isTextual()) {
+            problems.add(path + ": expected string but was " + value.getNodeType());
+            return value;
+        }
+
+        JsonNode allowed = schema.path("enum");
+        if (allowed.isArray() && !allowed.isEmpty()) {
+            String text = string.asText();
+            String normalized = text.trim();
+            for (JsonNode option : allowed) {
+                if (option.asText().equals(text)) {
+                    return string;
+                }
+            }
+            for (JsonNode option : allowed) {
+                if (option.asText().equalsIgnoreCase(normalized)) {
+                    repairs.add(path + ": normalized \"" + text + "\" to " + option.asText());
+                    return option;
+                }
+            }
+            problems.add(path + ": \"" + text + "\" is not one of " + allowed);
+        }
+        return string;
+    }
+
+    private static JsonNode conformNumber(JsonNode value, JsonNode schema, boolean integer, String path,
+            List<String> repairs, List<String> problems) {
+        double number;
+        if (value.isNumber()) {
+            number = value.asDouble();
+        } else if (value.isTextual()) {
+            String text = value.asText().trim();
+            try {
+                number = Double.parseDouble(text.endsWith("%") ? text.substring(0, text.length() - 1) : text);
+                if (text.endsWith("%")) {
+                    number /= 100;
+                }
+            } catch (NumberFormatException e) {
+                problems.add(path + ": \"" + value.asText() + "\" is not a number");
+                return value;
+            }
+            repairs.add(path + ": parsed number from string");
+        } else {
+            problems.add(path + ": expected number but was " + value.getNodeType());
+            return value;
+        }
+        if (!Double.isFinite(number)) {
+            problems.add(path + ": " + number + " is not a finite number");
+            return value;
+        }
+
+        double clamped = number;
+        if (schema.has("minimum")) {
+            clamped = Math.max(clamped, schema.get("minimum").asDouble());
+        }
+        if (schema.has("maximum")) {
+            clamped = Math.min(clamped, schema.get("maximum").asDouble());
+        }
+        if (clamped != number) {
+            repairs.add(path + ": clamped " + number + " to " + clamped);
+        }
+        if (integer) {
+            long rounded = Math.round(clamped);
+            return value.isIntegralNumber() && rounded == value.asLong() ? value : NODES.numberNode(rounded);
+        }
+        return value.isNumber() && clamped == number ? value : NODES.numberNode(clamped);
+    }
+
+    private static JsonNode conformBoolean(JsonNode value, String path, List<String> repairs, List<String> problems) {
+        if (value.isBoolean()) {
+            return value;
+        }
+        String text = value.asText().trim();
+        if (value.isTextual() && ("true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text))) {
+            repairs.add(path + ": parsed boolean from string");
+            return NODES.booleanNode(Boolean.parseBoolean(text));
+        }
+        problems.add(path + ": expected boolean but was " + value.getNodeType());
+        return value;
+    }
+
+    /**
+     * A JSON object or array a model wrote out as a string, or null if the string holds neither
+     */
+    private static JsonNode parseEmbedded(String text) {
+        String trimmed = text.trim();
+        if (!(trimmed.startsWith("{") || trimmed.startsWith("["))) {
+            return null;
+        }
+        try {
+            return INTROSPECTOR.readTree(trimmed);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Generates an object schema from a class. Every included top-level property is required unless
+     * marked optional; properties of nested objects are all optional.
+     */
+    public static final class Builder {
+
+        private final Class<?> type;
+        private final Set<String> excluded = new LinkedHashSet<>();
+        private final Set<String> optional = new LinkedHashSet<>();
+        private final Map<String, List<String>> enums = new LinkedHashMap<>();
+        private final Map<String, double[]> ranges = new LinkedHashMap<>();
+
+        private Builder(Class<?> type) {
+            this.type = type;
+        }
+
+        /**
+         * Leave out properties the service fills in itself
+         */
+        public Builder exclude(String... properties) {
+            excluded.addAll(List.of(properties));
+            return this;
+        }
+
+        /**
+         * Top-level properties the model may omit
+         */
+        public Builder optional(String... properties) {
+            optional.addAll(List.of(properties));
+            return this;
+        }
+
+        /**
+         * Restrict a top-level string property to the given values
+         */
+        public Builder enumValues(String property, String... values) {
+            enums.put(property, List.of(values));
+            return this;
+        }
+
+        /**
+         * Restrict a top-level number property to the given range
+         */
+        public Builder range(String property, double minimum, double maximum) {
+            ranges.put(property, new double[] { minimum, maximum });
+            return this;
+        }
+
+        public OutputSchema build(String name, String description) {
+            ObjectNode schema = objectSchema(INTROSPECTOR.constructType(type), new ArrayDeque<>(), true);
+            return new OutputSchema(name, description, schema);
+        }
+
+        private ObjectNode objectSchema(JavaType beanType, Deque<Class<?>> enclosing, boolean topLevel) {
+            ObjectNode schema = NODES.objectNode().put("type", "object");
+            ObjectNode properties = schema.putObject("properties");
+            ArrayNode required = schema.putArray("required");
+            enclosing.push(beanType.getRawClass());
+
+            BeanDescription bean = INTROSPECTOR.getSerializationConfig().introspect(beanType);
+            for (BeanPropertyDefinition property : bean.findProperties()) {
+                String name = schemaName(property);
+                if (topLevel && excluded.contains(name)) {
+                    continue;
+                }
+                ObjectNode propertySchema = typeSchema(property.getPrimaryType(), enclosing);
+                String description = property.getMetadata().getDescription();
+                if (description != null) {
+                    propertySchema.put("description", description);
+                }
+                if (topLevel && enums.containsKey(name)) {
+                    ArrayNode values = propertySchema.putArray("enum");
+                    enums.get(name).forEach(values::add);
+                }
+                if (topLevel && ranges.containsKey(name)) {
+                    propertySchema.put("minimum", ranges.get(name)[0]);
+                    propertySchema.put("maximum", ranges.get(name)[1]);
+                }
+                properties.set(name, propertySchema);
+
+                if (topLevel && !optional.contains(name)) {
+                    required.add(name);
+                }
+            }
+            enclosing.pop();
+            return schema;
+        }
+
+        /**
+         * A property's name in the schema: its first alias when it has one, since aliases carry the
+         * names the prompts use, otherwise the name it binds and serializes under
+         */
+        private static String schemaName(BeanPropertyDefinition property) {
+            AnnotatedMember member = property.getPrimaryMember();
+            JsonAlias alias = member != null ? member.getAnnotation(JsonAlias.class) : null;
+            return alias != null && alias.value().length > 0 ? alias.value()[0] : property.getName();
+        }
+
+        private ObjectNode typeSchema(JavaType type, Deque<Class<?>> enclosing) {
+            Class<?> raw = type.getRawClass();
+            if (CharSequence.class.isAssignableFrom(raw) || raw == char.class || raw == Character.class
+                    || Temporal.class.isAssignableFrom(raw)) {
+                return NODES.objectNode().put("type", "string");
+            }
+            if (raw == boolean.class || raw == Boolean.class) {
+                return NODES.objectNode().put("type", "boolean");
+            }
+            if (raw == int.class || raw == long.class || raw == short.class || raw == byte.class
+                    || raw == Integer.class || raw == Long.class || raw == Short.class || raw == Byte.class) {
+                return NODES.objectNode().put("type", "integer");
+            }
+            if (raw.isPrimitive() || Number.class.isAssignableFrom(raw)) {
+                return NODES.objectNode().put("type", "number");
+            }
+            if (raw.isEnum()) {
+                ObjectNode schema = NODES.objectNode().put("type", "string");
+                ArrayNode values = schema.putArray("enum");
+                for (Object constant : raw.getEnumConstants()) {
+                    values.add(((Enum<?>) constant).name());
+                }
+                return schema;
+            }
+            if (type.isArrayType() || type.isCollectionLikeType()) {
+                ObjectNode schema = NODES.objectNode().put("type", "array");
+                schema.set("items", typeSchema(type.getContentType(), enclosing));
+                return schema;
+            }
+            if (type.isMapLikeType()) {
+                ObjectNode schema = NODES.objectNode().put("type", "object");
+                if (type.getContentType().getRawClass() != Object.class) {
+                    schema.set("additionalProperties", typeSchema(type.getContentType(), enclosing));
+                }
+                return schema;
+            }
+            if (raw == Object.class || raw.getName().startsWith("java.") || raw.getName().startsWith("com.fasterxml.")) {
+                return NODES.objectNode();
+            }
+            if (enclosing.contains(raw)) {
+                // A type nested in itself is left as a free-form object rather than expanded forever
+                return NODES.objectNode().put("type", "object");
+            }
+            return objectSchema(type, enclosing, false);
+        }
+    }
+}
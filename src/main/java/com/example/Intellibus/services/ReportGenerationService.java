@@ -8,11 +8,14 @@ import com.example.Intellibus.models.report.EngagementMetricsRequest;
 import com.example.Intellibus.models.report.PostEventReportRequest;
 import com.example.Intellibus.models.report.ReportRequest;
 import com.example.Intellibus.models.report.ReportResponse;
+import com.example.Intellibus.services.GenerationOptions.UseCase;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -20,17 +23,88 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 @Service
 @Slf4j
 public class ReportGenerationService {
 
+    private static final String ERROR_SUMMARY_PREFIX = "Error generating report: ";
+
+    /**
+     * Shape of a generated report; identity, timing and metadata are filled in by the service
+     */
+    static final OutputSchema REPORT_SCHEMA = OutputSchema.forType(ReportResponse.class)
+            .exclude("reportId", "reportType", "title", "generatedAt", "processingTimeMs")
+            .optional("metrics_data", "visual_elements")
+            .build("record_report", "Record the generated report");
+
+    /**
+     * Instructions for each kind of report. They are the same for every request of a kind, so they go
+     * ahead of the report details as a cacheable block.
+     */
+    static final String ENGAGEMENT_METRICS_INSTRUCTIONS =
+            "Generate a detailed engagement metrics report with the specifications that follow. " +
+            "Respond with ONLY a JSON object with these fields:\n" +
+            "- executive_summary: A concise overview of the engagement metrics\n" +
+            "- key_findings: Array of the most important insights from the data\n" +
+            "- sections: Array of report sections, each with title, content, and optional subsections\n" +
+            "- recommendations: Array of actionable recommendations based on the findings\n" +
+            "- metrics_data: Processed metrics data with calculated values\n" +
+            "- visual_elements: Descriptions of charts/graphs that should be included\n";
+
+    static final String POST_EVENT_INSTRUCTIONS =
+            "Generate a comprehensive post-event report with the specifications that follow. " +
+            "Respond with ONLY a JSON object with these fields:\n" +
+            "- executive_summary: A concise overview of the event's success and outcomes\n" +
+            "- key_findings: Array of the most important insights from the event\n" +
+            "- sections: Array of report sections, each with title, content, and optional subsections\n" +
+            "- recommendations: Array of suggestions for future events\n" +
+            "- metrics_data: Key metrics and their values\n" +
+            "- visual_elements: Descriptions of charts/graphs that should be included\n";
+
+    static final String DAILY_MONITORING_INSTRUCTIONS =
+            "Generate a daily monitoring report with the specifications that follow. " +
+            "Respond with ONLY a JSON object with these fields:\n" +
+            "- executive_summary: A concise overview of the day's performance\n" +
+            "- key_findings: Array of the most important insights from the data\n" +
+            "- sections: Array of report sections, each with title, content, and optional subsections\n" +
+            "- recommendations: Array of actionable recommendations\n" +
+            "- metrics_data: Key metrics and their values, with comparisons to targets and previous periods\n" +
+            "- visual_elements: Descriptions of charts/graphs that should be included\n";
+
+    static final String GENERIC_REPORT_INSTRUCTIONS =
+            "Generate a report of the given type with the specifications that follow. " +
+            "Respond with ONLY a JSON object with these fields:\n" +
+            "- executive_summary: A concise overview of the report findings\n" +
+            "- key_findings: Array of the most important insights\n" +
+            "- sections: Array of report sections, each with title, content, and optional subsections\n" +
+            "- recommendations: Array of actionable recommendations\n" +
+            "- metrics_data: Any relevant metrics and their values\n" +
+            "- visual_elements: Descriptions of charts/graphs that should be included\n";
+
     @Autowired
     private ClaudeAIService claudeAIService;
     
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired
+    private StructuredOutputExtractor structuredOutputExtractor;
+    
+    @Autowired
+    private ResultPersistenceService resultPersistence;
+    
+    @Autowired
+    private ReportStore reportStore;
+    
+    @Autowired
+    private MapReduceEngine mapReduceEngine;
+    
+    @Autowired
+    private ServiceMetrics serviceMetrics;
+    
     /**
      * Generates a report based on the request type
      * 
@@ -63,26 +137,23 @@ public class ReportGenerationService {
             log.info("Generating engagement metrics report: {}", request.getTitle());
             
             // Build prompt for Claude
-            String prompt = buildEngagementMetricsPrompt(request);
+            String prompt = buildEngagementMetricsPrompt(request, condenseData(request, "engagement metrics"));
             
             // Call Claude API
-            String responseText = claudeAIService.generateResponse(prompt);
+            String responseText = callClaudeForReport(prompt, UseCase.REPORT_ENGAGEMENT_METRICS, ENGAGEMENT_METRICS_INSTRUCTIONS);
             
             // Log the raw response for debugging
             log.debug("Raw Claude response: {}", responseText);
             
-            // Extract the JSON from the response
-            String jsonStr = extractJsonFromResponse(responseText);
-            
-            // Parse the JSON response
-            ReportResponse report = parseReportResponse(jsonStr, reportId, "engagement_metrics", request.getTitle());
+            // Bind the JSON in the response
+            ReportResponse report = parseReportResponse(responseText, reportId, "engagement_metrics", request.getTitle());
             report.setProcessingTimeMs(Duration.between(startTime, Instant.now()).toMillis());
             
-            return report;
+            return recorded(report, null);
             
         } catch (Exception e) {
             log.error("Error generating engagement metrics report: {}", e.getMessage(), e);
-            return createErrorReport(reportId, "engagement_metrics", request.getTitle(), e.getMessage(), startTime);
+            return recorded(createErrorReport(reportId, "engagement_metrics", request.getTitle(), e.getMessage(), startTime), e);
         }
     }
     
@@ -100,26 +171,23 @@ public class ReportGenerationService {
             log.info("Generating post-event report: {}", request.getTitle());
             
             // Build prompt for Claude
-            String prompt = buildPostEventPrompt(request);
+            String prompt = buildPostEventPrompt(request, condenseData(request, "post-event"));
             
             // Call Claude API
-            String responseText = claudeAIService.generateResponse(prompt);
+            String responseText = callClaudeForReport(prompt, UseCase.REPORT_POST_EVENT, POST_EVENT_INSTRUCTIONS);
             
             // Log the raw response for debugging
             log.debug("Raw Claude response: {}", responseText);
             
-            // Extract the JSON from the response
-            String jsonStr = extractJsonFromResponse(responseText);
-            
-            // Parse the JSON response
-            ReportResponse report = parseReportResponse(jsonStr, reportId, "post_event", request.getTitle());
+            // Bind the JSON in the response
+            ReportResponse report = parseReportResponse(responseText, reportId, "post_event", request.getTitle());
             report.setProcessingTimeMs(Duration.between(startTime, Instant.now()).toMillis());
             
-            return report;
+            return recorded(report, null);
             
         } catch (Exception e) {
             log.error("Error generating post-event report: {}", e.getMessage(), e);
-            return createErrorReport(reportId, "post_event", request.getTitle(), e.getMessage(), startTime);
+            return recorded(createErrorReport(reportId, "post_event", request.getTitle(), e.getMessage(), startTime), e);
         }
     }
     
@@ -137,26 +205,23 @@ public class ReportGenerationService {
             log.info("Generating daily monitoring report: {}", request.getTitle());
             
             // Build prompt for Claude
-            String prompt = buildDailyMonitoringPrompt(request);
+            String prompt = buildDailyMonitoringPrompt(request, condenseData(request, "daily monitoring"));
             
             // Call Claude API
-            String responseText = claudeAIService.generateResponse(prompt);
+            String responseText = callClaudeForReport(prompt, UseCase.REPORT_DAILY_MONITORING, DAILY_MONITORING_INSTRUCTIONS);
             
             // Log the raw response for debugging
             log.debug("Raw Claude response: {}", responseText);
             
-            // Extract the JSON from the response
-            String jsonStr = extractJsonFromResponse(responseText);
-            
-            // Parse the JSON response
-            ReportResponse report = parseReportResponse(jsonStr, reportId, "daily_monitoring", request.getTitle());
+            // Bind the JSON in the response
+            ReportResponse report = parseReportResponse(responseText, reportId, "daily_monitoring", request.getTitle());
             report.setProcessingTimeMs(Duration.between(startTime, Instant.now()).toMillis());
             
-            return report;
+            return recorded(report, null);
             
         } catch (Exception e) {
             log.error("Error generating daily monitoring report: {}", e.getMessage(), e);
-            return createErrorReport(reportId, "daily_monitoring", request.getTitle(), e.getMessage(), startTime);
+            return recorded(createErrorReport(reportId, "daily_monitoring", request.getTitle(), e.getMessage(), startTime), e);
         }
     }
     
@@ -174,37 +239,238 @@ public class ReportGenerationService {
             log.info("Generating generic report: {}", request.getTitle());
             
             // Build prompt for Claude
-            String prompt = buildGenericReportPrompt(request);
+            String prompt = buildGenericReportPrompt(request, condenseData(request, request.getReportType()));
             
             // Call Claude API
-            String responseText = claudeAIService.generateResponse(prompt);
+            String responseText = callClaudeForReport(prompt, UseCase.REPORT_CUSTOM, GENERIC_REPORT_INSTRUCTIONS);
             
             // Log the raw response for debugging
             log.debug("Raw Claude response: {}", responseText);
             
-            // Extract the JSON from the response
-            String jsonStr = extractJsonFromResponse(responseText);
-            
-            // Parse the JSON response
-            ReportResponse report = parseReportResponse(jsonStr, reportId, request.getReportType(), request.getTitle());
+            // Bind the JSON in the response
+            ReportResponse report = parseReportResponse(responseText, reportId, request.getReportType(), request.getTitle());
             report.setProcessingTimeMs(Duration.between(startTime, Instant.now()).toMillis());
             
-            return report;
+            return recorded(report, null);
             
         } catch (Exception e) {
             log.error("Error generating generic report: {}", e.getMessage(), e);
-            return createErrorReport(reportId, request.getReportType(), request.getTitle(), e.getMessage(), startTime);
+            return recorded(createErrorReport(reportId, request.getReportType(), request.getTitle(), e.getMessage(), startTime), e);
         }
     }
     
     /**
-     * Builds a prompt for engagement metrics reports
+     * Prompt for a report answered through the Message Batches API. There is no way to condense data
+     * that is too large for one prompt before the batch runs, so the data always goes in whole.
+     */
+    String buildBulkPrompt(ReportRequest request) {
+        if (request instanceof EngagementMetricsRequest engagement) {
+            return buildEngagementMetricsPrompt(engagement);
+        } else if (request instanceof PostEventReportRequest postEvent) {
+            return buildPostEventPrompt(postEvent);
+        } else if (request instanceof DailyMonitoringReportRequest dailyMonitoring) {
+            return buildDailyMonitoringPrompt(dailyMonitoring);
+        } else {
+            return buildGenericReportPrompt(request);
+        }
+    }
+    
+    /**
+     * Use case whose token budget applies to a report request
+     */
+    static UseCase useCaseOf(ReportRequest request) {
+        if (request instanceof EngagementMetricsRequest) {
+            return UseCase.REPORT_ENGAGEMENT_METRICS;
+        } else if (request instanceof PostEventReportRequest) {
+            return UseCase.REPORT_POST_EVENT;
+        } else if (request instanceof DailyMonitoringReportRequest) {
+            return UseCase.REPORT_DAILY_MONITORING;
+        } else {
+            return UseCase.REPORT_CUSTOM;
+        }
+    }
+    
+    /**
+     * Instructions sent ahead of the prompt for a report request
+     */
+    static String instructionsOf(ReportRequest request) {
+        if (request instanceof EngagementMetricsRequest) {
+            return ENGAGEMENT_METRICS_INSTRUCTIONS;
+        } else if (request instanceof PostEventReportRequest) {
+            return POST_EVENT_INSTRUCTIONS;
+        } else if (request instanceof DailyMonitoringReportRequest) {
+            return DAILY_MONITORING_INSTRUCTIONS;
+        } else {
+            return GENERIC_REPORT_INSTRUCTIONS;
+        }
+    }
+    
+    /**
+     * Report type recorded on the report generated for a request
      */
-    private String buildEngagementMetricsPrompt(EngagementMetricsRequest request) {
+    static String reportTypeOf(ReportRequest request) {
+        if (request instanceof EngagementMetricsRequest) {
+            return "engagement_metrics";
+        } else if (request instanceof PostEventReportRequest) {
+            return "post_event";
+        } else if (request instanceof DailyMonitoringReportRequest) {
+            return "daily_monitoring";
+        } else {
+            return request.getReportType();
+        }
+    }
+    
+    /**
+     * Bind a report answered through the Message Batches API, or an error report if the request failed
+     * or its reply cannot be bound, and store it. Batch turnaround is measured in hours, so these reports
+     * stay out of the report latency and health metrics.
+     *
+     * @param failure why the request produced no reply, or null if it did
+     */
+    ReportResponse completeBulkReport(ReportRequest request, String responseText, String failure, Instant startTime) {
+        String reportId = UUID.randomUUID().toString();
+        ReportResponse report;
+        try {
+            if (failure != null) {
+                throw new IllegalStateException(failure);
+            }
+            report = parseReportResponse(responseText, reportId, reportTypeOf(request), request.getTitle());
+            report.setProcessingTimeMs(Duration.between(startTime, Instant.now()).toMillis());
+        } catch (Exception e) {
+            if (ServiceMetrics.isParseFailure(e)) {
+                serviceMetrics.recordParseFailure(ServiceMetrics.REPORT);
+            }
+            log.warn("Bulk report \"{}\" failed: {}", request.getTitle(), e.getMessage());
+            report = createErrorReport(reportId, reportTypeOf(request), request.getTitle(), e.getMessage(), startTime);
+        }
+        return store(report);
+    }
+    
+    /**
+     * Call Claude and return the response text, failing fast if the call itself failed
+     */
+    private String callClaude(String prompt, UseCase useCase) {
+        return callClaude(prompt, GenerationOptions.forUseCase(useCase));
+    }
+    
+    /**
+     * Call Claude for a report, answered through the report schema
+     */
+    private String callClaudeForReport(String prompt, UseCase useCase, String instructions) {
+        return callClaude(prompt, GenerationOptions.structured(useCase, REPORT_SCHEMA, instructions));
+    }
+    
+    private String callClaude(String prompt, GenerationOptions options) {
+        ClaudeResult result = claudeAIService.generate(prompt, options);
+        if (!result.isSuccess()) {
+            throw new IllegalStateException(result.getErrorMessage());
+        }
+        log.info("Report generation call {} took {}ms (API {}ms, {} input / {} output tokens)",
+                result.getRequestId(), result.getTotalTimeMs(), result.getApiCallTimeMs(),
+                result.getInputTokens(), result.getOutputTokens());
+        return result.getText();
+    }
+    
+    /**
+     * Analyses of the report data, slice by slice, when the data is too large for one prompt;
+     * null when it fits and goes into the prompt as is. Slices are analyzed in parallel and their
+     * analyses merged, condensed by Claude whenever a merged group would be too large.
+     */
+    String condenseData(ReportRequest request, String reportKind) {
+        List<Map<String, Object>> data = request.getData();
+        if (data == null || data.isEmpty()) {
+            return null;
+        }
+        
+        int budget = mapReduceEngine.getMaxChunkTokens();
+        List<String> records = new ArrayList<>(data.size());
+        long totalTokens = 0;
+        for (Map<String, Object> record : data) {
+            String json = objectToString(record);
+            records.add(json);
+            totalTokens += TokenEstimator.approximate(json);
+        }
+        if (totalTokens <= budget) {
+            return null;
+        }
+        
+        List<List<String>> slices = MapReduceEngine.split(records, TokenEstimator::approximate, budget);
+        log.info("Report data of {} records (~{} tokens) split into {} slices", records.size(), totalTokens, slices.size());
+        List<Integer> parts = IntStream.range(0, slices.size()).boxed().toList();
+        return mapReduceEngine.mapReduce(parts,
+                part -> analyzeDataSlice(request, reportKind, slices.get(part), part, slices.size()),
+                group -> mergeDataAnalyses(group, budget));
+    }
+    
+    /**
+     * Aggregates and findings for one slice of the report data, as compact JSON
+     */
+    private String analyzeDataSlice(ReportRequest request, String reportKind, List<String> records, int part, int parts) {
         StringBuilder prompt = new StringBuilder();
+        prompt.append("You are preparing data for a ").append(reportKind).append(" report titled \"")
+              .append(request.getTitle()).append("\". ");
+        prompt.append("Below is slice ").append(part + 1).append(" of ").append(parts)
+              .append(" of the raw data records (").append(records.size()).append(" records). ");
+        prompt.append("Respond with ONLY a JSON object with these fields:\n");
+        prompt.append("- record_count: number of records in this slice\n");
+        prompt.append("- metrics: aggregates over this slice; for numeric fields sum, min, max and mean, for categorical fields counts of the most common values\n");
+        prompt.append("- key_findings: array of notable patterns, outliers or trends in this slice\n\n");
+        prompt.append("Records:\n[");
+        prompt.append(String.join(",\n", records));
+        prompt.append("]\n");
+        return extractJson(callClaude(prompt.toString(), UseCase.REPORT_DATA_SLICE));
+    }
+    
+    /**
+     * Merge slice analyses into one: listed side by side while small, otherwise condensed by Claude
+     */
+    private String mergeDataAnalyses(List<String> analyses, int budget) {
+        String merged = "[" + String.join(",\n", analyses) + "]";
+        if (TokenEstimator.approximate(merged) <= budget / 2) {
+            return merged;
+        }
         
-        prompt.append("Generate a detailed engagement metrics report with the following specifications. ");
-        prompt.append("Respond with ONLY a JSON object structured according to the format specified at the end.\n\n");
+        String prompt = "Combine these analyses of slices of one dataset into a single JSON object with the same fields: " +
+                "the total record_count, metrics merged across slices (add sums and counts, take the lowest min and highest max, " +
+                "recompute means weighted by record_count), and key_findings without duplicates, keeping the most important. " +
+                "Respond with ONLY the JSON object.\n\n" + merged + "\n";
+        return extractJson(callClaude(prompt, UseCase.REPORT_DATA_MERGE));
+    }
+    
+    private String extractJson(String responseText) {
+        try {
+            return objectMapper.writeValueAsString(structuredOutputExtractor.extractObject(responseText, JsonNode.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Append the report data, or its slice analyses when it was too large to include
+     */
+    private void appendData(StringBuilder prompt, String heading, ReportRequest request, String dataDigest) {
+        if (dataDigest != null) {
+            prompt.append("\nThe raw data (").append(request.getData().size())
+                  .append(" records) is too large to include; these are analyses of it, slice by slice:\n");
+            prompt.append(dataDigest).append("\n");
+        } else if (request.getData() != null && !request.getData().isEmpty()) {
+            prompt.append("\n").append(heading).append("\n");
+            prompt.append(objectToString(request.getData())).append("\n");
+        }
+    }
+    
+    /**
+     * Builds a prompt for engagement metrics reports
+     */
+    String buildEngagementMetricsPrompt(EngagementMetricsRequest request) {
+        return buildEngagementMetricsPrompt(request, null);
+    }
+    
+    /**
+     * Builds a prompt for engagement metrics reports, with the data replaced by its slice analyses when given
+     */
+    String buildEngagementMetricsPrompt(EngagementMetricsRequest request, String dataDigest) {
+        StringBuilder prompt = new StringBuilder();
         
         // Add report details
         prompt.append("Report Title: ").append(request.getTitle()).append("\n");
@@ -241,37 +507,29 @@ public class ReportGenerationService {
         }
         
         // Add raw data if available
-        if (request.getData() != null && !request.getData().isEmpty()) {
-            prompt.append("\nRaw data for analysis:\n");
-            prompt.append(objectToString(request.getData())).append("\n");
-        }
+        appendData(prompt, "Raw data for analysis:", request, dataDigest);
         
         // Add additional context
         if (request.getContext() != null && !request.getContext().isEmpty()) {
             prompt.append("\nAdditional context: ").append(request.getContext()).append("\n");
         }
         
-        // Add instructions for the response format
-        prompt.append("\nRespond with ONLY a JSON object with these fields:\n");
-        prompt.append("- executive_summary: A concise overview of the engagement metrics\n");
-        prompt.append("- key_findings: Array of the most important insights from the data\n");
-        prompt.append("- sections: Array of report sections, each with title, content, and optional subsections\n");
-        prompt.append("- recommendations: Array of actionable recommendations based on the findings\n");
-        prompt.append("- metrics_data: Processed metrics data with calculated values\n");
-        prompt.append("- visual_elements: Descriptions of charts/graphs that should be included\n");
-        
         return prompt.toString();
     }
     
     /**
      * Builds a prompt for post-event reports
      */
-    private String buildPostEventPrompt(PostEventReportRequest request) {
+    String buildPostEventPrompt(PostEventReportRequest request) {
+        return buildPostEventPrompt(request, null);
+    }
+    
+    /**
+     * Builds a prompt for post-event reports, with the data replaced by its slice analyses when given
+     */
+    String buildPostEventPrompt(PostEventReportRequest request, String dataDigest) {
         StringBuilder prompt = new StringBuilder();
         
-        prompt.append("Generate a comprehensive post-event report with the following specifications. ");
-        prompt.append("Respond with ONLY a JSON object structured according to the format specified at the end.\n\n");
-        
         // Add event details
         prompt.append("Event Title: ").append(request.getTitle()).append("\n");
         prompt.append("Event Type: ").append(request.getEventType()).append("\n");
@@ -312,37 +570,29 @@ public class ReportGenerationService {
         }
         
         // Add raw data if available
-        if (request.getData() != null && !request.getData().isEmpty()) {
-            prompt.append("\nAdditional data for analysis:\n");
-            prompt.append(objectToString(request.getData())).append("\n");
-        }
+        appendData(prompt, "Additional data for analysis:", request, dataDigest);
         
         // Add additional context
         if (request.getContext() != null && !request.getContext().isEmpty()) {
             prompt.append("\nAdditional context: ").append(request.getContext()).append("\n");
         }
         
-        // Add instructions for the response format
-        prompt.append("\nRespond with ONLY a JSON object with these fields:\n");
-        prompt.append("- executive_summary: A concise overview of the event's success and outcomes\n");
-        prompt.append("- key_findings: Array of the most important insights from the event\n");
-        prompt.append("- sections: Array of report sections, each with title, content, and optional subsections\n");
-        prompt.append("- recommendations: Array of suggestions for future events\n");
-        prompt.append("- metrics_data: Key metrics and their values\n");
-        prompt.append("- visual_elements: Descriptions of charts/graphs that should be included\n");
-        
         return prompt.toString();
     }
     
     /**
      * Builds a prompt for daily monitoring reports
      */
-    private String buildDailyMonitoringPrompt(DailyMonitoringReportRequest request) {
+    String buildDailyMonitoringPrompt(DailyMonitoringReportRequest request) {
+        return buildDailyMonitoringPrompt(request, null);
+    }
+    
+    /**
+     * Builds a prompt for daily monitoring reports, with the data replaced by its slice analyses when given
+     */
+    String buildDailyMonitoringPrompt(DailyMonitoringReportRequest request, String dataDigest) {
         StringBuilder prompt = new StringBuilder();
         
-        prompt.append("Generate a daily monitoring report with the following specifications. ");
-        prompt.append("Respond with ONLY a JSON object structured according to the format specified at the end.\n\n");
-        
         // Add report details
         prompt.append("Report Title: ").append(request.getTitle()).append("\n");
         prompt.append("Date: ").append(request.getStartDate()).append("\n");
@@ -397,38 +647,31 @@ public class ReportGenerationService {
         }
         
         // Add raw data if available
-        if (request.getData() != null && !request.getData().isEmpty()) {
-            prompt.append("\nAdditional data for analysis:\n");
-            prompt.append(objectToString(request.getData())).append("\n");
-        }
+        appendData(prompt, "Additional data for analysis:", request, dataDigest);
         
         // Add additional context
         if (request.getContext() != null && !request.getContext().isEmpty()) {
             prompt.append("\nAdditional context: ").append(request.getContext()).append("\n");
         }
         
-        // Add instructions for the response format
-        prompt.append("\nRespond with ONLY a JSON object with these fields:\n");
-        prompt.append("- executive_summary: A concise overview of the day's performance\n");
-        prompt.append("- key_findings: Array of the most important insights from the data\n");
-        prompt.append("- sections: Array of report sections, each with title, content, and optional subsections\n");
-        prompt.append("- recommendations: Array of actionable recommendations\n");
-        prompt.append("- metrics_data: Key metrics and their values, with comparisons to targets and previous periods\n");
-        prompt.append("- visual_elements: Descriptions of charts/graphs that should be included\n");
-        
         return prompt.toString();
     }
     
     /**
      * Builds a prompt for generic reports
      */
-    private String buildGenericReportPrompt(ReportRequest request) {
+    String buildGenericReportPrompt(ReportRequest request) {
+        return buildGenericReportPrompt(request, null);
+    }
+    
+    /**
+     * Builds a prompt for generic reports, with the data replaced by its slice analyses when given
+     */
+    String buildGenericReportPrompt(ReportRequest request, String dataDigest) {
         StringBuilder prompt = new StringBuilder();
         
-        prompt.append("Generate a ").append(request.getReportType()).append(" report with the following specifications. ");
-        prompt.append("Respond with ONLY a JSON object structured according to the format specified at the end.\n\n");
-        
         // Add report details
+        prompt.append("Report Type: ").append(request.getReportType()).append("\n");
         prompt.append("Report Title: ").append(request.getTitle()).append("\n");
         
         if (request.getStartDate() != null && request.getEndDate() != null) {
@@ -441,118 +684,83 @@ public class ReportGenerationService {
         }
         
         // Add raw data if available
-        if (request.getData() != null && !request.getData().isEmpty()) {
-            prompt.append("\nData for analysis:\n");
-            prompt.append(objectToString(request.getData())).append("\n");
-        }
+        appendData(prompt, "Data for analysis:", request, dataDigest);
         
         // Add additional context
         if (request.getContext() != null && !request.getContext().isEmpty()) {
             prompt.append("\nAdditional context: ").append(request.getContext()).append("\n");
         }
         
-        // Add instructions for the response format
-        prompt.append("\nRespond with ONLY a JSON object with these fields:\n");
-        prompt.append("- executive_summary: A concise overview of the report findings\n");
-        prompt.append("- key_findings: Array of the most important insights\n");
-        prompt.append("- sections: Array of report sections, each with title, content, and optional subsections\n");
-        prompt.append("- recommendations: Array of actionable recommendations\n");
-        prompt.append("- metrics_data: Any relevant metrics and their values\n");
-        prompt.append("- visual_elements: Descriptions of charts/graphs that should be included\n");
-        
         return prompt.toString();
     }
     
     /**
-     * Parse JSON response into ReportResponse object
+     * Check the JSON in Claude's response text against the report schema, bind it into a ReportResponse
+     * and fill in the report metadata
      */
-    private ReportResponse parseReportResponse(String jsonStr, String reportId, String reportType, String title) throws Exception {
-        JsonNode rootNode = objectMapper.readTree(jsonStr);
-        
-        ReportResponse response = new ReportResponse();
+    ReportResponse parseReportResponse(String responseText, String reportId, String reportType, String title) throws IOException {
+        ReportResponse response = structuredOutputExtractor.extractObject(responseText, REPORT_SCHEMA, ReportResponse.class);
         response.setReportId(reportId);
         response.setReportType(reportType);
         response.setTitle(title);
         response.setGeneratedAt(LocalDateTime.now());
         
-        // Parse executive summary
-        if (rootNode.has("executive_summary")) {
-            response.setExecutiveSummary(rootNode.get("executive_summary").asText());
-        }
-        
-        // Parse key findings
-        if (rootNode.has("key_findings")) {
-            List<String> findings = new ArrayList<>();
-            rootNode.get("key_findings").forEach(node -> findings.add(node.asText()));
-            response.setKeyFindings(findings);
-        }
-        
-        // Parse recommendations
-        if (rootNode.has("recommendations")) {
-            List<String> recommendations = new ArrayList<>();
-            rootNode.get("recommendations").forEach(node -> recommendations.add(node.asText()));
-            response.setRecommendations(recommendations);
-        }
-        
-        // Parse metrics data
-        if (rootNode.has("metrics_data")) {
-            response.setMetricsData(objectMapper.convertValue(rootNode.get("metrics_data"), Map.class));
-        }
-        
-        // Parse sections
-        if (rootNode.has("sections")) {
-            List<ReportResponse.ReportSection> sections = new ArrayList<>();
-            rootNode.get("sections").forEach(sectionNode -> {
-                try {
-                    ReportResponse.ReportSection section = new ReportResponse.ReportSection();
-                    section.setTitle(sectionNode.has("title") ? sectionNode.get("title").asText() : "");
-                    section.setContent(sectionNode.has("content") ? sectionNode.get("content").asText() : "");
-                    
-                    // Parse subsections if any
-                    if (sectionNode.has("subsections")) {
-                        List<ReportResponse.ReportSection> subsections = new ArrayList<>();
-                        sectionNode.get("subsections").forEach(subNode -> {
-                            ReportResponse.ReportSection subsection = new ReportResponse.ReportSection();
-                            subsection.setTitle(subNode.has("title") ? subNode.get("title").asText() : "");
-                            subsection.setContent(subNode.has("content") ? subNode.get("content").asText() : "");
-                            subsections.add(subsection);
-                        });
-                        section.setSubsections(subsections);
-                    }
-                    
-                    sections.add(section);
-                } catch (Exception e) {
-                    log.warn("Error parsing section: {}", e.getMessage());
-                }
-            });
-            response.setSections(sections);
-        }
-        
-        // Parse visual elements
-        if (rootNode.has("visual_elements")) {
-            List<ReportResponse.VisualElement> visualElements = new ArrayList<>();
-            rootNode.get("visual_elements").forEach(visualNode -> {
-                try {
-                    ReportResponse.VisualElement visual = new ReportResponse.VisualElement();
-                    visual.setType(visualNode.has("type") ? visualNode.get("type").asText() : "chart");
-                    visual.setTitle(visualNode.has("title") ? visualNode.get("title").asText() : "");
-                    visual.setDescription(visualNode.has("description") ? visualNode.get("description").asText() : "");
-                    
-                    if (visualNode.has("data")) {
-                        visual.setData(objectMapper.convertValue(visualNode.get("data"), Map.class));
-                    }
-                    
-                    visualElements.add(visual);
-                } catch (Exception e) {
-                    log.warn("Error parsing visual element: {}", e.getMessage());
-                }
-            });
-            response.setVisualElements(visualElements);
+        // Missing titles and content render as empty, and untyped visuals as charts
+        if (response.getSections() != null) {
+            response.getSections().forEach(ReportGenerationService::fillSectionDefaults);
+        }
+        if (response.getVisualElements() != null) {
+            for (ReportResponse.VisualElement visual : response.getVisualElements()) {
+                visual.setType(visual.getType() != null ? visual.getType() : "chart");
+                visual.setTitle(visual.getTitle() != null ? visual.getTitle() : "");
+                visual.setDescription(visual.getDescription() != null ? visual.getDescription() : "");
+            }
         }
         
         return response;
     }
     
+    private static void fillSectionDefaults(ReportResponse.ReportSection section) {
+        section.setTitle(section.getTitle() != null ? section.getTitle() : "");
+        section.setContent(section.getContent() != null ? section.getContent() : "");
+        if (section.getSubsections() != null) {
+            section.getSubsections().forEach(ReportGenerationService::fillSectionDefaults);
+        }
+    }
+    
+    /**
+     * Whether a report is the stand-in returned when generation failed
+     */
+    public static boolean isErrorReport(ReportResponse report) {
+        return report.getExecutiveSummary() != null && report.getExecutiveSummary().startsWith(ERROR_SUMMARY_PREFIX);
+    }
+    
+    /**
+     * Queue a finished report for persistence and, unless generation failed, keep it for lookup by ID
+     *
+     * @param failure why generation failed, or null if it succeeded
+     */
+    private ReportResponse recorded(ReportResponse report, Exception failure) {
+        long durationNanos = TimeUnit.MILLISECONDS.toNanos(report.getProcessingTimeMs());
+        if (failure == null) {
+            serviceMetrics.recordSuccess(ServiceMetrics.REPORT, durationNanos);
+        } else {
+            serviceMetrics.recordFailure(ServiceMetrics.REPORT, durationNanos, failure);
+        }
+        return store(report);
+    }
+    
+    /**
+     * Queue a report for persistence and, unless it is an error report, keep it for lookup by ID
+     */
+    private ReportResponse store(ReportResponse report) {
+        resultPersistence.saveReport(report);
+        if (!isErrorReport(report)) {
+            reportStore.save(report);
+        }
+        return report;
+    }
+    
     /**
      * Create an error report
      */
@@ -562,7 +770,7 @@ public class ReportGenerationService {
         errorReport.setReportType(reportType);
         errorReport.setTitle(title);
         errorReport.setGeneratedAt(LocalDateTime.now());
-        errorReport.setExecutiveSummary("Error generating report: " + errorMessage);
+        errorReport.setExecutiveSummary(ERROR_SUMMARY_PREFIX + errorMessage);
         
         List<String> findings = new ArrayList<>();
         findings.add("An error occurred during report generation.");
@@ -590,18 +798,4 @@ public class ReportGenerationService {
             return obj.toString();
         }
     }
-    
-    /**
-     * Extract JSON object from Claude's response text
-     */
-    private String extractJsonFromResponse(String responseText) {
-        int startIdx = responseText.indexOf('{');
-        int endIdx = responseText.lastIndexOf('}') + 1;
-        
-        if (startIdx >= 0 && endIdx > startIdx) {
-            return responseText.substring(startIdx, endIdx);
-        }
-        
-        return responseText;
-    }
-}
+}
\ No newline at end of file
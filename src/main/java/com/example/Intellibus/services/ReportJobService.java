@@ -0,0 +1,193 @@
+package com.example.Intellibus.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.Intellibus.config.ReportJobProperties;
+import com.example.Intellibus.models.report.ReportJob;
+import com.example.Intellibus.models.report.ReportJobMessage;
+import com.example.Intellibus.models.report.ReportRequest;
+import com.example.Intellibus.models.report.ReportResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Queues report generation on Kafka and tracks job status.
+ *
+ * Submissions are published to the request topic and return as soon as the broker acknowledges them.
+ * Workers in a shared consumer group generate the reports, a fixed number at a time per instance, so
+ * throughput scales by adding instances up to the partition count. Every status change, including the
+ * finished report, goes to the results topic, which each instance reads in a group named after its
+ * instance ID so that any of them can answer a status query.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(prefix = "intellibus.report-jobs", name = "enabled", havingValue = "true")
+public class ReportJobService {
+
+    @Autowired
+    private ReportGenerationService reportService;
+    
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private final ReportJobProperties properties;
+    private final Cache<String, ReportJob> statuses;
+    
+    public ReportJobService(ReportJobProperties properties) {
+        this.properties = properties;
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxStatuses())
+                .expireAfterWrite(properties.getStatusRetention())
+                .build();
+    }
+    
+    /**
+     * Queue a report for generation
+     *
+     * @throws ResponseStatusException with 503 if the broker does not acknowledge the job in time
+     */
+    public ReportJob submit(ReportRequest request) {
+        ReportJobMessage message = new ReportJobMessage(UUID.randomUUID().toString(), Instant.now(), request);
+        
+        ReportJob job = new ReportJob();
+        job.setJobId(message.getJobId());
+        job.setKind(ReportJobMessage.kindOf(request));
+        job.setStatus(ReportJob.Status.QUEUED);
+        job.setSubmittedAt(message.getSubmittedAt());
+        
+        try {
+            kafkaTemplate.send(properties.getRequestTopic(), message.getJobId(), objectMapper.writeValueAsString(message))
+                    .get(properties.getSendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while queueing report job");
+        } catch (ExecutionException | TimeoutException | JsonProcessingException | RuntimeException e) {
+            log.error("Could not queue report job {}", message.getJobId(), e);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Report job queue is unavailable");
+        }
+        
+        log.info("Queued {} report job {}: {}", job.getKind(), job.getJobId(), request.getTitle());
+        publish(job);
+        return job;
+    }
+    
+    /**
+     * Current status of a job, or null if this instance has not seen it
+     */
+    public ReportJob getJob(String jobId) {
+        return statuses.getIfPresent(jobId);
+    }
+    
+    /**
+     * Generate one queued report. Records are taken one at a time so a slow report
+     * does not hold others that another worker could start.
+     */
+    @KafkaListener(id = "report-job-worker", idIsGroup = false,
+            topics = "${intellibus.report-jobs.request-topic:intellibus.report-jobs}",
+            groupId = "${intellibus.report-jobs.worker-group:intellibus-report-workers}",
+            concurrency = "${intellibus.report-jobs.concurrency:4}",
+            properties = "max.poll.records=1")
+    public void work(String payload) {
+        ReportJobMessage message;
+        try {
+            message = objectMapper.readValue(payload, ReportJobMessage.class);
+        } catch (Exception e) {
+            log.error("Discarding malformed report job: {}", e.getMessage());
+            return;
+        }
+        
+        ReportJob job = new ReportJob();
+        job.setJobId(message.getJobId());
+        job.setKind(ReportJobMessage.kindOf(message.getRequest()));
+        job.setSubmittedAt(message.getSubmittedAt());
+        job.setStartedAt(Instant.now());
+        job.setStatus(ReportJob.Status.RUNNING);
+        publish(job);
+        
+        try {
+            ReportResponse report = reportService.generateReport(message.getRequest());
+            job.setReport(report);
+            job.setStatus(ReportGenerationService.isErrorReport(report) ? ReportJob.Status.FAILED : ReportJob.Status.COMPLETED);
+            if (job.getStatus() == ReportJob.Status.FAILED) {
+                job.setError(report.getExecutiveSummary());
+            }
+        } catch (Exception e) {
+            log.error("Report job {} failed", job.getJobId(), e);
+            job.setStatus(ReportJob.Status.FAILED);
+            job.setError(e.getMessage());
+        }
+        job.setCompletedAt(Instant.now());
+        
+        log.info("Report job {} {} after {}ms in queue and {}ms generating", job.getJobId(), job.getStatus(),
+                job.getStartedAt().toEpochMilli() - job.getSubmittedAt().toEpochMilli(),
+                job.getCompletedAt().toEpochMilli() - job.getStartedAt().toEpochMilli());
+        publish(job);
+    }
+    
+    /**
+     * Track status changes published by any instance. Each instance reads in a group of its own,
+     * starting from the latest offset the first time, so it sees every change made while it is running.
+     */
+    @KafkaListener(id = "report-job-status", idIsGroup = false,
+            topics = "${intellibus.report-jobs.result-topic:intellibus.report-results}",
+            groupId = "#{__listener.statusGroup}",
+            properties = "auto.offset.reset=latest")
+    public void onStatus(String payload) {
+        try {
+            ReportJob job = objectMapper.readValue(payload, ReportJob.class);
+            statuses.asMap().merge(job.getJobId(), job, (current, update) ->
+                    update.getStatus().ordinal() >= current.getStatus().ordinal() ? update : current);
+        } catch (Exception e) {
+            log.warn("Ignoring malformed report job status: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Consumer group this instance reads status changes in
+     */
+    public String getStatusGroup() {
+        return "intellibus-report-status-" + properties.getInstanceId();
+    }
+    
+    /**
+     * Record a status change locally and publish it for the other instances and any result consumers
+     */
+    private void publish(ReportJob job) {
+        ReportJob snapshot = copy(job);
+        statuses.put(snapshot.getJobId(), snapshot);
+        try {
+            kafkaTemplate.send(properties.getResultTopic(), job.getJobId(), objectMapper.writeValueAsString(snapshot))
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            log.warn("Could not publish status of report job {}: {}", job.getJobId(), error.getMessage());
+                        }
+                    });
+        } catch (Exception e) {
+            log.warn("Could not publish status of report job {}: {}", job.getJobId(), e.getMessage());
+        }
+    }
+    
+    private static ReportJob copy(ReportJob job) {
+        return new ReportJob(job.getJobId(), job.getKind(), job.getStatus(), job.getSubmittedAt(), job.getStartedAt(),
+                job.getCompletedAt(), job.getReport(), job.getError());
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.Intellibus.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.Intellibus.config.ReportStoreProperties;
+import com.example.Intellibus.models.report.ReportResponse;
+import com.example.Intellibus.models.report.ReportSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Two-tier store of generated reports, so a report can be fetched again without regenerating it.
+ *
+ * Recent reports are served from an in-memory Caffeine tier; every report is also written to one
+ * file per report on disk, gzip-compressed once it passes the compression threshold. Disk writes
+ * happen on a background thread, so saving never slows down the request that generated the report.
+ * An append-only index file holds the summary of each stored report; it is loaded at startup,
+ * compacted and used for listing, so listing never reads report files.
+ */
+@Service
+@Slf4j
+public class ReportStore implements MeterBinder {
+
+    private static final String INDEX_FILE = "index.jsonl";
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final ReportStoreProperties properties;
+    private final Cache<String, ReportResponse> hot;
+    private final Map<String, ReportSummary> index = new ConcurrentHashMap<>();
+    // Reports saved but not yet on disk, so they stay readable if the hot tier evicts them first
+    private final Map<String, ReportResponse> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("report-store").daemon().factory());
+
+    // Counters
+    private final LongAdder diskReads = new LongAdder();
+    private final LongAdder diskWrites = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+
+    public ReportStore(ReportStoreProperties properties) {
+        this.properties = properties;
+        this.hot = Caffeine.newBuilder()
+                .maximumSize(properties.getHotMaximumSize())
+                .recordStats()
+                .build();
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Files.createDirectories(properties.getDirectory());
+        loadIndex();
+        compact();
+        writer.scheduleWithFixedDelay(this::pruneQuietly, 1, 1, TimeUnit.HOURS);
+        log.info("Report store at {} holds {} reports", properties.getDirectory(), index.size());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Keep a generated report. Returns immediately; the disk write happens in the background.
+     */
+    public void save(ReportResponse report) {
+        if (!properties.isEnabled() || report.getReportId() == null || !VALID_ID.matcher(report.getReportId()).matches()) {
+            return;
+        }
+        hot.put(report.getReportId(), report);
+        pending.put(report.getReportId(), report);
+        writer.execute(() -> write(report));
+    }
+
+    /**
+     * A stored report, or null if it is unknown or has expired
+     */
+    public ReportResponse get(String reportId) {
+        if (!properties.isEnabled() || reportId == null || !VALID_ID.matcher(reportId).matches()) {
+            return null;
+        }
+        return hot.get(reportId, this::load);
+    }
+
+    /**
+     * Summaries of stored reports, newest first
+     *
+     * @param reportType only reports of this type (null for any)
+     * @param titleContains only reports whose title contains this text, ignoring case (null for any)
+     * @param from only reports generated at or after this time (null for no lower bound)
+     * @param to only reports generated before this time (null for no upper bound)
+     */
+    public List<ReportSummary> list(String reportType, String titleContains, LocalDateTime from, LocalDateTime to, int limit) {
+        String title = titleContains != null ? titleContains.toLowerCase(Locale.ROOT) : null;
+        return index.values().stream()
+                .filter(summary -> reportType == null || reportType.equals(summary.getReportType()))
+                .filter(summary -> title == null
+                        || (summary.getTitle() != null && summary.getTitle().toLowerCase(Locale.ROOT).contains(title)))
+                .filter(summary -> from == null || (summary.getGeneratedAt() != null && !summary.getGeneratedAt().isBefore(from)))
+                .filter(summary -> to == null || (summary.getGeneratedAt() != null && summary.getGeneratedAt().isBefore(to)))
+                .sorted(Comparator.comparing(ReportSummary::getGeneratedAt, Comparator.nullsLast(Comparator.reverseOrder())))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Register hot tier cache meters and gauges of stored reports and pending disk writes
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, hot, "reports");
+        Gauge.builder("intellibus.report.store.reports", index, Map::size)
+                .description("Reports held in the store")
+                .register(registry);
+        Gauge.builder("intellibus.report.store.pending.writes", pending, Map::size)
+                .description("Reports saved but not yet written to disk")
+                .register(registry);
+    }
+
+    /**
+     * Tier hit rates and disk counters
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = hot.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", properties.isEnabled());
+        result.put("storedReports", index.size());
+        result.put("storedBytes", index.values().stream().mapToLong(ReportSummary::getStoredBytes).sum());
+        result.put("hotReports", hot.estimatedSize());
+        result.put("hotHitRate", stats.hitRate());
+        result.put("diskReads", diskReads.sum());
+        result.put("diskWrites", diskWrites.sum());
+        result.put("pendingWrites", pending.size());
+        result.put("writeFailures", writeFailures.sum());
+        return result;
+    }
+
+    /**
+     * Wait for the disk writes queued so far to finish
+     */
+    void awaitWrites() throws Exception {
+        writer.submit(() -> { }).get(10, TimeUnit.SECONDS);
+    }
+
+    private void write(ReportResponse report) {
+        String reportId = report.getReportId();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(report);
+            boolean compress = json.length >= properties.getCompressionThreshold().toBytes();
+            Path target = reportPath(reportId, compress);
+            Path temp = Files.createTempFile(properties.getDirectory(), reportId, ".tmp");
+
+            try (OutputStream out = compress
+                    ? new GZIPOutputStream(Files.newOutputStream(temp))
+                    : Files.newOutputStream(temp)) {
+                out.write(json);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(reportPath(reportId, !compress));
+
+            ReportSummary summary = new ReportSummary(reportId, report.getReportType(), report.getTitle(),
+                    report.getGeneratedAt(), Files.size(target), compress);
+            appendToIndex(summary);
+            index.put(reportId, summary);
+            diskWrites.increment();
+        } catch (IOException e) {
+            writeFailures.increment();
+            log.error("Failed to store report {}", reportId, e);
+        } finally {
+            pending.remove(reportId, report);
+        }
+    }
+
+    private ReportResponse load(String reportId) {
+        ReportResponse pendingReport = pending.get(reportId);
+        if (pendingReport != null) {
+            return pendingReport;
+        }
+        ReportSummary summary = index.get(reportId);
+        if (summary == null) {
+            return null;
+        }
+        try (InputStream in = summary.isCompressed()
+                ? new GZIPInputStream(Files.newInputStream(reportPath(reportId, true)))
+                : Files.newInputStream(reportPath(reportId, false))) {
+            diskReads.increment();
+            return objectMapper.readValue(in, ReportResponse.class);
+        } catch (IOException e) {
+            log.warn("Failed to read stored report {}: {}", reportId, e.getMessage());
+            return null;
+        }
+    }
+
+    private Path reportPath(String reportId, boolean compressed) {
+        return properties.getDirectory().resolve(reportId + (compressed ? ".json.gz" : ".json"));
+    }
+
+    private void appendToIndex(ReportSummary summary) throws IOException {
+        String line = objectMapper.writeValueAsString(summary) + "\n";
+        Files.writeString(properties.getDirectory().resolve(INDEX_FILE), line, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Read the index; later lines for the same report replace earlier ones
+     */
+    private void loadIndex() throws IOException {
+        Path indexFile = properties.getDirectory().resolve(INDEX_FILE);
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        try (Stream<String> lines = Files.lines(indexFile, StandardCharsets.UTF_8)) {
+            lines.filter(line -> !line.isBlank()).forEach(line -> {
+                try {
+                    ReportSummary summary = objectMapper.readValue(line, ReportSummary.class);
+                    index.put(summary.getReportId(), summary);
+                } catch (IOException e) {
+                    // A torn last line from a crash mid-append
+                    log.warn("Skipping unreadable report index line");
+                }
+            });
+        }
+    }
+
+    private void pruneQuietly() {
+        try {
+            compact();
+        } catch (IOException e) {
+            log.warn("Failed to prune report store: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Delete expired reports, forget reports whose file is gone, and rewrite the index with one line per report
+     */
+    private void compact() throws IOException {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getRetention());
+        int removed = 0;
+        for (ReportSummary summary : List.copyOf(index.values())) {
+            Path file = reportPath(summary.getReportId(), summary.isCompressed());
+            boolean expired = summary.getGeneratedAt() != null && summary.getGeneratedAt().isBefore(cutoff);
+            if (expired || !Files.exists(file)) {
+                Files.deleteIfExists(file);
+                index.remove(summary.getReportId());
+                hot.invalidate(summary.getReportId());
+                removed++;
+            }
+        }
+
+        Path indexFile = properties.getDirectory().resolve(INDEX_FILE);
+        Path temp = Files.createTempFile(properties.getDirectory(), "index", ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (ReportSummary summary : index.values()) {
+                out.write(objectMapper.writeValueAsString(summary));
+                out.newLine();
+            }
+        }
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (removed > 0) {
+            log.info("Pruned {} expired or missing reports from the report store", removed);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.Intellibus.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single-flight deduplication of identical upstream calls.
+ *
+ * The first caller for a key becomes the leader and makes the call; callers with the same key
+ * that arrive while it is in flight, or within the window after it succeeded, share its result.
+ * A follower that gives up waiting only abandons its own wait, never the shared call. If the
+ * leader is cancelled before it has a result, its followers are released to make their own calls.
+ */
+@Component
+@Slf4j
+public class RequestCoalescer implements MeterBinder {
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+
+    public RequestCoalescer(@Value("${intellibus.coalescing.enabled:true}") boolean enabled,
+            @Value("${intellibus.coalescing.window:1s}") Duration window) {
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        log.info("Request coalescing {} (window={})", enabled ? "enabled" : "disabled", window);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Join the flight for a key, starting a new one led by the caller if none can be shared
+     */
+    public Flight join(String key) {
+        long now = System.nanoTime();
+        Flight candidate = new Flight(key);
+        Flight flight = flights.compute(key, (k, existing) -> existing != null && existing.isShareable(now, windowNanos)
+                ? existing : candidate);
+
+        if (flight == candidate) {
+            candidate.leader = true;
+            leaders.increment();
+        } else {
+            coalesced.increment();
+        }
+        return flight == candidate ? candidate : flight.follower();
+    }
+
+    /**
+     * Publish the leader's result to every follower
+     */
+    public void complete(Flight flight, ClaudeResult result) {
+        flight.completedAtNanos = System.nanoTime();
+        flight.succeeded = result.isSuccess();
+        flight.future.complete(result);
+
+        if (flight.succeeded && windowNanos > 0) {
+            CompletableFuture.delayedExecutor(windowNanos, TimeUnit.NANOSECONDS)
+                    .execute(() -> flights.remove(flight.key, flight));
+        } else {
+            flights.remove(flight.key, flight);
+        }
+    }
+
+    /**
+     * Give up leading without a result; followers will make their own calls
+     */
+    public void abandon(Flight flight) {
+        abandoned.increment();
+        flights.remove(flight.key, flight);
+        flight.future.complete(null);
+    }
+
+    /**
+     * Register counters of shared, sharing and abandoned requests
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("intellibus.coalescing.leaders", leaders, LongAdder::sum)
+                .description("Upstream calls made on behalf of identical concurrent requests")
+                .register(registry);
+        FunctionCounter.builder("intellibus.coalescing.coalesced", coalesced, LongAdder::sum)
+                .description("Requests answered by another request's upstream call")
+                .register(registry);
+        FunctionCounter.builder("intellibus.coalescing.abandoned", abandoned, LongAdder::sum)
+                .description("Leaders that gave up without a result, sending their followers upstream")
+                .register(registry);
+    }
+
+    /**
+     * Coalescing counters
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("windowMs", TimeUnit.NANOSECONDS.toMillis(windowNanos));
+        stats.put("inFlight", flights.values().stream().filter(flight -> !flight.future.isDone()).count());
+        stats.put("leaders", leaders.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("abandoned", abandoned.sum());
+        return stats;
+    }
+
+    /**
+     * One shared upstream call, as seen by a leader or a follower
+     */
+    public static final class Flight {
+        private final String key;
+        private final CompletableFuture<ClaudeResult> future;
+        private boolean leader;
+        private volatile long completedAtNanos;
+        private volatile boolean succeeded;
+
+        private Flight(String key) {
+            this(key, new CompletableFuture<>());
+        }
+
+        private Flight(String key, CompletableFuture<ClaudeResult> future) {
+            this.key = key;
+            this.future = future;
+        }
+
+        public boolean isLeader() {
+            return leader;
+        }
+
+        /**
+         * Wait for the leader's result.
+         *
+         * @return the shared result, or null if the leader was abandoned and the caller should make its own call
+         */
+        public ClaudeResult await() throws InterruptedException {
+            try {
+                // Each follower waits on its own copy, so cancelling it leaves the shared call alone
+                return future.copy().get();
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+
+        private Flight follower() {
+            return new Flight(key, future);
+        }
+
+        private boolean isShareable(long now, long windowNanos) {
+            if (!future.isDone()) {
+                return true;
+            }
+            return succeeded && now - completedAtNanos <= windowNanos;
+        }
+    }
+}
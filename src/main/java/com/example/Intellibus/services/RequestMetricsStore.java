@@ -0,0 +1,311 @@
+package com.example.Intellibus.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.Intellibus.services.ClaudeAIService.RequestMetrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.VarHandle;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Fixed-capacity ring buffer of recent request metrics.
+ *
+ * Request IDs are derived from a monotonically increasing sequence number, and each
+ * sequence maps onto a fixed slot, so the slot doubles as the ID index: a lookup is a
+ * single array access, and old entries are evicted simply by being overwritten.
+ * IDs also carry a tag drawn at random when the store is created, so they stay unique
+ * across instances and restarts that persist metrics to the same database.
+ * Fields are kept in primitive arrays so memory use stays flat for the lifetime of the
+ * instance; {@link RequestMetrics} objects are only materialized on read.
+ */
+@Component
+@Slf4j
+public class RequestMetricsStore {
+
+    private static final long WRITING = -1L;
+
+    private static final byte FLAG_SUCCESS = 1;
+    private static final byte FLAG_CACHED = 2;
+    private static final byte FLAG_COALESCED = 4;
+
+    private final int capacity;
+    private final String idPrefix = "req_" + instanceTag() + "_";
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong recorded = new AtomicLong();
+    private volatile long clearedUpTo;
+    private volatile LongConsumer recordListener;
+
+    // Slot -> sequence of the record it holds (0 = empty, WRITING = being written)
+    private final AtomicLongArray slotSequences;
+    private final long[] requestEpochNanos;
+    private final long[] queueWaitNanos;
+    private final long[] apiCallNanos;
+    private final long[] firstTokenNanos;
+    private final long[] durationNanos;
+    private final int[] statusCodes;
+    private final int[] responseLengths;
+    private final int[] inputTokens;
+    private final int[] cacheCreationInputTokens;
+    private final int[] cacheReadInputTokens;
+    private final int[] outputTokens;
+    private final byte[] flags;
+    private final String[] models;
+    private final String[] errorMessages;
+
+    public RequestMetricsStore(@Value("${intellibus.metrics.capacity:4096}") int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("intellibus.metrics.capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.slotSequences = new AtomicLongArray(capacity);
+        this.requestEpochNanos = new long[capacity];
+        this.queueWaitNanos = new long[capacity];
+        this.apiCallNanos = new long[capacity];
+        this.firstTokenNanos = new long[capacity];
+        this.durationNanos = new long[capacity];
+        this.statusCodes = new int[capacity];
+        this.responseLengths = new int[capacity];
+        this.inputTokens = new int[capacity];
+        this.cacheCreationInputTokens = new int[capacity];
+        this.cacheReadInputTokens = new int[capacity];
+        this.outputTokens = new int[capacity];
+        this.flags = new byte[capacity];
+        this.models = new String[capacity];
+        this.errorMessages = new String[capacity];
+
+        log.info("Request metrics store initialized with capacity {}", capacity);
+    }
+
+    /**
+     * Reserve the sequence number for a new request
+     */
+    public long nextSequence() {
+        return sequence.incrementAndGet();
+    }
+
+    /**
+     * External request ID for a sequence number
+     */
+    public String requestId(long seq) {
+        return idPrefix + seq;
+    }
+
+    /**
+     * Sequence number for an external request ID, or -1 if the ID was not issued by this store
+     */
+    public long sequenceOf(String requestId) {
+        if (requestId == null || !requestId.startsWith(idPrefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(requestId, idPrefix.length(), requestId.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Record a completed request. If its slot already holds a newer request, which happens when a
+     * slow request finishes after the ring has wrapped, the record is discarded as already evicted.
+     *
+     * @param queueWaitNanos time spent queued for the upstream rate limit
+     * @param apiCallNanos upstream call time, or -1 if no upstream call was made
+     * @param firstTokenNanos time to the first streamed token, or -1 if the response was not streamed
+     * @param statusCode HTTP status of the upstream call, or 0 if unknown
+     */
+    public void record(long seq, Instant requestTime, long queueWaitNanos, long apiCallNanos, long firstTokenNanos,
+            long durationNanos, int statusCode, ClaudeResult result) {
+        int slot = slot(seq);
+        boolean success = result.isSuccess();
+        boolean cached = result.isCached();
+
+        // Seqlock-style publication: readers discard a slot whose sequence changes while they read it.
+        // Claiming the slot from an older sequence keeps a single writer per slot and never overwrites newer data.
+        long current;
+        do {
+            current = slotSequences.get(slot);
+            if (current == WRITING) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (current >= seq) {
+                recorded.incrementAndGet();
+                log.debug("Discarding metrics of request {}; its slot already holds a newer request", seq);
+                return;
+            }
+        } while (current == WRITING || !slotSequences.compareAndSet(slot, current, WRITING));
+        VarHandle.storeStoreFence();
+
+        this.requestEpochNanos[slot] = requestTime.getEpochSecond() * 1_000_000_000L + requestTime.getNano();
+        this.queueWaitNanos[slot] = queueWaitNanos;
+        this.apiCallNanos[slot] = apiCallNanos;
+        this.firstTokenNanos[slot] = firstTokenNanos;
+        this.durationNanos[slot] = durationNanos;
+        this.statusCodes[slot] = statusCode;
+        this.responseLengths[slot] = success && result.getText() != null ? result.getText().length() : 0;
+        this.inputTokens[slot] = result.getInputTokens();
+        this.cacheCreationInputTokens[slot] = result.getCacheCreationInputTokens();
+        this.cacheReadInputTokens[slot] = result.getCacheReadInputTokens();
+        this.outputTokens[slot] = result.getOutputTokens();
+        this.flags[slot] = (byte) ((success ? FLAG_SUCCESS : 0) | (cached ? FLAG_CACHED : 0)
+                | (result.isCoalesced() ? FLAG_COALESCED : 0));
+        this.models[slot] = result.getModel();
+        this.errorMessages[slot] = result.getErrorMessage();
+
+        slotSequences.set(slot, seq);
+        recorded.incrementAndGet();
+
+        LongConsumer listener = recordListener;
+        if (listener != null) {
+            listener.accept(seq);
+        }
+    }
+
+    /**
+     * Be told the sequence number of each record once it is readable. The listener runs on the
+     * recording thread, so it must only hand the sequence off.
+     */
+    public void setRecordListener(LongConsumer listener) {
+        this.recordListener = listener;
+    }
+
+    /**
+     * Metrics for a sequence number, or null if unknown or already evicted
+     */
+    public RequestMetrics get(long seq) {
+        return seq > 0 ? read(seq) : null;
+    }
+
+    /**
+     * Metrics for a request, or null if unknown or already evicted
+     */
+    public RequestMetrics get(String requestId) {
+        long seq = sequenceOf(requestId);
+        return seq > 0 ? read(seq) : null;
+    }
+
+    /**
+     * Visit the most recent records, newest first
+     *
+     * @param limit maximum number of records to visit
+     * @param beforeRequestId only visit records older than this request ID (null for the newest)
+     */
+    public void forEachRecent(int limit, String beforeRequestId, Consumer<RequestMetrics> consumer) {
+        long newest = sequence.get();
+        long before = sequenceOf(beforeRequestId);
+        long start = before > 0 ? Math.min(newest, before - 1) : newest;
+        long oldest = Math.max(newest - capacity, clearedUpTo);
+
+        int visited = 0;
+        for (long seq = start; seq > oldest && visited < limit; seq--) {
+            RequestMetrics metrics = read(seq);
+            if (metrics != null) {
+                consumer.accept(metrics);
+                visited++;
+            }
+        }
+    }
+
+    /**
+     * Number of records currently held
+     */
+    public int size() {
+        long newest = sequence.get();
+        long oldest = Math.max(newest - capacity, clearedUpTo);
+        int count = 0;
+        for (long seq = newest; seq > oldest; seq--) {
+            if (slotSequences.get(slot(seq)) == seq) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Total number of requests recorded since startup
+     */
+    public long getTotalRecorded() {
+        return recorded.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Forget every record made so far
+     */
+    public void clear() {
+        clearedUpTo = sequence.get();
+    }
+
+    private RequestMetrics read(long seq) {
+        if (seq <= clearedUpTo) {
+            return null;
+        }
+        int slot = slot(seq);
+        if (slotSequences.get(slot) != seq) {
+            return null;
+        }
+
+        long epochNanos = requestEpochNanos[slot];
+        long queueNanos = queueWaitNanos[slot];
+        long apiNanos = apiCallNanos[slot];
+        long ttftNanos = firstTokenNanos[slot];
+        long totalNanos = durationNanos[slot];
+        int statusCode = statusCodes[slot];
+        int responseLength = responseLengths[slot];
+        int tokensIn = inputTokens[slot];
+        int cacheWriteTokens = cacheCreationInputTokens[slot];
+        int cacheReadTokens = cacheReadInputTokens[slot];
+        int tokensOut = outputTokens[slot];
+        byte flag = flags[slot];
+        String model = models[slot];
+        String errorMessage = errorMessages[slot];
+
+        VarHandle.acquireFence();
+        if (slotSequences.get(slot) != seq) {
+            return null;
+        }
+
+        Instant requestTimestamp = Instant.ofEpochSecond(0, epochNanos);
+
+        RequestMetrics metrics = new RequestMetrics();
+        metrics.setRequestId(requestId(seq));
+        metrics.setModel(model);
+        metrics.setRequestTimestamp(requestTimestamp);
+        metrics.setResponseTimestamp(requestTimestamp.plusNanos(totalNanos));
+        metrics.setQueueWait(Duration.ofNanos(queueNanos));
+        metrics.setApiCallDuration(apiNanos >= 0 ? Duration.ofNanos(apiNanos) : null);
+        metrics.setTimeToFirstToken(ttftNanos >= 0 ? Duration.ofNanos(ttftNanos) : null);
+        metrics.setTotalProcessingDuration(Duration.ofNanos(totalNanos));
+        metrics.setStatusCode(statusCode);
+        metrics.setResponseLength(responseLength);
+        metrics.setInputTokens(tokensIn);
+        metrics.setCacheCreationInputTokens(cacheWriteTokens);
+        metrics.setCacheReadInputTokens(cacheReadTokens);
+        metrics.setOutputTokens(tokensOut);
+        metrics.setSuccess((flag & FLAG_SUCCESS) != 0);
+        metrics.setCached((flag & FLAG_CACHED) != 0);
+        metrics.setCoalesced((flag & FLAG_COALESCED) != 0);
+        metrics.setErrorMessage(errorMessage);
+        return metrics;
+    }
+
+    private int slot(long seq) {
+        return (int) Math.floorMod(seq, (long) capacity);
+    }
+
+    private static String instanceTag() {
+        return Long.toString(new SecureRandom().nextLong() >>> 23, 36);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.Intellibus.services;
+
+import org.springframework.stereotype.Component;
+
+import com.example.Intellibus.config.ResponseCacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed cache of Claude responses.
+ * Entries are keyed on a SHA-256 digest of every input that influences the completion,
+ * and evicted by size (W-TinyLFU) and time-to-live.
+ */
+@Component
+@Slf4j
+public class ResponseCache implements MeterBinder {
+
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    private final boolean enabled;
+    private final Cache<String, String> cache;
+
+    public ResponseCache(ResponseCacheProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTimeToLive())
+                .recordStats()
+                .build();
+
+        log.info("Response cache {} (maximumSize={}, timeToLive={})",
+                enabled ? "enabled" : "disabled", properties.getMaximumSize(), properties.getTimeToLive());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Build the cache key for a request
+     */
+    public String key(String model, String systemPrompt, double temperature, int maxTokens, String prompt) {
+        return key(model, systemPrompt, temperature, maxTokens, prompt, null);
+    }
+
+    /**
+     * Build the cache key for a request whose answer follows an output schema; the whole schema is
+     * part of the key so a changed schema never serves answers shaped by the old one
+     */
+    public String key(String model, String systemPrompt, double temperature, int maxTokens, String prompt,
+            OutputSchema outputSchema) {
+        return key(model, systemPrompt, temperature, maxTokens, null, prompt, outputSchema);
+    }
+
+    /**
+     * Build the cache key for a request whose prompt follows static instructions
+     */
+    public String key(String model, String systemPrompt, double temperature, int maxTokens, String instructions,
+            String prompt, OutputSchema outputSchema) {
+        MessageDigest digest = sha256();
+        update(digest, model);
+        update(digest, systemPrompt);
+        update(digest, Double.toString(temperature));
+        update(digest, Integer.toString(maxTokens));
+        update(digest, instructions);
+        update(digest, prompt);
+        update(digest, outputSchema != null ? outputSchema.getToolDefinition().getValue() : null);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Look up a cached response, or null on a miss
+     */
+    public String get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Store a successful response
+     */
+    public void put(String key, String response) {
+        cache.put(key, response);
+    }
+
+    /**
+     * Drop every cached response
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Register the cache's size, hit, miss and eviction meters
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "claude-responses");
+    }
+
+    /**
+     * Hit, miss and eviction counters
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) FIELD_SEPARATOR);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
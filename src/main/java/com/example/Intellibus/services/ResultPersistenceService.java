@@ -0,0 +1,444 @@
+package com.example.Intellibus.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.Intellibus.config.PersistenceProperties;
+import com.example.Intellibus.models.chat.ChatAnalysisResult;
+import com.example.Intellibus.models.report.ReportResponse;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
+import com.example.Intellibus.services.ClaudeAIService.RequestMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind persistence of analysis results, reports and request metrics.
+ *
+ * Callers only offer the object to a bounded in-memory buffer; a single writer thread drains it,
+ * serializes the payloads and inserts them with JDBC batches, one transaction per flush. While the
+ * database is unreachable the current batch is retried with exponential backoff and new writes
+ * accumulate in the buffer; once the buffer is full further writes are dropped and counted, so a
+ * database outage never blocks or fails a request. If the database rejects a batch, its rows are
+ * written again one kind and then one row at a time, so only the rows it rejects are dropped. Request metrics are buffered as sequence numbers
+ * and read back from the {@link RequestMetricsStore} at flush time.
+ */
+@Service
+@Slf4j
+public class ResultPersistenceService implements MeterBinder {
+
+    private static final String INSERT_SENTIMENT = "INSERT INTO sentiment_results "
+            + "(request_id, created_at, sentiment, score, confidence, processing_time_ms, payload) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_CHAT_ANALYSIS = "INSERT INTO chat_analysis_results "
+            + "(request_id, created_at, overall_sentiment, partial, processing_time_ms, payload) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_REPORT = "INSERT INTO reports "
+            + "(report_id, created_at, report_type, title, failed, processing_time_ms, payload) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_REQUEST_METRICS = "INSERT INTO request_metrics "
+            + "(request_id, requested_at, model, status_code, success, cached, coalesced, queue_wait_ms, api_call_ms, "
+            + "time_to_first_token_ms, total_ms, response_length, input_tokens, cache_creation_input_tokens, "
+            + "cache_read_input_tokens, output_tokens, error_message) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private static final int MAX_TITLE_LENGTH = 512;
+
+    private enum Kind { SENTIMENT, CHAT_ANALYSIS, REPORT, REQUEST_METRICS }
+
+    /**
+     * A buffered write; {@code value} is the result object, or the metrics sequence number
+     */
+    private record PendingWrite(Kind kind, Instant createdAt, Object value) {
+    }
+
+    /**
+     * Column values of a buffered write
+     */
+    private record Row(PendingWrite write, Object[] args) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RequestMetricsStore metricsStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final PersistenceProperties properties;
+    private final BlockingQueue<PendingWrite> buffer;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile long shutdownDeadline;
+    private volatile boolean schemaReady;
+    private volatile String lastError;
+
+    // Counters
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+
+    public ResultPersistenceService(PersistenceProperties properties) {
+        this.properties = properties;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, properties.getBufferCapacity()));
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        writer = Thread.ofPlatform().name("result-persistence").daemon().start(this::runWriter);
+        metricsStore.setRecordListener(seq -> offer(Kind.REQUEST_METRICS, seq));
+        log.info("Result persistence enabled (buffer {}, batches of up to {})",
+                properties.getBufferCapacity(), properties.getBatchSize());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        metricsStore.setRecordListener(null);
+        shutdownDeadline = System.nanoTime() + properties.getShutdownTimeout().toNanos();
+        running = false;
+        writer.interrupt();
+        writer.join(properties.getShutdownTimeout().toMillis());
+        if (!buffer.isEmpty()) {
+            log.warn("Result persistence stopped with {} writes still buffered", buffer.size());
+        }
+    }
+
+    public void saveSentiment(SentimentAnalysisResult result) {
+        offer(Kind.SENTIMENT, result);
+    }
+
+    public void saveChatAnalysis(ChatAnalysisResult result) {
+        offer(Kind.CHAT_ANALYSIS, result);
+    }
+
+    public void saveReport(ReportResponse report) {
+        offer(Kind.REPORT, report);
+    }
+
+    /**
+     * Register a gauge of the write buffer and counters of rows written and dropped
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("intellibus.persistence.buffered", buffer, Collection::size)
+                .description("Writes waiting for the database")
+                .register(registry);
+        FunctionCounter.builder("intellibus.persistence.written", written, LongAdder::sum)
+                .description("Rows written to the database")
+                .register(registry);
+        FunctionCounter.builder("intellibus.persistence.dropped", dropped, LongAdder::sum)
+                .description("Writes dropped because the buffer was full")
+                .register(registry);
+    }
+
+    /**
+     * Buffer counters and the last database error, if any
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("buffered", buffer.size());
+        stats.put("bufferCapacity", properties.getBufferCapacity());
+        stats.put("written", written.sum());
+        stats.put("droppedBufferFull", dropped.sum());
+        stats.put("rejectedByDatabase", rejected.sum());
+        stats.put("flushes", flushes.sum());
+        stats.put("failedFlushes", failedFlushes.sum());
+        stats.put("lastError", lastError);
+        return stats;
+    }
+
+    private void offer(Kind kind, Object value) {
+        if (!running || value == null) {
+            return;
+        }
+        if (!buffer.offer(new PendingWrite(kind, Instant.now(), value))) {
+            dropped.increment();
+        }
+    }
+
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(properties.getBatchSize());
+        long backoffMillis = 0;
+
+        while (running || !batch.isEmpty() || !buffer.isEmpty()) {
+            if (!running && System.nanoTime() - shutdownDeadline > 0) {
+                break;
+            }
+            try {
+                if (backoffMillis > 0) {
+                    Thread.sleep(running ? backoffMillis : Math.min(backoffMillis, remainingShutdownMillis()));
+                }
+                if (batch.isEmpty()) {
+                    PendingWrite first = buffer.poll(properties.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    // Give a trickle of writes a moment to form a batch
+                    if (running && buffer.size() < properties.getBatchSize() - 1) {
+                        Thread.sleep(properties.getFlushInterval().toMillis());
+                    }
+                }
+            } catch (InterruptedException e) {
+                // stop() cuts waits short; carry on flushing until the buffer is empty or the deadline passes
+            }
+            buffer.drainTo(batch, properties.getBatchSize() - batch.size());
+            if (batch.isEmpty()) {
+                continue;
+            }
+
+            if (flush(batch)) {
+                batch.clear();
+                backoffMillis = 0;
+            } else {
+                backoffMillis = Math.min(backoffMillis == 0 ? 100 : backoffMillis * 2,
+                        properties.getMaxRetryBackoff().toMillis());
+            }
+        }
+    }
+
+    private long remainingShutdownMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(shutdownDeadline - System.nanoTime()));
+    }
+
+    /**
+     * Insert a batch in one transaction. If the database rejects it, fall back to writing each kind
+     * and then each row separately, dropping only the rows it rejects. Rows written by the fallback
+     * are removed from the batch, so a retry after losing the database does not write them twice.
+     *
+     * @return true if the batch is done with (written, or rejected by the database and dropped),
+     *         false if it should be retried
+     */
+    private boolean flush(List<PendingWrite> batch) {
+        try {
+            if (!schemaReady) {
+                initializeSchema();
+            }
+
+            Map<Kind, List<Row>> rows = new LinkedHashMap<>();
+            for (PendingWrite write : batch) {
+                Object[] args = toRow(write);
+                if (args != null) {
+                    rows.computeIfAbsent(write.kind(), k -> new ArrayList<>()).add(new Row(write, args));
+                }
+            }
+
+            int count;
+            try {
+                transactionTemplate.executeWithoutResult(status -> rows.forEach(this::insert));
+                count = rows.values().stream().mapToInt(List::size).sum();
+                lastError = null;
+            } catch (TransientDataAccessException | DataAccessResourceFailureException e) {
+                throw e;
+            } catch (DataAccessException e) {
+                log.warn("Database rejected a batch of {} writes, writing them separately: {}",
+                        batch.size(), e.getMostSpecificCause().getMessage());
+                count = 0;
+                lastError = null;
+                for (Map.Entry<Kind, List<Row>> kindRows : rows.entrySet()) {
+                    count += insertSeparately(kindRows.getKey(), kindRows.getValue(), batch);
+                }
+            }
+
+            written.add(count);
+            flushes.increment();
+            log.debug("Persisted {} rows", count);
+            return true;
+
+        } catch (TransientDataAccessException | DataAccessResourceFailureException e) {
+            failedFlushes.increment();
+            lastError = e.getMostSpecificCause().getMessage();
+            log.warn("Database unavailable, keeping {} writes buffered ({} more queued): {}",
+                    batch.size(), buffer.size(), lastError);
+            return false;
+        } catch (DataAccessException e) {
+            failedFlushes.increment();
+            rejected.add(batch.size());
+            lastError = e.getMessage();
+            log.error("Database rejected a batch of {} writes, dropping it", batch.size(), e);
+            return true;
+        }
+    }
+
+    /**
+     * Insert the rows of one kind in their own transaction, or row by row if the database rejects them
+     *
+     * @return the number of rows written
+     */
+    private int insertSeparately(Kind kind, List<Row> rows, List<PendingWrite> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(kind, rows));
+            rows.forEach(row -> removeWrite(batch, row.write()));
+            return rows.size();
+        } catch (TransientDataAccessException | DataAccessResourceFailureException e) {
+            throw e;
+        } catch (DataAccessException e) {
+            if (rows.size() == 1) {
+                reject(rows.get(0), e);
+                removeWrite(batch, rows.get(0).write());
+                return 0;
+            }
+        }
+
+        int count = 0;
+        for (Row row : rows) {
+            try {
+                jdbcTemplate.update(insertFor(kind), row.args());
+                count++;
+            } catch (TransientDataAccessException | DataAccessResourceFailureException e) {
+                throw e;
+            } catch (DataAccessException e) {
+                reject(row, e);
+            }
+            removeWrite(batch, row.write());
+        }
+        return count;
+    }
+
+    private void insert(Kind kind, List<Row> rows) {
+        jdbcTemplate.batchUpdate(insertFor(kind), rows.stream().map(Row::args).toList());
+    }
+
+    private void reject(Row row, DataAccessException e) {
+        failedFlushes.increment();
+        rejected.increment();
+        lastError = e.getMostSpecificCause().getMessage();
+        log.error("Database rejected a {} write, dropping it: {}", row.write().kind(), lastError);
+    }
+
+    private static void removeWrite(List<PendingWrite> batch, PendingWrite write) {
+        for (Iterator<PendingWrite> it = batch.iterator(); it.hasNext();) {
+            if (it.next() == write) {
+                it.remove();
+                return;
+            }
+        }
+    }
+
+    private void initializeSchema() {
+        if (properties.isInitializeSchema()) {
+            ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("db/intellibus-schema.sql"));
+            populator.execute(jdbcTemplate.getDataSource());
+        }
+        schemaReady = true;
+    }
+
+    private static String insertFor(Kind kind) {
+        return switch (kind) {
+            case SENTIMENT -> INSERT_SENTIMENT;
+            case CHAT_ANALYSIS -> INSERT_CHAT_ANALYSIS;
+            case REPORT -> INSERT_REPORT;
+            case REQUEST_METRICS -> INSERT_REQUEST_METRICS;
+        };
+    }
+
+    /**
+     * Column values for a write, or null if there is nothing to write any more
+     */
+    private Object[] toRow(PendingWrite write) {
+        try {
+            return columns(write);
+        } catch (IllegalStateException e) {
+            rejected.increment();
+            lastError = e.getMessage();
+            log.error("Cannot persist a {} write, dropping it", write.kind(), e);
+            return null;
+        }
+    }
+
+    private Object[] columns(PendingWrite write) {
+        OffsetDateTime createdAt = write.createdAt().atOffset(ZoneOffset.UTC);
+        switch (write.kind()) {
+            case SENTIMENT: {
+                SentimentAnalysisResult result = (SentimentAnalysisResult) write.value();
+                return new Object[] { result.getRequestId(), createdAt, result.getSentiment(), result.getScore(),
+                        result.getConfidence(), result.getProcessingTimeMs(), toJson(result) };
+            }
+            case CHAT_ANALYSIS: {
+                ChatAnalysisResult result = (ChatAnalysisResult) write.value();
+                String sentiment = result.getOverallSentiment() != null ? result.getOverallSentiment().getSentiment() : null;
+                return new Object[] { result.getRequestId(), createdAt, sentiment, result.isPartial(),
+                        result.getProcessingTimeMs(), toJson(result) };
+            }
+            case REPORT: {
+                ReportResponse report = (ReportResponse) write.value();
+                String title = report.getTitle();
+                if (title != null && title.length() > MAX_TITLE_LENGTH) {
+                    title = title.substring(0, MAX_TITLE_LENGTH);
+                }
+                return new Object[] { report.getReportId(), createdAt, report.getReportType(), title,
+                        ReportGenerationService.isErrorReport(report), report.getProcessingTimeMs(), toJson(report) };
+            }
+            case REQUEST_METRICS: {
+                // Evicted from the ring buffer while the database was down
+                RequestMetrics metrics = metricsStore.get((Long) write.value());
+                if (metrics == null) {
+                    dropped.increment();
+                    return null;
+                }
+                return new Object[] { metrics.getRequestId(), metrics.getRequestTimestamp().atOffset(ZoneOffset.UTC),
+                        metrics.getModel(), metrics.getStatusCode(), metrics.isSuccess(), metrics.isCached(),
+                        metrics.isCoalesced(), millis(metrics.getQueueWait()), millis(metrics.getApiCallDuration()),
+                        millis(metrics.getTimeToFirstToken()), millis(metrics.getTotalProcessingDuration()),
+                        metrics.getResponseLength(), metrics.getInputTokens(), metrics.getCacheCreationInputTokens(),
+                        metrics.getCacheReadInputTokens(), metrics.getOutputTokens(), metrics.getErrorMessage() };
+            }
+            default:
+                throw new IllegalStateException("Unknown write kind " + write.kind());
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    private static Long millis(Duration duration) {
+        return duration != null ? duration.toMillis() : null;
+    }
+}
@@ -1,118 +1,483 @@
 package com.example.Intellibus.services;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.example.Intellibus.config.FastSentimentProperties;
 import com.example.Intellibus.models.sentiment.SentimentAnalysisRequest;
 import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
+import com.example.Intellibus.models.sentiment.SentimentMode;
+import com.example.Intellibus.services.GenerationOptions.UseCase;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
 @Service
 @Slf4j
 public class SentimentAnalysisService {
 
+    /**
+     * Shape of a single sentiment analysis; the service fills in the text, request ID and timing
+     */
+    static final OutputSchema SENTIMENT_SCHEMA = OutputSchema.forType(SentimentAnalysisResult.class)
+            .exclude("originalText", "requestId", "processingTimeMs")
+            .enumValues("sentiment", "POSITIVE", "NEGATIVE", "NEUTRAL", "MIXED")
+            .range("score", -1, 1)
+            .range("confidence", 0, 1)
+            .build("record_sentiment", "Record the sentiment analysis of the text");
+    
+    private static final String SENTIMENT_FIELDS =
+            "- sentiment: overall sentiment (POSITIVE, NEGATIVE, NEUTRAL, or MIXED)\n" +
+            "- score: a decimal score from -1.0 (extremely negative) to 1.0 (extremely positive)\n" +
+            "- confidence: a decimal between 0.0 and 1.0 indicating your confidence\n" +
+            "- dominant_emotions: array of emotions detected\n" +
+            "- key_phrases: array of notable phrases\n" +
+            "- insights: brief textual explanation";
+    
+    /**
+     * Instructions for a single text. They are the same for every request, so they go ahead of the text
+     * as a cacheable block.
+     */
+    static final String SENTIMENT_INSTRUCTIONS =
+            "Analyze the sentiment of the text that follows. Respond with ONLY a JSON object containing sentiment analysis details, " +
+            "with these exact fields:\n" + SENTIMENT_FIELDS;
+    
+    /**
+     * Instructions for a batch of texts, sent as a cacheable block ahead of the texts
+     */
+    static final String BATCH_INSTRUCTIONS =
+            "Analyze the sentiment of each of the texts that follow independently. " +
+            "Respond with ONLY a JSON array containing one object per text, with these exact fields:\n" +
+            "- index: the index of the text the object describes\n" + SENTIMENT_FIELDS;
+    
+    private static final OutputSchema BATCH_ITEM_SCHEMA = indexed(SENTIMENT_SCHEMA);
+    
+    static final OutputSchema BATCH_SCHEMA = OutputSchema.listOf("record_sentiments",
+            "Record the sentiment analysis of every text, one result per text", "results", BATCH_ITEM_SCHEMA);
+
     @Autowired
     private ClaudeAIService claudeAIService;
     
     @Autowired
     private ObjectMapper objectMapper;
+    
+    @Autowired
+    private StructuredOutputExtractor structuredOutputExtractor;
+    
+    @Autowired
+    private ResultPersistenceService resultPersistence;
+    
+    @Autowired
+    private ServiceMetrics serviceMetrics;
+    
+    @Autowired
+    private LexiconSentimentScorer lexiconScorer;
+    
+    @Autowired
+    private FastSentimentProperties fastPathProperties;
+    
+    @Value("${intellibus.sentiment.batch.max-items:25}")
+    private int batchMaxItems;
+    
+    @Value("${intellibus.sentiment.batch.max-input-tokens:8000}")
+    private int batchMaxInputTokens;
+    
+    @Value("${intellibus.sentiment.batch.max-output-tokens:4096}")
+    private int batchMaxOutputTokens;
+    
+    @Value("${intellibus.sentiment.batch.output-tokens-per-item:200}")
+    private int batchOutputTokensPerItem;
 
     /**
-     * Analyzes the sentiment of the provided text.
+     * Analyzes the sentiment of the provided text, locally or with Claude depending on the request's mode.
      * 
      * @param request The sentiment analysis request containing the text to analyze
      * @return A detailed sentiment analysis result
      */
     public SentimentAnalysisResult analyzeSentiment(SentimentAnalysisRequest request) {
+        SentimentAnalysisResult result = scoreLocally(request);
+        if (result == null) {
+            result = analyze(request);
+        }
+        resultPersistence.saveSentiment(result);
+        return result;
+    }
+    
+    /**
+     * The local lexicon result for a request, or null if it must be analyzed by Claude: its mode is
+     * llm, or it is auto and the local result is less confident than the threshold
+     */
+    SentimentAnalysisResult scoreLocally(SentimentAnalysisRequest request) {
+        SentimentMode mode = request.getMode() != null ? request.getMode() : fastPathProperties.getDefaultMode();
+        if (mode == SentimentMode.LLM) {
+            return null;
+        }
+        SentimentAnalysisResult result = lexiconScorer.analyze(request);
+        boolean escalated = mode == SentimentMode.AUTO
+                && result.getConfidence() < fastPathProperties.getConfidenceThreshold();
+        serviceMetrics.recordFastPath(escalated);
+        return escalated ? null : result;
+    }
+    
+    /**
+     * Analyze a single text without persisting the result, for callers that persist an enclosing result
+     */
+    SentimentAnalysisResult analyze(SentimentAnalysisRequest request) {
+        return analyze(request, null);
+    }
+    
+    /**
+     * Analyze a single text, recording a failure of the Claude call itself (as opposed to a reply that
+     * cannot be read) in callFailure when it is given
+     */
+    private SentimentAnalysisResult analyze(SentimentAnalysisRequest request, AtomicReference<Exception> callFailure) {
+        Instant startTime = Instant.now();
+        
         try {
             log.info("Analyzing sentiment for text: {}", request.getText().substring(0, Math.min(50, request.getText().length())) + "...");
             
             // Create a prompt for Claude that asks for structured sentiment analysis
-            String prompt = "Analyze the sentiment of the following text. Respond with ONLY a JSON object containing sentiment analysis details.\n\n" +
-                           "Text to analyze: \"" + request.getText() + "\"\n\n";
-            
-            // Add context if available
-            if (request.getContext() != null && !request.getContext().isEmpty()) {
-                prompt += "Context: " + request.getContext() + "\n\n";
-            }
-            
-            // Add source if available
-            if (request.getSource() != null && !request.getSource().isEmpty()) {
-                prompt += "Source: " + request.getSource() + "\n\n";
-            }
-            
-            prompt += "Remember to respond with ONLY a JSON object that has these exact fields:\n" +
-                     "- sentiment: overall sentiment (POSITIVE, NEGATIVE, NEUTRAL, or MIXED)\n" +
-                     "- score: a decimal score from -1.0 (extremely negative) to 1.0 (extremely positive)\n" +
-                     "- confidence: a decimal between 0.0 and 1.0 indicating your confidence\n" +
-                     "- dominant_emotions: array of emotions detected\n" +
-                     "- key_phrases: array of notable phrases\n" +
-                     "- insights: brief textual explanation";
+            String prompt = buildPrompt(request);
             
             // Call Claude API
-            String responseText = claudeAIService.generateResponse(prompt);
+            ClaudeResult claudeResult;
+            try {
+                claudeResult = claudeAIService.generate(prompt,
+                        GenerationOptions.structured(UseCase.SENTIMENT, SENTIMENT_SCHEMA, SENTIMENT_INSTRUCTIONS));
+                if (!claudeResult.isSuccess()) {
+                    throw new IllegalStateException(claudeResult.getErrorMessage());
+                }
+            } catch (RuntimeException e) {
+                if (callFailure != null) {
+                    callFailure.compareAndSet(null, e);
+                }
+                throw e;
+            }
+            String responseText = claudeResult.getText();
             
             // Log the raw response for debugging
             log.debug("Raw Claude response: {}", responseText);
             
-            // Extract the JSON from the response (in case Claude adds any text before/after the JSON)
-            String jsonStr = extractJsonFromResponse(responseText);
-            
-            // Log the extracted JSON for debugging
-            log.debug("Extracted JSON: {}", jsonStr);
-            
-            // Parse the JSON response
-            SentimentAnalysisResult result = objectMapper.readValue(jsonStr, SentimentAnalysisResult.class);
+            // Check the JSON in the response against the schema and bind it
+            SentimentAnalysisResult result = structuredOutputExtractor.extractObject(responseText, SENTIMENT_SCHEMA,
+                    SentimentAnalysisResult.class);
             
             // Set the original text for reference
             result.setOriginalText(request.getText());
+            result.setRequestId(claudeResult.getRequestId());
+            result.setProcessingTimeMs(Duration.between(startTime, Instant.now()).toMillis());
             
             log.info("Sentiment analysis complete. Result: {}", result.getSentiment());
+            serviceMetrics.recordSuccess(ServiceMetrics.SENTIMENT, Duration.between(startTime, Instant.now()).toNanos());
             return result;
             
         } catch (Exception e) {
             log.error("Error analyzing sentiment: {}", e.getMessage(), e);
-            SentimentAnalysisResult errorResult = new SentimentAnalysisResult();
-            errorResult.setSentiment("ERROR");
-            errorResult.setInsights("Error analyzing sentiment: " + e.getMessage());
-            return errorResult;
+            serviceMetrics.recordFailure(ServiceMetrics.SENTIMENT, Duration.between(startTime, Instant.now()).toNanos(), e);
+            return errorResult(e, startTime);
+        }
+    }
+    
+    /**
+     * Bind a sentiment analysis answered through the Message Batches API, or an error result if the
+     * request failed or its reply cannot be bound, and queue it for persistence. Batch turnaround is
+     * measured in hours, so these results stay out of the sentiment latency and health metrics.
+     *
+     * @param failure why the request produced no reply, or null if it did
+     */
+    SentimentAnalysisResult completeBulkResult(SentimentAnalysisRequest request, String responseText, String requestId,
+            String failure, Instant startTime) {
+        SentimentAnalysisResult result;
+        try {
+            if (failure != null) {
+                throw new IllegalStateException(failure);
+            }
+            result = structuredOutputExtractor.extractObject(responseText, SENTIMENT_SCHEMA, SentimentAnalysisResult.class);
+            result.setOriginalText(request.getText());
+            result.setRequestId(requestId);
+            result.setProcessingTimeMs(Duration.between(startTime, Instant.now()).toMillis());
+        } catch (Exception e) {
+            if (ServiceMetrics.isParseFailure(e)) {
+                serviceMetrics.recordParseFailure(ServiceMetrics.SENTIMENT);
+            }
+            result = errorResult(e, startTime);
+            result.setOriginalText(request.getText());
+        }
+        resultPersistence.saveSentiment(result);
+        return result;
+    }
+    
+    private static SentimentAnalysisResult errorResult(Exception e, Instant startTime) {
+        SentimentAnalysisResult errorResult = new SentimentAnalysisResult();
+        errorResult.setSentiment("ERROR");
+        errorResult.setInsights("Error analyzing sentiment: " + e.getMessage());
+        errorResult.setProcessingTimeMs(Duration.between(startTime, Instant.now()).toMillis());
+        return errorResult;
+    }
+    
+    /**
+     * Build the prompt carrying a single text; what to do with it is in {@link #SENTIMENT_INSTRUCTIONS}
+     */
+    String buildPrompt(SentimentAnalysisRequest request) {
+        String prompt = "Text to analyze: \"" + request.getText() + "\"\n\n";
+        
+        // Add context if available
+        if (request.getContext() != null && !request.getContext().isEmpty()) {
+            prompt += "Context: " + request.getContext() + "\n\n";
         }
+        
+        // Add source if available
+        if (request.getSource() != null && !request.getSource().isEmpty()) {
+            prompt += "Source: " + request.getSource() + "\n\n";
+        }
+        return prompt;
     }
     
     /**
      * Batch analyze sentiment for multiple texts.
      * 
+     * Texts the local scorer answers (per their mode) are not sent to Claude. The rest are packed
+     * into as few Claude calls as the token budget allows; each call asks for a JSON array of indexed
+     * results. Items whose result is missing from a reply or unparseable are retried individually through
+     * {@link #analyze(SentimentAnalysisRequest)}; if a call fails, its items get error results.
+     * 
      * @param requests List of sentiment analysis requests
      * @return List of sentiment analysis results
      */
     public SentimentAnalysisResult[] batchAnalyzeSentiment(SentimentAnalysisRequest[] requests) {
+        SentimentAnalysisResult[] results = batchAnalyze(requests, null);
+        for (SentimentAnalysisResult result : results) {
+            resultPersistence.saveSentiment(result);
+        }
+        return results;
+    }
+    
+    /**
+     * Batch analyze sentiment for a caller that retries the whole batch when Claude cannot be reached,
+     * such as the Kafka stream. Unlike {@link #batchAnalyzeSentiment}, a failed Claude call fails the
+     * batch: no further calls are made for it and nothing is persisted. Items whose reply could not be
+     * read still get ERROR results, since calling again would not change them.
+     *
+     * @throws IllegalStateException if a Claude call failed, with that failure as its cause
+     */
+    public SentimentAnalysisResult[] batchAnalyzeSentimentOrFail(SentimentAnalysisRequest[] requests) {
+        AtomicReference<Exception> callFailure = new AtomicReference<>();
+        SentimentAnalysisResult[] results = batchAnalyze(requests, callFailure);
+        if (callFailure.get() != null) {
+            throw new IllegalStateException("Claude call failed: " + callFailure.get().getMessage(), callFailure.get());
+        }
+        for (SentimentAnalysisResult result : results) {
+            resultPersistence.saveSentiment(result);
+        }
+        return results;
+    }
+    
+    /**
+     * Results for a batch, scoring locally what the local scorer answers
+     *
+     * @param callFailure if given, records the first failed Claude call, after which no further calls are made
+     */
+    private SentimentAnalysisResult[] batchAnalyze(SentimentAnalysisRequest[] requests,
+            AtomicReference<Exception> callFailure) {
         SentimentAnalysisResult[] results = new SentimentAnalysisResult[requests.length];
         
+        int[] pending = new int[requests.length];
+        int pendingCount = 0;
         for (int i = 0; i < requests.length; i++) {
-            results[i] = analyzeSentiment(requests[i]);
+            results[i] = scoreLocally(requests[i]);
+            if (results[i] == null) {
+                pending[pendingCount++] = i;
+            }
         }
         
+        if (pendingCount == requests.length) {
+            analyzeWithClaude(requests, results, callFailure);
+        } else if (pendingCount > 0) {
+            SentimentAnalysisRequest[] remaining = new SentimentAnalysisRequest[pendingCount];
+            for (int i = 0; i < pendingCount; i++) {
+                remaining[i] = requests[pending[i]];
+            }
+            SentimentAnalysisResult[] remainingResults = new SentimentAnalysisResult[pendingCount];
+            analyzeWithClaude(remaining, remainingResults, callFailure);
+            for (int i = 0; i < pendingCount; i++) {
+                results[pending[i]] = remainingResults[i];
+            }
+        }
         return results;
     }
     
     /**
-     * Extract JSON object from Claude's response text, which might contain additional text.
-     * 
-     * @param responseText The full response from Claude
-     * @return Just the JSON part of the response
+     * Fill in results for all requests with as few batched Claude calls as the token budget allows
      */
-    private String extractJsonFromResponse(String responseText) {
-        // Look for text that appears to be JSON (between curly braces)
-        int startIdx = responseText.indexOf('{');
-        int endIdx = responseText.lastIndexOf('}') + 1;
+    private void analyzeWithClaude(SentimentAnalysisRequest[] requests, SentimentAnalysisResult[] results,
+            AtomicReference<Exception> callFailure) {
+        int itemsPerCall = Math.max(1, Math.min(batchMaxItems, batchMaxOutputTokens / batchOutputTokensPerItem));
         
-        if (startIdx >= 0 && endIdx > startIdx) {
-            return responseText.substring(startIdx, endIdx);
+        int start = 0;
+        while (start < requests.length) {
+            if (callFailure != null && callFailure.get() != null) {
+                // The caller retries the whole batch, so the rest is not worth a call
+                Instant now = Instant.now();
+                for (int i = start; i < requests.length; i++) {
+                    results[i] = errorResult(callFailure.get(), now);
+                    results[i].setOriginalText(requests[i].getText());
+                }
+                return;
+            }
+            
+            // Grow the chunk until it hits the item limit or the input token budget
+            int end = start;
+            int chunkTokens = 0;
+            while (end < requests.length && end - start < itemsPerCall) {
+                int itemTokens = estimateTokens(requests[end]);
+                if (end > start && chunkTokens + itemTokens > batchMaxInputTokens) {
+                    break;
+                }
+                chunkTokens += itemTokens;
+                end++;
+            }
+            
+            if (end - start == 1) {
+                results[start] = analyze(requests[start], callFailure);
+            } else {
+                analyzeChunk(requests, start, end, results, callFailure);
+            }
+            start = end;
         }
+    }
+    
+    /**
+     * Analyze requests[start, end) with a single Claude call, falling back to individual calls for items
+     * missing from its reply. If the call itself fails every item gets an error result: retrying them one
+     * by one would multiply the calls during an outage or a run of rate limits.
+     */
+    private void analyzeChunk(SentimentAnalysisRequest[] requests, int start, int end, SentimentAnalysisResult[] results,
+            AtomicReference<Exception> callFailure) {
+        Instant startTime = Instant.now();
+        int count = end - start;
         
-        // If no JSON found, return the original text (will likely cause an error during parsing)
-        return responseText;
+        ClaudeResult claudeResult;
+        try {
+            log.info("Analyzing sentiment for a batch of {} texts", count);
+            
+            GenerationOptions options = GenerationOptions.structured(UseCase.SENTIMENT_BATCH, BATCH_SCHEMA, BATCH_INSTRUCTIONS);
+            options.setMaxTokens(batchOutputTokensPerItem * count);
+            options.setPriority(GenerationOptions.Priority.BULK);
+            
+            claudeResult = claudeAIService.generate(buildBatchPrompt(requests, start, end), options);
+            if (!claudeResult.isSuccess()) {
+                throw new IllegalStateException(claudeResult.getErrorMessage());
+            }
+        } catch (Exception e) {
+            log.error("Error analyzing sentiment batch of {} texts: {}", count, e.getMessage());
+            serviceMetrics.recordFailure(ServiceMetrics.SENTIMENT, Duration.between(startTime, Instant.now()).toNanos(), e);
+            if (callFailure != null) {
+                callFailure.compareAndSet(null, e);
+            }
+            for (int i = start; i < end; i++) {
+                results[i] = errorResult(e, startTime);
+                results[i].setOriginalText(requests[i].getText());
+            }
+            return;
+        }
+        
+        try {
+            log.debug("Raw Claude batch response: {}", claudeResult.getText());
+            
+            long processingTimeMs = Duration.between(startTime, Instant.now()).toMillis();
+            
+            // Items are small, so each is read as a tree and bound on its own: one bad item does not lose the rest
+            structuredOutputExtractor.forEachArrayElement(claudeResult.getText(), ObjectNode.class, itemNode -> {
+                if (!itemNode.has("index")) {
+                    return;
+                }
+                int index = itemNode.get("index").asInt(-1);
+                if (index < 0 || index >= count || results[start + index] != null) {
+                    return;
+                }
+                
+                try {
+                    ObjectNode item = (ObjectNode) structuredOutputExtractor.conform(itemNode, BATCH_ITEM_SCHEMA);
+                    item.remove("index");
+                    SentimentAnalysisResult result = objectMapper.treeToValue(item, SentimentAnalysisResult.class);
+                    if (result.getSentiment() == null) {
+                        return;
+                    }
+                    result.setOriginalText(requests[start + index].getText());
+                    result.setRequestId(claudeResult.getRequestId());
+                    result.setProcessingTimeMs(processingTimeMs);
+                    results[start + index] = result;
+                } catch (Exception e) {
+                    serviceMetrics.recordParseFailure(ServiceMetrics.SENTIMENT);
+                    log.warn("Could not parse batch sentiment item {}: {}", index, e.getMessage());
+                }
+            });
+        } catch (Exception e) {
+            // The reply could not be read at all; every item counts as missing from it
+            if (ServiceMetrics.isParseFailure(e)) {
+                serviceMetrics.recordParseFailure(ServiceMetrics.SENTIMENT);
+            }
+            log.error("Error reading sentiment batch reply: {}", e.getMessage(), e);
+        }
+        
+        // Retry what the reply did not answer
+        int retried = 0;
+        for (int i = start; i < end; i++) {
+            if (results[i] == null) {
+                results[i] = analyze(requests[i], callFailure);
+                retried++;
+            }
+        }
+        if (retried > 0) {
+            log.info("Retried {} of {} batch items individually", retried, count);
+        }
+    }
+    
+    /**
+     * Build the prompt carrying a batch of indexed texts; what to do with them is in {@link #BATCH_INSTRUCTIONS}
+     */
+    String buildBatchPrompt(SentimentAnalysisRequest[] requests, int start, int end) throws Exception {
+        ArrayNode items = objectMapper.createArrayNode();
+        for (int i = start; i < end; i++) {
+            SentimentAnalysisRequest request = requests[i];
+            ObjectNode item = items.addObject();
+            item.put("index", i - start);
+            item.put("text", request.getText());
+            if (request.getContext() != null && !request.getContext().isEmpty()) {
+                item.put("context", request.getContext());
+            }
+            if (request.getSource() != null && !request.getSource().isEmpty()) {
+                item.put("source", request.getSource());
+            }
+        }
+        
+        return "Texts to analyze (JSON array):\n" + objectMapper.writeValueAsString(items) + "\n";
+    }
+    
+    /**
+     * The schema of a batch item: a sentiment analysis plus the index of the text it describes
+     */
+    private static OutputSchema indexed(OutputSchema schema) {
+        ObjectNode item = schema.getSchema();
+        ((ObjectNode) item.get("properties")).putObject("index")
+                .put("type", "integer")
+                .put("description", "Index of the text the result describes");
+        ((ArrayNode) item.get("required")).add("index");
+        return OutputSchema.of(schema.getName(), schema.getDescription(), item);
+    }
+    
+    /**
+     * Token estimate for one request's share of a batch prompt
+     */
+    private static int estimateTokens(SentimentAnalysisRequest request) {
+        return TokenEstimator.approximate(request.getText()) + TokenEstimator.approximate(request.getContext())
+                + TokenEstimator.approximate(request.getSource()) + 16;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
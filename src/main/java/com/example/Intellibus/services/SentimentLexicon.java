@@ -0,0 +1,158 @@
+package com.example.Intellibus.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Word table for {@link LexiconSentimentScorer}: each word maps to a kind and a value.
+ *
+ * Words are keyed by a 64-bit hash of their lower-cased characters, which the scorer computes while
+ * it tokenizes, so lookups need no substrings. Keys, values and kinds live in parallel primitive
+ * arrays probed linearly; nothing is boxed. Two words sharing a 64-bit hash is possible in principle
+ * but negligible for a table of a few hundred entries.
+ */
+final class SentimentLexicon {
+
+    /** A word carrying sentiment; the value is its valence */
+    static final byte VALENCE = 1;
+    /** A word that flips the sentiment of words shortly after it */
+    static final byte NEGATOR = 2;
+    /** A word that scales the sentiment of words shortly after it; the value is the factor */
+    static final byte INTENSIFIER = 3;
+    /** A word after which the rest of the text outweighs what came before */
+    static final byte CONTRAST = 4;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private long[] keys;
+    private float[] values;
+    private byte[] kinds;
+    private int size;
+
+    SentimentLexicon(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+        keys = new long[capacity];
+        values = new float[capacity];
+        kinds = new byte[capacity];
+    }
+
+    /**
+     * Read {@code word<TAB>valence} lines; blank lines and lines starting with {@code #} are skipped
+     */
+    static SentimentLexicon load(InputStream in) throws IOException {
+        SentimentLexicon lexicon = new SentimentLexicon(512);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int tab = line.indexOf('\t');
+                if (tab < 0) {
+                    throw new IOException("Lexicon line is not word<TAB>valence: " + line);
+                }
+                lexicon.put(line.substring(0, tab).strip(), VALENCE, Float.parseFloat(line.substring(tab + 1).strip()));
+            }
+        }
+        return lexicon;
+    }
+
+    /**
+     * Hash state before the first character of a word
+     */
+    static long start() {
+        return FNV_OFFSET;
+    }
+
+    /**
+     * Hash state after adding one character, folded to lower case
+     */
+    static long extend(long hash, char c) {
+        return (hash ^ Character.toLowerCase(c)) * FNV_PRIME;
+    }
+
+    static long hash(CharSequence word) {
+        long hash = start();
+        for (int i = 0; i < word.length(); i++) {
+            hash = extend(hash, word.charAt(i));
+        }
+        return hash;
+    }
+
+    void put(String word, byte kind, float value) {
+        if (size * 2 >= keys.length) {
+            grow();
+        }
+        long key = key(hash(word));
+        int slot = slot(key);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            size++;
+        }
+        kinds[slot] = kind;
+        values[slot] = value;
+    }
+
+    /**
+     * Kind of the word with the given hash, or 0 if it is not in the table
+     */
+    byte kind(long hash) {
+        long key = key(hash);
+        int slot = slot(key);
+        return keys[slot] == key ? kinds[slot] : 0;
+    }
+
+    /**
+     * Value of the word with the given hash; only meaningful when {@link #kind} is not 0
+     */
+    float value(long hash) {
+        long key = key(hash);
+        int slot = slot(key);
+        return keys[slot] == key ? values[slot] : 0f;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Slot holding the key, or the empty slot where it would go
+     */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        float[] oldValues = values;
+        byte[] oldKinds = kinds;
+        keys = new long[oldKeys.length * 2];
+        values = new float[oldKeys.length * 2];
+        kinds = new byte[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                kinds[slot] = oldKinds[i];
+            }
+        }
+    }
+
+    /**
+     * Zero marks an empty slot, so a hash of zero is stored as one
+     */
+    private static long key(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+}
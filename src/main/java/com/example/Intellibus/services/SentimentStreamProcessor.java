@@ -0,0 +1,406 @@
+package com.example.Intellibus.services;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import com.example.Intellibus.config.SentimentStreamProperties;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisRequest;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scores a Kafka stream of sentiment requests in micro-batches.
+ *
+ * Each consumer thread buffers records until it has a full batch or the oldest record has waited
+ * the batch window, then hands the batch to {@link SentimentAnalysisService#batchAnalyzeSentimentOrFail}
+ * on a virtual thread while it keeps polling. Results are produced to the output topic keyed like
+ * their input, and offsets are committed only once the broker has acknowledged every result of the
+ * batch, so delivery is at least once. A batch whose Claude calls failed is rewound rather than
+ * produced, and the consumer backs off before trying it again. Partitions are paused while the
+ * buffer is full, while backing off, or while the rate limiter has a backlog of Claude calls, which
+ * keeps the consumer in its group without fetching more than it can score.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "intellibus.sentiment-stream", name = "enabled", havingValue = "true")
+public class SentimentStreamProcessor implements SmartLifecycle {
+
+    @Autowired
+    private SentimentAnalysisService sentimentService;
+    
+    @Autowired
+    private UpstreamGovernor upstreamGovernor;
+    
+    @Autowired
+    private ConsumerFactory<String, String> consumerFactory;
+    
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private final SentimentStreamProperties properties;
+    private final ExecutorService batchExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sentiment-batch-", 0).factory());
+    private final List<Worker> workers = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+    
+    // Counters
+    private final LongAdder recordsConsumed = new LongAdder();
+    private final LongAdder recordsProduced = new LongAdder();
+    private final LongAdder malformedRecords = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedRecords = new LongAdder();
+    private final LongAdder fullBatches = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder pauses = new LongAdder();
+    
+    public SentimentStreamProcessor(SentimentStreamProperties properties) {
+        this.properties = properties;
+    }
+    
+    @Override
+    public void start() {
+        running = true;
+        for (int i = 0; i < properties.getConcurrency(); i++) {
+            Worker worker = new Worker(i);
+            workers.add(worker);
+            worker.thread.start();
+        }
+        log.info("Sentiment stream processor started: {} -> {} ({} consumers, batches of up to {} within {}ms)",
+                properties.getInputTopic(), properties.getOutputTopic(), properties.getConcurrency(),
+                properties.getMaxBatchSize(), properties.getMaxBatchWait().toMillis());
+    }
+    
+    @Override
+    public void stop() {
+        running = false;
+        workers.forEach(worker -> worker.consumer.wakeup());
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join(properties.getSendTimeout().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workers.clear();
+        batchExecutor.shutdown();
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    /**
+     * Throughput counters, batch fill ratio, consumer lag and pause state
+     */
+    public Map<String, Object> getStats() {
+        long batchCount = batches.sum();
+        long lag = 0;
+        int paused = 0;
+        for (Worker worker : workers) {
+            lag += worker.lag;
+            paused += worker.paused ? 1 : 0;
+        }
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("consumers", workers.size());
+        stats.put("pausedConsumers", paused);
+        stats.put("consumerLag", lag);
+        stats.put("recordsConsumed", recordsConsumed.sum());
+        stats.put("recordsProduced", recordsProduced.sum());
+        stats.put("malformedRecords", malformedRecords.sum());
+        stats.put("batches", batchCount);
+        stats.put("fullBatches", fullBatches.sum());
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("maxBatchSize", properties.getMaxBatchSize());
+        stats.put("averageBatchSize", batchCount > 0 ? (double) batchedRecords.sum() / batchCount : 0.0);
+        stats.put("batchFillRatio", batchCount > 0
+                ? (double) batchedRecords.sum() / (batchCount * properties.getMaxBatchSize()) : 0.0);
+        stats.put("pauses", pauses.sum());
+        return stats;
+    }
+    
+    /**
+     * Score the requests of a batch. Malformed records get an ERROR result so every input has an output.
+     */
+    private SentimentAnalysisResult[] score(List<ConsumerRecord<String, String>> records) {
+        SentimentAnalysisResult[] results = new SentimentAnalysisResult[records.size()];
+        List<SentimentAnalysisRequest> requests = new ArrayList<>(records.size());
+        int[] positions = new int[records.size()];
+        
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                SentimentAnalysisRequest request = objectMapper.readValue(records.get(i).value(), SentimentAnalysisRequest.class);
+                if (request.getText() == null || request.getText().isBlank()) {
+                    throw new IllegalArgumentException("text is required");
+                }
+                positions[requests.size()] = i;
+                requests.add(request);
+            } catch (Exception e) {
+                malformedRecords.increment();
+                SentimentAnalysisResult error = new SentimentAnalysisResult();
+                error.setSentiment("ERROR");
+                error.setInsights("Malformed sentiment request: " + e.getMessage());
+                results[i] = error;
+            }
+        }
+        
+        if (!requests.isEmpty()) {
+            SentimentAnalysisResult[] scored =
+                    sentimentService.batchAnalyzeSentimentOrFail(requests.toArray(new SentimentAnalysisRequest[0]));
+            for (int i = 0; i < scored.length; i++) {
+                results[positions[i]] = scored[i];
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * One consumer and its poll loop; all consumer calls happen on the worker's own thread
+     */
+    private final class Worker implements Runnable, ConsumerRebalanceListener {
+        
+        private final Consumer<String, String> consumer;
+        private final Thread thread;
+        private final List<ConsumerRecord<String, String>> buffer = new ArrayList<>();
+        private long bufferStartNanos;
+        private List<ConsumerRecord<String, String>> inFlight;
+        private CompletableFuture<SentimentAnalysisResult[]> inFlightResults;
+        private int consecutiveFailures;
+        private long retryAtNanos;
+        private volatile boolean paused;
+        private volatile long lag;
+        
+        Worker(int index) {
+            Properties overrides = new Properties();
+            overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+            overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, properties.getMaxBatchSize());
+            this.consumer = consumerFactory.createConsumer(properties.getGroup(), "sentiment-stream", "-" + index, overrides);
+            this.thread = Thread.ofPlatform().name("sentiment-stream-" + index).unstarted(this);
+        }
+        
+        @Override
+        public void run() {
+            try {
+                consumer.subscribe(List.of(properties.getInputTopic()), this);
+                while (running) {
+                    ConsumerRecords<String, String> records = consumer.poll(properties.getPollTimeout());
+                    for (ConsumerRecord<String, String> record : records) {
+                        if (buffer.isEmpty()) {
+                            bufferStartNanos = System.nanoTime();
+                        }
+                        buffer.add(record);
+                    }
+                    recordsConsumed.add(records.count());
+                    updateLag();
+                    
+                    if (inFlight != null && inFlightResults.isDone()) {
+                        finishBatch();
+                    }
+                    if (inFlight == null && !backingOff() && batchReady()) {
+                        startBatch();
+                    }
+                    updatePause();
+                }
+            } catch (WakeupException e) {
+                // Woken up by stop()
+            } catch (Exception e) {
+                log.error("Sentiment stream consumer failed", e);
+            } finally {
+                awaitBatch();
+                consumer.close();
+            }
+        }
+        
+        private boolean backingOff() {
+            return consecutiveFailures > 0 && System.nanoTime() - retryAtNanos < 0;
+        }
+        
+        private boolean batchReady() {
+            return buffer.size() >= properties.getMaxBatchSize() || (!buffer.isEmpty()
+                    && System.nanoTime() - bufferStartNanos >= properties.getMaxBatchWait().toNanos());
+        }
+        
+        private void startBatch() {
+            int size = Math.min(buffer.size(), properties.getMaxBatchSize());
+            inFlight = new ArrayList<>(buffer.subList(0, size));
+            buffer.subList(0, size).clear();
+            bufferStartNanos = System.nanoTime();
+            
+            batches.increment();
+            batchedRecords.add(size);
+            if (size == properties.getMaxBatchSize()) {
+                fullBatches.increment();
+            }
+            
+            List<ConsumerRecord<String, String>> batch = inFlight;
+            inFlightResults = CompletableFuture.supplyAsync(() -> score(batch), batchExecutor);
+        }
+        
+        /**
+         * Produce the results of the finished batch and commit its offsets once all are acknowledged.
+         * If scoring or producing failed, rewind so the batch is consumed again after a backoff.
+         */
+        private void finishBatch() {
+            List<ConsumerRecord<String, String>> batch = inFlight;
+            inFlight = null;
+            
+            try {
+                SentimentAnalysisResult[] results = inFlightResults.join();
+                List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    ConsumerRecord<String, String> record = batch.get(i);
+                    ProducerRecord<String, String> output = new ProducerRecord<>(properties.getOutputTopic(), null,
+                            record.key(), objectMapper.writeValueAsString(results[i]), record.headers());
+                    sends.add(kafkaTemplate.send(output));
+                }
+                CompletableFuture.allOf(sends.toArray(new CompletableFuture[0]))
+                        .get(properties.getSendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+                
+                consumer.commitSync(nextOffsets(batch));
+                recordsProduced.add(batch.size());
+                consecutiveFailures = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rewind(batch);
+            } catch (Exception e) {
+                failedBatches.increment();
+                long backoffMillis = backoff(++consecutiveFailures);
+                retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+                log.error("Sentiment batch of {} records failed, rewinding to consume it again in {}ms",
+                        batch.size(), backoffMillis, e);
+                rewind(batch);
+            }
+        }
+        
+        /**
+         * Exponential backoff after the given number of consecutive failed batches
+         */
+        private long backoff(int failures) {
+            long initial = properties.getRetryBackoff().toMillis();
+            long max = properties.getMaxRetryBackoff().toMillis();
+            return Math.min(max, initial << Math.min(failures - 1, 20));
+        }
+        
+        /**
+         * Seek each partition of the batch back to its first record and drop later buffered records,
+         * which will be fetched again in order
+         */
+        private void rewind(List<ConsumerRecord<String, String>> batch) {
+            Map<TopicPartition, Long> firstOffsets = new HashMap<>();
+            for (ConsumerRecord<String, String> record : batch) {
+                firstOffsets.merge(new TopicPartition(record.topic(), record.partition()), record.offset(), Math::min);
+            }
+            buffer.removeIf(record -> firstOffsets.containsKey(new TopicPartition(record.topic(), record.partition())));
+            firstOffsets.forEach((partition, offset) -> {
+                if (consumer.assignment().contains(partition)) {
+                    consumer.seek(partition, offset);
+                }
+            });
+        }
+        
+        private Map<TopicPartition, OffsetAndMetadata> nextOffsets(List<ConsumerRecord<String, String>> batch) {
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            for (ConsumerRecord<String, String> record : batch) {
+                offsets.merge(new TopicPartition(record.topic(), record.partition()),
+                        new OffsetAndMetadata(record.offset() + 1),
+                        (a, b) -> a.offset() >= b.offset() ? a : b);
+            }
+            return offsets;
+        }
+        
+        /**
+         * Pause while the next batch is already buffered, while backing off after a failed batch,
+         * or while Claude calls are backing up in the rate limiter
+         */
+        private void updatePause() {
+            int queueDepth = upstreamGovernor.getQueueDepth();
+            boolean backlogged = paused
+                    ? queueDepth > properties.getPauseQueueDepth() / 2
+                    : queueDepth >= properties.getPauseQueueDepth();
+            boolean shouldPause = buffer.size() >= properties.getMaxBatchSize() || backingOff() || backlogged;
+            
+            if (shouldPause && !paused) {
+                consumer.pause(consumer.assignment());
+                paused = true;
+                pauses.increment();
+                log.debug("Paused sentiment stream partitions (buffered {}, rate limiter queue {})", buffer.size(), queueDepth);
+            } else if (!shouldPause && paused) {
+                consumer.resume(consumer.paused());
+                paused = false;
+                log.debug("Resumed sentiment stream partitions");
+            }
+        }
+        
+        private void updateLag() {
+            long total = 0;
+            for (TopicPartition partition : consumer.assignment()) {
+                total += consumer.currentLag(partition).orElse(0);
+            }
+            lag = total + buffer.size() + (inFlight != null ? inFlight.size() : 0);
+        }
+        
+        /**
+         * Finish the batch in flight, if any, before partitions move or the consumer closes
+         */
+        private void awaitBatch() {
+            if (inFlight == null) {
+                return;
+            }
+            try {
+                inFlightResults.get(properties.getSendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+                finishBatch();
+            } catch (Exception e) {
+                log.warn("Abandoning in-flight sentiment batch of {} records; it will be consumed again", inFlight.size());
+                inFlight = null;
+            }
+        }
+        
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            awaitBatch();
+            buffer.removeIf(record -> partitions.contains(new TopicPartition(record.topic(), record.partition())));
+        }
+        
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            if (paused) {
+                consumer.pause(partitions);
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.Intellibus.services;
+
+import org.springframework.stereotype.Component;
+
+import com.example.Intellibus.config.HealthProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instrumentation shared by the services, and the health status derived from it.
+ *
+ * Latencies are recorded in timers that keep p50/p99/p999 in HDR-style histograms and publish
+ * histogram buckets, which is what Prometheus scrapes; outcomes, tokens and parse failures are
+ * counters. Each service
+ * also keeps its most recent outcomes, and its status is computed from that error rate and from
+ * the p99 of its latency timer.
+ */
+@Component
+public class ServiceMetrics {
+
+    public static final String CLAUDE = "claude";
+    public static final String SENTIMENT = "sentiment";
+    public static final String CHAT = "chat";
+    public static final String REPORT = "report";
+
+    private static final double[] PERCENTILES = { 0.5, 0.99, 0.999 };
+
+    /**
+     * Health of one service
+     */
+    public enum Status {
+        UP, DEGRADED, DOWN
+    }
+
+    private final MeterRegistry registry;
+    private final HealthProperties properties;
+    private final Map<String, OutcomeWindow> windows = new ConcurrentHashMap<>();
+
+    public ServiceMetrics(MeterRegistry registry, HealthProperties properties) {
+        this.registry = registry;
+        this.properties = properties;
+    }
+
+    /**
+     * Record one {@link ClaudeAIService} request: upstream, queue and first-token latency, tokens (including
+     * those read from and written to the prompt cache) and outcome
+     *
+     * @param apiCallNanos time waiting on the API, or -1 if the API was not called
+     * @param firstTokenNanos time to the first streamed token, or -1 if not streamed
+     */
+    public void recordClaudeCall(ClaudeResult result, long queueWaitNanos, long apiCallNanos, long firstTokenNanos,
+            long durationNanos, int statusCode) {
+        String source = result.isCached() ? "cache" : result.isCoalesced() ? "coalesced" : "upstream";
+        String outcome = outcome(result.isSuccess());
+        Counter.builder("intellibus.claude.requests")
+                .description("Claude requests by where the response came from")
+                .tags("source", source, "status", Integer.toString(statusCode), "outcome", outcome)
+                .register(registry)
+                .increment();
+
+        if (apiCallNanos >= 0) {
+            latencyTimer("intellibus.claude.api.latency", "Time waiting on the Claude API")
+                    .tags("outcome", outcome)
+                    .register(registry)
+                    .record(apiCallNanos, TimeUnit.NANOSECONDS);
+        }
+        if ("upstream".equals(source)) {
+            latencyTimer("intellibus.claude.queue.wait", "Time queued for the upstream rate limit")
+                    .register(registry)
+                    .record(queueWaitNanos, TimeUnit.NANOSECONDS);
+        }
+        if (firstTokenNanos >= 0) {
+            latencyTimer("intellibus.claude.first.token", "Time to the first streamed token")
+                    .register(registry)
+                    .record(firstTokenNanos, TimeUnit.NANOSECONDS);
+        }
+
+        String model = result.getModel() != null ? result.getModel() : "unknown";
+        if (result.getInputTokens() > 0) {
+            tokenCounter("input", model).increment(result.getInputTokens());
+        }
+        if (result.getOutputTokens() > 0) {
+            tokenCounter("output", model).increment(result.getOutputTokens());
+        }
+        if (result.getCacheReadInputTokens() > 0) {
+            tokenCounter("cache_read", model).increment(result.getCacheReadInputTokens());
+        }
+        if (result.getCacheCreationInputTokens() > 0) {
+            tokenCounter("cache_creation", model).increment(result.getCacheCreationInputTokens());
+        }
+
+        // Cache hits say nothing about the API, and prompts rejected as too large never reached it
+        if ("upstream".equals(source) && statusCode != 413) {
+            recordOutcome(CLAUDE, result.isSuccess(), durationNanos);
+        }
+    }
+
+    /**
+     * Record a successful operation of a service
+     */
+    public void recordSuccess(String service, long durationNanos) {
+        recordOutcome(service, true, durationNanos);
+    }
+
+    /**
+     * Record a failed operation of a service, counting it as a parse failure if Claude's output did not bind
+     */
+    public void recordFailure(String service, long durationNanos, Throwable cause) {
+        recordOutcome(service, false, durationNanos);
+        if (isParseFailure(cause)) {
+            recordParseFailure(service);
+        }
+    }
+
+    /**
+     * Count a Claude response whose structured output could not be read
+     */
+    public void recordParseFailure(String service) {
+        Counter.builder("intellibus.parse.failures")
+                .description("Claude responses whose JSON could not be extracted or bound")
+                .tag("service", service)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Count a sentiment request scored by the local lexicon, either answered locally or escalated to Claude
+     */
+    public void recordFastPath(boolean escalated) {
+        Counter.builder("intellibus.sentiment.fast.path")
+                .description("Sentiment requests scored locally, by whether they were escalated to Claude")
+                .tag("outcome", escalated ? "escalated" : "answered")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Count items of a bulk job, by service and outcome (local, succeeded or failed)
+     */
+    public void recordBulkItems(String service, String outcome, int count) {
+        Counter.builder("intellibus.bulk.items")
+                .description("Items of bulk jobs run through the Message Batches API")
+                .tag("service", service)
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment(count);
+    }
+
+    /**
+     * Health of a service from its recent error rate and p99 latency
+     */
+    public Status getStatus(String service) {
+        OutcomeWindow window = windows.get(service);
+        if (window == null) {
+            return Status.UP;
+        }
+        long[] counts = window.counts();
+        if (counts[0] >= properties.getMinimumRequests()) {
+            double errorRate = (double) counts[1] / counts[0];
+            if (errorRate >= properties.getDownErrorRate()) {
+                return Status.DOWN;
+            }
+            if (errorRate >= properties.getDegradedErrorRate()) {
+                return Status.DEGRADED;
+            }
+        }
+        double p99Millis = percentileMillis(service, 0.99);
+        return p99Millis > properties.getSlowP99().toMillis() ? Status.DEGRADED : Status.UP;
+    }
+
+    /**
+     * Recent error rate and latency percentiles of a service
+     */
+    public Map<String, Object> getDetails(String service) {
+        OutcomeWindow window = windows.get(service);
+        long[] counts = window != null ? window.counts() : new long[2];
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("recentRequests", counts[0]);
+        details.put("recentErrorRate", counts[0] > 0 ? (double) counts[1] / counts[0] : 0.0);
+        details.put("p50Ms", Math.round(percentileMillis(service, 0.5)));
+        details.put("p99Ms", Math.round(percentileMillis(service, 0.99)));
+        details.put("p999Ms", Math.round(percentileMillis(service, 0.999)));
+        return details;
+    }
+
+    /**
+     * Whether a failure came from Claude output that was not valid or bindable JSON
+     */
+    static boolean isParseFailure(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JsonProcessingException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private void recordOutcome(String service, boolean success, long durationNanos) {
+        serviceTimer(service).record(durationNanos, TimeUnit.NANOSECONDS);
+        Counter.builder("intellibus.service.requests")
+                .description("Service operations by outcome")
+                .tags("service", service, "outcome", outcome(success))
+                .register(registry)
+                .increment();
+        windows.computeIfAbsent(service, key -> new OutcomeWindow(properties.getWindow())).add(success);
+    }
+
+    private double percentileMillis(String service, double percentile) {
+        for (ValueAtPercentile value : serviceTimer(service).takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0;
+    }
+
+    private Timer serviceTimer(String service) {
+        return latencyTimer("intellibus.service.latency", "End-to-end latency of service operations")
+                .tag("service", service)
+                .register(registry);
+    }
+
+    private Counter tokenCounter(String direction, String model) {
+        return Counter.builder("intellibus.claude.tokens")
+                .description("Tokens reported by the Claude API")
+                .baseUnit("tokens")
+                .tags("direction", direction, "model", model)
+                .register(registry);
+    }
+
+    private static Timer.Builder latencyTimer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram();
+    }
+
+    private static String outcome(boolean success) {
+        return success ? "success" : "error";
+    }
+
+    /**
+     * Ring buffer of a service's most recent outcomes
+     */
+    private static final class OutcomeWindow {
+        private final boolean[] failures;
+        private int next;
+        private int size;
+        private int failureCount;
+
+        OutcomeWindow(int capacity) {
+            this.failures = new boolean[Math.max(1, capacity)];
+        }
+
+        synchronized void add(boolean success) {
+            if (size == failures.length) {
+                if (failures[next]) {
+                    failureCount--;
+                }
+            } else {
+                size++;
+            }
+            failures[next] = !success;
+            if (!success) {
+                failureCount++;
+            }
+            next = (next + 1) % failures.length;
+        }
+
+        /**
+         * Outcomes held and how many of them failed
+         */
+        synchronized long[] counts() {
+            return new long[] { size, failureCount };
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.Intellibus.services;
+
+import java.io.IOException;
+
+/**
+ * Receives text deltas from a streamed Claude response
+ */
+@FunctionalInterface
+public interface StreamListener {
+
+    /**
+     * Called for every text delta, in order. Throwing aborts the upstream request.
+     */
+    void onDelta(String text) throws IOException;
+}
@@ -0,0 +1,142 @@
+package com.example.Intellibus.services;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Binds the JSON embedded in Claude's reply text straight into a target type.
+ *
+ * Replies may wrap the JSON in prose or a fenced code block. The text is scanned for the first
+ * brace that opens a JSON object (one followed by a quoted field name or by the closing brace),
+ * and a streaming parser binds from there, stopping at the end of that balanced value. Braces in
+ * prose are skipped, anything after the value is never read, and no substring of the reply is made.
+ * Replies to calls made with an {@link OutputSchema} are checked and repaired against the schema
+ * before binding.
+ */
+@Component
+@Slf4j
+public class StructuredOutputExtractor {
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public StructuredOutputExtractor(ObjectMapper objectMapper) {
+        // Model output is loosely specified: extra fields are ignored and a lone value fills a list
+        this.objectMapper = objectMapper.copy()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
+    }
+
+    /**
+     * Bind the first JSON object in the text to the given type
+     *
+     * @throws IOException if the text holds no JSON object or it does not bind
+     */
+    public <T> T extractObject(String text, Class<T> type) throws IOException {
+        int start = findStart(text, '{', 0);
+        if (start < 0) {
+            throw new JsonParseException(null, "No JSON object found in response");
+        }
+        try (JsonParser parser = parserAt(text, start)) {
+            return objectMapper.readValue(parser, type);
+        }
+    }
+
+    /**
+     * Bind the first JSON object in the text to the given type after conforming it to the schema
+     *
+     * @throws IOException if the text holds no JSON object, it does not match the schema even after
+     *         repair, or it does not bind
+     */
+    public <T> T extractObject(String text, OutputSchema schema, Class<T> type) throws IOException {
+        int start = findStart(text, '{', 0);
+        if (start < 0) {
+            throw new JsonParseException(null, "No JSON object found in response");
+        }
+        JsonNode tree;
+        try (JsonParser parser = parserAt(text, start)) {
+            tree = objectMapper.readTree(parser);
+        }
+        return objectMapper.treeToValue(conform(tree, schema), type);
+    }
+
+    /**
+     * Conform a parsed reply to the schema, logging any repairs made
+     *
+     * @throws IOException if the reply does not match the schema even after repair
+     */
+    public JsonNode conform(JsonNode tree, OutputSchema schema) throws IOException {
+        List<String> repairs = new ArrayList<>();
+        JsonNode conformed = schema.conform(tree, repairs);
+        if (!repairs.isEmpty()) {
+            log.debug("Repaired {} reply: {}", schema.getName(), repairs);
+        }
+        return conformed;
+    }
+
+    /**
+     * Bind each element of the first JSON array of objects in the text to the given type,
+     * passing them to the consumer as they are parsed
+     *
+     * @throws IOException if the text holds no JSON array of objects or an element does not bind
+     */
+    public <T> void forEachArrayElement(String text, Class<T> elementType, Consumer<? super T> consumer)
+            throws IOException {
+        int start = findStart(text, '[', 0);
+        if (start < 0) {
+            throw new JsonParseException(null, "No JSON array found in response");
+        }
+        try (JsonParser parser = parserAt(text, start)) {
+            parser.nextToken();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() == null) {
+                    throw new JsonParseException(parser, "Unexpected end of JSON array");
+                }
+                consumer.accept(objectMapper.readValue(parser, elementType));
+            }
+        }
+    }
+
+    /**
+     * Index of the first {@code open} character at or after {@code from} that starts a JSON value:
+     * objects must continue with a field name or close, arrays with an object or close
+     */
+    static int findStart(String text, char open, int from) {
+        char expected = open == '{' ? '"' : '{';
+        char close = open == '{' ? '}' : ']';
+        for (int i = text.indexOf(open, from); i >= 0; i = text.indexOf(open, i + 1)) {
+            int next = i + 1;
+            while (next < text.length() && Character.isWhitespace(text.charAt(next))) {
+                next++;
+            }
+            if (next < text.length() && (text.charAt(next) == expected || text.charAt(next) == close)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parser positioned at the given offset, reading the text in place
+     */
+    private JsonParser parserAt(String text, int offset) throws IOException {
+        StringReader reader = new StringReader(text);
+        reader.skip(offset);
+        return objectMapper.getFactory().createParser(reader);
+    }
+}
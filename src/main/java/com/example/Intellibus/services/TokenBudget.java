@@ -0,0 +1,207 @@
+package com.example.Intellibus.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.Intellibus.config.TokenBudgetProperties;
+import com.example.Intellibus.services.GenerationOptions.UseCase;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token budgets for Claude calls.
+ *
+ * Every call gets a max_tokens sized for its {@link UseCase} instead of one global default, and
+ * its prompt is estimated up front so a prompt that cannot fit the context window is rejected
+ * before it costs an API call. After each call the estimate is compared with the usage the API
+ * reports: the gap calibrates the {@link TokenEstimator}, and per use case the service tracks
+ * estimation error, output budget use and how often responses were cut off at max_tokens.
+ */
+@Component
+@Slf4j
+public class TokenBudget {
+
+    /** Tokens the Messages API adds around the system prompt and user message */
+    private static final int REQUEST_OVERHEAD_TOKENS = 10;
+
+    /** Tokens of the tool-use system prompt the API adds when a specific tool is forced */
+    private static final int TOOL_USE_OVERHEAD_TOKENS = 313;
+
+    private static final String TRUNCATED_STOP_REASON = "max_tokens";
+
+    private final TokenBudgetProperties properties;
+    private final TokenEstimator estimator;
+    private final int defaultMaxTokens;
+    private final Map<UseCase, UsageStats> stats = new EnumMap<>(UseCase.class);
+
+    public TokenBudget(TokenBudgetProperties properties, TokenEstimator estimator,
+            @Value("${spring.ai.anthropic.chat.options.max-tokens:1000}") int defaultMaxTokens) {
+        this.properties = properties;
+        this.estimator = estimator;
+        this.defaultMaxTokens = defaultMaxTokens;
+        for (UseCase useCase : UseCase.values()) {
+            stats.put(useCase, new UsageStats());
+        }
+    }
+
+    /**
+     * Size a call: its max_tokens (the caller's explicit value wins) and its estimated input
+     */
+    public Allocation allocate(String systemPrompt, String userPrompt, GenerationOptions options) {
+        int approximated = TokenEstimator.approximate(systemPrompt) + TokenEstimator.approximate(options.getInstructions())
+                + TokenEstimator.approximate(userPrompt) + REQUEST_OVERHEAD_TOKENS;
+        if (options.getOutputSchema() != null) {
+            approximated += TokenEstimator.approximate(options.getOutputSchema().getToolDefinition().getValue())
+                    + TOOL_USE_OVERHEAD_TOKENS;
+        }
+        int estimated = (int) Math.ceil(approximated * estimator.getRatio());
+        int maxTokens = options.getMaxTokens() != null ? options.getMaxTokens() : maxOutputTokens(options.getUseCase());
+        return new Allocation(options.getUseCase(), approximated, estimated, maxTokens,
+                estimated + maxTokens <= properties.getContextWindow());
+    }
+
+    /**
+     * max_tokens for a use case
+     */
+    public int maxOutputTokens(UseCase useCase) {
+        Integer configured = properties.getMaxOutputTokens().get(useCase);
+        return configured != null ? configured : defaultMaxTokens;
+    }
+
+    /**
+     * Estimated input tokens a prompt may use alongside the given output budget
+     */
+    public int maxInputTokens(int maxTokens) {
+        return properties.getContextWindow() - maxTokens;
+    }
+
+    /**
+     * Count a call that was refused because its prompt would not fit
+     */
+    public void rejected(Allocation allocation) {
+        stats.get(allocation.getUseCase()).rejected.increment();
+        log.warn("Rejected {} prompt of about {} tokens: over the {} tokens left beside max_tokens {}",
+                allocation.getUseCase(), allocation.getEstimatedInputTokens(), maxInputTokens(allocation.getMaxTokens()),
+                allocation.getMaxTokens());
+    }
+
+    /**
+     * Compare a completed call's reported usage with its allocation. The estimate covers the whole
+     * prompt, so it is compared with the input tokens including those read from or written to the prompt cache.
+     */
+    public void record(Allocation allocation, ClaudeResult result) {
+        int promptTokens = result.promptTokens();
+        if (promptTokens <= 0) {
+            return;
+        }
+        estimator.observe(allocation.approximatedInputTokens, promptTokens);
+
+        UsageStats useCaseStats = stats.get(allocation.getUseCase());
+        useCaseStats.calls.increment();
+        useCaseStats.estimatedInputTokens.add(allocation.getEstimatedInputTokens());
+        useCaseStats.actualInputTokens.add(promptTokens);
+        useCaseStats.cacheReadInputTokens.add(result.getCacheReadInputTokens());
+        useCaseStats.cacheCreationInputTokens.add(result.getCacheCreationInputTokens());
+        useCaseStats.absoluteError.add(Math.abs(allocation.getEstimatedInputTokens() - promptTokens));
+        useCaseStats.outputTokens.add(result.getOutputTokens());
+        useCaseStats.maxTokens.add(allocation.getMaxTokens());
+        if (TRUNCATED_STOP_REASON.equals(result.getStopReason())) {
+            useCaseStats.truncated.increment();
+            log.warn("Response {} for {} was cut off at max_tokens {}", result.getRequestId(),
+                    allocation.getUseCase(), allocation.getMaxTokens());
+        }
+    }
+
+    /**
+     * Calibration and per-use-case usage against budget
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("contextWindow", properties.getContextWindow());
+        result.put("calibrationRatio", estimator.getRatio());
+
+        Map<String, Object> useCases = new LinkedHashMap<>();
+        stats.forEach((useCase, useCaseStats) -> {
+            long calls = useCaseStats.calls.sum();
+            long actual = useCaseStats.actualInputTokens.sum();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("maxTokens", maxOutputTokens(useCase));
+            entry.put("calls", calls);
+            entry.put("rejected", useCaseStats.rejected.sum());
+            entry.put("truncated", useCaseStats.truncated.sum());
+            entry.put("avgEstimatedInputTokens", calls > 0 ? useCaseStats.estimatedInputTokens.sum() / calls : 0);
+            entry.put("avgActualInputTokens", calls > 0 ? actual / calls : 0);
+            entry.put("inputEstimateErrorRate", actual > 0 ? (double) useCaseStats.absoluteError.sum() / actual : 0.0);
+            // Share of the prompt tokens served from the prompt cache, and written to it
+            entry.put("cacheReadRate", actual > 0 ? (double) useCaseStats.cacheReadInputTokens.sum() / actual : 0.0);
+            entry.put("cacheWriteRate", actual > 0 ? (double) useCaseStats.cacheCreationInputTokens.sum() / actual : 0.0);
+            entry.put("avgOutputTokens", calls > 0 ? useCaseStats.outputTokens.sum() / calls : 0);
+            long budgeted = useCaseStats.maxTokens.sum();
+            entry.put("outputBudgetUsed", budgeted > 0 ? (double) useCaseStats.outputTokens.sum() / budgeted : 0.0);
+            useCases.put(useCase.name().toLowerCase(Locale.ROOT), entry);
+        });
+        result.put("useCases", useCases);
+        return result;
+    }
+
+    /**
+     * Token budget of one call
+     */
+    public static final class Allocation {
+        private final UseCase useCase;
+        private final int approximatedInputTokens;
+        private final int estimatedInputTokens;
+        private final int maxTokens;
+        private final boolean fits;
+
+        private Allocation(UseCase useCase, int approximatedInputTokens, int estimatedInputTokens, int maxTokens,
+                boolean fits) {
+            this.useCase = useCase;
+            this.approximatedInputTokens = approximatedInputTokens;
+            this.estimatedInputTokens = estimatedInputTokens;
+            this.maxTokens = maxTokens;
+            this.fits = fits;
+        }
+
+        public UseCase getUseCase() {
+            return useCase;
+        }
+
+        /**
+         * Calibrated estimate of the input tokens of the whole request
+         */
+        public int getEstimatedInputTokens() {
+            return estimatedInputTokens;
+        }
+
+        public int getMaxTokens() {
+            return maxTokens;
+        }
+
+        /**
+         * Whether the estimated input plus max_tokens fits the context window
+         */
+        public boolean fits() {
+            return fits;
+        }
+    }
+
+    private static final class UsageStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder truncated = new LongAdder();
+        private final LongAdder estimatedInputTokens = new LongAdder();
+        private final LongAdder actualInputTokens = new LongAdder();
+        private final LongAdder cacheReadInputTokens = new LongAdder();
+        private final LongAdder cacheCreationInputTokens = new LongAdder();
+        private final LongAdder absoluteError = new LongAdder();
+        private final LongAdder outputTokens = new LongAdder();
+        private final LongAdder maxTokens = new LongAdder();
+    }
+}
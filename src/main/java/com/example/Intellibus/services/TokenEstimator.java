@@ -0,0 +1,112 @@
+package com.example.Intellibus.services;
+
+import org.springframework.stereotype.Component;
+
+import com.example.Intellibus.config.TokenBudgetProperties;
+
+/**
+ * Fast local estimate of how many tokens a text uses, without a tokenizer.
+ *
+ * The approximation mimics byte-pair encoding: a short word is one token, long words split into
+ * pieces, digits group in threes, punctuation runs pair up and CJK characters count one each.
+ * The calibrated estimate scales that by the ratio of API-reported input tokens to estimated
+ * ones, tracked as a moving average, so it converges on the model's actual tokenizer.
+ */
+@Component
+public class TokenEstimator {
+
+    // Lower and upper bounds on the calibration ratio, so a few odd responses cannot derail it
+    private static final double MIN_RATIO = 0.5;
+    private static final double MAX_RATIO = 3.0;
+
+    // Characters from the CJK radicals block up are counted one token each
+    private static final char CJK_START = '\u2E80';
+
+    private final double calibrationWeight;
+    private volatile double ratio = 1.0;
+    private long observations;
+
+    public TokenEstimator(TokenBudgetProperties properties) {
+        this.calibrationWeight = properties.getCalibrationWeight();
+    }
+
+    /**
+     * Uncalibrated token estimate, for sizing chunks where only relative size matters
+     */
+    public static int approximate(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        int tokens = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char ch = text.charAt(i);
+            int start = i;
+            if (Character.isWhitespace(ch)) {
+                boolean newline = false;
+                while (i < length && Character.isWhitespace(text.charAt(i))) {
+                    newline |= text.charAt(i) == '\n';
+                    i++;
+                }
+                // A single space is merged into the word after it
+                if (newline || i - start > 1) {
+                    tokens++;
+                }
+            } else if (ch >= CJK_START && !Character.isSurrogate(ch) || Character.isHighSurrogate(ch)) {
+                tokens++;
+                i += Character.isHighSurrogate(ch) && i + 1 < length ? 2 : 1;
+            } else if (Character.isLetter(ch)) {
+                while (i < length && Character.isLetter(text.charAt(i)) && text.charAt(i) < CJK_START) {
+                    i++;
+                }
+                tokens += (i - start + 5) / 6;
+            } else if (Character.isDigit(ch)) {
+                while (i < length && Character.isDigit(text.charAt(i))) {
+                    i++;
+                }
+                tokens += (i - start + 2) / 3;
+            } else {
+                do {
+                    i++;
+                } while (i < length && isSymbol(text.charAt(i)));
+                tokens += (i - start + 1) / 2;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Token estimate scaled by the calibration learned from API-reported usage
+     */
+    public int estimate(CharSequence text) {
+        return (int) Math.ceil(approximate(text) * ratio);
+    }
+
+    /**
+     * Calibrate against the usage the API reported for a request
+     *
+     * @param approximated uncalibrated estimate of everything sent in the request
+     * @param actual input tokens reported by the API
+     */
+    public synchronized void observe(int approximated, int actual) {
+        if (approximated <= 0 || actual <= 0) {
+            return;
+        }
+        double observed = Math.max(MIN_RATIO, Math.min(MAX_RATIO, (double) actual / approximated));
+        // Plain average until there are enough observations for the moving average to be stable
+        double weight = Math.max(calibrationWeight, 1.0 / ++observations);
+        ratio = ratio + weight * (observed - ratio);
+    }
+
+    /**
+     * Current ratio of actual to approximated tokens
+     */
+    public double getRatio() {
+        return ratio;
+    }
+
+    private static boolean isSymbol(char ch) {
+        return !Character.isWhitespace(ch) && !Character.isLetterOrDigit(ch) && !Character.isSurrogate(ch) && ch < CJK_START;
+    }
+}
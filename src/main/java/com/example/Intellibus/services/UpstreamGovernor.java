@@ -0,0 +1,468 @@
+package com.example.Intellibus.services;
+
+import org.springframework.stereotype.Component;
+
+import com.example.Intellibus.config.RateLimitProperties;
+import com.example.Intellibus.services.GenerationOptions.Priority;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Client-side governor for outbound Claude API calls.
+ *
+ * Each call must take a permit before it is sent. A permit needs a free in-flight slot and
+ * room in three token buckets (requests, input tokens and output tokens per minute). Callers
+ * that cannot proceed wait in one FIFO queue per {@link Priority}; the head of the highest
+ * non-empty priority goes first, except that a lower-priority head that has waited longer
+ * than the starvation threshold is served ahead of it.
+ *
+ * Limits adapt to the upstream {@code anthropic-ratelimit-*} headers, and a 429 with
+ * {@code retry-after} pauses all calls until the upstream window resets.
+ */
+@Component
+@Slf4j
+public class UpstreamGovernor implements MeterBinder {
+
+    private static final String HEADER_PREFIX = "anthropic-ratelimit-";
+
+    private final RateLimitProperties properties;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Waiter>[] queues;
+    private final TokenBucket requests;
+    private final TokenBucket inputTokens;
+    private final TokenBucket outputTokens;
+    private int inFlight;
+    private long pausedUntilNanos;
+
+    // Counters, guarded by lock
+    private long granted;
+    private long timedOut;
+    private long upstreamThrottled;
+    private long totalQueueWaitNanos;
+    private long maxQueueWaitNanos;
+
+    @SuppressWarnings("unchecked")
+    public UpstreamGovernor(RateLimitProperties properties) {
+        this.properties = properties;
+        this.queues = new ArrayDeque[Priority.values().length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+        long now = System.nanoTime();
+        this.requests = new TokenBucket(properties.getRequestsPerMinute(), now);
+        this.inputTokens = new TokenBucket(properties.getInputTokensPerMinute(), now);
+        this.outputTokens = new TokenBucket(properties.getOutputTokensPerMinute(), now);
+        this.pausedUntilNanos = now;
+    }
+
+    /**
+     * Wait for permission to send one call.
+     *
+     * @param inputTokenEstimate expected input tokens of the call
+     * @param maxOutputTokens the call's max_tokens; reserved up front and refunded on release
+     * @throws TimeoutException if the call waited longer than the configured maximum queue wait
+     */
+    public Permit acquire(Priority priority, int inputTokenEstimate, int maxOutputTokens)
+            throws InterruptedException, TimeoutException {
+        if (!properties.isEnabled()) {
+            return new Permit(0, 0, 0);
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + properties.getMaxQueueWait().toNanos();
+        ArrayDeque<Waiter> queue = queues[priority.ordinal()];
+        Waiter waiter = new Waiter(start, inputTokenEstimate, maxOutputTokens, lock.newCondition());
+
+        lock.lock();
+        try {
+            queue.addLast(waiter);
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    refill(now);
+                    Waiter next = selectNext(now);
+                    if (next == waiter && canProceed(waiter, now)) {
+                        queue.pollFirst();
+                        requests.take(1);
+                        inputTokens.take(waiter.inputTokens);
+                        outputTokens.take(waiter.outputTokens);
+                        inFlight++;
+
+                        long waited = now - start;
+                        granted++;
+                        totalQueueWaitNanos += waited;
+                        maxQueueWaitNanos = Math.max(maxQueueWaitNanos, waited);
+
+                        // Whoever is next may be able to go straight away too
+                        signalNext(now);
+                        return new Permit(waited, waiter.inputTokens, waiter.outputTokens);
+                    }
+
+                    long remaining = deadline - now;
+                    if (remaining <= 0) {
+                        timedOut++;
+                        throw new TimeoutException("Timed out after "
+                                + TimeUnit.NANOSECONDS.toMillis(now - start) + "ms waiting for the upstream rate limit");
+                    }
+
+                    long sleep = remaining;
+                    if (next == waiter) {
+                        sleep = Math.min(remaining, nanosUntilReady(waiter, now));
+                    } else if (next != null) {
+                        next.condition.signal();
+                    }
+                    waiter.condition.awaitNanos(Math.max(sleep, TimeUnit.MILLISECONDS.toNanos(1)));
+                }
+            } catch (InterruptedException | TimeoutException | RuntimeException e) {
+                queue.remove(waiter);
+                signalNext(System.nanoTime());
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return a permit once the call has finished, settling the token reservations against actual usage
+     *
+     * @param actualInputTokens input tokens reported by the API, or 0 if the call produced no usage
+     * @param actualOutputTokens output tokens reported by the API, or 0 if the call produced no usage
+     */
+    public void release(Permit permit, int actualInputTokens, int actualOutputTokens) {
+        if (!properties.isEnabled() || permit.released) {
+            return;
+        }
+        permit.released = true;
+
+        lock.lock();
+        try {
+            inFlight--;
+            long now = System.nanoTime();
+            refill(now);
+            inputTokens.refund(permit.reservedInputTokens - actualInputTokens);
+            outputTokens.refund(permit.reservedOutputTokens - actualOutputTokens);
+            signalNext(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adapt to the rate-limit headers of an upstream response
+     *
+     * @param headers looks up a response header by name, returning null when absent
+     */
+    public void onResponse(int statusCode, Function<String, String> headers) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            refill(now);
+            adapt(requests, "requests", properties.getRequestsPerMinute(), headers, now);
+            adapt(inputTokens, "input-tokens", properties.getInputTokensPerMinute(), headers, now);
+            adapt(outputTokens, "output-tokens", properties.getOutputTokensPerMinute(), headers, now);
+
+            if (statusCode == 429) {
+                upstreamThrottled++;
+                long retryAfterNanos = parseRetryAfter(headers.apply("retry-after"));
+                if (retryAfterNanos > 0) {
+                    pausedUntilNanos = Math.max(pausedUntilNanos, now + retryAfterNanos);
+                    log.warn("Upstream rate limit hit, pausing Claude calls for {}ms",
+                            TimeUnit.NANOSECONDS.toMillis(retryAfterNanos));
+                }
+            }
+            signalNext(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of calls waiting for a permit, across all priorities
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            int depth = 0;
+            for (ArrayDeque<Waiter> queue : queues) {
+                depth += queue.size();
+            }
+            return depth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of calls holding a permit
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Register gauges of calls queued for and holding a permit
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("intellibus.claude.queue.depth", this, UpstreamGovernor::getQueueDepth)
+                .description("Claude calls waiting for the upstream rate limit")
+                .register(registry);
+        Gauge.builder("intellibus.claude.in.flight", this, UpstreamGovernor::getInFlight)
+                .description("Claude calls holding a permit")
+                .register(registry);
+    }
+
+    /**
+     * Current limits, queue depths and wait statistics
+     */
+    public Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            refill(now);
+
+            Map<String, Object> queued = new LinkedHashMap<>();
+            for (Priority priority : Priority.values()) {
+                queued.put(priority.name(), queues[priority.ordinal()].size());
+            }
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", properties.isEnabled());
+            stats.put("inFlight", inFlight);
+            stats.put("maxInFlight", properties.getMaxInFlight());
+            stats.put("queued", queued);
+            stats.put("requestsPerMinute", (long) requests.capacity);
+            stats.put("inputTokensPerMinute", (long) inputTokens.capacity);
+            stats.put("outputTokensPerMinute", (long) outputTokens.capacity);
+            stats.put("availableRequests", (long) requests.tokens);
+            stats.put("availableInputTokens", (long) inputTokens.tokens);
+            stats.put("availableOutputTokens", (long) outputTokens.tokens);
+            stats.put("pausedForMs", Math.max(0, TimeUnit.NANOSECONDS.toMillis(pausedUntilNanos - now)));
+            stats.put("granted", granted);
+            stats.put("timedOut", timedOut);
+            stats.put("upstreamThrottled", upstreamThrottled);
+            stats.put("averageQueueWaitMs", granted > 0 ? TimeUnit.NANOSECONDS.toMillis(totalQueueWaitNanos / granted) : 0);
+            stats.put("maxQueueWaitMs", TimeUnit.NANOSECONDS.toMillis(maxQueueWaitNanos));
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The waiter that should go next: the head of the highest non-empty priority,
+     * unless a lower-priority head has been starved for longer
+     */
+    private Waiter selectNext(long now) {
+        long starvationNanos = properties.getStarvationThreshold().toNanos();
+        Waiter next = null;
+        for (ArrayDeque<Waiter> queue : queues) {
+            Waiter head = queue.peekFirst();
+            if (head == null) {
+                continue;
+            }
+            if (next == null) {
+                next = head;
+            } else if (now - head.enqueuedNanos > starvationNanos && head.enqueuedNanos < next.enqueuedNanos) {
+                next = head;
+            }
+        }
+        return next;
+    }
+
+    private void signalNext(long now) {
+        Waiter next = selectNext(now);
+        if (next != null) {
+            next.condition.signal();
+        }
+    }
+
+    private boolean canProceed(Waiter waiter, long now) {
+        return now >= pausedUntilNanos
+                && inFlight < properties.getMaxInFlight()
+                && requests.has(1)
+                && inputTokens.has(waiter.inputTokens)
+                && outputTokens.has(waiter.outputTokens);
+    }
+
+    /**
+     * How long until the buckets and pause allow the waiter through; in-flight slots are
+     * not predictable, so a full in-flight count waits for a release signal instead
+     */
+    private long nanosUntilReady(Waiter waiter, long now) {
+        if (inFlight >= properties.getMaxInFlight()) {
+            return Long.MAX_VALUE;
+        }
+        long wait = pausedUntilNanos - now;
+        wait = Math.max(wait, requests.nanosUntil(1));
+        wait = Math.max(wait, inputTokens.nanosUntil(waiter.inputTokens));
+        wait = Math.max(wait, outputTokens.nanosUntil(waiter.outputTokens));
+        return wait;
+    }
+
+    private void refill(long now) {
+        requests.refill(now);
+        inputTokens.refill(now);
+        outputTokens.refill(now);
+    }
+
+    /**
+     * Lower a bucket to the upstream limit and remaining allowance when they are tighter than ours
+     */
+    private static void adapt(TokenBucket bucket, String name, int configured, Function<String, String> headers, long now) {
+        long limit = parseLong(headers.apply(HEADER_PREFIX + name + "-limit"));
+        if (limit > 0) {
+            bucket.resize(Math.min(configured, limit));
+        }
+        long remaining = parseLong(headers.apply(HEADER_PREFIX + name + "-remaining"));
+        if (remaining >= 0) {
+            bucket.tokens = Math.min(bucket.tokens, remaining);
+        }
+    }
+
+    private static long parseLong(String value) {
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Retry-After is either delta-seconds or a date; anything unparseable counts as absent
+     */
+    private static long parseRetryAfter(String value) {
+        long seconds = parseLong(value);
+        if (seconds >= 0) {
+            return TimeUnit.SECONDS.toNanos(seconds);
+        }
+        if (value != null) {
+            try {
+                long millis = OffsetDateTime.parse(value.trim()).toInstant().toEpochMilli() - System.currentTimeMillis();
+                return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+            } catch (RuntimeException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Permission to send one call; pass it back to {@link #release} when the call completes
+     */
+    public static final class Permit {
+        private final long queueWaitNanos;
+        private final int reservedInputTokens;
+        private final int reservedOutputTokens;
+        private boolean released;
+
+        private Permit(long queueWaitNanos, int reservedInputTokens, int reservedOutputTokens) {
+            this.queueWaitNanos = queueWaitNanos;
+            this.reservedInputTokens = reservedInputTokens;
+            this.reservedOutputTokens = reservedOutputTokens;
+        }
+
+        /**
+         * Time spent waiting in the queue for this permit
+         */
+        public long getQueueWaitNanos() {
+            return queueWaitNanos;
+        }
+    }
+
+    private static final class Waiter {
+        final long enqueuedNanos;
+        final int inputTokens;
+        final int outputTokens;
+        final Condition condition;
+
+        Waiter(long enqueuedNanos, int inputTokens, int outputTokens, Condition condition) {
+            this.enqueuedNanos = enqueuedNanos;
+            this.inputTokens = inputTokens;
+            this.outputTokens = outputTokens;
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * Per-minute bucket that refills continuously. The balance may go negative when actual
+     * usage exceeds the reservation, which simply delays later calls.
+     */
+    private static final class TokenBucket {
+        double capacity;
+        double tokens;
+        double refillPerNano;
+        long lastRefillNanos;
+
+        TokenBucket(long perMinute, long now) {
+            this.capacity = Math.max(1, perMinute);
+            this.tokens = capacity;
+            this.refillPerNano = capacity / TimeUnit.MINUTES.toNanos(1);
+            this.lastRefillNanos = now;
+        }
+
+        void refill(long now) {
+            long elapsed = now - lastRefillNanos;
+            if (elapsed > 0) {
+                tokens = Math.min(capacity, tokens + elapsed * refillPerNano);
+                lastRefillNanos = now;
+            }
+        }
+
+        /**
+         * A call larger than the whole bucket only needs a full bucket, or it could never run
+         */
+        boolean has(double amount) {
+            return tokens >= Math.min(amount, capacity);
+        }
+
+        void take(double amount) {
+            tokens -= amount;
+        }
+
+        void refund(double amount) {
+            tokens = Math.min(capacity, tokens + amount);
+        }
+
+        long nanosUntil(double amount) {
+            double missing = Math.min(amount, capacity) - tokens;
+            return missing <= 0 ? 0 : (long) Math.ceil(missing / refillPerNano);
+        }
+
+        void resize(double newCapacity) {
+            if (newCapacity != capacity) {
+                capacity = Math.max(1, newCapacity);
+                refillPerNano = capacity / TimeUnit.MINUTES.toNanos(1);
+                tokens = Math.min(tokens, capacity);
+            }
+        }
+    }
+}
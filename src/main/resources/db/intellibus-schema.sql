@@ -0,0 +1,64 @@
+-- Results and request metrics written by ResultPersistenceService.
+-- Portable between PostgreSQL and H2; payload columns hold the JSON returned by the API.
+
+CREATE TABLE IF NOT EXISTS sentiment_results (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    request_id VARCHAR(64),
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    sentiment VARCHAR(16),
+    score DOUBLE PRECISION,
+    confidence DOUBLE PRECISION,
+    processing_time_ms BIGINT,
+    payload TEXT NOT NULL
+);
+CREATE INDEX IF NOT EXISTS sentiment_results_request_id_idx ON sentiment_results (request_id);
+CREATE INDEX IF NOT EXISTS sentiment_results_created_at_idx ON sentiment_results (created_at);
+
+CREATE TABLE IF NOT EXISTS chat_analysis_results (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    request_id VARCHAR(64),
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    overall_sentiment VARCHAR(16),
+    partial BOOLEAN,
+    processing_time_ms BIGINT,
+    payload TEXT NOT NULL
+);
+CREATE INDEX IF NOT EXISTS chat_analysis_results_request_id_idx ON chat_analysis_results (request_id);
+CREATE INDEX IF NOT EXISTS chat_analysis_results_created_at_idx ON chat_analysis_results (created_at);
+
+CREATE TABLE IF NOT EXISTS reports (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    report_id VARCHAR(64) NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    report_type VARCHAR(64),
+    title VARCHAR(512),
+    failed BOOLEAN,
+    processing_time_ms BIGINT,
+    payload TEXT NOT NULL
+);
+CREATE INDEX IF NOT EXISTS reports_report_id_idx ON reports (report_id);
+CREATE INDEX IF NOT EXISTS reports_created_at_idx ON reports (created_at);
+
+CREATE TABLE IF NOT EXISTS request_metrics (
+    request_id VARCHAR(64) PRIMARY KEY,
+    requested_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    model VARCHAR(128),
+    status_code INTEGER,
+    success BOOLEAN,
+    cached BOOLEAN,
+    coalesced BOOLEAN,
+    queue_wait_ms BIGINT,
+    api_call_ms BIGINT,
+    time_to_first_token_ms BIGINT,
+    total_ms BIGINT,
+    response_length INTEGER,
+    input_tokens INTEGER,
+    cache_creation_input_tokens INTEGER,
+    cache_read_input_tokens INTEGER,
+    output_tokens INTEGER,
+    error_message TEXT
+);
+-- Prompt cache token counts, for tables created before they were recorded
+ALTER TABLE request_metrics ADD COLUMN IF NOT EXISTS cache_creation_input_tokens INTEGER;
+ALTER TABLE request_metrics ADD COLUMN IF NOT EXISTS cache_read_input_tokens INTEGER;
+CREATE INDEX IF NOT EXISTS request_metrics_requested_at_idx ON request_metrics (requested_at);
@@ -0,0 +1,98 @@
+package com.example.Intellibus.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class DeadlineClientHttpRequestFactoryTest {
+
+	private HttpServer server;
+	private CloseableHttpClient httpClient;
+	private ScheduledThreadPoolExecutor scheduler;
+
+	@BeforeEach
+	void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		server.createContext("/fast", exchange -> respond(exchange, 0));
+		server.createContext("/slow", exchange -> respond(exchange, 2000));
+		server.start();
+		httpClient = HttpClients.createDefault();
+		scheduler = new ScheduledThreadPoolExecutor(1);
+		scheduler.setRemoveOnCancelPolicy(true);
+	}
+
+	@AfterEach
+	void stop() throws IOException {
+		scheduler.shutdownNow();
+		httpClient.close();
+		server.stop(0);
+	}
+
+	@Test
+	void closingTheResponseCancelsTheDeadline() throws Exception {
+		DeadlineClientHttpRequestFactory factory = new DeadlineClientHttpRequestFactory(httpClient, scheduler,
+				Duration.ofMinutes(3));
+
+		ClientHttpRequest request = factory.createRequest(uri("/fast"), HttpMethod.GET);
+		try (ClientHttpResponse response = request.execute()) {
+			assertEquals(1, scheduler.getQueue().size());
+			assertEquals("ok", new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8));
+		}
+
+		assertTrue(scheduler.getQueue().isEmpty());
+	}
+
+	@Test
+	void exchangesStillRunningAtTheDeadlineAreAborted() throws Exception {
+		DeadlineClientHttpRequestFactory factory = new DeadlineClientHttpRequestFactory(httpClient, scheduler,
+				Duration.ofMillis(200));
+
+		ClientHttpRequest request = factory.createRequest(uri("/slow"), HttpMethod.GET);
+		long start = System.nanoTime();
+		assertThrows(IOException.class, () -> {
+			try (ClientHttpResponse response = request.execute()) {
+				response.getBody().readAllBytes();
+			}
+		});
+		assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1500);
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+	}
+
+	private static void respond(HttpExchange exchange, long delayMillis) throws IOException {
+		try (exchange) {
+			Thread.sleep(delayMillis);
+			byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package com.example.Intellibus.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency model for the stub server, parsed from a spec such as {@code fixed:200},
+ * {@code uniform:100:900} or {@code lognormal:800:0.5} (median in milliseconds and sigma)
+ */
+public interface LatencyDistribution {
+
+	/**
+	 * Draw the next latency in milliseconds
+	 */
+	long nextMillis();
+
+	static LatencyDistribution none() {
+		return () -> 0;
+	}
+
+	static LatencyDistribution fixed(long millis) {
+		return () -> millis;
+	}
+
+	static LatencyDistribution uniform(long minMillis, long maxMillis) {
+		return () -> ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+	}
+
+	/**
+	 * Log-normal latency, the usual shape of LLM response times: most calls near the median with a long right tail
+	 */
+	static LatencyDistribution logNormal(double medianMillis, double sigma) {
+		double mu = Math.log(medianMillis);
+		return () -> Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+	}
+
+	static LatencyDistribution parse(String spec) {
+		String[] parts = spec.split(":");
+		return switch (parts[0]) {
+			case "none" -> none();
+			case "fixed" -> fixed(Long.parseLong(parts[1]));
+			case "uniform" -> uniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+			case "lognormal" -> logNormal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+			default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+		};
+	}
+}
@@ -0,0 +1,306 @@
+package com.example.Intellibus.loadtest;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Open-loop load driver for the HTTP API.
+ *
+ * Requests are started on a fixed schedule at the target rate regardless of how fast earlier ones
+ * complete, and latency is measured from the scheduled start, so a slow server cannot hide its
+ * queueing delay (no coordinated omission). Each request carries a unique prompt so the response
+ * cache and coalescing do not short-circuit the upstream path.
+ *
+ * Run with
+ * {@code java ... LoadDriver --target http://localhost:8080 --rps 20 --duration 60s
+ * [--mix chat=4,chat-stream=1,sentiment-batch=1,chat-analysis=1,report=1]}.
+ */
+public class LoadDriver {
+
+	/**
+	 * Request types the driver can send
+	 */
+	public enum Scenario {
+		CHAT("chat", "/api/chat", "\"response\":\"Error"),
+		CHAT_STREAM("chat-stream", "/api/chat/stream", "event:error"),
+		SENTIMENT_BATCH("sentiment-batch", "/api/sentiment/analyze/batch", "\"sentiment\":\"ERROR\""),
+		CHAT_ANALYSIS("chat-analysis", "/api/chat-analysis", "Error analyzing chat"),
+		REPORT("report", "/api/reports/engagement-metrics", "Error generating report");
+
+		private final String key;
+		private final String path;
+		private final String failureMarker;
+
+		Scenario(String key, String path, String failureMarker) {
+			this.key = key;
+			this.path = path;
+			this.failureMarker = failureMarker;
+		}
+
+		static Scenario of(String key) {
+			for (Scenario scenario : values()) {
+				if (scenario.key.equals(key)) {
+					return scenario;
+				}
+			}
+			throw new IllegalArgumentException("Unknown scenario: " + key);
+		}
+	}
+
+	/**
+	 * Latency and throughput for one scenario
+	 */
+	public record Summary(int requests, int errors, double throughputPerSecond, long p50Millis, long p99Millis,
+			long p999Millis, long maxMillis) {
+	}
+
+	/**
+	 * Outcome of a run, by scenario
+	 */
+	public record Result(Duration elapsed, Map<Scenario, Summary> summaries) {
+
+		public int getTotalRequests() {
+			return summaries.values().stream().mapToInt(Summary::requests).sum();
+		}
+
+		public int getTotalErrors() {
+			return summaries.values().stream().mapToInt(Summary::errors).sum();
+		}
+
+		public void print(PrintStream out) {
+			out.printf("%-16s %8s %7s %9s %8s %8s %8s %8s%n",
+					"scenario", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+			summaries.forEach((scenario, s) -> out.printf("%-16s %8d %7d %9.2f %8d %8d %8d %8d%n", scenario.key,
+					s.requests(), s.errors(), s.throughputPerSecond(), s.p50Millis(), s.p99Millis(), s.p999Millis(),
+					s.maxMillis()));
+			out.printf("elapsed %.1fs, %d requests, %d errors%n", elapsed.toMillis() / 1000.0, getTotalRequests(),
+					getTotalErrors());
+		}
+	}
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final URI target;
+	private final AtomicLong uniqueIds = new AtomicLong();
+
+	public LoadDriver(URI target) {
+		this.target = target;
+	}
+
+	/**
+	 * Drive the target at a fixed rate for the given duration, then wait for outstanding requests
+	 *
+	 * @param mix relative weight of each scenario
+	 */
+	public Result run(double requestsPerSecond, Duration duration, Map<Scenario, Integer> mix) throws InterruptedException {
+		Scenario[] schedule = weightedSchedule(mix);
+		Map<Scenario, Recorder> recorders = new EnumMap<>(Scenario.class);
+		for (Scenario scenario : mix.keySet()) {
+			recorders.put(scenario, new Recorder());
+		}
+
+		long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+		long total = (long) (requestsPerSecond * duration.toNanos() / TimeUnit.SECONDS.toNanos(1));
+
+		// The client keeps its own executor: shutting down the task executor below must not close its selector
+		ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+		HttpClient client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(5))
+				.build();
+
+		long start = System.nanoTime();
+		for (long i = 0; i < total; i++) {
+			long scheduled = start + i * periodNanos;
+			long delay = scheduled - System.nanoTime();
+			if (delay > 0) {
+				LockSupport.parkNanos(delay);
+			}
+			Scenario scenario = schedule[(int) (i % schedule.length)];
+			executor.execute(() -> send(client, scenario, scheduled, recorders.get(scenario)));
+		}
+
+		executor.shutdown();
+		executor.awaitTermination(5, TimeUnit.MINUTES);
+		client.close();
+		Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+		Map<Scenario, Summary> summaries = new LinkedHashMap<>();
+		recorders.forEach((scenario, recorder) -> summaries.put(scenario, recorder.summarize(elapsed)));
+		return new Result(elapsed, summaries);
+	}
+
+	private void send(HttpClient client, Scenario scenario, long scheduledNanos, Recorder recorder) {
+		boolean failed;
+		try {
+			HttpRequest request = HttpRequest.newBuilder(target.resolve(scenario.path))
+					.timeout(Duration.ofMinutes(5))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString(body(scenario)))
+					.build();
+			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+			String body = response.body().replace(" ", "");
+			failed = response.statusCode() >= 300 || body.contains(scenario.failureMarker.replace(" ", ""));
+		} catch (Exception e) {
+			failed = true;
+		}
+		recorder.record(System.nanoTime() - scheduledNanos, failed);
+	}
+
+	private String body(Scenario scenario) throws Exception {
+		long id = uniqueIds.incrementAndGet();
+		return switch (scenario) {
+			case CHAT, CHAT_STREAM -> objectMapper.writeValueAsString(
+					Map.of("prompt", "Give me three tips for a smooth event check-in. (#" + id + ")"));
+			case SENTIMENT_BATCH -> {
+				ArrayNode requests = objectMapper.createArrayNode();
+				for (int i = 0; i < 10; i++) {
+					requests.addObject()
+							.put("text", (i % 3 == 0 ? "Registration was slow and the coffee was bad" : "Loved the keynote and the networking")
+									+ " (#" + id + "." + i + ")")
+							.put("source", "survey");
+				}
+				yield objectMapper.writeValueAsString(requests);
+			}
+			case CHAT_ANALYSIS -> {
+				ObjectNode request = objectMapper.createObjectNode().put("userId", "load-" + id);
+				ArrayNode messages = request.putArray("messages");
+				String[] lines = { "Hi, when does registration open?", "It opens at 8am in the main hall.",
+						"The queue last year was terrible, is it better now?", "We added four more desks this year.",
+						"Great, thanks! (#" + id + ")", "You're welcome, enjoy the event." };
+				for (int i = 0; i < lines.length; i++) {
+					messages.addObject().put("role", i % 2 == 0 ? "user" : "assistant").put("content", lines[i]);
+				}
+				yield objectMapper.writeValueAsString(request);
+			}
+			case REPORT -> {
+				ObjectNode request = objectMapper.createObjectNode()
+						.put("reportType", "engagement")
+						.put("title", "Engagement report #" + id)
+						.put("startDate", "2025-01-01")
+						.put("endDate", "2025-03-31")
+						.put("audience", "Marketing")
+						.put("includeSentimentAnalysis", true);
+				request.putArray("metricsToInclude").add("impressions").add("clicks");
+				request.putArray("channels").add("email").add("web");
+				ArrayNode data = request.putArray("data");
+				for (int i = 0; i < 20; i++) {
+					data.addObject().put("day", i).put("impressions", 1000 + i * 37).put("clicks", 40 + i);
+				}
+				yield objectMapper.writeValueAsString(request);
+			}
+		};
+	}
+
+	/**
+	 * Spread scenarios over a repeating schedule in proportion to their weights
+	 */
+	private static Scenario[] weightedSchedule(Map<Scenario, Integer> mix) {
+		int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+		Scenario[] schedule = new Scenario[totalWeight];
+		int slot = 0;
+		int remaining = totalWeight;
+		Map<Scenario, Integer> left = new LinkedHashMap<>(mix);
+		while (remaining > 0) {
+			for (Map.Entry<Scenario, Integer> entry : left.entrySet()) {
+				if (entry.getValue() > 0) {
+					schedule[slot++] = entry.getKey();
+					entry.setValue(entry.getValue() - 1);
+					remaining--;
+				}
+			}
+		}
+		return schedule;
+	}
+
+	/**
+	 * Collects latencies for one scenario
+	 */
+	private static final class Recorder {
+		private long[] latencies = new long[1024];
+		private int count;
+		private int errors;
+
+		synchronized void record(long latencyNanos, boolean failed) {
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = latencyNanos;
+			if (failed) {
+				errors++;
+			}
+		}
+
+		synchronized Summary summarize(Duration elapsed) {
+			long[] sorted = Arrays.copyOf(latencies, count);
+			Arrays.sort(sorted);
+			double seconds = Math.max(1, elapsed.toMillis()) / 1000.0;
+			return new Summary(count, errors, count / seconds, percentile(sorted, 0.50), percentile(sorted, 0.99),
+					percentile(sorted, 0.999), count > 0 ? TimeUnit.NANOSECONDS.toMillis(sorted[count - 1]) : 0);
+		}
+
+		private static long percentile(long[] sorted, double quantile) {
+			if (sorted.length == 0) {
+				return 0;
+			}
+			int index = (int) Math.ceil(quantile * sorted.length) - 1;
+			return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+		}
+	}
+
+	static Map<String, String> parseOptions(String[] args) {
+		Map<String, String> options = new LinkedHashMap<>();
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+		}
+		return options;
+	}
+
+	static Duration parseDuration(String value) {
+		if (value.endsWith("ms")) {
+			return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+		}
+		if (value.endsWith("s")) {
+			return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+		}
+		if (value.endsWith("m")) {
+			return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+		}
+		return Duration.ofSeconds(Long.parseLong(value));
+	}
+
+	static Map<Scenario, Integer> parseMix(String value) {
+		Map<Scenario, Integer> mix = new EnumMap<>(Scenario.class);
+		for (String part : List.of(value.split(","))) {
+			String[] pair = part.split("=");
+			mix.put(Scenario.of(pair[0].trim()), pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1);
+		}
+		return mix;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = parseOptions(args);
+		LoadDriver driver = new LoadDriver(URI.create(options.getOrDefault("target", "http://localhost:8080")));
+		Result result = driver.run(Double.parseDouble(options.getOrDefault("rps", "10")),
+				parseDuration(options.getOrDefault("duration", "30s")),
+				parseMix(options.getOrDefault("mix", "chat=4,chat-stream=1,sentiment-batch=1,chat-analysis=1,report=1")));
+		result.print(System.out);
+	}
+}
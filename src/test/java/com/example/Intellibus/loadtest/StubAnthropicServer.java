@@ -0,0 +1,525 @@
+package com.example.Intellibus.loadtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process stand-in for the Anthropic Messages endpoint.
+ *
+ * Point the application at it with {@code --spring.ai.anthropic.base-url=http://127.0.0.1:<port>/v1/messages}.
+ * Replies are shaped after the prompt so the services can parse them: an indexed JSON array for batch
+ * sentiment, a sentiment object, a chat analysis object, a report object, or plain text otherwise.
+ * When the request forces a tool, the JSON reply is returned as that tool's input instead.
+ * Latency, injected 500s and 429s, and streaming ({@code "stream": true}) are all supported, as is the
+ * Message Batches endpoint under {@code /v1/messages/batches}. Blocks marked with {@code cache_control}
+ * are reported as written to the prompt cache the first time they are seen and read from it afterwards.
+ *
+ * Run standalone with
+ * {@code java ... StubAnthropicServer [--port 18099] [--latency lognormal:800:0.5] [--token-delay 20ms]
+ * [--error-rate 0.01] [--throttle-rate 0.02]}.
+ */
+public class StubAnthropicServer implements AutoCloseable {
+
+	private static final String MODEL = "stub-model";
+	private static final String BATCH_MARKER = "Texts to analyze (JSON array):\n";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+	private volatile LatencyDistribution latency = LatencyDistribution.none();
+	private volatile Duration tokenDelay = Duration.ZERO;
+	private volatile double errorRate;
+	private volatile double throttleRate;
+	private volatile int retryAfterSeconds = 1;
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong streamed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong throttled = new AtomicLong();
+	private final AtomicLong messageIds = new AtomicLong();
+	private final AtomicLong batchIds = new AtomicLong();
+	private final AtomicLong batchRetrievals = new AtomicLong();
+	private final Map<String, StubBatch> batches = new ConcurrentHashMap<>();
+	private final Set<String> cachedPrefixes = ConcurrentHashMap.newKeySet();
+	private volatile Duration batchDelay = Duration.ZERO;
+
+	private static final class StubBatch {
+		final String id;
+		final long createdNanos = System.nanoTime();
+		final List<String> results = new ArrayList<>();
+		int succeeded;
+		int errored;
+		volatile boolean canceled;
+
+		StubBatch(String id) {
+			this.id = id;
+		}
+
+		boolean isEnded(Duration delay) {
+			return canceled || System.nanoTime() - createdNanos >= delay.toNanos();
+		}
+	}
+
+	public StubAnthropicServer(int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+		server.setExecutor(executor);
+		server.createContext("/v1/messages", this::handle);
+		server.createContext("/v1/messages/batches", this::handleBatches);
+	}
+
+	public StubAnthropicServer start() {
+		server.start();
+		return this;
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * URL to use as {@code spring.ai.anthropic.base-url}
+	 */
+	public String getMessagesUrl() {
+		return "http://127.0.0.1:" + getPort() + "/v1/messages";
+	}
+
+	/**
+	 * Delay before the response (or the first streamed event)
+	 */
+	public StubAnthropicServer latency(LatencyDistribution latency) {
+		this.latency = latency;
+		return this;
+	}
+
+	/**
+	 * Delay between streamed text deltas
+	 */
+	public StubAnthropicServer tokenDelay(Duration tokenDelay) {
+		this.tokenDelay = tokenDelay;
+		return this;
+	}
+
+	/**
+	 * Fraction of requests answered with 500
+	 */
+	public StubAnthropicServer errorRate(double errorRate) {
+		this.errorRate = errorRate;
+		return this;
+	}
+
+	/**
+	 * Fraction of requests answered with 429 and a retry-after header
+	 */
+	public StubAnthropicServer throttleRate(double throttleRate, int retryAfterSeconds) {
+		this.throttleRate = throttleRate;
+		this.retryAfterSeconds = retryAfterSeconds;
+		return this;
+	}
+
+	/**
+	 * How long a message batch stays in progress after it is created
+	 */
+	public StubAnthropicServer batchDelay(Duration batchDelay) {
+		this.batchDelay = batchDelay;
+		return this;
+	}
+
+	public long getRequests() {
+		return requests.get();
+	}
+
+	public long getStreamed() {
+		return streamed.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	public long getThrottled() {
+		return throttled.get();
+	}
+
+	public long getBatches() {
+		return batchIds.get();
+	}
+
+	public long getBatchRetrievals() {
+		return batchRetrievals.get();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			requests.incrementAndGet();
+			if (!"POST".equals(exchange.getRequestMethod())) {
+				sendError(exchange, 405, "invalid_request_error", "Only POST is supported");
+				return;
+			}
+
+			JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+			sleep(latency.nextMillis());
+
+			double roll = ThreadLocalRandom.current().nextDouble();
+			if (roll < throttleRate) {
+				throttled.incrementAndGet();
+				exchange.getResponseHeaders().set("retry-after", Integer.toString(retryAfterSeconds));
+				sendError(exchange, 429, "rate_limit_error", "Injected rate limit");
+				return;
+			}
+			if (roll < throttleRate + errorRate) {
+				failed.incrementAndGet();
+				sendError(exchange, 500, "api_error", "Injected failure");
+				return;
+			}
+
+			String prompt = lastUserText(request);
+			String text = reply(prompt);
+			if (request.path("stream").asBoolean()) {
+				streamed.incrementAndGet();
+				stream(exchange, text, usage(request, Math.max(1, text.length() / 4)));
+			} else {
+				send(exchange, 200, "application/json", objectMapper.writeValueAsBytes(message(request, text)));
+			}
+		} catch (Exception e) {
+			failed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * A complete Messages API response carrying the reply, as a tool call when the request forces one
+	 */
+	private ObjectNode message(JsonNode request, String text) throws IOException {
+		ObjectNode response = objectMapper.createObjectNode();
+		response.put("id", "msg_stub_" + messageIds.incrementAndGet());
+		response.put("type", "message");
+		response.put("role", "assistant");
+		response.put("model", MODEL);
+		String tool = request.path("tool_choice").path("name").asText(null);
+		if (tool != null) {
+			// Replies may lead with prose; the JSON starts at the first bracket or brace
+			int start = text.length() - text.replaceFirst("^[^\\[{]*", "").length();
+			JsonNode input = objectMapper.readTree(text.substring(start));
+			if (input.isArray()) {
+				input = objectMapper.createObjectNode().set("results", input);
+			}
+			response.putArray("content").addObject().put("type", "tool_use")
+					.put("id", "toolu_stub_" + messageIds.get()).put("name", tool).set("input", input);
+			response.put("stop_reason", "tool_use");
+		} else {
+			response.putArray("content").addObject().put("type", "text").put("text", text);
+			response.put("stop_reason", "end_turn");
+		}
+		response.set("usage", usage(request, Math.max(1, text.length() / 4)));
+		return response;
+	}
+
+	/**
+	 * Token usage of a request. The prompt cache is simulated: the blocks up to the last one marked with
+	 * cache_control are written to the cache the first time they are seen and read from it afterwards.
+	 */
+	private ObjectNode usage(JsonNode request, int outputTokens) {
+		StringBuilder prefix = new StringBuilder();
+		int cachedLength = 0;
+		List<JsonNode> blocks = new ArrayList<>();
+		request.path("system").forEach(blocks::add);
+		JsonNode messages = request.path("messages");
+		if (!messages.isEmpty()) {
+			messages.get(messages.size() - 1).path("content").forEach(blocks::add);
+		}
+		for (JsonNode block : blocks) {
+			prefix.append(block.path("text").asText(""));
+			if (block.has("cache_control")) {
+				cachedLength = prefix.length();
+			}
+		}
+
+		int total = Math.max(1, request.toString().length() / 4);
+		int cachedTokens = Math.min(total - 1, cachedLength / 4);
+		ObjectNode usage = objectMapper.createObjectNode();
+		usage.put("input_tokens", total - cachedTokens);
+		boolean written = cachedTokens > 0 && cachedPrefixes.add(prefix.substring(0, cachedLength));
+		usage.put("cache_creation_input_tokens", written ? cachedTokens : 0);
+		usage.put("cache_read_input_tokens", written ? 0 : cachedTokens);
+		usage.put("output_tokens", outputTokens);
+		return usage;
+	}
+
+	/**
+	 * Message Batches: requests are answered when the batch is created, and the batch reports itself
+	 * ended once the batch delay has passed or it was canceled. Injected errors fail individual requests.
+	 */
+	private void handleBatches(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			String path = exchange.getRequestURI().getPath().substring("/v1/messages/batches".length());
+			String method = exchange.getRequestMethod();
+			if (path.isEmpty() || "/".equals(path)) {
+				if (!"POST".equals(method)) {
+					sendError(exchange, 405, "invalid_request_error", "Only POST is supported");
+					return;
+				}
+				createBatch(exchange);
+				return;
+			}
+
+			String[] parts = path.substring(1).split("/");
+			StubBatch batch = batches.get(parts[0]);
+			if (batch == null) {
+				sendError(exchange, 404, "not_found_error", "No such batch");
+				return;
+			}
+			if (parts.length == 1 && "GET".equals(method)) {
+				batchRetrievals.incrementAndGet();
+				sendBatch(exchange, batch);
+			} else if (parts.length == 2 && "cancel".equals(parts[1]) && "POST".equals(method)) {
+				batch.canceled = true;
+				sendBatch(exchange, batch);
+			} else if (parts.length == 2 && "results".equals(parts[1]) && "GET".equals(method)) {
+				if (!batch.isEnded(batchDelay)) {
+					sendError(exchange, 400, "invalid_request_error", "Batch has not ended");
+					return;
+				}
+				send(exchange, 200, "application/x-jsonl",
+						String.join("\n", batch.results).concat("\n").getBytes(StandardCharsets.UTF_8));
+			} else {
+				sendError(exchange, 404, "not_found_error", "Unknown batch operation");
+			}
+		} catch (Exception e) {
+			failed.incrementAndGet();
+		}
+	}
+
+	private void createBatch(HttpExchange exchange) throws IOException {
+		JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+		StubBatch batch = new StubBatch("msgbatch_stub_" + batchIds.incrementAndGet());
+		for (JsonNode item : body.path("requests")) {
+			requests.incrementAndGet();
+			ObjectNode line = objectMapper.createObjectNode().put("custom_id", item.path("custom_id").asText());
+			ObjectNode result = line.putObject("result");
+			if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+				failed.incrementAndGet();
+				result.put("type", "errored");
+				result.putObject("error").put("type", "error").putObject("error")
+						.put("type", "api_error").put("message", "Injected failure");
+				batch.errored++;
+			} else {
+				JsonNode params = item.path("params");
+				result.put("type", "succeeded").set("message", message(params, reply(lastUserText(params))));
+				batch.succeeded++;
+			}
+			batch.results.add(objectMapper.writeValueAsString(line));
+		}
+		batches.put(batch.id, batch);
+		sendBatch(exchange, batch);
+	}
+
+	private void sendBatch(HttpExchange exchange, StubBatch batch) throws IOException {
+		boolean ended = batch.isEnded(batchDelay);
+		ObjectNode response = objectMapper.createObjectNode();
+		response.put("id", batch.id);
+		response.put("type", "message_batch");
+		response.put("processing_status", ended ? "ended" : batch.canceled ? "canceling" : "in_progress");
+		ObjectNode counts = response.putObject("request_counts");
+		counts.put("processing", ended ? 0 : batch.results.size());
+		counts.put("succeeded", ended ? batch.succeeded : 0);
+		counts.put("errored", ended ? batch.errored : 0);
+		counts.put("canceled", 0);
+		counts.put("expired", 0);
+		if (ended) {
+			response.put("results_url", "http://127.0.0.1:" + getPort() + "/v1/messages/batches/" + batch.id + "/results");
+		} else {
+			response.putNull("results_url");
+		}
+		send(exchange, 200, "application/json", objectMapper.writeValueAsBytes(response));
+	}
+
+	private void stream(HttpExchange exchange, String text, ObjectNode usage) throws Exception {
+		exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+		exchange.sendResponseHeaders(200, 0);
+		OutputStream out = exchange.getResponseBody();
+
+		ObjectNode start = objectMapper.createObjectNode().put("type", "message_start");
+		ObjectNode message = start.putObject("message").put("id", "msg_stub_" + messageIds.incrementAndGet())
+				.put("model", MODEL);
+		message.set("usage", usage.deepCopy().put("output_tokens", 1));
+		event(out, start);
+		event(out, objectMapper.createObjectNode().put("type", "content_block_start").put("index", 0));
+
+		// A few words per delta, roughly like real token chunks
+		String[] words = text.split("(?<= )");
+		for (int i = 0; i < words.length; i += 3) {
+			StringBuilder chunk = new StringBuilder();
+			for (int j = i; j < Math.min(words.length, i + 3); j++) {
+				chunk.append(words[j]);
+			}
+			ObjectNode delta = objectMapper.createObjectNode().put("type", "content_block_delta").put("index", 0);
+			delta.putObject("delta").put("type", "text_delta").put("text", chunk.toString());
+			event(out, delta);
+			sleep(tokenDelay.toMillis());
+		}
+
+		event(out, objectMapper.createObjectNode().put("type", "content_block_stop").put("index", 0));
+		ObjectNode messageDelta = objectMapper.createObjectNode().put("type", "message_delta");
+		messageDelta.putObject("delta").put("stop_reason", "end_turn");
+		messageDelta.putObject("usage").put("output_tokens", usage.path("output_tokens").asInt());
+		event(out, messageDelta);
+		event(out, objectMapper.createObjectNode().put("type", "message_stop"));
+		out.close();
+	}
+
+	private void event(OutputStream out, ObjectNode data) throws IOException {
+		String type = data.get("type").asText();
+		out.write(("event: " + type + "\ndata: " + objectMapper.writeValueAsString(data) + "\n\n")
+				.getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+
+	/**
+	 * Build a reply the calling service can parse, based on what the prompt asks for
+	 */
+	private String reply(String prompt) throws IOException {
+		int batchStart = prompt.indexOf(BATCH_MARKER);
+		if (batchStart >= 0) {
+			int arrayStart = batchStart + BATCH_MARKER.length();
+			int arrayEnd = prompt.indexOf('\n', arrayStart);
+			JsonNode items = objectMapper.readTree(prompt.substring(arrayStart, arrayEnd < 0 ? prompt.length() : arrayEnd));
+			ArrayNode results = objectMapper.createArrayNode();
+			for (JsonNode item : items) {
+				ObjectNode result = sentiment(item.path("text").asText());
+				result.put("index", item.path("index").asInt());
+				results.add(result);
+			}
+			return objectMapper.writeValueAsString(results);
+		}
+		if (prompt.contains("sentiment analysis details")) {
+			return objectMapper.writeValueAsString(sentiment(prompt));
+		}
+		if (prompt.contains("chat analysis details")) {
+			ObjectNode analysis = objectMapper.createObjectNode();
+			analysis.putArray("main_topics").add("registration").add("venue");
+			analysis.putArray("user_intents").add("get help");
+			analysis.putArray("key_questions").add("When does it start?");
+			analysis.putArray("identified_issues").add("long queues");
+			analysis.putArray("action_items").add("open more desks");
+			analysis.put("conversation_summary", "The user asked about the event schedule.");
+			return objectMapper.writeValueAsString(analysis);
+		}
+		if (prompt.contains("executive_summary")) {
+			ObjectNode report = objectMapper.createObjectNode();
+			report.put("executive_summary", "Engagement grew steadily over the period.");
+			report.putArray("key_findings").add("Email outperformed social").add("Mobile traffic doubled");
+			ArrayNode sections = report.putArray("sections");
+			sections.addObject().put("title", "Overview").put("content", words(120));
+			sections.addObject().put("title", "Channels").put("content", words(120));
+			report.putArray("recommendations").add("Invest in email").add("Improve the mobile app");
+			report.putObject("metrics_data").put("impressions", 120431).put("clicks", 4821);
+			report.putArray("visual_elements").addObject().put("type", "bar").put("title", "Clicks by channel")
+					.put("description", "Bar chart of clicks per channel");
+			return "Here is the report:\n" + objectMapper.writeValueAsString(report);
+		}
+		return "Stub reply. " + words(60);
+	}
+
+	private ObjectNode sentiment(String text) {
+		boolean negative = text.contains("terrible") || text.contains("bad") || text.contains("slow");
+		ObjectNode result = objectMapper.createObjectNode();
+		result.put("sentiment", negative ? "NEGATIVE" : "POSITIVE");
+		result.put("score", negative ? -0.6 : 0.7);
+		result.put("confidence", 0.9);
+		result.putArray("dominant_emotions").add(negative ? "frustration" : "joy");
+		result.putArray("key_phrases").add(text.length() > 30 ? text.substring(0, 30) : text);
+		result.put("insights", "Stub analysis");
+		return result;
+	}
+
+	private static String lastUserText(JsonNode request) {
+		JsonNode messages = request.path("messages");
+		if (messages.isEmpty()) {
+			return "";
+		}
+		JsonNode content = messages.get(messages.size() - 1).path("content");
+		if (content.isTextual()) {
+			return content.asText();
+		}
+		StringBuilder text = new StringBuilder();
+		for (JsonNode block : content) {
+			text.append(block.path("text").asText(""));
+		}
+		return text.toString();
+	}
+
+	private static String words(int count) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sb.append(i % 7 == 6 ? "token. " : "token ");
+		}
+		return sb.toString().trim();
+	}
+
+	private void sendError(HttpExchange exchange, int status, String type, String message) throws IOException {
+		ObjectNode error = objectMapper.createObjectNode().put("type", "error");
+		error.putObject("error").put("type", type).put("message", message);
+		send(exchange, status, "application/json", objectMapper.writeValueAsBytes(error));
+	}
+
+	private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, body.length);
+		exchange.getResponseBody().write(body);
+	}
+
+	private static void sleep(long millis) throws InterruptedException {
+		if (millis > 0) {
+			Thread.sleep(millis);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = LoadDriver.parseOptions(args);
+		StubAnthropicServer stub = new StubAnthropicServer(Integer.parseInt(options.getOrDefault("port", "18099")))
+				.latency(LatencyDistribution.parse(options.getOrDefault("latency", "lognormal:800:0.5")))
+				.tokenDelay(LoadDriver.parseDuration(options.getOrDefault("token-delay", "20ms")))
+				.errorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")))
+				.throttleRate(Double.parseDouble(options.getOrDefault("throttle-rate", "0")),
+						Integer.parseInt(options.getOrDefault("retry-after", "1")))
+				.start();
+		System.out.println("Stub Anthropic server listening on " + stub.getMessagesUrl());
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			Map<String, Long> stats = new LinkedHashMap<>();
+			stats.put("requests", stub.getRequests());
+			stats.put("streamed", stub.getStreamed());
+			stats.put("failed", stub.getFailed());
+			stats.put("throttled", stub.getThrottled());
+			System.out.println("Stub totals: " + stats);
+			stub.close();
+		}));
+		Thread.currentThread().join();
+	}
+}
@@ -0,0 +1,161 @@
+package com.example.Intellibus.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.example.Intellibus.loadtest.LoadDriver.Scenario;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs every scenario of the load driver against the application backed by the stub server
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability
+class StubEndToEndTest {
+
+	private static StubAnthropicServer stub;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@LocalServerPort
+	private int port;
+
+	@DynamicPropertySource
+	static void stubProperties(DynamicPropertyRegistry registry) throws Exception {
+		stub = new StubAnthropicServer(0)
+				.latency(LatencyDistribution.uniform(5, 30))
+				.tokenDelay(Duration.ofMillis(1))
+				.batchDelay(Duration.ofMillis(150))
+				.start();
+		registry.add("spring.ai.anthropic.base-url", stub::getMessagesUrl);
+		registry.add("spring.ai.anthropic.api-key", () -> "stub-key");
+		registry.add("intellibus.rate-limit.requests-per-minute", () -> 100000);
+		registry.add("intellibus.rate-limit.input-tokens-per-minute", () -> 100000000);
+		registry.add("intellibus.rate-limit.output-tokens-per-minute", () -> 100000000);
+		registry.add("intellibus.message-batches.poll-initial-delay", () -> "20ms");
+		registry.add("intellibus.message-batches.poll-max-delay", () -> "100ms");
+		registry.add("intellibus.message-batches.max-requests-per-batch", () -> 8);
+	}
+
+	@AfterAll
+	static void stopStub() {
+		stub.close();
+	}
+
+	@Test
+	void everyScenarioSucceedsAgainstTheStub() throws Exception {
+		LoadDriver driver = new LoadDriver(URI.create("http://localhost:" + port));
+		LoadDriver.Result result = driver.run(20, Duration.ofSeconds(2), Map.of(
+				Scenario.CHAT, 2,
+				Scenario.CHAT_STREAM, 1,
+				Scenario.SENTIMENT_BATCH, 1,
+				Scenario.CHAT_ANALYSIS, 1,
+				Scenario.REPORT, 1));
+		result.print(System.out);
+
+		assertEquals(40, result.getTotalRequests());
+		assertEquals(0, result.getTotalErrors());
+		assertTrue(stub.getStreamed() > 0);
+
+		// The traffic shows up in the scrape endpoint and keeps every service healthy
+		String scrape = get("/actuator/prometheus");
+		assertTrue(scrape.contains("intellibus_claude_api_latency_seconds_bucket{"), scrape);
+		assertTrue(scrape.contains("intellibus_claude_tokens_total{"), scrape);
+		// The system prompt and instructions are cached after their first request
+		assertTrue(scrape.contains("direction=\"cache_creation\""), scrape);
+		assertTrue(scrape.contains("direction=\"cache_read\""), scrape);
+		assertTrue(scrape.contains("outcome=\"success\",service=\"report\"}"), scrape);
+		assertTrue(scrape.contains("http_server_requests_seconds_bucket{"), scrape);
+		assertTrue(get("/health").contains("\"status\":\"UP\""));
+	}
+
+	@Test
+	void bulkJobsRunThroughTheMessageBatchesEndpoint() throws Exception {
+		long batchesBefore = stub.getBatches();
+		StringBuilder texts = new StringBuilder("[");
+		for (int i = 0; i < 20; i++) {
+			// Half are left to the local scorer, half must go to the batch
+			String mode = i % 2 == 0 ? "fast" : "llm";
+			texts.append(i > 0 ? "," : "").append("{\"text\":\"The venue was ")
+					.append(i % 4 < 2 ? "great" : "terrible").append(" ").append(i).append("\",\"mode\":\"").append(mode).append("\"}");
+		}
+		texts.append("]");
+
+		JsonNode sentimentJob = objectMapper.readTree(post("/api/bulk-jobs/sentiment", texts.toString()));
+		JsonNode reportJob = objectMapper.readTree(post("/api/bulk-jobs/reports/engagement-metrics", """
+				[{"title": "Week 1", "metricsToInclude": ["clicks"]}, {"title": "Week 2", "metricsToInclude": ["clicks"]}]
+				"""));
+
+		JsonNode sentiment = awaitJob(sentimentJob.get("jobId").asText());
+		assertEquals("COMPLETED", sentiment.get("status").asText(), sentiment.toString());
+		assertEquals(10, sentiment.get("answeredLocally").asInt());
+		assertEquals(20, sentiment.get("succeeded").asInt());
+		assertEquals(2, sentiment.get("batchIds").size());
+		JsonNode results = objectMapper.readTree(get("/api/bulk-jobs/" + sentimentJob.get("jobId").asText() + "/sentiment-results"));
+		assertEquals(20, results.size());
+		assertEquals("NEGATIVE", results.get(3).get("sentiment").asText());
+		assertTrue(results.get(3).get("requestId").asText().startsWith("msgbatch_stub_"));
+
+		JsonNode reports = awaitJob(reportJob.get("jobId").asText());
+		assertEquals("COMPLETED", reports.get("status").asText(), reports.toString());
+		assertEquals("engagement-metrics", reports.get("kind").asText());
+		assertEquals(2, reports.get("succeeded").asInt());
+		JsonNode report = objectMapper.readTree(get("/api/reports/" + reports.get("reportIds").get(1).asText()));
+		assertEquals("Week 2", report.get("title").asText());
+		assertEquals("engagement_metrics", report.get("reportType").asText());
+
+		assertEquals(3, stub.getBatches() - batchesBefore);
+		assertTrue(stub.getBatchRetrievals() >= 3);
+	}
+
+	private JsonNode awaitJob(String jobId) throws Exception {
+		long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+		while (true) {
+			JsonNode job = objectMapper.readTree(get("/api/bulk-jobs/" + jobId));
+			String status = job.get("status").asText();
+			if ("COMPLETED".equals(status) || "FAILED".equals(status) || System.nanoTime() > deadline) {
+				return job;
+			}
+			Thread.sleep(50);
+		}
+	}
+
+	private String post(String path, String json) throws Exception {
+		try (HttpClient client = HttpClient.newHttpClient()) {
+			HttpResponse<String> response = client.send(
+					HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+							.header("Content-Type", "application/json")
+							.POST(HttpRequest.BodyPublishers.ofString(json)).build(),
+					HttpResponse.BodyHandlers.ofString());
+			assertEquals(202, response.statusCode(), response.body());
+			assertTrue(response.headers().firstValue("Location").isPresent());
+			return response.body();
+		}
+	}
+
+	private String get(String path) throws Exception {
+		try (HttpClient client = HttpClient.newHttpClient()) {
+			HttpResponse<String> response = client.send(
+					HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build(),
+					HttpResponse.BodyHandlers.ofString());
+			assertEquals(200, response.statusCode(), response.body());
+			return response.body();
+		}
+	}
+}
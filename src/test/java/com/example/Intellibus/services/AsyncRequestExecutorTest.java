@@ -0,0 +1,52 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.Intellibus.config.AsyncExecutorProperties;
+
+class AsyncRequestExecutorTest {
+
+	@Test
+	void rejectsWith429OnceRunningAndQueuedSlotsAreTaken() throws Exception {
+		for (AsyncExecutorProperties.Mode mode : AsyncExecutorProperties.Mode.values()) {
+			AsyncExecutorProperties properties = new AsyncExecutorProperties();
+			properties.setMode(mode);
+			properties.setMaxConcurrent(1);
+			properties.setQueueCapacity(1);
+			AsyncRequestExecutor executor = new AsyncRequestExecutor(properties);
+
+			CountDownLatch release = new CountDownLatch(1);
+			CompletableFuture<String> first = executor.submit(() -> {
+				await(release);
+				return "first";
+			});
+			CompletableFuture<String> second = executor.submit(() -> "second");
+
+			ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> executor.submit(() -> "third"));
+			assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatusCode());
+			assertEquals(1L, executor.getStats().get("rejected"));
+
+			release.countDown();
+			assertEquals("first", first.get());
+			assertEquals("second", second.get());
+			assertEquals("accepted", executor.submit(() -> "accepted").get());
+			executor.shutdown();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
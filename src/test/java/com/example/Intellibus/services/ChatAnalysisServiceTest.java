@@ -0,0 +1,193 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.Intellibus.config.ChunkingProperties;
+import com.example.Intellibus.config.HealthProperties;
+import com.example.Intellibus.config.PersistenceProperties;
+import com.example.Intellibus.models.chat.ChatAnalysisRequest;
+import com.example.Intellibus.models.chat.ChatAnalysisRequest.ChatMessage;
+import com.example.Intellibus.models.chat.ChatAnalysisResult;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisRequest;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ChatAnalysisServiceTest {
+
+	private static final String TOPICS = """
+			{"main_topics": ["schedule"], "user_intents": ["plan a visit"], "key_questions": [],
+			 "identified_issues": [], "action_items": [], "conversation_summary": "Questions about the schedule."}
+			""";
+
+	private final ExecutorService analysisExecutor = Executors.newVirtualThreadPerTaskExecutor();
+	private final MapReduceEngine mapReduceEngine = new MapReduceEngine(new ChunkingProperties());
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+	private ClaudeAIService claudeAIService;
+	private SentimentAnalysisService sentimentService;
+	private ChatAnalysisService service;
+
+	@BeforeEach
+	void setUp() {
+		claudeAIService = mock(ClaudeAIService.class);
+		sentimentService = mock(SentimentAnalysisService.class);
+		when(claudeAIService.generate(any(), any())).thenAnswer(invocation -> tracked(() -> {
+			ClaudeResult result = new ClaudeResult();
+			result.setText(TOPICS);
+			result.setRequestId("req_1");
+			return result;
+		}));
+
+		service = new ChatAnalysisService();
+		ReflectionTestUtils.setField(service, "claudeAIService", claudeAIService);
+		ReflectionTestUtils.setField(service, "sentimentService", sentimentService);
+		ReflectionTestUtils.setField(service, "structuredOutputExtractor", new StructuredOutputExtractor(new ObjectMapper()));
+		ReflectionTestUtils.setField(service, "analysisExecutor", analysisExecutor);
+		ReflectionTestUtils.setField(service, "resultPersistence", new ResultPersistenceService(new PersistenceProperties()));
+		ReflectionTestUtils.setField(service, "mapReduceEngine", mapReduceEngine);
+		ReflectionTestUtils.setField(service, "serviceMetrics", new ServiceMetrics(new SimpleMeterRegistry(), new HealthProperties()));
+		ReflectionTestUtils.setField(service, "maxConcurrencyPerConversation", 2);
+		ReflectionTestUtils.setField(service, "analysisDeadline", Duration.ofSeconds(10));
+	}
+
+	@AfterEach
+	void shutdown() {
+		analysisExecutor.shutdownNow();
+		mapReduceEngine.shutdown();
+	}
+
+	@Test
+	void analysesOfOneConversationStayWithinItsConcurrencyLimit() {
+		when(sentimentService.analyze(any())).thenAnswer(invocation -> tracked(() -> {
+			Thread.sleep(30);
+			return sentiment(invocation.getArgument(0));
+		}));
+
+		ChatAnalysisResult result = service.analyzeChat(conversation(10, -1));
+
+		assertFalse(result.isPartial());
+		assertEquals(10, result.getMessageAnalytics().size());
+		assertNotNull(result.getOverallSentiment());
+		assertEquals(List.of("schedule"), result.getMainTopics());
+		assertTrue(maxInFlight.get() <= 2, "at most 2 analyses at once, saw " + maxInFlight.get());
+	}
+
+	@Test
+	void passingTheDeadlineReturnsWhatHasCompleted() throws Exception {
+		ReflectionTestUtils.setField(service, "maxConcurrencyPerConversation", 8);
+		ReflectionTestUtils.setField(service, "analysisDeadline", Duration.ofSeconds(1));
+		CountDownLatch interrupted = new CountDownLatch(1);
+		when(sentimentService.analyze(any())).thenAnswer(invocation -> {
+			SentimentAnalysisRequest request = invocation.getArgument(0);
+			if (request.getText().contains("stuck")) {
+				try {
+					Thread.sleep(5000);
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+					throw e;
+				}
+			}
+			return sentiment(request);
+		});
+
+		long start = System.nanoTime();
+		ChatAnalysisResult result = service.analyzeChat(conversation(4, 2));
+
+		assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 3000);
+		assertTrue(result.isPartial());
+		assertEquals(3, result.getMessageAnalytics().size());
+		assertFalse(result.getMessageAnalytics().containsKey(2));
+		assertEquals("Message number 0 about the schedule",
+				result.getMessageAnalytics().get(0).getSentiment().getOriginalText());
+		// The whole conversation includes the stuck message, so its sentiment is missing too
+		assertNull(result.getOverallSentiment());
+		assertEquals(List.of("schedule"), result.getMainTopics());
+		assertTrue(interrupted.await(2, TimeUnit.SECONDS), "the stuck analysis is interrupted");
+	}
+
+	@Test
+	void analysesTheExecutorCannotTakeMakeTheResultPartial() {
+		ThreadPoolExecutor busyExecutor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS, new SynchronousQueue<>(),
+				new ThreadPoolExecutor.AbortPolicy());
+		ReflectionTestUtils.setField(service, "analysisExecutor", busyExecutor);
+		ReflectionTestUtils.setField(service, "maxConcurrencyPerConversation", 8);
+		when(claudeAIService.generate(any(), any())).thenAnswer(invocation -> {
+			Thread.sleep(200);
+			ClaudeResult result = new ClaudeResult();
+			result.setText(TOPICS);
+			return result;
+		});
+		when(sentimentService.analyze(any())).thenAnswer(invocation -> {
+			Thread.sleep(200);
+			return sentiment(invocation.getArgument(0));
+		});
+
+		try {
+			ChatAnalysisResult result = service.analyzeChat(conversation(4, -1));
+
+			assertTrue(result.isPartial());
+			assertTrue(result.getMessageAnalytics().isEmpty());
+			assertNotNull(result.getOverallSentiment());
+			assertEquals(List.of("schedule"), result.getMainTopics());
+		} finally {
+			busyExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Run an answer while counting how many run at once
+	 */
+	private <T> T tracked(ThrowingSupplier<T> answer) throws Exception {
+		maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+		try {
+			return answer.get();
+		} finally {
+			inFlight.decrementAndGet();
+		}
+	}
+
+	private static ChatAnalysisRequest conversation(int messages, int stuckIndex) {
+		List<ChatMessage> chat = new ArrayList<>();
+		for (int i = 0; i < messages; i++) {
+			chat.add(new ChatMessage("user", "Message number " + i + " about the schedule"
+					+ (i == stuckIndex ? " that is stuck" : ""), null));
+		}
+		return new ChatAnalysisRequest(chat, null, null);
+	}
+
+	private static SentimentAnalysisResult sentiment(SentimentAnalysisRequest request) {
+		SentimentAnalysisResult result = new SentimentAnalysisResult();
+		result.setSentiment("NEUTRAL");
+		result.setOriginalText(request.getText());
+		return result;
+	}
+
+	private interface ThrowingSupplier<T> {
+		T get() throws Exception;
+	}
+}
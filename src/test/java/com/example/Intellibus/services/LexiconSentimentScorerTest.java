@@ -0,0 +1,55 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.Intellibus.config.FastSentimentProperties;
+
+class LexiconSentimentScorerTest {
+
+	private final LexiconSentimentScorer scorer = new LexiconSentimentScorer(new FastSentimentProperties());
+
+	@Test
+	void obviousTextsScoreConfidently() {
+		LexiconSentimentScorer.Score positive = scorer.score("Great event, thanks!");
+		assertEquals("POSITIVE", positive.getSentiment());
+		assertTrue(positive.getScore() > 0.7);
+		assertTrue(positive.getConfidence() >= 0.9);
+
+		LexiconSentimentScorer.Score negative = scorer.score("This is TERRIBLE, I hate waiting in line");
+		assertEquals("NEGATIVE", negative.getSentiment());
+		assertTrue(negative.getScore() < -0.7);
+		assertEquals(List.of("TERRIBLE", "hate"), negative.getKeyPhrases());
+	}
+
+	@Test
+	void modifiersScaleAndFlipTheWordsAfterThem() {
+		double good = scorer.score("the food was good").getScore();
+		assertTrue(scorer.score("the food was very good").getScore() > good);
+		assertTrue(scorer.score("the food was slightly good").getScore() < good);
+
+		LexiconSentimentScorer.Score negated = scorer.score("the food wasn’t good");
+		assertEquals("NEGATIVE", negated.getSentiment());
+		assertEquals(List.of("wasn’t good"), negated.getKeyPhrases());
+
+		// A clause break ends a negator's reach
+		assertEquals("POSITIVE", scorer.score("No. The food was good").getSentiment());
+	}
+
+	@Test
+	void uncertainReadingsHaveLowConfidence() {
+		LexiconSentimentScorer.Score unknown = scorer.score("The shuttle leaves at nine from the north gate");
+		assertEquals("NEUTRAL", unknown.getSentiment());
+		assertEquals(0, unknown.getTermCount());
+		assertTrue(unknown.getConfidence() < 0.5);
+
+		LexiconSentimentScorer.Score mixed = scorer.score("The talks were great but the venue was awful");
+		assertEquals("MIXED", mixed.getSentiment());
+		assertTrue(mixed.getScore() < 0);
+		assertTrue(mixed.getConfidence() < 0.7);
+	}
+}
@@ -0,0 +1,68 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.Intellibus.config.ChunkingProperties;
+
+class MapReduceEngineTest {
+
+	private final MapReduceEngine engine = new MapReduceEngine(properties());
+
+	@AfterEach
+	void shutdown() {
+		engine.shutdown();
+	}
+
+	@Test
+	void splitsAtItemBoundariesWithinTheBudget() {
+		List<List<Integer>> chunks = MapReduceEngine.split(List.of(4, 4, 3, 9, 12, 1), Integer::intValue, 10);
+
+		assertEquals(List.of(List.of(4, 4), List.of(3), List.of(9), List.of(12), List.of(1)), chunks);
+	}
+
+	@Test
+	void chunksAreMappedInParallelAndReducedInATree() {
+		AtomicInteger reduceCalls = new AtomicInteger();
+		List<Integer> chunks = IntStream.rangeClosed(1, 10).boxed().toList();
+
+		long start = System.nanoTime();
+		int total = engine.mapReduce(chunks, chunk -> {
+			sleep(200);
+			return chunk;
+		}, group -> {
+			assertTrue(group.size() <= 3);
+			reduceCalls.incrementAndGet();
+			return group.stream().mapToInt(Integer::intValue).sum();
+		});
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+		assertEquals(55, total);
+		// 10 partials -> 4 -> 2 -> 1
+		assertEquals(7, reduceCalls.get());
+		// Ten 200ms map calls, five at a time
+		assertTrue(elapsedMillis < 1000, "took " + elapsedMillis + "ms");
+	}
+
+	private static ChunkingProperties properties() {
+		ChunkingProperties properties = new ChunkingProperties();
+		properties.setReduceFanIn(3);
+		properties.setMaxParallelChunks(5);
+		return properties;
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class MessagesRequestWriterTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void writesTheSameBodyAsTheMessagesApiExpects() throws Exception {
+		MessagesRequestWriter writer = new MessagesRequestWriter(objectMapper.getFactory(), "claude-test", 0.7,
+				"Be \"helpful\"\n");
+		String prompt = "Line one\nQuote \" backslash \\ tab \t unicode é   emoji 😀";
+
+		JsonNode body = objectMapper.readTree(write(writer, prompt, 512, false));
+
+		assertEquals("claude-test", body.get("model").asText());
+		assertEquals(0.7, body.get("temperature").asDouble());
+		assertEquals("Be \"helpful\"\n", body.get("system").asText());
+		assertEquals(512, body.get("max_tokens").asInt());
+		assertFalse(body.has("stream"));
+		JsonNode message = body.get("messages").get(0);
+		assertEquals("user", message.get("role").asText());
+		assertEquals("text", message.get("content").get(0).get("type").asText());
+		assertEquals(prompt, message.get("content").get(0).get("text").asText());
+	}
+
+	@Test
+	void streamingRequestsCarryTheStreamFlagAndLeaveTheTargetOpen() throws Exception {
+		MessagesRequestWriter writer = new MessagesRequestWriter(objectMapper.getFactory(), "claude-test", 0.0, "");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(out, "first", 16, true);
+		out.write('\n');
+		writer.write(out, "second", 16, true);
+
+		String[] bodies = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertTrue(objectMapper.readTree(bodies[0]).get("stream").asBoolean());
+		assertEquals("second", objectMapper.readTree(bodies[1]).at("/messages/0/content/0/text").asText());
+	}
+
+	@Test
+	void outputSchemasAreSentAsAForcedTool() throws Exception {
+		MessagesRequestWriter writer = new MessagesRequestWriter(objectMapper.getFactory(), "claude-test", 0.0, "");
+		OutputSchema schema = SentimentAnalysisService.SENTIMENT_SCHEMA;
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(out, "Great day", 64, false, schema);
+
+		JsonNode body = objectMapper.readTree(out.toString(StandardCharsets.UTF_8));
+		assertEquals(1, body.get("tools").size());
+		assertEquals(schema.getName(), body.at("/tools/0/name").asText());
+		assertEquals(schema.getSchema(), body.at("/tools/0/input_schema"));
+		assertEquals("tool", body.at("/tool_choice/type").asText());
+		assertEquals(schema.getName(), body.at("/tool_choice/name").asText());
+		assertEquals("Great day", body.at("/messages/0/content/0/text").asText());
+	}
+
+	@Test
+	void instructionsAndTheSystemPromptAreMarkedAsCacheBreakpoints() throws Exception {
+		MessagesRequestWriter writer = new MessagesRequestWriter(objectMapper.getFactory(), "claude-test", 0.0,
+				"Be helpful", "1h");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(out, "Analyze the text that follows", "Great day", 64, false, null);
+
+		JsonNode body = objectMapper.readTree(out.toString(StandardCharsets.UTF_8));
+		assertEquals("Be helpful", body.at("/system/0/text").asText());
+		assertEquals("ephemeral", body.at("/system/0/cache_control/type").asText());
+		assertEquals("1h", body.at("/system/0/cache_control/ttl").asText());
+		assertEquals("Analyze the text that follows", body.at("/messages/0/content/0/text").asText());
+		assertEquals("ephemeral", body.at("/messages/0/content/0/cache_control/type").asText());
+		assertEquals("Great day", body.at("/messages/0/content/1/text").asText());
+		assertFalse(body.at("/messages/0/content/1").has("cache_control"));
+
+		// The default lifetime needs no ttl, and without a lifetime nothing is marked
+		MessagesRequestWriter defaultTtl = new MessagesRequestWriter(objectMapper.getFactory(), "claude-test", 0.0,
+				"Be helpful", "5m");
+		assertFalse(objectMapper.readTree(write(defaultTtl, "Hi", 16, false)).at("/system/0/cache_control").has("ttl"));
+		MessagesRequestWriter uncached = new MessagesRequestWriter(objectMapper.getFactory(), "claude-test", 0.0,
+				"Be helpful", null);
+		out.reset();
+		uncached.write(out, "Analyze the text that follows", "Great day", 64, false, null);
+		body = objectMapper.readTree(out.toString(StandardCharsets.UTF_8));
+		assertEquals("Be helpful", body.get("system").asText());
+		assertFalse(body.at("/messages/0/content/0").has("cache_control"));
+	}
+
+	private static String write(MessagesRequestWriter writer, String prompt, int maxTokens, boolean stream)
+			throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(out, prompt, maxTokens, stream);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,113 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.Intellibus.models.chat.ChatAnalysisResult;
+import com.example.Intellibus.models.report.ReportResponse;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+class OutputSchemaTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void generatesSchemasFromTheResultClasses() {
+		JsonNode sentiment = SentimentAnalysisService.SENTIMENT_SCHEMA.getSchema();
+		assertEquals("object", sentiment.get("type").asText());
+		assertEquals("number", sentiment.at("/properties/score/type").asText());
+		assertEquals(-1.0, sentiment.at("/properties/score/minimum").asDouble());
+		assertEquals("string", sentiment.at("/properties/dominant_emotions/items/type").asText());
+		assertEquals(4, sentiment.at("/properties/sentiment/enum").size());
+		assertFalse(sentiment.at("/properties/sentiment/description").isMissingNode());
+		assertFalse(sentiment.get("properties").has("requestId"));
+		assertEquals(6, sentiment.get("required").size());
+
+		JsonNode topics = ChatAnalysisService.TOPIC_SCHEMA.getSchema();
+		assertTrue(topics.get("properties").has("main_topics"));
+		assertFalse(topics.get("properties").has("messageAnalytics"));
+
+		JsonNode report = ReportGenerationService.REPORT_SCHEMA.getSchema();
+		assertEquals("string", report.at("/properties/sections/items/properties/title/type").asText());
+		// The recursive subsections stop at a free-form object
+		assertEquals("object", report.at("/properties/sections/items/properties/subsections/items/type").asText());
+		assertTrue(report.at("/properties/sections/items/properties/subsections/items/properties").isMissingNode());
+		assertFalse(report.get("required").toString().contains("metrics_data"));
+	}
+
+	@Test
+	void repairsNearMisses() throws Exception {
+		ObjectNode reply = (ObjectNode) objectMapper.readTree("""
+				{"sentiment": " positive", "score": "1.4", "confidence": "85%",
+				 "dominant_emotions": "joy", "insights": ["Upbeat", "short"]}
+				""");
+		List<String> repairs = new ArrayList<>();
+
+		JsonNode conformed = SentimentAnalysisService.SENTIMENT_SCHEMA.conform(reply, repairs);
+		SentimentAnalysisResult result = objectMapper.treeToValue(conformed, SentimentAnalysisResult.class);
+
+		assertEquals("POSITIVE", result.getSentiment());
+		assertEquals(1.0, result.getScore());
+		assertEquals(0.85, result.getConfidence(), 1e-9);
+		assertEquals(List.of("joy"), result.getDominantEmotions());
+		assertEquals(List.of(), result.getKeyPhrases());
+		assertEquals("Upbeat; short", result.getInsights());
+		assertEquals(7, repairs.size());
+	}
+
+	@Test
+	void rejectsRepliesThatCannotBeRepaired() throws Exception {
+		JsonNode reply = objectMapper.readTree("""
+				{"sentiment": "ecstatic", "score": "very high",
+				 "dominant_emotions": [], "key_phrases": [], "insights": "Thrilled"}
+				""");
+
+		MismatchedInputException e = assertThrows(MismatchedInputException.class,
+				() -> SentimentAnalysisService.SENTIMENT_SCHEMA.conform(reply, null));
+		assertTrue(e.getMessage().contains("$.sentiment"));
+		assertTrue(e.getMessage().contains("$.score"));
+		assertTrue(e.getMessage().contains("$.confidence: required but missing"));
+	}
+
+	@Test
+	void conformedTopicAnalysisBindsThroughTheAliases() throws Exception {
+		JsonNode reply = objectMapper.readTree("""
+				{"main_topics": ["venue"], "user_intents": "register", "key_questions": null,
+				 "identified_issues": [], "action_items": [], "conversation_summary": "Asked about the venue."}
+				""");
+
+		ChatAnalysisResult result = objectMapper.treeToValue(ChatAnalysisService.TOPIC_SCHEMA.conform(reply, null),
+				ChatAnalysisResult.class);
+
+		assertEquals(List.of("venue"), result.getMainTopics());
+		assertEquals(List.of("register"), result.getUserIntents());
+		assertEquals(List.of(), result.getKeyQuestions());
+	}
+
+	@Test
+	void reportSectionsMayOmitNestedFields() throws Exception {
+		JsonNode reply = objectMapper.readTree("""
+				{"executive_summary": "Good", "key_findings": [], "recommendations": [],
+				 "sections": [{"title": "Overview", "subsections": [{"title": "Detail", "extra": 1}]}]}
+				""");
+
+		ReportResponse report = objectMapper.readerFor(ReportResponse.class)
+				.without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+				.treeToValue(ReportGenerationService.REPORT_SCHEMA.conform(reply, null), ReportResponse.class);
+
+		assertEquals("Overview", report.getSections().get(0).getTitle());
+		assertEquals("Detail", report.getSections().get(0).getSubsections().get(0).getTitle());
+	}
+}
@@ -0,0 +1,93 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.Intellibus.config.ChunkingProperties;
+import com.example.Intellibus.models.report.EngagementMetricsRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ReportGenerationServiceTest {
+
+	private ClaudeAIService claudeAIService;
+	private MapReduceEngine mapReduceEngine;
+	private ReportGenerationService service;
+
+	@BeforeEach
+	void setUp() {
+		ChunkingProperties chunking = new ChunkingProperties();
+		chunking.setMaxChunkTokens(200);
+		chunking.setReduceFanIn(4);
+		mapReduceEngine = new MapReduceEngine(chunking);
+
+		claudeAIService = mock(ClaudeAIService.class);
+		service = new ReportGenerationService();
+		ReflectionTestUtils.setField(service, "claudeAIService", claudeAIService);
+		ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(service, "structuredOutputExtractor", new StructuredOutputExtractor(new ObjectMapper()));
+		ReflectionTestUtils.setField(service, "mapReduceEngine", mapReduceEngine);
+	}
+
+	@AfterEach
+	void shutdown() {
+		mapReduceEngine.shutdown();
+	}
+
+	@Test
+	void smallDataGoesIntoThePromptAsIs() {
+		EngagementMetricsRequest request = request(5);
+
+		assertNull(service.condenseData(request, "engagement metrics"));
+		assertTrue(service.buildEngagementMetricsPrompt(request, null).contains("Raw data for analysis:"));
+	}
+
+	@Test
+	void oversizedDataIsAnalyzedInSlicesAndCondensed() {
+		when(claudeAIService.generate(contains("slice"), any())).thenReturn(result(
+				"{\"record_count\": 4, \"metrics\": {\"clicks\": {\"sum\": 170}}, \"key_findings\": [\"Clicks rose steadily\"]}"));
+		when(claudeAIService.generate(contains("Combine these analyses"), any())).thenReturn(result(
+				"Merged: {\"record_count\": 200, \"metrics\": {\"clicks\": {\"sum\": 8500}}, \"key_findings\": [\"Clicks rose\"]}"));
+		EngagementMetricsRequest request = request(200);
+
+		String digest = service.condenseData(request, "engagement metrics");
+		String prompt = service.buildEngagementMetricsPrompt(request, digest);
+
+		assertTrue(digest.contains("\"record_count\":200"), digest);
+		assertTrue(prompt.contains("The raw data (200 records) is too large to include"));
+		assertFalse(prompt.contains("\"day\":199"));
+		verify(claudeAIService, atLeastOnce()).generate(contains("Combine these analyses"), any());
+	}
+
+	private static EngagementMetricsRequest request(int records) {
+		EngagementMetricsRequest request = new EngagementMetricsRequest();
+		request.setTitle("Q2 engagement");
+		List<Map<String, Object>> data = IntStream.range(0, records)
+				.mapToObj(i -> Map.<String, Object>of("day", i, "impressions", 1000 + i * 37, "clicks", 40 + i))
+				.toList();
+		request.setData(data);
+		return request;
+	}
+
+	private static ClaudeResult result(String text) {
+		ClaudeResult result = new ClaudeResult();
+		result.setText(text);
+		result.setRequestId("req_1");
+		return result;
+	}
+}
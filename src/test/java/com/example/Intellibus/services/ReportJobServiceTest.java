@@ -0,0 +1,103 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.Intellibus.models.report.EngagementMetricsRequest;
+import com.example.Intellibus.models.report.ReportResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest(properties = {
+		"spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+		"spring.ai.anthropic.api-key=test-key",
+		"intellibus.report-jobs.enabled=true",
+		"intellibus.report-jobs.partitions=2",
+		"intellibus.report-jobs.concurrency=2",
+		"intellibus.report-jobs.instance-id=node-a" })
+@EmbeddedKafka(partitions = 2)
+@AutoConfigureMockMvc
+class ReportJobServiceTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private KafkaListenerEndpointRegistry registry;
+
+	@MockitoBean
+	private ReportGenerationService reportService;
+
+	@BeforeEach
+	void waitForListeners() {
+		ContainerTestUtils.waitForAssignment(registry.getListenerContainer("report-job-worker"), 2);
+		ContainerTestUtils.waitForAssignment(registry.getListenerContainer("report-job-status"), 2);
+	}
+
+	@Test
+	void queuedReportIsGeneratedByAWorkerAndServedFromTheStatusEndpoint() throws Exception {
+		ReportResponse report = new ReportResponse();
+		report.setTitle("Q2 engagement");
+		report.setExecutiveSummary("Engagement grew");
+		report.setKeyFindings(List.of("Email outperformed social"));
+		when(reportService.generateReport(any(EngagementMetricsRequest.class))).thenReturn(report);
+
+		String body = mockMvc.perform(post("/api/reports/jobs/engagement-metrics")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"title\": \"Q2 engagement\", \"startDate\": \"2024-04-01\", \"channels\": [\"email\"]}"))
+				.andExpect(status().isAccepted())
+				.andExpect(header().exists("Location"))
+				.andExpect(jsonPath("$.status").value("QUEUED"))
+				.andExpect(jsonPath("$.kind").value("engagement-metrics"))
+				.andReturn().getResponse().getContentAsString();
+		String jobId = objectMapper.readTree(body).get("jobId").asText();
+
+		JsonNode job = null;
+		long deadline = System.currentTimeMillis() + 20_000;
+		while (System.currentTimeMillis() < deadline) {
+			job = objectMapper.readTree(mockMvc.perform(get("/api/reports/jobs/" + jobId))
+					.andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+			if ("COMPLETED".equals(job.get("status").asText())) {
+				break;
+			}
+			Thread.sleep(50);
+		}
+
+		assertEquals("COMPLETED", job.get("status").asText());
+		assertEquals("Engagement grew", job.at("/report/executive_summary").asText());
+	}
+
+	@Test
+	void statusesAreReadInAGroupNamedAfterTheInstance() {
+		assertEquals("intellibus-report-status-node-a",
+				registry.getListenerContainer("report-job-status").getGroupId());
+	}
+
+	@Test
+	void unknownJobIsNotFound() throws Exception {
+		mockMvc.perform(get("/api/reports/jobs/missing")).andExpect(status().isNotFound());
+	}
+}
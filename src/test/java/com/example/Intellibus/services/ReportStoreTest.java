@@ -0,0 +1,90 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import com.example.Intellibus.config.AppConfig;
+import com.example.Intellibus.config.ReportStoreProperties;
+import com.example.Intellibus.models.report.ReportResponse;
+import com.example.Intellibus.models.report.ReportSummary;
+
+class ReportStoreTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void reportsSurviveARestartAndLargeOnesAreCompressed() throws Exception {
+		ReportStore store = open();
+		store.save(report("small", "engagement_metrics", "Q2 engagement", LocalDateTime.now().minusDays(2), 10));
+		store.save(report("large", "post_event", "Tech Conference", LocalDateTime.now(), 5000));
+		store.awaitWrites();
+		store.stop();
+
+		assertTrue(Files.exists(directory.resolve("small.json")));
+		assertTrue(Files.exists(directory.resolve("large.json.gz")));
+
+		ReportStore reopened = open();
+		ReportResponse large = reopened.get("large");
+		assertEquals("Tech Conference", large.getTitle());
+		assertEquals(5000, large.getKeyFindings().size());
+		assertEquals(1L, reopened.getStats().get("diskReads"));
+
+		reopened.get("large");
+		assertEquals(1L, reopened.getStats().get("diskReads"));
+		assertNull(reopened.get("missing"));
+		assertNull(reopened.get("../index"));
+		reopened.stop();
+	}
+
+	@Test
+	void listsByTypeTitleAndDateRangeNewestFirst() throws Exception {
+		ReportStore store = open();
+		LocalDateTime now = LocalDateTime.now();
+		store.save(report("a", "engagement_metrics", "Q1 engagement", now.minusDays(40), 1));
+		store.save(report("b", "engagement_metrics", "Q2 Engagement", now.minusDays(3), 1));
+		store.save(report("c", "daily_monitoring", "Daily engagement", now.minusDays(1), 1));
+		store.awaitWrites();
+
+		List<ReportSummary> engagement = store.list("engagement_metrics", null, null, null, 10);
+		assertEquals(List.of("b", "a"), engagement.stream().map(ReportSummary::getReportId).toList());
+
+		List<ReportSummary> recent = store.list(null, "ENGAGEMENT", now.minusDays(7), null, 10);
+		assertEquals(List.of("c", "b"), recent.stream().map(ReportSummary::getReportId).toList());
+		assertFalse(recent.get(0).isCompressed());
+		store.stop();
+	}
+
+	private ReportStore open() throws Exception {
+		ReportStoreProperties properties = new ReportStoreProperties();
+		properties.setDirectory(directory);
+		properties.setCompressionThreshold(DataSize.ofKilobytes(4));
+		ReportStore store = new ReportStore(properties);
+		ReflectionTestUtils.setField(store, "objectMapper", new AppConfig().objectMapper());
+		store.start();
+		return store;
+	}
+
+	private static ReportResponse report(String id, String type, String title, LocalDateTime generatedAt, int findings) {
+		ReportResponse report = new ReportResponse();
+		report.setReportId(id);
+		report.setReportType(type);
+		report.setTitle(title);
+		report.setGeneratedAt(generatedAt);
+		report.setKeyFindings(IntStream.range(0, findings).mapToObj(i -> "Finding " + i).toList());
+		return report;
+	}
+}
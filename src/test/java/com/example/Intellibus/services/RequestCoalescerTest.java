@@ -0,0 +1,88 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RequestCoalescerTest {
+
+	@Test
+	void followersShareTheLeadersResultWithinTheWindow() throws Exception {
+		RequestCoalescer coalescer = new RequestCoalescer(true, Duration.ofSeconds(5));
+		RequestCoalescer.Flight leader = coalescer.join("key");
+		RequestCoalescer.Flight follower = coalescer.join("key");
+		assertTrue(leader.isLeader());
+		assertFalse(follower.isLeader());
+
+		ClaudeResult result = result(true);
+		coalescer.complete(leader, result);
+
+		assertSame(result, follower.await());
+		assertSame(result, coalescer.join("key").await());
+		assertEquals(2L, coalescer.getStats().get("coalesced"));
+	}
+
+	@Test
+	void failuresAreNotSharedOnceCompleted() throws Exception {
+		RequestCoalescer coalescer = new RequestCoalescer(true, Duration.ofSeconds(5));
+		RequestCoalescer.Flight leader = coalescer.join("key");
+		coalescer.complete(leader, result(false));
+
+		assertTrue(coalescer.join("key").isLeader());
+	}
+
+	@Test
+	void abandonedLeaderReleasesFollowersAndCancelledFollowersLeaveTheCallAlone() throws Exception {
+		RequestCoalescer coalescer = new RequestCoalescer(true, Duration.ZERO);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		coalescer.bindTo(registry);
+		RequestCoalescer.Flight leader = coalescer.join("key");
+		RequestCoalescer.Flight cancelled = coalescer.join("key");
+		RequestCoalescer.Flight waiting = coalescer.join("key");
+
+		CountDownLatch started = new CountDownLatch(1);
+		Thread thread = Thread.ofVirtual().start(() -> {
+			started.countDown();
+			try {
+				cancelled.await();
+			} catch (InterruptedException e) {
+				// expected
+			}
+		});
+		started.await();
+		thread.interrupt();
+		thread.join(TimeUnit.SECONDS.toMillis(5));
+
+		CompletableFuture<ClaudeResult> pending = CompletableFuture.supplyAsync(() -> {
+			try {
+				return waiting.await();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		assertFalse(pending.isDone());
+
+		coalescer.abandon(leader);
+		assertNull(pending.get(5, TimeUnit.SECONDS));
+		assertTrue(coalescer.join("key").isLeader());
+		assertEquals(1.0, registry.get("intellibus.coalescing.abandoned").functionCounter().count());
+	}
+
+	private static ClaudeResult result(boolean success) {
+		ClaudeResult result = new ClaudeResult();
+		result.setText("text");
+		result.setSuccess(success);
+		return result;
+	}
+}
@@ -0,0 +1,136 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.Intellibus.services.ClaudeAIService.RequestMetrics;
+
+class RequestMetricsStoreTest {
+
+	@Test
+	void requestIdsOfDifferentStoresDoNotCollide() {
+		RequestMetricsStore store = new RequestMetricsStore(8);
+		RequestMetricsStore other = new RequestMetricsStore(8);
+		long seq = store.nextSequence();
+
+		assertEquals(seq, other.nextSequence());
+		assertNotEquals(store.requestId(seq), other.requestId(seq));
+		assertEquals(seq, store.sequenceOf(store.requestId(seq)));
+		assertEquals(-1, store.sequenceOf(other.requestId(seq)));
+	}
+
+	@Test
+	void aLateRecordDoesNotOverwriteANewerOneInItsSlot() {
+		RequestMetricsStore store = new RequestMetricsStore(4);
+		long slow = store.nextSequence();
+		for (int i = 0; i < 3; i++) {
+			store.nextSequence();
+		}
+		long wrapped = store.nextSequence();
+		store.record(wrapped, Instant.now(), 0, 1_000_000, -1, 1_000_000, 200, result("new", true));
+
+		store.record(slow, Instant.now(), 0, 9_000_000, -1, 9_000_000, 200, result("old", true));
+
+		assertNull(store.get(slow));
+		assertEquals(3, store.get(wrapped).getResponseLength());
+		assertEquals(2, store.getTotalRecorded());
+	}
+
+	@Test
+	void concurrentWritersToOneSlotLeaveTheNewestRecord() throws Exception {
+		RequestMetricsStore store = new RequestMetricsStore(1);
+		List<Long> sequences = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			sequences.add(store.nextSequence());
+		}
+		List<Thread> writers = new ArrayList<>();
+		for (int w = 0; w < 4; w++) {
+			int offset = w;
+			writers.add(Thread.ofPlatform().start(() -> {
+				for (int i = offset; i < sequences.size(); i += 4) {
+					long seq = sequences.get(i);
+					store.record(seq, Instant.now(), 0, seq, -1, seq, 200, result("x", true));
+				}
+			}));
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+
+		long newest = sequences.get(sequences.size() - 1);
+		RequestMetrics metrics = store.get(newest);
+		assertNotNull(metrics);
+		assertEquals(newest, metrics.getTotalProcessingDuration().toNanos());
+	}
+
+	@Test
+	void recordsAreLookedUpById() {
+		RequestMetricsStore store = new RequestMetricsStore(8);
+		long seq = store.nextSequence();
+		store.record(seq, Instant.now(), 0, 2_000_000, -1, 3_000_000, 200, result("x".repeat(42), true));
+
+		RequestMetrics metrics = store.get(store.requestId(seq));
+		assertNotNull(metrics);
+		assertEquals(2, metrics.getApiCallDuration().toMillis());
+		assertEquals(3, metrics.getTotalProcessingDuration().toMillis());
+		assertEquals(200, metrics.getStatusCode());
+		assertEquals(42, metrics.getResponseLength());
+		assertTrue(metrics.isSuccess());
+		assertFalse(metrics.isCached());
+	}
+
+	@Test
+	void oldRecordsAreEvictedOnceCapacityIsExceeded() {
+		RequestMetricsStore store = new RequestMetricsStore(4);
+		List<Long> sequences = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			long seq = store.nextSequence();
+			sequences.add(seq);
+			store.record(seq, Instant.now(), 0, -1, -1, 1_000, 500, result(null, false));
+		}
+
+		assertEquals(4, store.size());
+		assertNull(store.get(store.requestId(sequences.get(0))));
+		assertNotNull(store.get(store.requestId(sequences.get(9))));
+		assertEquals(10, store.getTotalRecorded());
+	}
+
+	@Test
+	void pagesWalkFromNewestToOldest() {
+		RequestMetricsStore store = new RequestMetricsStore(16);
+		for (int i = 0; i < 5; i++) {
+			long seq = store.nextSequence();
+			store.record(seq, Instant.now(), 0, -1, -1, 1_000, 200, result("x".repeat(i), true));
+		}
+
+		List<RequestMetrics> firstPage = new ArrayList<>();
+		store.forEachRecent(2, null, firstPage::add);
+		assertEquals(List.of(4, 3), firstPage.stream().map(RequestMetrics::getResponseLength).toList());
+
+		List<RequestMetrics> secondPage = new ArrayList<>();
+		store.forEachRecent(10, firstPage.get(1).getRequestId(), secondPage::add);
+		assertEquals(List.of(2, 1, 0), secondPage.stream().map(RequestMetrics::getResponseLength).toList());
+
+		store.clear();
+		assertEquals(0, store.size());
+	}
+
+	private static ClaudeResult result(String text, boolean success) {
+		ClaudeResult result = new ClaudeResult();
+		result.setText(text);
+		result.setModel("model");
+		result.setSuccess(success);
+		result.setErrorMessage(success ? null : "boom");
+		return result;
+	}
+}
@@ -0,0 +1,112 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.Intellibus.models.report.ReportResponse;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
+
+@SpringBootTest(properties = "spring.ai.anthropic.api-key=test-key")
+@ActiveProfiles("h2")
+class ResultPersistenceServiceTest {
+
+	@Autowired
+	private ResultPersistenceService resultPersistence;
+
+	@Autowired
+	private RequestMetricsStore metricsStore;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void resultsAndMetricsAreWrittenBehindTheRequest() throws Exception {
+		SentimentAnalysisResult sentiment = new SentimentAnalysisResult();
+		sentiment.setRequestId("req_persist_1");
+		sentiment.setSentiment("POSITIVE");
+		sentiment.setScore(0.8);
+		resultPersistence.saveSentiment(sentiment);
+
+		ReportResponse report = new ReportResponse();
+		report.setReportId("report-persist-1");
+		report.setReportType("engagement_metrics");
+		report.setTitle("Q2 engagement");
+		report.setExecutiveSummary("Engagement grew");
+		resultPersistence.saveReport(report);
+
+		long seq = metricsStore.nextSequence();
+		ClaudeResult claudeResult = new ClaudeResult();
+		claudeResult.setText("hi");
+		claudeResult.setModel("claude-test");
+		claudeResult.setInputTokens(12);
+		metricsStore.record(seq, Instant.now(), 0, 1_000_000, -1, 2_000_000, 200, claudeResult);
+
+		awaitEquals(1, () -> count("SELECT COUNT(*) FROM sentiment_results WHERE request_id = 'req_persist_1'"));
+		awaitEquals(1, () -> count("SELECT COUNT(*) FROM reports WHERE report_id = 'report-persist-1'"));
+		awaitEquals(1, () -> count("SELECT COUNT(*) FROM request_metrics WHERE request_id = '" + metricsStore.requestId(seq) + "'"));
+
+		Map<String, Object> row = jdbcTemplate.queryForMap(
+				"SELECT sentiment, score, payload FROM sentiment_results WHERE request_id = 'req_persist_1'");
+		assertEquals("POSITIVE", row.get("SENTIMENT"));
+		assertEquals(0.8, ((Number) row.get("SCORE")).doubleValue());
+		List<Integer> tokens = jdbcTemplate.queryForList("SELECT input_tokens FROM request_metrics WHERE request_id = ?",
+				Integer.class, metricsStore.requestId(seq));
+		assertEquals(List.of(12), tokens);
+		assertEquals(false, jdbcTemplate.queryForObject(
+				"SELECT failed FROM reports WHERE report_id = 'report-persist-1'", Boolean.class));
+	}
+
+	@Test
+	void onlyTheRowsTheDatabaseRejectsAreDropped() throws Exception {
+		long rejectedBefore = (long) resultPersistence.getStats().get("rejectedByDatabase");
+
+		SentimentAnalysisResult tooLong = new SentimentAnalysisResult();
+		tooLong.setRequestId("req_rejected_1");
+		tooLong.setSentiment("NOT A SENTIMENT LABEL AT ALL");
+		resultPersistence.saveSentiment(tooLong);
+
+		SentimentAnalysisResult valid = new SentimentAnalysisResult();
+		valid.setRequestId("req_kept_1");
+		valid.setSentiment("NEGATIVE");
+		resultPersistence.saveSentiment(valid);
+
+		ReportResponse report = new ReportResponse();
+		report.setReportId("report-kept-1");
+		report.setReportType("engagement_metrics");
+		resultPersistence.saveReport(report);
+
+		awaitEquals(1, () -> count("SELECT COUNT(*) FROM sentiment_results WHERE request_id = 'req_kept_1'"));
+		awaitEquals(1, () -> count("SELECT COUNT(*) FROM reports WHERE report_id = 'report-kept-1'"));
+		assertEquals(0, count("SELECT COUNT(*) FROM sentiment_results WHERE request_id = 'req_rejected_1'"));
+		assertEquals(rejectedBefore + 1, (long) resultPersistence.getStats().get("rejectedByDatabase"));
+	}
+
+	private int count(String sql) {
+		return jdbcTemplate.queryForObject(sql, Integer.class);
+	}
+
+	private static void awaitEquals(int expected, Supplier<Integer> actual) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (System.currentTimeMillis() < deadline) {
+			try {
+				if (actual.get() == expected) {
+					return;
+				}
+			} catch (RuntimeException e) {
+				// Tables are created by the first flush
+			}
+			Thread.sleep(20);
+		}
+		assertEquals(expected, actual.get());
+	}
+}
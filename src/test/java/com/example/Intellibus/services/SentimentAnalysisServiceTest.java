@@ -0,0 +1,151 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.Intellibus.config.FastSentimentProperties;
+import com.example.Intellibus.config.HealthProperties;
+import com.example.Intellibus.config.PersistenceProperties;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisRequest;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
+import com.example.Intellibus.models.sentiment.SentimentMode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SentimentAnalysisServiceTest {
+
+	private ClaudeAIService claudeAIService;
+	private SentimentAnalysisService service;
+	private final FastSentimentProperties fastPathProperties = new FastSentimentProperties();
+
+	@BeforeEach
+	void setUp() {
+		fastPathProperties.setDefaultMode(SentimentMode.LLM);
+		claudeAIService = mock(ClaudeAIService.class);
+		service = new SentimentAnalysisService();
+		ReflectionTestUtils.setField(service, "claudeAIService", claudeAIService);
+		ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(service, "structuredOutputExtractor", new StructuredOutputExtractor(new ObjectMapper()));
+		ReflectionTestUtils.setField(service, "resultPersistence", new ResultPersistenceService(new PersistenceProperties()));
+		ReflectionTestUtils.setField(service, "serviceMetrics", new ServiceMetrics(new SimpleMeterRegistry(), new HealthProperties()));
+		ReflectionTestUtils.setField(service, "lexiconScorer", new LexiconSentimentScorer(new FastSentimentProperties()));
+		ReflectionTestUtils.setField(service, "fastPathProperties", fastPathProperties);
+		ReflectionTestUtils.setField(service, "batchMaxItems", 25);
+		ReflectionTestUtils.setField(service, "batchMaxInputTokens", 8000);
+		ReflectionTestUtils.setField(service, "batchMaxOutputTokens", 4096);
+		ReflectionTestUtils.setField(service, "batchOutputTokensPerItem", 200);
+	}
+
+	@Test
+	void batchIsAnsweredByOneCallAndMissingItemsAreRetried() {
+		when(claudeAIService.generate(contains("JSON array"), any())).thenReturn(result(
+				"Here you go: [{\"index\": 0, \"sentiment\": \"POSITIVE\", \"score\": 0.9, \"confidence\": 0.8},"
+						+ " {\"index\": 2, \"sentiment\": \"NEGATIVE\", \"score\": -0.7, \"confidence\": 0.9}]"));
+		when(claudeAIService.generate(contains("Text to analyze"), any())).thenReturn(result(
+				"{\"sentiment\": \"NEUTRAL\", \"score\": 0.0, \"confidence\": 0.6}"));
+
+		SentimentAnalysisResult[] results = service.batchAnalyzeSentiment(new SentimentAnalysisRequest[] {
+				request("I love it"), request("It arrived"), request("Terrible support") });
+
+		assertEquals("POSITIVE", results[0].getSentiment());
+		assertEquals("NEUTRAL", results[1].getSentiment());
+		assertEquals("NEGATIVE", results[2].getSentiment());
+		assertEquals("It arrived", results[1].getOriginalText());
+		verify(claudeAIService, times(2)).generate(any(), any());
+	}
+
+	@Test
+	void aFailedBatchCallIsNotRetriedItemByItem() {
+		ClaudeResult throttled = result("Error: 429 Too Many Requests");
+		throttled.setSuccess(false);
+		throttled.setErrorMessage("429 Too Many Requests");
+		when(claudeAIService.generate(contains("JSON array"), any())).thenReturn(throttled);
+
+		SentimentAnalysisResult[] results = service.batchAnalyzeSentiment(new SentimentAnalysisRequest[] {
+				request("I love it"), request("It arrived"), request("Terrible support") });
+
+		for (SentimentAnalysisResult result : results) {
+			assertEquals("ERROR", result.getSentiment());
+		}
+		assertEquals("It arrived", results[1].getOriginalText());
+		verify(claudeAIService, times(1)).generate(any(), any());
+	}
+
+	@Test
+	void aFailedCallFailsTheWholeBatchForCallersThatRetryIt() {
+		ReflectionTestUtils.setField(service, "batchMaxItems", 2);
+		ClaudeResult throttled = result("Error: 429 Too Many Requests");
+		throttled.setSuccess(false);
+		throttled.setErrorMessage("429 Too Many Requests");
+		when(claudeAIService.generate(contains("JSON array"), any())).thenReturn(throttled);
+
+		IllegalStateException failure = assertThrows(IllegalStateException.class,
+				() -> service.batchAnalyzeSentimentOrFail(new SentimentAnalysisRequest[] {
+						request("a"), request("b"), request("c"), request("d") }));
+
+		assertEquals("429 Too Many Requests", failure.getCause().getMessage());
+		verify(claudeAIService, times(1)).generate(any(), any());
+	}
+
+	@Test
+	void batchesAreSplitByItemLimit() {
+		ReflectionTestUtils.setField(service, "batchMaxItems", 2);
+		when(claudeAIService.generate(contains("JSON array"), any())).thenReturn(result(
+				"[{\"index\": 0, \"sentiment\": \"POSITIVE\", \"score\": 0.8, \"confidence\": 0.9},"
+						+ " {\"index\": 1, \"sentiment\": \"POSITIVE\", \"score\": 0.6, \"confidence\": 0.9}]"));
+
+		SentimentAnalysisResult[] results = service.batchAnalyzeSentiment(new SentimentAnalysisRequest[] {
+				request("a"), request("b"), request("c"), request("d") });
+
+		assertEquals(4, results.length);
+		for (SentimentAnalysisResult result : results) {
+			assertEquals("POSITIVE", result.getSentiment());
+		}
+		assertEquals("c", results[2].getOriginalText());
+		verify(claudeAIService, times(2)).generate(contains("JSON array"), any());
+		verify(claudeAIService, never()).generate(contains("Text to analyze"), any());
+	}
+
+	@Test
+	void autoModeOnlySendsUncertainTextsToClaude() {
+		fastPathProperties.setDefaultMode(SentimentMode.AUTO);
+		when(claudeAIService.generate(contains("Text to analyze"), any())).thenReturn(result(
+				"{\"sentiment\": \"MIXED\", \"score\": 0.1, \"confidence\": 0.8}"));
+		SentimentAnalysisRequest forcedFast = request("The venue was fine but the queue was slow");
+		forcedFast.setMode(SentimentMode.FAST);
+
+		SentimentAnalysisResult[] results = service.batchAnalyzeSentiment(new SentimentAnalysisRequest[] {
+				request("Great event, thanks!"), request("The venue was fine but the queue was slow"), forcedFast });
+
+		assertEquals("POSITIVE", results[0].getSentiment());
+		assertEquals("MIXED", results[1].getSentiment());
+		assertEquals(0.8, results[1].getConfidence());
+		assertEquals("The venue was fine but the queue was slow", results[1].getOriginalText());
+		assertTrue(results[2].getConfidence() < fastPathProperties.getConfidenceThreshold());
+		verify(claudeAIService, times(1)).generate(any(), any());
+	}
+
+	private static SentimentAnalysisRequest request(String text) {
+		return new SentimentAnalysisRequest(text, null, null);
+	}
+
+	private static ClaudeResult result(String text) {
+		ClaudeResult result = new ClaudeResult();
+		result.setText(text);
+		result.setRequestId("req_1");
+		return result;
+	}
+}
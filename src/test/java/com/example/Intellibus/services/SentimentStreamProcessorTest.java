@@ -0,0 +1,173 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.example.Intellibus.models.sentiment.SentimentAnalysisRequest;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest(properties = {
+		"spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+		"spring.kafka.consumer.auto-offset-reset=earliest",
+		"spring.ai.anthropic.api-key=test-key",
+		"intellibus.sentiment-stream.enabled=true",
+		"intellibus.sentiment-stream.partitions=2",
+		"intellibus.sentiment-stream.concurrency=2",
+		"intellibus.sentiment-stream.max-batch-size=10",
+		"intellibus.sentiment-stream.max-batch-wait=200ms",
+		"intellibus.sentiment-stream.retry-backoff=100ms" })
+@EmbeddedKafka(partitions = 2)
+class SentimentStreamProcessorTest {
+
+	private static final int RECORDS = 30;
+
+	@Autowired
+	private EmbeddedKafkaBroker broker;
+
+	@Autowired
+	private KafkaTemplate<String, String> kafkaTemplate;
+
+	@Autowired
+	private SentimentStreamProcessor processor;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@MockitoBean
+	private SentimentAnalysisService sentimentService;
+
+	@Test
+	void everyRecordGetsAResultAndOffsetsAreCommittedAfterProducing() throws Exception {
+		when(sentimentService.batchAnalyzeSentimentOrFail(any())).thenAnswer(invocation -> scored(invocation.getArgument(0)));
+		long committedBefore = committedOffsets();
+		Map<String, Object> statsBefore = processor.getStats();
+
+		send("ok", 7);
+		Map<String, List<SentimentAnalysisResult>> results = readResults("ok");
+
+		assertEquals(RECORDS, results.size());
+		assertEquals("ERROR", results.get("ok-7").get(0).getSentiment());
+		assertEquals("message 3", results.get("ok-3").get(0).getInsights());
+		assertEquals(committedBefore + RECORDS, awaitCommitted(committedBefore + RECORDS));
+
+		Map<String, Object> stats = processor.getStats();
+		assertEquals(RECORDS, (long) stats.get("recordsProduced") - (long) statsBefore.get("recordsProduced"));
+		assertEquals(1L, (long) stats.get("malformedRecords") - (long) statsBefore.get("malformedRecords"));
+	}
+
+	@Test
+	void batchesWhoseClaudeCallsFailAreRewoundInsteadOfProduced() throws Exception {
+		when(sentimentService.batchAnalyzeSentimentOrFail(any()))
+				.thenThrow(new IllegalStateException("Claude call failed: overloaded"))
+				.thenThrow(new IllegalStateException("Claude call failed: overloaded"))
+				.thenAnswer(invocation -> scored(invocation.getArgument(0)));
+		long committedBefore = committedOffsets();
+		Map<String, Object> statsBefore = processor.getStats();
+
+		send("retry", -1);
+		Map<String, List<SentimentAnalysisResult>> results = readResults("retry");
+
+		assertEquals(RECORDS, results.size());
+		results.forEach((key, produced) -> {
+			assertEquals(1, produced.size(), key + " produced once");
+			assertEquals("POSITIVE", produced.get(0).getSentiment(), key);
+		});
+		assertEquals(committedBefore + RECORDS, awaitCommitted(committedBefore + RECORDS));
+
+		Map<String, Object> stats = processor.getStats();
+		assertEquals(2L, (long) stats.get("failedBatches") - (long) statsBefore.get("failedBatches"));
+		assertEquals(RECORDS, (long) stats.get("recordsProduced") - (long) statsBefore.get("recordsProduced"));
+	}
+
+	private static SentimentAnalysisResult[] scored(SentimentAnalysisRequest[] requests) {
+		return Arrays.stream(requests).map(request -> {
+			SentimentAnalysisResult result = new SentimentAnalysisResult();
+			result.setSentiment("POSITIVE");
+			result.setInsights(request.getText());
+			return result;
+		}).toArray(SentimentAnalysisResult[]::new);
+	}
+
+	private void send(String keyPrefix, int malformedIndex) {
+		for (int i = 0; i < RECORDS; i++) {
+			String value = i == malformedIndex ? "not json" : "{\"text\": \"message " + i + "\"}";
+			kafkaTemplate.send("intellibus.sentiment-requests", keyPrefix + "-" + i, value);
+		}
+		kafkaTemplate.flush();
+	}
+
+	/**
+	 * Every result produced for keys with the prefix, waiting until each key has one and a little longer for duplicates
+	 */
+	private Map<String, List<SentimentAnalysisResult>> readResults(String keyPrefix) throws Exception {
+		Map<String, Object> props = KafkaTestUtils.consumerProps("sentiment-results-reader-" + keyPrefix, "false", broker);
+		props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+		Map<String, List<SentimentAnalysisResult>> results = new HashMap<>();
+		try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(props,
+				new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+			consumer.subscribe(List.of("intellibus.sentiment-results"));
+			long deadline = System.currentTimeMillis() + 30_000;
+			long settled = Long.MAX_VALUE;
+			while (System.currentTimeMillis() < Math.min(deadline, settled)) {
+				for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(200))) {
+					if (record.key().startsWith(keyPrefix + "-")) {
+						results.computeIfAbsent(record.key(), key -> new ArrayList<>())
+								.add(objectMapper.readValue(record.value(), SentimentAnalysisResult.class));
+					}
+				}
+				if (results.size() == RECORDS && settled == Long.MAX_VALUE) {
+					settled = System.currentTimeMillis() + 500;
+				}
+			}
+		}
+		return results;
+	}
+
+	private long committedOffsets() throws Exception {
+		Map<String, Object> adminProps = Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+		try (Admin admin = Admin.create(adminProps)) {
+			Map<TopicPartition, OffsetAndMetadata> offsets = admin
+					.listConsumerGroupOffsets("intellibus-sentiment-stream")
+					.partitionsToOffsetAndMetadata().get();
+			return offsets.values().stream().filter(Objects::nonNull).mapToLong(OffsetAndMetadata::offset).sum();
+		}
+	}
+
+	private long awaitCommitted(long expected) throws Exception {
+		long committed = committedOffsets();
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (committed < expected && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+			committed = committedOffsets();
+		}
+		return committed;
+	}
+}
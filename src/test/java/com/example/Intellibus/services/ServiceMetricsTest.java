@@ -0,0 +1,92 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.Intellibus.config.HealthProperties;
+import com.example.Intellibus.services.ServiceMetrics.Status;
+import com.fasterxml.jackson.core.JsonParseException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ServiceMetricsTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final HealthProperties properties = new HealthProperties();
+	private final ServiceMetrics metrics = new ServiceMetrics(registry, properties);
+
+	@Test
+	void statusFollowsTheRecentErrorRate() {
+		assertEquals(Status.UP, metrics.getStatus(ServiceMetrics.SENTIMENT));
+
+		for (int i = 0; i < 9; i++) {
+			metrics.recordSuccess(ServiceMetrics.SENTIMENT, millis(20));
+		}
+		metrics.recordFailure(ServiceMetrics.SENTIMENT, millis(20), new IllegalStateException("upstream 500"));
+		assertEquals(Status.DEGRADED, metrics.getStatus(ServiceMetrics.SENTIMENT));
+
+		for (int i = 0; i < 10; i++) {
+			metrics.recordFailure(ServiceMetrics.SENTIMENT, millis(20), new IllegalStateException("upstream 500"));
+		}
+		assertEquals(Status.DOWN, metrics.getStatus(ServiceMetrics.SENTIMENT));
+
+		// Old failures age out of the window
+		for (int i = 0; i < properties.getWindow(); i++) {
+			metrics.recordSuccess(ServiceMetrics.SENTIMENT, millis(20));
+		}
+		assertEquals(Status.UP, metrics.getStatus(ServiceMetrics.SENTIMENT));
+	}
+
+	@Test
+	void slowP99DegradesAService() {
+		properties.setSlowP99(Duration.ofSeconds(1));
+		for (int i = 0; i < 50; i++) {
+			metrics.recordSuccess(ServiceMetrics.REPORT, millis(i < 45 ? 100 : 5000));
+		}
+
+		assertEquals(Status.DEGRADED, metrics.getStatus(ServiceMetrics.REPORT));
+		assertTrue((long) metrics.getDetails(ServiceMetrics.REPORT).get("p99Ms") >= 1000);
+	}
+
+	@Test
+	void countsParseFailuresPerService() {
+		Exception wrapped = new CompletionException(new UncheckedIOException(new JsonParseException(null, "No JSON object")));
+		metrics.recordFailure(ServiceMetrics.CHAT, millis(10), wrapped);
+		metrics.recordFailure(ServiceMetrics.CHAT, millis(10), new IllegalStateException("timeout"));
+
+		assertEquals(1.0, registry.get("intellibus.parse.failures").tag("service", "chat").counter().count());
+		assertEquals(2.0, registry.get("intellibus.service.requests").tags("service", "chat", "outcome", "error")
+				.counter().count());
+		assertFalse(ServiceMetrics.isParseFailure(new IllegalStateException("timeout")));
+	}
+
+	@Test
+	void recordsClaudeLatencyAndTokens() {
+		ClaudeResult result = new ClaudeResult();
+		result.setModel("claude-3-haiku-20240307");
+		result.setInputTokens(120);
+		result.setOutputTokens(40);
+		metrics.recordClaudeCall(result, millis(5), millis(800), -1, millis(810), 200);
+
+		ClaudeResult cached = new ClaudeResult();
+		cached.setCached(true);
+		metrics.recordClaudeCall(cached, 0, -1, -1, millis(1), 200);
+
+		assertEquals(1, registry.get("intellibus.claude.api.latency").timer().count());
+		assertEquals(120.0, registry.get("intellibus.claude.tokens").tag("direction", "input").counter().count());
+		assertEquals(1.0, registry.get("intellibus.claude.requests").tag("source", "cache").counter().count());
+		assertEquals(1L, metrics.getDetails(ServiceMetrics.CLAUDE).get("recentRequests"));
+	}
+
+	private static long millis(long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+}
@@ -0,0 +1,53 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.Intellibus.models.chat.ChatAnalysisResult;
+import com.example.Intellibus.models.sentiment.SentimentAnalysisResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+class StructuredOutputExtractorTest {
+
+	private final StructuredOutputExtractor extractor = new StructuredOutputExtractor(new ObjectMapper());
+
+	@Test
+	void skipsBracesInProseAndStopsAtTheEndOfTheObject() throws Exception {
+		String text = "Sure! Using the {sentiment} template, here it is:\n```json\n"
+				+ "{\"sentiment\": \"MIXED\", \"score\": 0.1, \"insights\": \"Mentions {braces} in a string\", \"extra\": 1}\n"
+				+ "```\nLet me know if you need {anything} else.}";
+
+		SentimentAnalysisResult result = extractor.extractObject(text, SentimentAnalysisResult.class);
+
+		assertEquals("MIXED", result.getSentiment());
+		assertEquals("Mentions {braces} in a string", result.getInsights());
+	}
+
+	@Test
+	void bindsSnakeCaseTopicAnalysisIntoTheChatResult() throws Exception {
+		ChatAnalysisResult result = extractor.extractObject(
+				"{\"main_topics\": [\"billing\"], \"action_items\": \"Refund order\", \"conversation_summary\": \"Short\"}",
+				ChatAnalysisResult.class);
+
+		assertEquals(List.of("billing"), result.getMainTopics());
+		assertEquals(List.of("Refund order"), result.getActionItems());
+		assertEquals("Short", result.getConversationSummary());
+	}
+
+	@Test
+	void streamsArrayElementsAndRejectsTextWithoutJson() throws Exception {
+		List<Integer> indexes = new ArrayList<>();
+		extractor.forEachArrayElement("See [1] for details: [{\"index\": 0}, {\"index\": 1}] done]", ObjectNode.class,
+				item -> indexes.add(item.get("index").asInt()));
+
+		assertEquals(List.of(0, 1), indexes);
+		assertThrows(IOException.class, () -> extractor.extractObject("no json {here}", SentimentAnalysisResult.class));
+	}
+}
@@ -0,0 +1,92 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import com.example.Intellibus.config.TokenBudgetProperties;
+import com.example.Intellibus.services.GenerationOptions.UseCase;
+
+class TokenBudgetTest {
+
+	@Test
+	void approximatesEnglishAtAboutFourCharactersPerToken() {
+		assertEquals(10, TokenEstimator.approximate("The quick brown fox jumps over the lazy dog."));
+		assertEquals(0, TokenEstimator.approximate(""));
+
+		String text = "Customers reported that the checkout page froze after applying a discount code, "
+				+ "and several asked for refunds. Support resolved 42 of 57 tickets within 24 hours.\n";
+		int tokens = TokenEstimator.approximate(text.repeat(20));
+		double charsPerToken = (double) text.length() * 20 / tokens;
+		assertTrue(charsPerToken > 3.5 && charsPerToken < 5.5, "chars per token " + charsPerToken);
+	}
+
+	@Test
+	void calibratesAgainstReportedUsage() {
+		TokenEstimator estimator = new TokenEstimator(new TokenBudgetProperties());
+		for (int i = 0; i < 200; i++) {
+			estimator.observe(100, 130);
+		}
+
+		assertEquals(1.3, estimator.getRatio(), 0.01);
+		assertEquals(13, estimator.estimate("The quick brown fox jumps over the lazy dog."));
+	}
+
+	@Test
+	void sizesMaxTokensPerUseCaseAndRejectsPromptsThatCannotFit() {
+		TokenBudgetProperties properties = new TokenBudgetProperties();
+		properties.setContextWindow(5000);
+		TokenBudget budget = new TokenBudget(properties, new TokenEstimator(properties), 1000);
+
+		assertEquals(1000, budget.allocate("system", "hello", GenerationOptions.defaults()).getMaxTokens());
+		assertEquals(4096, budget.allocate("system", "hello",
+				GenerationOptions.forUseCase(UseCase.REPORT_POST_EVENT)).getMaxTokens());
+		GenerationOptions explicit = GenerationOptions.forUseCase(UseCase.SENTIMENT_BATCH);
+		explicit.setMaxTokens(2000);
+		assertEquals(2000, budget.allocate("system", "hello", explicit).getMaxTokens());
+
+		// About 1000 tokens of input leave no room for a 4096-token report
+		String prompt = "word ".repeat(1000);
+		assertTrue(budget.allocate("system", prompt, GenerationOptions.forUseCase(UseCase.SENTIMENT)).fits());
+		assertFalse(budget.allocate("system", prompt, GenerationOptions.forUseCase(UseCase.REPORT_CUSTOM)).fits());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void recordsEstimationErrorAndTruncation() {
+		TokenBudgetProperties properties = new TokenBudgetProperties();
+		TokenBudget budget = new TokenBudget(properties, new TokenEstimator(properties), 1000);
+		TokenBudget.Allocation allocation = budget.allocate("system", "word ".repeat(100),
+				GenerationOptions.forUseCase(UseCase.SENTIMENT));
+
+		ClaudeResult result = new ClaudeResult();
+		result.setInputTokens(allocation.getEstimatedInputTokens() + 10);
+		result.setOutputTokens(600);
+		result.setStopReason("max_tokens");
+		budget.record(allocation, result);
+
+		Map<String, Object> sentiment = (Map<String, Object>) ((Map<String, Object>) budget.getStats().get("useCases"))
+				.get("sentiment");
+		assertEquals(1L, sentiment.get("calls"));
+		assertEquals(1L, sentiment.get("truncated"));
+		assertEquals(1.0, (double) sentiment.get("outputBudgetUsed"), 0.001);
+		assertTrue((double) sentiment.get("inputEstimateErrorRate") > 0);
+	}
+
+	@Test
+	void bindsUseCaseBudgetsFromKebabCaseKeys() {
+		MapConfigurationPropertySource source = new MapConfigurationPropertySource(Map.of(
+				"intellibus.token-budget.max-output-tokens.report-data-slice", "1234"));
+		TokenBudgetProperties properties = new Binder(source)
+				.bind("intellibus.token-budget", TokenBudgetProperties.class).get();
+
+		assertEquals(1234, properties.getMaxOutputTokens().get(UseCase.REPORT_DATA_SLICE));
+		assertEquals(600, properties.getMaxOutputTokens().get(UseCase.SENTIMENT));
+	}
+}
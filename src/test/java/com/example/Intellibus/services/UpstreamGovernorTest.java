@@ -0,0 +1,73 @@
+package com.example.Intellibus.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.Intellibus.config.RateLimitProperties;
+import com.example.Intellibus.services.GenerationOptions.Priority;
+
+class UpstreamGovernorTest {
+
+	@Test
+	void interactiveCallersOvertakeQueuedBulkCallers() throws Exception {
+		RateLimitProperties properties = new RateLimitProperties();
+		properties.setMaxInFlight(1);
+		UpstreamGovernor governor = new UpstreamGovernor(properties);
+
+		UpstreamGovernor.Permit held = governor.acquire(Priority.STANDARD, 10, 10);
+		List<Priority> order = new CopyOnWriteArrayList<>();
+		CompletableFuture<Void> bulk = waitInQueue(governor, Priority.BULK, order);
+		awaitQueued(governor, Priority.BULK);
+		CompletableFuture<Void> interactive = waitInQueue(governor, Priority.INTERACTIVE, order);
+		awaitQueued(governor, Priority.INTERACTIVE);
+
+		governor.release(held, 10, 10);
+		CompletableFuture.allOf(bulk, interactive).get();
+
+		assertEquals(List.of(Priority.INTERACTIVE, Priority.BULK), order);
+	}
+
+	@Test
+	void retryAfterFromUpstreamPausesCallers() throws Exception {
+		RateLimitProperties properties = new RateLimitProperties();
+		properties.setMaxQueueWait(Duration.ofMillis(200));
+		UpstreamGovernor governor = new UpstreamGovernor(properties);
+
+		governor.onResponse(429, Map.of("retry-after", "30", "anthropic-ratelimit-requests-limit", "5")::get);
+
+		assertThrows(TimeoutException.class, () -> governor.acquire(Priority.INTERACTIVE, 10, 10));
+		Map<String, Object> stats = governor.getStats();
+		assertEquals(5L, stats.get("requestsPerMinute"));
+		assertEquals(1L, stats.get("upstreamThrottled"));
+		assertTrue((Long) stats.get("pausedForMs") > 0);
+	}
+
+	private static CompletableFuture<Void> waitInQueue(UpstreamGovernor governor, Priority priority, List<Priority> order) {
+		return CompletableFuture.runAsync(() -> {
+			try {
+				UpstreamGovernor.Permit permit = governor.acquire(priority, 10, 10);
+				order.add(priority);
+				governor.release(permit, 10, 10);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void awaitQueued(UpstreamGovernor governor, Priority priority) throws InterruptedException {
+		while ((Integer) ((Map<String, Object>) governor.getStats().get("queued")).get(priority.name()) == 0) {
+			Thread.sleep(5);
+		}
+	}
+}